@@ -1,8 +1,15 @@
 package litmgmt;
 
+import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.EnumSet;
 import litmgmt.citation.collections.CollectionManager;
+import litmgmt.citation.collections.ValuePool;
+import litmgmt.citation.description.FieldType;
+import litmgmt.jobs.JobManager;
+import litmgmt.persistency.Journal;
 import litmgmt.persistency.SaveFileReader;
+import litmgmt.persistency.SegmentStore;
 import litmgmt.rest.JavalinServer;
 import litmgmt.users.UserAuthenticator;
 
@@ -10,20 +17,73 @@ import litmgmt.users.UserAuthenticator;
 /** REST-style Javalin server for the literature management web app. */
 public class App {
 
+  private static final int SNAPSHOT_INTERVAL = 300; // Seconds between two background snapshots.
+  private static final String SEGMENT_PROPERTY = "litmgmt.residentEntries"; // Enables segment mode, see below.
+  private static final String POOL_FIELDS_PROPERTY = "litmgmt.pooledFields"; // Field types to deduplicate.
+  private static final String POOL_SIZE_PROPERTY = "litmgmt.valuePoolSize";  // Bound of the value pool.
+  private static final String JOB_WORKERS_PROPERTY = "litmgmt.jobWorkers";   // Threads for background jobs.
+
   public static void main(final String[] args) {
 
     var userAuth = new UserAuthenticator();
     var colMgr = new CollectionManager();
-    var server = new JavalinServer(userAuth, colMgr, 80, "html");
 
-    // Restore the previous program state and add hook for save on ordered shutdown.
-    var saveFile = Paths.get(System.getProperty("user.dir"), "savefile.json").toString();
+    // With '-Dlitmgmt.residentEntries=[n]', each collection is kept in its own segment file and
+    // loaded on demand. Collections are kept in memory up to a total of [n] entries.
+    // The save file no longer holds the collections then. So if segment files exist, segment mode
+    // stays on even without the property (with all collections kept in memory).
+    var residentEntries = Long.getLong(SEGMENT_PROPERTY);
+    var segmentDir = Paths.get(System.getProperty("user.dir"), "collections").toString();
+    if (residentEntries == null && SegmentStore.hasSegments(segmentDir)) {
+      System.out.println("[App] Collections are stored in '"+segmentDir+"', keeping segment mode on.");
+      residentEntries = Long.MAX_VALUE;
+    }
+    if (residentEntries != null) colMgr.enableSegmentStorage(new SegmentStore(segmentDir), residentEntries);
+
+    // Values of repeating fields (journal, publisher, ...) are shared between entries. The pooled field
+    // types can be chosen with '-Dlitmgmt.pooledFields=journal,publisher,...' (empty to disable).
+    var pooledFields = System.getProperty(POOL_FIELDS_PROPERTY);
+    var poolSize = Integer.getInteger(POOL_SIZE_PROPERTY, ValuePool.getMaxSize());
+    var fieldTypes = (pooledFields != null)? EnumSet.noneOf(FieldType.class) : ValuePool.getFieldTypes();
+    if (pooledFields != null) {
+      for (var name : pooledFields.split(",")) {
+        if (!name.isBlank()) fieldTypes.add(FieldType.valueOf(name.trim().toUpperCase()));
+      }
+    }
+    ValuePool.configure(fieldTypes, poolSize);
+
+    // Restore the previous program state and replay all changes journaled since then.
+    // The compact binary save file is used if present (see SaveFileConverter), otherwise the JSON one.
+    var saveFile = Paths.get(System.getProperty("user.dir"), "savefile.bin").toString();
+    if (!Files.exists(Paths.get(saveFile))) {
+      saveFile = Paths.get(System.getProperty("user.dir"), "savefile.json").toString();
+    }
+    var journalFile = Paths.get(System.getProperty("user.dir"), "savefile.journal").toString();
     var persistency = new SaveFileReader(saveFile, userAuth, colMgr);
-    persistency.readFromFile();
+    if (!persistency.readFromFile() && Files.exists(Paths.get(saveFile))) {
+      // Running on with an empty state, the next snapshot would overwrite the save file and discard the journal.
+      System.err.println("[App] Save file '"+saveFile+"' could not be restored, not starting.");
+      System.exit(1);
+    }
+    Journal.open(journalFile);
+    Journal.replay(userAuth, colMgr);
+    Journal.activate();
+
+    // Long operations (export, import, reindex) run as jobs on half of the cores, so request threads
+    // always have some left. The number of workers can be set with '-Dlitmgmt.jobWorkers=[n]'.
+    var workers = Integer.getInteger(JOB_WORKERS_PROPERTY, Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    var jobMgr = new JobManager(colMgr, Paths.get(System.getProperty("user.dir"), "jobs").toString(), workers);
+    var server = new JavalinServer(userAuth, colMgr, jobMgr, 80, "html");
+
+    // Take snapshots in the background and a final one on ordered shutdown.
+    persistency.startPeriodicSnapshots(SNAPSHOT_INTERVAL);
     Runtime.getRuntime().addShutdownHook(new Thread() {
       public void run()  {
         server.stop();
-        persistency.saveToFile();
+        jobMgr.shutdown();
+        persistency.stopPeriodicSnapshots();
+        persistency.takeSnapshot();
+        Journal.close();
       }
     });
 
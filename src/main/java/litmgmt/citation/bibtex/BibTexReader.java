@@ -0,0 +1,540 @@
+package litmgmt.citation.bibtex;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import litmgmt.citation.collections.Collection;
+import litmgmt.citation.collections.Entry;
+import litmgmt.citation.description.DescriptionList;
+import litmgmt.citation.description.EntryType;
+import litmgmt.citation.description.FieldType;
+import litmgmt.persistency.IdHelper;
+
+
+/** Reads BibTeX files for imports. The input is streamed through a tokenizer, which only delimits the
+ * records and takes in the '@string' definitions in file order. The records are parsed in chunks on a
+ * fork-join pool (one worker per core by default), while the tokenizer reads on. Parsing maps the records to
+ * entry and field types and checks them against the entry descriptions. The parsed records are then
+ * added to a collection in one batch. */
+public class BibTexReader {
+
+  private Reader _in;                   // The input.
+  private char[] _buffer;               // Characters read from the input.
+  private int _pos, _limit;             // Next and end position in the buffer.
+  private int _line;                    // Current line (for error messages).
+  private Map<String, String> _strings; // String macros defined so far, by lowercase name. Replaced, never changed.
+
+  private static final int BUFFER_SIZE = 65536;  // Characters read from the input at once.
+  private static final int CHUNK_SIZE = 1000;    // Records per parser task.
+  private static final int ID_BLOCK_SIZE = 1024; // Entry IDs reserved at once during an import.
+  private static final String NAME_DELIMITERS = "{}(),=\"#%'"; // Characters ending cite keys, field and macro names.
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+  private static final Map<String, FieldType> FIELD_NAMES = new HashMap<String, FieldType>();
+  private static final Map<EntryType, Set<FieldType>> DESCRIBED =  // Required and optional fields.
+    new EnumMap<EntryType, Set<FieldType>>(EntryType.class);
+  private static final Map<EntryType, Set<FieldType>> REQUIRED =
+    new EnumMap<EntryType, Set<FieldType>>(EntryType.class);
+  private static final Map<String, String> MONTHS = Map.ofEntries(  // Predefined macros of the standard styles.
+    Map.entry("jan", "January"), Map.entry("feb", "February"), Map.entry("mar", "March"),
+    Map.entry("apr", "April"), Map.entry("may", "May"), Map.entry("jun", "June"),
+    Map.entry("jul", "July"), Map.entry("aug", "August"), Map.entry("sep", "September"),
+    Map.entry("oct", "October"), Map.entry("nov", "November"), Map.entry("dec", "December")
+  );
+
+  static {
+    for (var fieldType : FieldType.values()) FIELD_NAMES.put(fieldType.toString().toLowerCase(), fieldType);
+    for (var description : DescriptionList.getEntryDescriptions()) {
+      var entryType = EntryType.valueOf(description.getEntryType().toUpperCase());
+      var required = EnumSet.noneOf(FieldType.class);
+      for (var field : description.getRequiredFields()) required.add(FIELD_NAMES.get(field.getFieldType()));
+      var described = EnumSet.copyOf(required);
+      for (var field : description.getOptionalFields()) described.add(FIELD_NAMES.get(field.getFieldType()));
+      REQUIRED.put(entryType, required);
+      DESCRIBED.put(entryType, described);
+    }
+  }
+
+
+  /** Create a tokenizer for an input.
+   * @param in The input, UTF-8 encoded. */
+  private BibTexReader(InputStream in) {
+    _in = new InputStreamReader(in, StandardCharsets.UTF_8);
+    _buffer = new char[BUFFER_SIZE];
+    _line = 1;
+    _strings = MONTHS;
+  }
+
+
+  /** Read and parse all records of a BibTeX file, with one parser thread per core.
+   * Comments, '@comment' and '@preamble' are skipped.
+   * @param in The input, UTF-8 encoded. It is not closed.
+   * @return The records in file order, each with its fields or an error.
+   * @throws IOException Thrown if the input fails to read. */
+  public static List<Record> read(InputStream in) throws IOException {
+    return read(in, Runtime.getRuntime().availableProcessors());
+  }
+
+
+  /** Read and parse all records of a BibTeX file. Comments, '@comment' and '@preamble' are skipped.
+   * @param in The input, UTF-8 encoded. It is not closed.
+   * @param parallelism Maximum number of threads parsing records at the same time.
+   * @return The records in file order, each with its fields or an error.
+   * @throws IOException Thrown if the input fails to read. */
+  public static List<Record> read(InputStream in, int parallelism) throws IOException {
+    var reader = new BibTexReader(in);
+    var pool = new ForkJoinPool(Math.max(1, parallelism));
+    try {
+      var tasks = new ArrayList<ForkJoinTask<List<Record>>>();
+      var chunk = new ArrayList<Record>(CHUNK_SIZE);
+      Record record;
+      while ((record = reader.nextRecord()) != null) {
+        chunk.add(record);
+        if (chunk.size() == CHUNK_SIZE) {
+          tasks.add(pool.submit(parseTask(chunk)));
+          chunk = new ArrayList<Record>(CHUNK_SIZE);
+        }
+      }
+      if (!chunk.isEmpty()) tasks.add(pool.submit(parseTask(chunk)));
+      var records = new ArrayList<Record>(tasks.size() * CHUNK_SIZE);
+      for (var task : tasks) records.addAll(task.join());
+      return records;
+    }
+    finally {
+      pool.shutdown();
+    }
+  }
+
+
+  /** Create a task parsing a chunk of records.
+   * @param chunk The records, parsed in place.
+   * @return The task, it returns the chunk. */
+  private static Callable<List<Record>> parseTask(List<Record> chunk) {
+    return () -> {
+      for (var record : chunk) record.parse();
+      return chunk;
+    };
+  }
+
+
+  /** Add parsed records to a collection as new entries. All of them are added under one write lock,
+   * so readers see the whole import or nothing of it. Records with errors are skipped, as well as
+   * records whose cite key exists already (in the collection or earlier in the file), which get an error.
+   * @param collection The collection to add the entries to.
+   * @param records The parsed records.
+   * @return Number of created entries. */
+  public static int importRecords(Collection collection, List<Record> records) {
+    var count = 0;
+    IdHelper.beginBlockReservation(ID_BLOCK_SIZE);
+    collection.getLock().writeLock().lock();
+    try {
+      for (var record : records) {
+        if (record._error != null) continue;
+        record._entry = collection.createEntry(record._citeKey, record._entryType, record._fields);
+        if (record._entry != null) count++;
+        else record._error = "Duplicate cite key '"+record._citeKey+"'";
+      }
+    }
+    finally {
+      collection.getLock().writeLock().unlock();
+      IdHelper.endBlockReservation();
+    }
+    return count;
+  }
+
+
+  /** Stream the result of an import as JSON object: the numbers of imported and rejected records, and
+   * the records with errors or warnings (with line, cite key and, if imported, the entry ID).
+   * @param records The imported records.
+   * @param out Stream to write to. It is not closed.
+   * @throws IOException Thrown if the stream fails to write. */
+  public static void writeReportJson(List<Record> records, OutputStream out) throws IOException {
+    var imported = 0;
+    for (var record : records) if (record._entry != null) imported++;
+    try (var gen = JSON_FACTORY.createGenerator(out)) {
+      gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      gen.writeStartObject();
+      gen.writeNumberField("imported", imported);
+      gen.writeNumberField("rejected", records.size() - imported);
+      gen.writeArrayFieldStart("records");
+      for (var record : records) {
+        if (record._error == null && record._warnings == null) continue;
+        gen.writeStartObject();
+        gen.writeNumberField("line", record._line);
+        if (record._citeKey != null) gen.writeStringField("citeKey", record._citeKey);
+        if (record._entry != null) gen.writeNumberField("entryId", record._entry.getId());
+        if (record._error != null) gen.writeStringField("error", record._error);
+        if (record._warnings != null) {
+          gen.writeArrayFieldStart("warnings");
+          for (var warning : record._warnings) gen.writeString(warning);
+          gen.writeEndArray();
+        }
+        gen.writeEndObject();
+      }
+      gen.writeEndArray();
+      gen.writeEndObject();
+    }
+  }
+
+
+  // __________________________________________________________________________
+  // Tokenizer.
+
+  /** Delimit the next record. String definitions are taken in on the way.
+   * @return The record, not parsed yet, or 'null' at the end of the input.
+   * @throws IOException Thrown if the input fails to read. */
+  private Record nextRecord() throws IOException {
+    while (true) {
+      int c;
+      do {  // Text outside of records is a comment.
+        c = next();
+        if (c < 0) return null;
+      } while (c != '@');
+      var line = _line;
+      var type = new StringBuilder();
+      while ((c = next()) >= 0 && Character.isLetter(c)) type.append((char) c);
+      while (c >= 0 && Character.isWhitespace(c)) c = next();
+      if (c != '{' && c != '(') return Record.failed(line, "Expected '{' after '@"+type+"'");
+      var body = readBody((c == '{')? '}' : ')');
+      if (body == null) return Record.failed(line, "Record '@"+type+"' is not closed");
+      switch (type.toString().toLowerCase()) {
+        case "comment":
+        case "preamble":
+          break;
+        case "string":
+          var strings = new HashMap<String, String>(_strings);
+          try {
+            var definition = new Record(line, "string", body, _strings).parseString();
+            strings.put(definition[0], definition[1]);
+          }
+          catch (IllegalArgumentException ex) {
+            return Record.failed(line, ex.getMessage());
+          }
+          _strings = strings;
+          break;
+        default:
+          return new Record(line, type.toString(), body, _strings);
+      }
+    }
+  }
+
+
+  /** Read the body of a record up to its closing delimiter, which is not part of it.
+   * @param close Closing delimiter, '}' or ')'.
+   * @return The body or 'null', if the input ends before.
+   * @throws IOException Thrown if the input fails to read. */
+  private String readBody(char close) throws IOException {
+    var body = new StringBuilder(256);
+    var depth = 0;
+    while (_pos < _limit || fill()) {
+      var start = _pos;
+      for (; _pos < _limit; _pos++) {
+        var c = _buffer[_pos];
+        if (c == '\n') _line++;
+        else if (c == '{') depth++;
+        else if (c == close && depth == 0) {
+          body.append(_buffer, start, _pos++ - start);
+          return body.toString();
+        }
+        else if (c == '}' && depth > 0) depth--;
+      }
+      body.append(_buffer, start, _pos - start);
+    }
+    return null;
+  }
+
+
+  /** Read the next character.
+   * @return The character or -1 at the end of the input.
+   * @throws IOException Thrown if the input fails to read. */
+  private int next() throws IOException {
+    if (_pos == _limit && !fill()) return -1;
+    var c = _buffer[_pos++];
+    if (c == '\n') _line++;
+    return c;
+  }
+
+
+  /** Read the next characters into the buffer, which must be consumed.
+   * @return 'False' at the end of the input.
+   * @throws IOException Thrown if the input fails to read. */
+  private boolean fill() throws IOException {
+    var count = _in.read(_buffer);
+    _pos = 0;
+    _limit = Math.max(count, 0);
+    return count > 0;
+  }
+
+
+  // __________________________________________________________________________
+  // Records.
+
+  /** A record of a BibTeX file. It is created by the tokenizer and parsed later in a worker. */
+  public static class Record {
+    private final int _line;
+    private final String _type;
+    private String _body;                      // Text between the delimiters. Dropped after parsing.
+    private Map<String, String> _strings;      // String macros defined before the record.
+    private int _pos;                          // Parse position in the body.
+    private String _citeKey;
+    private EntryType _entryType;
+    private LinkedHashMap<FieldType, String> _fields;
+    private String _error;                     // Reason why the record cannot be imported.
+    private List<String> _warnings;            // Skipped fields etc. 'null', if there are none.
+    private Entry _entry;                      // The created entry, once imported.
+
+
+    /** Create an unparsed record.
+     * @param line Line the record starts at.
+     * @param type Entry type as written in the file, without '@'.
+     * @param body Text between the delimiters.
+     * @param strings String macros defined before the record. */
+    Record(int line, String type, String body, Map<String, String> strings) {
+      _line = line;
+      _type = type;
+      _body = body;
+      _strings = strings;
+    }
+
+
+    /** Create a record that failed already in the tokenizer, e.g. because it is not closed.
+     * @param line Line the record starts at.
+     * @param error The reason.
+     * @return The record. */
+    static Record failed(int line, String error) {
+      var record = new Record(line, null, null, null);
+      record._error = error;
+      return record;
+    }
+
+
+    /** Parse the cite key and the fields and check them against the entry description. */
+    void parse() {
+      if (_body == null) return;
+      try {
+        try {
+          _entryType = EntryType.valueOf(_type.toUpperCase());
+        }
+        catch (IllegalArgumentException ex) {
+          throw new IllegalArgumentException("Unknown entry type '@"+_type+"'");
+        }
+        skipSpace();
+        _citeKey = readName();
+        if (_citeKey.isEmpty()) throw new IllegalArgumentException("Missing cite key");
+        _fields = new LinkedHashMap<FieldType, String>();
+        while (true) {
+          skipSpace();
+          if (_pos < _body.length() && _body.charAt(_pos) == ',') _pos++;
+          skipSpace();
+          if (_pos == _body.length()) break;
+          var name = readName();
+          if (name.isEmpty()) throw new IllegalArgumentException("Unexpected '"+_body.charAt(_pos)+"'");
+          skipSpace();
+          if (_pos == _body.length() || _body.charAt(_pos++) != '=') {
+            throw new IllegalArgumentException("Expected '=' after field '"+name+"'");
+          }
+          var value = readValue();
+          var fieldType = FIELD_NAMES.get(name.toLowerCase());
+          if (fieldType == null) warn("Unknown field '"+name+"' skipped");
+          else if (_fields.containsKey(fieldType)) warn("Field '"+name+"' given twice, the first value is kept");
+          else if (!value.isEmpty()) {
+            if (!DESCRIBED.get(_entryType).contains(fieldType)) {
+              warn("Field '"+name+"' is not described for '@"+_type.toLowerCase()+"'");
+            }
+            _fields.put(fieldType, value);
+          }
+        }
+        for (var required : REQUIRED.get(_entryType)) {
+          if (!_fields.containsKey(required) && !hasAlternative(required)) {
+            warn("Required field '"+required.toString().toLowerCase()+"' is missing");
+          }
+        }
+      }
+      catch (IllegalArgumentException ex) {
+        _error = ex.getMessage();
+        _fields = null;
+      }
+      _body = null;
+      _strings = null;
+    }
+
+
+    /** Check for the alternative of a required field. The descriptions list author and editor as
+     * required for books, but (as in the standard styles) one of them is enough.
+     * @param required The missing required field.
+     * @return 'True', if the alternative is given instead. */
+    private boolean hasAlternative(FieldType required) {
+      if (required != FieldType.AUTHOR && required != FieldType.EDITOR) return false;
+      var other = (required == FieldType.AUTHOR)? FieldType.EDITOR : FieldType.AUTHOR;
+      return REQUIRED.get(_entryType).contains(other) && _fields.containsKey(other);
+    }
+
+
+    /** Parse the body as string definition ('name = value').
+     * @return Lowercase name and value.
+     * @throws IllegalArgumentException Thrown if the definition is malformed. */
+    String[] parseString() {
+      skipSpace();
+      var name = readName();
+      skipSpace();
+      if (name.isEmpty() || _pos == _body.length() || _body.charAt(_pos++) != '=') {
+        throw new IllegalArgumentException("Malformed '@string' definition");
+      }
+      return new String[] {name.toLowerCase(), readValue()};
+    }
+
+
+    /** Read a field value: Braced or quoted texts, numbers and string macros, joined by '#'.
+     * Whitespace runs (including line breaks) are collapsed to a single space, like BibTeX does.
+     * @return The value.
+     * @throws IllegalArgumentException Thrown if the value is malformed. */
+    private String readValue() {
+      var value = new StringBuilder();
+      while (true) {
+        skipSpace();
+        if (_pos == _body.length()) throw new IllegalArgumentException("Missing value");
+        var c = _body.charAt(_pos);
+        if (c == '{' || c == '"') {
+          var end = closing(_pos + 1, (c == '{')? '}' : '"');
+          value.append(_body, _pos + 1, end);
+          _pos = end + 1;
+        }
+        else {
+          var name = readName();
+          if (name.isEmpty()) throw new IllegalArgumentException("Unexpected '"+c+"' in value");
+          if (Character.isDigit(name.charAt(0))) value.append(name);
+          else {
+            var string = _strings.get(name.toLowerCase());
+            if (string == null) throw new IllegalArgumentException("Undefined string '"+name+"'");
+            value.append(string);
+          }
+        }
+        skipSpace();
+        if (_pos == _body.length() || _body.charAt(_pos) != '#') return collapseSpace(value);
+        _pos++;
+      }
+    }
+
+
+    /** Find the end of a braced or quoted text. Braces inside must be balanced.
+     * @param from Position behind the opening delimiter.
+     * @param close Closing delimiter.
+     * @return Position of the closing delimiter. */
+    private int closing(int from, char close) {
+      var depth = 0;
+      for (int i = from; i < _body.length(); i++) {
+        var c = _body.charAt(i);
+        if (c == close && depth == 0) return i;
+        if (c == '{') depth++;
+        else if (c == '}' && --depth < 0) break;
+      }
+      throw new IllegalArgumentException("Unbalanced braces in value");
+    }
+
+
+    /** Read a cite key, field name, macro name or number, up to whitespace or a delimiter.
+     * @return The name, empty if there is none at the parse position. */
+    private String readName() {
+      var start = _pos;
+      while (_pos < _body.length()) {
+        var c = _body.charAt(_pos);
+        if (Character.isWhitespace(c) || NAME_DELIMITERS.indexOf(c) >= 0) break;
+        _pos++;
+      }
+      return _body.substring(start, _pos);
+    }
+
+
+    /** Move the parse position behind whitespace. */
+    private void skipSpace() {
+      while (_pos < _body.length() && Character.isWhitespace(_body.charAt(_pos))) _pos++;
+    }
+
+
+    /** Add a warning. The record is imported anyway.
+     * @param warning The warning. */
+    private void warn(String warning) {
+      if (_warnings == null) _warnings = new ArrayList<String>(2);
+      _warnings.add(warning);
+    }
+
+
+    /** Collapse whitespace runs to a single space and drop leading and trailing whitespace.
+     * @param text The text.
+     * @return The collapsed text. */
+    private static String collapseSpace(CharSequence text) {
+      var result = new StringBuilder(text.length());
+      var space = false;
+      for (int i = 0; i < text.length(); i++) {
+        var c = text.charAt(i);
+        if (Character.isWhitespace(c)) space = result.length() > 0;
+        else {
+          if (space) result.append(' ');
+          result.append(c);
+          space = false;
+        }
+      }
+      return result.toString();
+    }
+
+
+    // ________________________________________________________________________
+    // GET methods.
+
+    /** Get the line the record starts at.
+     * @return Line number, starting at 1. */
+    public int getLine() {
+      return _line;
+    }
+
+
+    /** Get the cite key of the record.
+     * @return The cite key. 'null', if it could not be parsed. */
+    public String getCiteKey() {
+      return _citeKey;
+    }
+
+
+    /** Get the fields of the record.
+     * @return Field values by type, in file order. 'null', if the record has an error. */
+    public Map<FieldType, String> getFields() {
+      return _fields;
+    }
+
+
+    /** Get the reason why the record cannot be imported.
+     * @return Error message or 'null', if the record is fine. */
+    public String getError() {
+      return _error;
+    }
+
+
+    /** Get the warnings about the record, e.g. skipped fields.
+     * @return The warnings. Empty list, if there are none. */
+    public List<String> getWarnings() {
+      return (_warnings != null)? _warnings : List.of();
+    }
+
+
+    /** Get the entry created for this record.
+     * @return The entry or 'null', if it was not imported (yet). */
+    public Entry getEntry() {
+      return _entry;
+    }
+  }
+}
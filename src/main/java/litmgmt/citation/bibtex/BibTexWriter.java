@@ -0,0 +1,176 @@
+package litmgmt.citation.bibtex;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.IntConsumer;
+import litmgmt.citation.collections.Collection;
+import litmgmt.citation.collections.Entry;
+
+
+/** Writes collections as BibTeX files (UTF-8). The entries are fetched page by page in the order of
+ * their IDs, and each entry is formatted under the read lock of the collection, but written after
+ * releasing it. So memory use does not grow with the size of the collection, and a slow receiver
+ * never blocks writers. Entries added or removed during the export may or may not be included. */
+public class BibTexWriter {
+
+  private static final int PAGE_SIZE = 1000;   // Entries fetched from the collection at once.
+
+
+  /** Write all entries of a collection as BibTeX.
+   * @param collection The collection to export.
+   * @param out Stream to write to. It is flushed, but not closed.
+   * @return Number of entries written.
+   * @throws IOException Thrown if the stream fails to write. */
+  public static int writeCollection(Collection collection, OutputStream out) throws IOException {
+    return writeCollection(collection, out, count -> {});
+  }
+
+
+  /** Write all entries of a collection as BibTeX, reporting the progress.
+   * @param collection The collection to export.
+   * @param out Stream to write to. It is flushed, but not closed.
+   * @param progress Called with the number of entries written so far after each page. It may throw an
+   *   (unchecked) exception to stop the export.
+   * @return Number of entries written.
+   * @throws IOException Thrown if the stream fails to write. */
+  public static int writeCollection(Collection collection, OutputStream out, IntConsumer progress)
+      throws IOException {
+    var writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+    var text = new StringBuilder(512);
+    var count = 0;
+    var afterId = -1;
+    while (true) {
+      var page = collection.getEntriesPage(afterId, PAGE_SIZE);
+      if (page.isEmpty()) break;
+      for (var entry : page) {
+        text.setLength(0);
+        if (formatEntry(collection, entry, text)) {
+          writer.append(text);
+          count++;
+        }
+      }
+      afterId = page.get(page.size() - 1).getId();
+      progress.accept(count);
+    }
+    writer.flush();
+    return count;
+  }
+
+
+  /** Format an entry as BibTeX record, followed by an empty line. The fields are written in the order
+   * they were added, with their values in braces.
+   * @param collection The collection of the entry. Its read lock is taken while the entry is read.
+   * @param entry The entry.
+   * @param text Buffer to append the record to.
+   * @return 'False', if the entry was removed from the collection meanwhile (nothing is appended). */
+  static boolean formatEntry(Collection collection, Entry entry, StringBuilder text) {
+    collection.getLock().readLock().lock();
+    try {
+      if (collection.getEntry(entry.getId()) != entry) return false;
+      text.append('@').append(entry.getEntryType()).append('{');
+      appendCiteKey(entry.getCiteKey(), text);
+      for (var fieldType : entry.getFieldOrder()) {
+        var value = entry.getField(fieldType);
+        if (value == null) continue;
+        text.append(",\n  ").append(fieldType.toString().toLowerCase()).append(" = {");
+        appendValue(value, text);
+        text.append('}');
+      }
+      text.append("\n}\n\n");
+      return true;
+    }
+    finally {
+      collection.getLock().readLock().unlock();
+    }
+  }
+
+
+  /** Append a cite key. Characters BibTeX does not allow in keys (whitespace, braces, commas etc.)
+   * are replaced by '_', so the file stays readable even for such keys.
+   * @param citeKey The cite key.
+   * @param text Buffer to append to. */
+  static void appendCiteKey(String citeKey, StringBuilder text) {
+    for (int i = 0; i < citeKey.length(); i++) {
+      var c = citeKey.charAt(i);
+      text.append((Character.isWhitespace(c) || "{}(),=\"#%'\\~".indexOf(c) >= 0)? '_' : c);
+    }
+  }
+
+
+  /** Append a field value, escaped for a braced BibTeX value. The braces must be balanced, otherwise
+   * BibTeX ends the value early (even escaped braces count). So unmatched braces are written as LaTeX
+   * commands. '%', '&' and '#' are escaped, unless they are already, as they break LaTeX documents.
+   * Other LaTeX markup in the value (e.g. '{\"u}' or math) is kept as is.
+   * @param value The field value.
+   * @param text Buffer to append to. */
+  static void appendValue(String value, StringBuilder text) {
+    var balanced = true;
+    var plain = true;
+    var depth = 0;
+    for (int i = 0; i < value.length(); i++) {
+      var c = value.charAt(i);
+      if (c == '{') depth++;
+      else if (c == '}' && --depth < 0) balanced = false;
+      else if (c == '%' || c == '&' || c == '#' || c == '\r' || c == '\n') plain = false;
+    }
+    balanced &= depth == 0;
+    if (plain && balanced) {  // Most values: Nothing to escape.
+      text.append(value);
+      return;
+    }
+    var matched = balanced? null : matchedBraces(value);
+    var run = 0;  // Start of the characters not appended yet.
+    for (int i = 0; i < value.length(); i++) {
+      var c = value.charAt(i);
+      String escaped;
+      switch (c) {
+        case '{':
+        case '}':
+          if (balanced || matched.get(i)) continue;
+          escaped = (c == '{')? "\\textbraceleft{}" : "\\textbraceright{}";
+          break;
+        case '%':
+        case '&':
+        case '#':
+          if (i > 0 && value.charAt(i - 1) == '\\') continue;
+          escaped = (c == '%')? "\\%" : (c == '&')? "\\&" : "\\#";
+          break;
+        case '\r':
+        case '\n':
+          escaped = " ";  // BibTeX joins the lines anyway, this keeps the record readable.
+          break;
+        default:
+          continue;
+      }
+      text.append(value, run, i).append(escaped);
+      run = i + 1;
+    }
+    text.append(value, run, value.length());
+  }
+
+
+  /** Find the braces that have a partner.
+   * @param value The field value.
+   * @return Positions of the matched opening and closing braces. */
+  private static BitSet matchedBraces(String value) {
+    var matched = new BitSet();
+    var open = new int[8];  // Positions of the opening braces not closed yet.
+    var depth = 0;
+    for (int i = 0; i < value.length(); i++) {
+      var c = value.charAt(i);
+      if (c == '{') {
+        if (depth == open.length) open = Arrays.copyOf(open, depth * 2);
+        open[depth++] = i;
+      }
+      else if (c == '}' && depth > 0) {
+        matched.set(open[--depth]);
+        matched.set(i);
+      }
+    }
+    return matched;
+  }
+}
@@ -0,0 +1,459 @@
+package litmgmt.citation.collections;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import com.fasterxml.jackson.core.JsonGenerator;
+import litmgmt.citation.description.FieldType;
+
+
+/** Index of the author and editor names of the entries of one collection. The name lists are split
+ * into single names ('A and B and C'), which are brought into one form ('Last, First'), so 'Donald E.
+ * Knuth' and 'Knuth, Donald E.' are the same author. Each author maps to a posting list of the IDs of
+ * the entries naming them. The authors are keyed by their case and diacritics folded name, sorted by
+ * last name, so all authors with some last name or name prefix are found by a range lookup.
+ * The collection keeps its index up to date on every change, so it is guarded by the collection lock
+ * like the entries themselves. */
+public class AuthorIndex {
+
+  private TreeMap<String, Author> _authors; // Authors by folded name ('last\tfirst').
+
+
+  /** Create an empty index (package-private, each collection creates its own). */
+  AuthorIndex() {
+    _authors = new TreeMap<String, Author>();
+  }
+
+
+  /** Check if the values of a field type are name lists.
+   * @param fieldType The field type.
+   * @return 'True' for authors and editors. */
+  public static boolean isIndexed(FieldType fieldType) {
+    return fieldType == FieldType.AUTHOR || fieldType == FieldType.EDITOR;
+  }
+
+
+  /** Index the authors and editors of an entry. The caller must hold the write lock.
+   * @param entry The entry that was added to the collection. */
+  void add(Entry entry) {
+    for (var name : names(entry.getField(FieldType.AUTHOR), entry.getField(FieldType.EDITOR)).entrySet()) {
+      _authors.computeIfAbsent(name.getKey(), k -> new Author(name.getValue())).add(entry.getId());
+    }
+  }
+
+
+  /** Remove the authors and editors of an entry. The caller must hold the write lock.
+   * @param entry The entry that is removed from the collection. */
+  void remove(Entry entry) {
+    for (var key : names(entry.getField(FieldType.AUTHOR), entry.getField(FieldType.EDITOR)).keySet()) {
+      removePosting(key, entry.getId());
+    }
+  }
+
+
+  /** Update the index after the authors or editors of an entry were changed. A name in both fields
+   * is listed once, so it stays as long as one of the fields still contains it. The caller must hold
+   * the write lock.
+   * @param entry The changed entry.
+   * @param fieldType The changed field, author or editor.
+   * @param oldValue Previous name list. 'null', if the field was not set.
+   * @param newValue New name list. 'null', if the field was removed. */
+  void update(Entry entry, FieldType fieldType, String oldValue, String newValue) {
+    var other = entry.getField((fieldType == FieldType.AUTHOR)? FieldType.EDITOR : FieldType.AUTHOR);
+    var oldNames = names(oldValue, other);
+    var newNames = names(newValue, other);
+    for (var key : oldNames.keySet()) {
+      if (!newNames.containsKey(key)) removePosting(key, entry.getId());
+    }
+    for (var name : newNames.entrySet()) {
+      if (!oldNames.containsKey(name.getKey())) {
+        _authors.computeIfAbsent(name.getKey(), k -> new Author(name.getValue())).add(entry.getId());
+      }
+    }
+  }
+
+
+  /** Remove an entry from the posting list of an author, and the author if no entry is left.
+   * @param key Folded name of the author.
+   * @param id ID of the entry. */
+  private void removePosting(String key, int id) {
+    var author = _authors.get(key);
+    if (author != null && author.remove(id) && author._size == 0) _authors.remove(key);
+  }
+
+
+  /** Get the distinct names of two name lists.
+   * @param names1 First name list. May be 'null'.
+   * @param names2 Second name list. May be 'null'.
+   * @return The names ('Last, First') by their folded key, in order of appearance. */
+  private static Map<String, String> names(String names1, String names2) {
+    var names = new LinkedHashMap<String, String>();
+    for (var list : new String[] {names1, names2}) {
+      for (var name : parseNames(list)) names.putIfAbsent(key(name[0], name[1]), format(name));
+    }
+    return names;
+  }
+
+
+  /** Split a BibTeX name list into single names. Names are separated by 'and' outside of braces, each
+   * name is given as 'First von Last', 'von Last, First' or 'von Last, Jr, First'. Braces are removed,
+   * but keep their content together ('{Barnes and Noble}' is one name). 'others' is left out.
+   * @param list The name list, e.g. 'Donald E. Knuth and van der Aalst, Wil'. May be 'null'.
+   * @return The names as arrays of last name, first name and suffix (the latter two may be empty). */
+  static List<String[]> parseNames(String list) {
+    var names = new ArrayList<String[]>();
+    if (list == null) return names;
+    var words = new ArrayList<String>();
+    for (var word : splitWords(list)) {
+      if (word == null) {
+        addName(names, words);
+        words.clear();
+      }
+      else words.add(word);
+    }
+    addName(names, words);
+    return names;
+  }
+
+
+  /** Parse the words of a single name and add it to a list.
+   * @param names The list to add the name to.
+   * @param words The words of the name. Commas outside of braces are separate words. */
+  private static void addName(List<String[]> names, List<String> words) {
+    var parts = new ArrayList<List<String>>();
+    parts.add(new ArrayList<String>());
+    for (var word : words) {
+      if (word.equals(",")) parts.add(new ArrayList<String>());
+      else parts.get(parts.size() - 1).add(word);
+    }
+    String last, first, suffix = "";
+    if (parts.size() == 1) {  // 'First von Last': The last name starts at the first lowercase word.
+      var tokens = parts.get(0);
+      if (tokens.isEmpty()) return;
+      var start = tokens.size() - 1;
+      for (int i = 0; i < tokens.size() - 1; i++) {
+        if (Character.isLowerCase(tokens.get(i).charAt(0))) {
+          start = i;
+          break;
+        }
+      }
+      last = join(tokens.subList(start, tokens.size()));
+      first = join(tokens.subList(0, start));
+    }
+    else {  // 'von Last, First' or 'von Last, Jr, First'.
+      last = join(parts.get(0));
+      first = join(parts.get(parts.size() - 1));
+      if (parts.size() > 2) suffix = join(parts.get(1));
+    }
+    if (last.isEmpty() || (first.isEmpty() && last.equalsIgnoreCase("others"))) return;
+    names.add(new String[] {last, first, suffix});
+  }
+
+
+  /** Split a name list into words at whitespace and commas outside of braces. Braces are removed.
+   * @param list The name list.
+   * @return The words, with each comma as a word of its own and 'null' for each separating 'and'. */
+  private static List<String> splitWords(String list) {
+    var words = new ArrayList<String>();
+    var word = new StringBuilder();
+    var depth = 0;
+    var braced = false;  // The word contains braces, so it is never the separator 'and'.
+    for (int i = 0; i <= list.length(); i++) {
+      var c = (i < list.length())? list.charAt(i) : ' ';
+      if (c == '{') depth++;
+      else if (c == '}') depth = Math.max(depth - 1, 0);
+      else if (depth > 0 || (!Character.isWhitespace(c) && c != ',')) word.append(c);
+      else {
+        if (word.length() > 0) {
+          words.add((!braced && word.toString().equalsIgnoreCase("and"))? null : word.toString());
+        }
+        if (c == ',') words.add(",");
+        word.setLength(0);
+        braced = false;
+        continue;
+      }
+      if (c == '{' || c == '}') braced = true;
+    }
+    return words;
+  }
+
+
+  /** Join name words with single spaces.
+   * @param words The words.
+   * @return The joined words. */
+  private static String join(List<String> words) {
+    return String.join(" ", words);
+  }
+
+
+  /** Get the display form of a name.
+   * @param name Last name, first name and suffix.
+   * @return The name as 'Last, First' or 'Last, Jr, First'. */
+  private static String format(String[] name) {
+    if (name[1].isEmpty()) return name[0];
+    return name[0]+", "+(name[2].isEmpty()? "" : name[2]+", ")+name[1];
+  }
+
+
+  /** Get the index key of a name: Last and first name, folded to lowercase without diacritics and
+   * dots, so 'J.R.R. Tolkien' and 'Tolkien, J. R. R.' are the same. The suffix is not part of the key.
+   * @param last Last name.
+   * @param first First name.
+   * @return The key ('last\tfirst'). */
+  static String key(String last, String first) {
+    return normalize(last)+"\t"+normalize(first);
+  }
+
+
+  /** Normalize a part of a name for its key: folded to lowercase, dots replaced, single spaces.
+   * @param part Last or first name.
+   * @return The normalized part. */
+  private static String normalize(String part) {
+    return String.join(" ", SearchIndex.fold(part).replace('.', ' ').trim().split("\\s+"));
+  }
+
+
+  /** Get the key range of a lookup. A name with a first name ('Knuth, Donald' or 'Donald Knuth')
+   * matches exactly, a last name alone matches all authors with it. Lookups are often typed in
+   * lowercase, then the last word of 'first last' is taken as last name (no 'von' part).
+   * @param name The name to look up.
+   * @param prefix 'True' to match all names starting with the given one. Without a comma, the whole
+   *   name is taken as start of a last name then ('van d').
+   * @return Lowest and highest key of the range, or 'null' if the name is empty. */
+  private static String[] range(String name, boolean prefix) {
+    if (name.isBlank()) return prefix? new String[] {"", "\uffff"} : null;
+    if (prefix && !name.contains(",")) return new String[] {normalize(name), normalize(name)+"\uffff"};
+    var parsed = parseNames(name);
+    if (parsed.isEmpty()) return null;
+    var last = parsed.get(0)[0];
+    var first = parsed.get(0)[1];
+    if (!name.contains(",") && name.equals(name.toLowerCase())) {
+      var split = last.lastIndexOf(' ');
+      first = (split < 0)? "" : last.substring(0, split);
+      last = last.substring(split + 1);
+    }
+    if (first.isEmpty() && !prefix) return new String[] {normalize(last)+"\t", normalize(last)+"\t\uffff"};
+    var key = key(last, first);
+    return new String[] {key, prefix? key+"\uffff" : key};
+  }
+
+
+  /** List the authors and editors of some collections, with the number of entries naming them.
+   * Authors of several collections are merged. The collections are locked one after another.
+   * @param collections The collections.
+   * @param prefix Start of the names to list, e.g. 'knu' or 'Knuth, D'. Empty for all.
+   * @param limit Maximum number of authors to return.
+   * @return The authors, sorted by their last name. */
+  public static List<AuthorCount> listAuthors(List<Collection> collections, String prefix, int limit) {
+    var merged = new TreeMap<String, AuthorCount>();
+    var range = range(prefix, true);
+    if (range == null || limit <= 0) return new ArrayList<AuthorCount>();
+    for (var col : collections) {
+      col.getLock().readLock().lock();
+      try {
+        var count = 0;  // Only the first authors of each collection can be among the first of all.
+        for (var author : col.getAuthorIndex()._authors.subMap(range[0], true, range[1], true).entrySet()) {
+          if (count++ == limit) break;
+          var sum = merged.computeIfAbsent(author.getKey(), k -> new AuthorCount(author.getValue()._name));
+          sum._count += author.getValue()._size;
+        }
+      }
+      finally {
+        col.getLock().readLock().unlock();
+      }
+    }
+    var authors = new ArrayList<AuthorCount>(merged.values());
+    return (authors.size() > limit)? new ArrayList<AuthorCount>(authors.subList(0, limit)) : authors;
+  }
+
+
+  /** Find the entries of an author or editor in some collections. The collections are locked one
+   * after another.
+   * @param collections The collections.
+   * @param name Name of the author. A last name alone ('Stevens-Long') finds all authors with it.
+   * @param limit Maximum number of entries to return.
+   * @return The entries, sorted by collection and entry ID. */
+  public static List<AuthorMatch> findEntries(List<Collection> collections, String name, int limit) {
+    var matches = new ArrayList<AuthorMatch>();
+    var range = range(name, false);
+    if (range == null) return matches;
+    for (var col : collections) {
+      if (matches.size() >= limit) break;
+      col.getLock().readLock().lock();
+      try {
+        var authors = col.getAuthorIndex()._authors.subMap(range[0], true, range[1], true).values();
+        int[] ids;
+        if (authors.size() == 1) ids = authors.iterator().next().ids();
+        else {  // Several authors with this last name: Merge their lists, an entry may name several.
+          ids = authors.stream().flatMapToInt(a -> Arrays.stream(a.ids())).sorted().distinct().toArray();
+        }
+        for (int i = 0; i < ids.length && matches.size() < limit; i++) {
+          var entry = col.getEntry(ids[i]);
+          if (entry != null) matches.add(new AuthorMatch(col.getId(), entry));
+        }
+      }
+      finally {
+        col.getLock().readLock().unlock();
+      }
+    }
+    return matches;
+  }
+
+
+  /** Stream authors as JSON array of objects with name and entry count.
+   * @param authors The authors.
+   * @param out Stream to write to. It is not closed.
+   * @throws IOException Thrown if the stream fails to write. */
+  public static void writeAuthorsJson(List<AuthorCount> authors, OutputStream out) throws IOException {
+    try (var gen = Entry.JSON_FACTORY.createGenerator(out)) {
+      gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      gen.writeStartArray();
+      for (var author : authors) {
+        gen.writeStartObject();
+        gen.writeStringField("name", author._name);
+        gen.writeNumberField("count", author._count);
+        gen.writeEndObject();
+      }
+      gen.writeEndArray();
+    }
+  }
+
+
+  /** Stream the entries of an author as JSON array of objects with collection ID and entry.
+   * @param matches The entries.
+   * @param out Stream to write to. It is not closed.
+   * @throws IOException Thrown if the stream fails to write. */
+  public static void writeMatchesJson(List<AuthorMatch> matches, OutputStream out) throws IOException {
+    try (var gen = Entry.JSON_FACTORY.createGenerator(out)) {
+      gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      gen.writeStartArray();
+      for (var match : matches) {
+        gen.writeStartObject();
+        gen.writeNumberField("collectionId", match._collectionId);
+        gen.writeFieldName("entry");
+        match._entry.saveEntryAsJson(gen);
+        gen.writeEndObject();
+      }
+      gen.writeEndArray();
+    }
+  }
+
+
+  /** An author of a collection: The name as first seen and the IDs of the entries naming it, sorted. */
+  private static class Author {
+    final String _name;        // Display form of the name.
+    int[] _ids = new int[1];   // Entry IDs, sorted, the first '_size' are used.
+    int _size;                 // Number of entries.
+
+
+    /** Create an author without entries.
+     * @param name Display form of the name. */
+    Author(String name) {
+      _name = name;
+    }
+
+
+    /** Add an entry. Nothing is done if it is listed already.
+     * @param id ID of the entry. */
+    void add(int id) {
+      var i = find(id);
+      if (i >= 0) return;
+      i = -1 - i;
+      if (_size == _ids.length) _ids = Arrays.copyOf(_ids, _size + (_size >> 1) + 1);
+      System.arraycopy(_ids, i, _ids, i + 1, _size - i);
+      _ids[i] = id;
+      _size++;
+    }
+
+
+    /** Remove an entry.
+     * @param id ID of the entry.
+     * @return 'True', if the entry was listed. */
+    boolean remove(int id) {
+      var i = find(id);
+      if (i < 0) return false;
+      System.arraycopy(_ids, i + 1, _ids, i, _size - i - 1);
+      _size--;
+      return true;
+    }
+
+
+    /** Find an entry like {@link Arrays#binarySearch}, new entries usually go last.
+     * @param id ID of the entry.
+     * @return Index of the entry, or '-1 - insertion point' if it is not listed. */
+    int find(int id) {
+      if (_size == 0 || _ids[_size - 1] < id) return -1 - _size;
+      return Arrays.binarySearch(_ids, 0, _size, id);
+    }
+
+
+    /** Get the entries naming the author.
+     * @return Copy of the entry IDs, sorted. */
+    int[] ids() {
+      return Arrays.copyOf(_ids, _size);
+    }
+  }
+
+
+  /** An author with the number of entries naming them. */
+  public static class AuthorCount {
+    private final String _name;  // Display form of the name.
+    private int _count;          // Number of entries, summed up over the collections.
+
+
+    /** Create an author count of zero.
+     * @param name Display form of the name. */
+    AuthorCount(String name) {
+      _name = name;
+    }
+
+
+    /** Get the name of the author.
+     * @return The name as 'Last, First'. */
+    public String getName() {
+      return _name;
+    }
+
+
+    /** Get the number of entries naming the author (as author or editor).
+     * @return The entry count. */
+    public int getCount() {
+      return _count;
+    }
+  }
+
+
+  /** An entry of an author, with the collection it belongs to. */
+  public static class AuthorMatch {
+    private final int _collectionId;  // Collection of the entry.
+    private final Entry _entry;       // The entry naming the author.
+
+
+    /** Create a match.
+     * @param collectionId ID of the collection the entry belongs to.
+     * @param entry The entry. */
+    AuthorMatch(int collectionId, Entry entry) {
+      _collectionId = collectionId;
+      _entry = entry;
+    }
+
+
+    /** Get the ID of the collection the entry belongs to.
+     * @return The collection ID. */
+    public int getCollectionId() {
+      return _collectionId;
+    }
+
+
+    /** Get the entry.
+     * @return The entry. */
+    public Entry getEntry() {
+      return _entry;
+    }
+  }
+}
@@ -1,20 +1,52 @@
 package litmgmt.citation.collections;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntConsumer;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import litmgmt.citation.description.EntryType;
+import litmgmt.citation.description.FieldType;
 import litmgmt.persistency.IdHelper;
+import litmgmt.persistency.Journal;
 
 
-/** A collection is an aggregation of citation entries. */
+/** A collection is an aggregation of citation entries.
+ * Each collection has its own read/write lock, which guards the entry list as well as the fields of
+ * its entries. All methods lock on their own. Callers only need to take the write lock themselves
+ * if several changes have to be applied as one unit (e.g. creating an entry and setting its fields). */
 @JsonPropertyOrder({"id", "name", "entries"})
 public class Collection {
 
-  private int _id;              // Collection identifier.
-  private String _name;         // Name of the collection.
-  private List<Entry> _entries; // List with citation entries.
+  private int _id;                        // Collection identifier.
+  private volatile String _name;          // Name of the collection.
+  private Map<Integer, Entry> _entries;   // Citation entries by ID, in insertion order.
+  private Map<String, Entry> _citeKeys;   // Index of the entries by cite key.
+  private ArrayList<Entry> _order;        // Ordering index: the entries sorted by ID (for cursor pagination).
+  private SearchIndex _searchIndex;       // Full-text index over the text fields of the entries.
+  private AuthorIndex _authorIndex;       // Index of the entries by author and editor names.
+  private FacetCounts _facetCounts;       // Entry counts per entry type, year, journal and book title.
+  private DuplicateIndex _duplicateIndex; // Buckets of similar entries by title, authors and year.
+  private ReentrantReadWriteLock _lock;   // Guards the entries and their fields.
+  private volatile boolean _dirty;        // Set on mutation, cleared once the collection is written to its segment file.
+  private volatile long _version;         // Bumped on every change of the collection or its entries.
+  volatile boolean _evicted;              // Segment mode: Set while the collection is not resident in the manager.
+  volatile long _lastAccess;              // Segment mode: Access clock value of the last access (for LRU eviction).
+  volatile CollectionManager _manager;    // Segment mode: Manager to re-admit the collection if changed after eviction.
+
+  private static final AtomicLong _versionClock = new AtomicLong(); // Source of versions for collections and entries.
 
 
   /** Create a new collection.
@@ -24,13 +56,21 @@ public class Collection {
   }
 
 
-  /** Create a new collection (private constructor with ID setter).
+  /** Create a new collection (package-private constructor with ID setter).
    * @param id Collection identifier.
    * @param name Collection name. */
-  private Collection(int id, String name) {
+  Collection(int id, String name) {
     _id = id;
     _name = name;
-    _entries = new ArrayList<Entry>();
+    _entries = new LinkedHashMap<Integer, Entry>();
+    _citeKeys = new HashMap<String, Entry>();
+    _order = new ArrayList<Entry>();
+    _searchIndex = new SearchIndex();
+    _authorIndex = new AuthorIndex();
+    _facetCounts = new FacetCounts();
+    _duplicateIndex = new DuplicateIndex();
+    _lock = new ReentrantReadWriteLock();
+    _version = nextVersion();
   }
 
 
@@ -39,19 +79,128 @@ public class Collection {
    * @param entryType Predefined type of the entry.
    * @return The created entry or 'null' on conflict. */
   public Entry createEntry(String citeKey, EntryType entryType) {
-    for (var entry : _entries) {
-      if (entry.getCiteKey().equals(citeKey)) return null;
+    return createEntry(citeKey, entryType, Map.of());
+  }
+
+
+  /** Create a new entry with its fields in this collection (used by imports and the REST API). The fields
+   * are set before the entry is added, so the indexes take it in once instead of updating it field by field.
+   * The entry and its fields are journaled as one batch, so a crash cannot leave a part of them.
+   * @param citeKey Cite key (unique string identifier per collection).
+   * @param entryType Predefined type of the entry.
+   * @param fields Field values by type, in the order they shall be added.
+   * @return The created entry or 'null' on conflict. */
+  public Entry createEntry(String citeKey, EntryType entryType, Map<FieldType, String> fields) {
+    _lock.writeLock().lock();
+    try {
+      if (_citeKeys.containsKey(citeKey)) return null;
+      var newEntry = new Entry(citeKey, entryType);
+      for (var field : fields.entrySet()) newEntry.initField(field.getKey(), field.getValue());
+      addEntry(newEntry);
+      Journal.beginBatch();
+      try {
+        Journal.logCreateEntry(this, newEntry);
+        for (var fieldType : newEntry.getFieldOrder()) {
+          Journal.logSetField(newEntry, fieldType, newEntry.getField(fieldType));
+        }
+      }
+      finally {
+        Journal.endBatch();
+      }
+      return newEntry;
+    }
+    finally {
+      _lock.writeLock().unlock();
+    }
+  }
+
+
+  /** Restore a previously created collection (used by the save file readers).
+   * @param id Collection identifier.
+   * @param name Collection name.
+   * @return The restored collection, not yet attached to any user. */
+  public static Collection restoreCollection(int id, String name) {
+    return new Collection(id, name);
+  }
+
+
+  /** Restore a previously created collection with its entries (used by the save file readers). Each entry
+   * is added and indexed once, with all its fields. No cite key check is done.
+   * @param id Collection identifier.
+   * @param name Collection name.
+   * @param entries The entries, not attached to any collection (see {@link Entry#restoreEntry}).
+   * @return The restored collection, not yet attached to any user. */
+  public static Collection restoreCollection(int id, String name, List<Entry> entries) {
+    var collection = new Collection(id, name);
+    for (var entry : entries) collection.addEntry(entry);  // Not shared yet, so no locking needed.
+    return collection;
+  }
+
+
+  /** Restore a previously created entry (used for replay and by the save file readers). No cite key check is done.
+   * @param id Identifier of the entry.
+   * @param citeKey Cite key (unique string identifier per collection).
+   * @param entryType Predefined type of the entry.
+   * @return The restored entry. */
+  public Entry restoreEntry(int id, String citeKey, EntryType entryType) {
+    var entry = new Entry(id, citeKey, entryType);
+    _lock.writeLock().lock();
+    try {
+      addEntry(entry);
+      return entry;
+    }
+    finally {
+      _lock.writeLock().unlock();
     }
-    var newEntry = new Entry(citeKey, entryType);
-    _entries.add(newEntry);
-    return newEntry;
+  }
+
+
+  /** Attach an entry to this collection. The caller must hold the write lock.
+   * @param entry The entry to add. */
+  private void addEntry(Entry entry) {
+    var previous = _entries.put(entry.getId(), entry);
+    var pos = orderIndex(entry.getId());
+    if (previous != null) {
+      System.err.println("[Collection] Warning: Entry #"+entry.getId()+" in collection #"+_id+" replaced!");
+      _citeKeys.remove(previous.getCiteKey(), previous);
+      _searchIndex.remove(previous);
+      _authorIndex.remove(previous);
+      _facetCounts.remove(previous);
+      _duplicateIndex.remove(previous);
+      previous._owner = null;
+      _order.set(pos, entry);
+    }
+    else _order.add(pos, entry);
+    entry._owner = this;
+    _citeKeys.put(entry.getCiteKey(), entry);
+    _searchIndex.add(entry);
+    _authorIndex.add(entry);
+    _facetCounts.add(entry);
+    _duplicateIndex.add(entry);
+    setDirty(true);
   }
 
 
   /** Delete an entry of this collection.
    * @param entry The entry to remove. */
   public void deleteEntry(Entry entry) {
-    _entries.remove(entry);
+    _lock.writeLock().lock();
+    try {
+      if (entry != null && _entries.remove(entry.getId(), entry)) {
+        _citeKeys.remove(entry.getCiteKey(), entry);
+        _order.remove(orderIndex(entry.getId()));
+        _searchIndex.remove(entry);
+        _authorIndex.remove(entry);
+        _facetCounts.remove(entry);
+        _duplicateIndex.remove(entry);
+        entry._owner = null;
+        setDirty(true);
+        Journal.logDeleteEntry(this, entry);
+      }
+    }
+    finally {
+      _lock.writeLock().unlock();
+    }
   }
 
 
@@ -60,63 +209,276 @@ public class Collection {
    * @param newCiteKey The new cite key for the entry.
    * @return Success flag, tells whether renaming succeeded or not (because of a name collision). */
   public boolean renameEntry(Entry entry, String newCiteKey) {
-    for (var existingEntry : _entries) {
-      if (existingEntry.getCiteKey().equals(newCiteKey)) return false;
+    _lock.writeLock().lock();
+    try {
+      if (_citeKeys.containsKey(newCiteKey)) return false;
+      entry.rename(newCiteKey);
+      return true;
+    }
+    finally {
+      _lock.writeLock().unlock();
+    }
+  }
+
+
+  /** Find the position of an ID in the ordering index. The caller must hold the lock.
+   * @param id An entry ID.
+   * @return Index of the first entry with this or a greater ID. */
+  private int orderIndex(long id) {
+    var size = _order.size();
+    if (size == 0 || _order.get(size - 1).getId() < id) return size;  // New entries usually go last.
+    int low = 0, high = size - 1;
+    while (low < high) {
+      var mid = (low + high) >>> 1;
+      if (_order.get(mid).getId() < id) low = mid + 1;
+      else high = mid;
+    }
+    return low;
+  }
+
+
+  /** Update the cite key index after an entry was renamed. The caller must hold the write lock.
+   * @param entry The renamed entry.
+   * @param oldCiteKey Previous cite key of the entry. */
+  void updateCiteKey(Entry entry, String oldCiteKey) {
+    _citeKeys.remove(oldCiteKey, entry);
+    _citeKeys.put(entry.getCiteKey(), entry);
+  }
+
+
+  /** Update the indexes after a field of an entry was set. The caller must hold the write lock.
+   * @param entry The changed entry.
+   * @param fieldType Type of the changed field.
+   * @param oldValue Previous value of the field. 'null', if it was not set.
+   * @param newValue New value of the field. */
+  void updateField(Entry entry, FieldType fieldType, String oldValue, String newValue) {
+    if (SearchIndex.isIndexed(fieldType)) _searchIndex.update(entry, oldValue, newValue);
+    if (AuthorIndex.isIndexed(fieldType)) _authorIndex.update(entry, fieldType, oldValue, newValue);
+    if (FacetCounts.isCounted(fieldType)) _facetCounts.update(fieldType, oldValue, newValue);
+    if (DuplicateIndex.isIndexed(fieldType)) _duplicateIndex.update(entry, fieldType, oldValue, newValue);
+  }
+
+
+  /** Rebuild the search index, author index, facet counts and duplicate index from the entries, e.g. to
+   * compact them after many changes. The write lock is held meanwhile. If the progress callback throws an
+   * exception (e.g. to cancel), the old indexes are kept.
+   * @param progress Called with the number of indexed entries after every 1000 entries and at the end. */
+  public void rebuildIndexes(IntConsumer progress) {
+    _lock.writeLock().lock();
+    try {
+      var searchIndex = new SearchIndex();
+      var authorIndex = new AuthorIndex();
+      var facetCounts = new FacetCounts();
+      var duplicateIndex = new DuplicateIndex();
+      var termCounts = new int[_order.size()];  // Previous term counts of the entries, restored on failure.
+      var done = 0;                              // Entries whose term count was reset.
+      try {
+        for (var entry : _order) {
+          termCounts[done++] = entry._termCount;
+          entry._termCount = 0;
+          searchIndex.add(entry);
+          authorIndex.add(entry);
+          facetCounts.add(entry);
+          duplicateIndex.add(entry);
+          if (done % 1000 == 0) progress.accept(done);
+        }
+        progress.accept(done);
+      }
+      catch (RuntimeException ex) {
+        for (int i = 0; i < done; i++) _order.get(i)._termCount = termCounts[i];
+        throw ex;
+      }
+      _searchIndex = searchIndex;
+      _authorIndex = authorIndex;
+      _facetCounts = facetCounts;
+      _duplicateIndex = duplicateIndex;
+    }
+    finally {
+      _lock.writeLock().unlock();
     }
-    entry.rename(newCiteKey);
-    return true;
   }
 
 
   /** Rename this collection.
    * @param newName The new name for this collection. */
   public void rename(String newName) {
-    _name = newName;
+    _lock.writeLock().lock();
+    try {
+      _name = newName;
+      setDirty(true);
+      Journal.logRenameCollection(this);
+    }
+    finally {
+      _lock.writeLock().unlock();
+    }
   }
 
 
   /** Load a collection by restoring all its fields read from a JSON object.
-   * @param json JSON object to initialize from.
-   * @return A collection object or 'null' on parser failure. */
-  public static Collection loadCollectionFromJson(JsonNode json) {
-    try {
-      var collection = new Collection(
-        json.get("id").asInt(),
-        json.get("name").asText()
-      );
-      for (JsonNode entryJson : json.get("entries")) {
-        var entry = Entry.loadEntryFromJson(entryJson);
-        if (entry != null) collection._entries.add(entry);
+   * @param parser JSON parser, positioned at the start of the collection object.
+   * @return A collection object or 'null' on invalid input. The parser is moved behind the object in any case.
+   * @throws IOException Thrown if the JSON itself is malformed. */
+  public static Collection loadCollectionFromJson(JsonParser parser) throws IOException {
+    int id = -1;
+    String name = null;
+    var entries = new ArrayList<Entry>();
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      var key = parser.getCurrentName();
+      parser.nextToken();
+      switch (key) {
+        case "id": id = parser.getIntValue(); break;
+        case "name": name = parser.getText(); break;
+        case "entries":
+          while (parser.nextToken() == JsonToken.START_OBJECT) {
+            var entry = Entry.loadEntryFromJson(parser);
+            if (entry != null) entries.add(entry);
+          }
+          break;
+        default: parser.skipChildren();
       }
-      return collection;
     }
-    catch (Exception ex) {
-      System.err.println("[Collection] Failed to initialize from JSON! Input was:\n"+json);
+    if (id < 0 || name == null) {
+      System.err.println("[Collection] Failed to initialize collection #"+id+" from JSON!");
       return null;
     }
+    return restoreCollection(id, name, entries);
   }
 
 
   /** Output the properties of this collection as JSON object.
-   * @return JSON containing all properties of this object. */
-  public String saveCollectionAsJson() {
-    var sb = new StringBuilder();
-    sb.append(
-      "    {\n"+
-      "      \"id\": "+_id+",\n"+
-      "      \"name\": \""+_name+"\",\n"+
-      "      \"entries\": [\n"
-    );
-    for (int i = 0; i < _entries.size(); i++) {
-      sb.append(_entries.get(i).saveEntryAsJson());
-      if (i < _entries.size() - 1) sb.append(",\n");
-      else sb.append("\n");
-    }
-    sb.append(
-      "      ]\n"+
-      "    }"
-    );
-    return sb.toString();
+   * @param gen JSON generator to stream the object to.
+   * @throws IOException Thrown if the generator fails to write. */
+  public void saveCollectionAsJson(JsonGenerator gen) throws IOException {
+    _lock.readLock().lock();
+    try {
+      gen.writeStartObject();
+      gen.writeNumberField("id", _id);
+      gen.writeStringField("name", _name);
+      gen.writeArrayFieldStart("entries");
+      for (var entry : _entries.values()) entry.saveEntryAsJson(gen);
+      gen.writeEndArray();
+      gen.writeEndObject();
+    }
+    finally {
+      _lock.readLock().unlock();
+    }
+  }
+
+
+  /** Get this collection as JSON object, assembled from the cached JSON of its entries.
+   * @return UTF-8 encoded JSON object, the same as written by {@link #saveCollectionAsJson}. */
+  public byte[] toJson() {
+    _lock.readLock().lock();
+    try {
+      var head = new ByteArrayOutputStream();
+      try (var gen = Entry.JSON_FACTORY.createGenerator(head)) {
+        gen.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);  // Only the head is written here.
+        gen.writeStartObject();
+        gen.writeNumberField("id", _id);
+        gen.writeStringField("name", _name);
+        gen.writeFieldName("entries");
+        gen.writeRaw(':');
+      }
+      catch (IOException ex) {
+        throw new IllegalStateException(ex);  // Not thrown by an in-memory stream.
+      }
+      var parts = new byte[_entries.size()][];
+      var size = head.size() + 3 + Math.max(parts.length - 1, 0);  // Brackets, commas and closing brace.
+      var i = 0;
+      for (var entry : _entries.values()) {
+        parts[i] = entry.toJson();
+        size += parts[i++].length;
+      }
+      var json = Arrays.copyOf(head.toByteArray(), size);  // Allocated at its exact size.
+      var pos = head.size();
+      json[pos++] = '[';
+      for (i = 0; i < parts.length; i++) {
+        if (i > 0) json[pos++] = ',';
+        System.arraycopy(parts[i], 0, json, pos, parts[i].length);
+        pos += parts[i].length;
+      }
+      json[pos++] = ']';
+      json[pos] = '}';
+      return json;
+    }
+    finally {
+      _lock.readLock().unlock();
+    }
+  }
+
+
+  /** Stream this collection as JSON object, from the cached JSON of its entries. Only the entry list is
+   * copied under the read lock, each entry is then locked on its own while it is written. So a slow
+   * receiver never blocks writers, and no buffer for the whole collection is needed.
+   * @param out Stream to write to. It is not closed.
+   * @throws IOException Thrown if the stream fails to write. */
+  public void writeJson(OutputStream out) throws IOException {
+    writeJson(out, true);
+  }
+
+
+  /** Stream this collection as JSON object, like {@link #writeJson(OutputStream)}.
+   * @param out Stream to write to. It is not closed.
+   * @param withEntries 'False' to leave out the entries (only ID and name are written).
+   * @throws IOException Thrown if the stream fails to write. */
+  public void writeJson(OutputStream out, boolean withEntries) throws IOException {
+    String name;
+    List<Entry> entries;
+    _lock.readLock().lock();
+    try {
+      name = _name;
+      entries = withEntries? new ArrayList<Entry>(_entries.values()) : null;
+    }
+    finally {
+      _lock.readLock().unlock();
+    }
+    try (var gen = Entry.JSON_FACTORY.createGenerator(out)) {
+      gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      gen.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);  // Only the head is written here.
+      gen.writeStartObject();
+      gen.writeNumberField("id", _id);
+      gen.writeStringField("name", name);
+      if (withEntries) {
+        gen.writeFieldName("entries");
+        gen.writeRaw(':');
+      }
+    }
+    if (withEntries) writeEntriesJson(entries, null, out);
+    out.write('}');
+  }
+
+
+  /** Stream all entries of this collection as JSON array, like {@link #writeJson}.
+   * @param out Stream to write to. It is not closed.
+   * @throws IOException Thrown if the stream fails to write. */
+  public void writeEntriesJson(OutputStream out) throws IOException {
+    writeEntriesJson(getEntries(), null, out);
+  }
+
+
+  /** Stream the given entries as JSON array. Without projection, the cached JSON of the entries is
+   * copied, otherwise only the selected properties are generated.
+   * @param entries The entries to write, e.g. a page of a collection.
+   * @param projection Properties and fields to write. 'null' for all.
+   * @param out Stream to write to. It is not closed.
+   * @throws IOException Thrown if the stream fails to write. */
+  public static void writeEntriesJson(List<Entry> entries, FieldProjection projection, OutputStream out)
+      throws IOException {
+    if (projection != null) {
+      try (var gen = Entry.JSON_FACTORY.createGenerator(out)) {
+        gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        gen.writeStartArray();
+        for (var entry : entries) entry.saveEntryAsJson(gen, projection);
+        gen.writeEndArray();
+      }
+      return;
+    }
+    out.write('[');
+    for (int i = 0; i < entries.size(); i++) {
+      if (i > 0) out.write(',');
+      out.write(entries.get(i).toJson());
+    }
+    out.write(']');
   }
 
 
@@ -138,8 +500,144 @@ public class Collection {
 
 
   /** Get all entries of the collection.
-   * @return List with all entries. Empty list, if no entry exists yet! */
+   * @return Copy of the entry list. Empty list, if no entry exists yet! */
   public List<Entry> getEntries() {
-    return _entries;
+    _lock.readLock().lock();
+    try {
+      return new ArrayList<Entry>(_entries.values());
+    }
+    finally {
+      _lock.readLock().unlock();
+    }
+  }
+
+
+  /** Get the number of entries in this collection. Does not lock, so the result may be
+   * outdated while the collection is being changed.
+   * @return Entry count. */
+  @JsonIgnore
+  public int getEntryCount() {
+    return _entries.size();
+  }
+
+
+  /** Get a page of entries, ordered by ID. Entries that are added or removed meanwhile do not shift
+   * later pages, as the cursor is the ID of the last entry seen, not a position.
+   * @param afterId Cursor: Only entries with a greater ID are returned. -1 for the first page.
+   * @param limit Maximum number of entries to return.
+   * @return The entries of the page. Empty list, if there are no more. */
+  public List<Entry> getEntriesPage(int afterId, int limit) {
+    _lock.readLock().lock();
+    try {
+      var from = orderIndex(afterId + 1L);
+      var to = (int) Math.min((long) from + limit, _order.size());
+      return new ArrayList<Entry>(_order.subList(from, to));
+    }
+    finally {
+      _lock.readLock().unlock();
+    }
+  }
+
+
+  /** Get a single entry of the collection.
+   * @param entryId Identifier of the entry.
+   * @return The entry or 'null' if it was not found. */
+  public Entry getEntry(int entryId) {
+    _lock.readLock().lock();
+    try {
+      return _entries.get(entryId);
+    }
+    finally {
+      _lock.readLock().unlock();
+    }
+  }
+
+
+  /** Get a single entry of the collection by its cite key.
+   * @param citeKey Cite key of the entry.
+   * @return The entry or 'null' if it was not found. */
+  public Entry getEntryByCiteKey(String citeKey) {
+    _lock.readLock().lock();
+    try {
+      return _citeKeys.get(citeKey);
+    }
+    finally {
+      _lock.readLock().unlock();
+    }
+  }
+
+
+  /** Get the lock of this collection. Take the write lock to apply several changes as one unit.
+   * Never try to take the write lock while holding the read lock, that would deadlock!
+   * @return Read/write lock, guarding the entries and their fields. */
+  @JsonIgnore
+  public ReentrantReadWriteLock getLock() {
+    return _lock;
+  }
+
+
+  /** Check if this collection was changed since it was last written to its segment file.
+   * @return 'True', if there are unsaved changes. */
+  @JsonIgnore
+  public boolean isDirty() {
+    return _dirty;
+  }
+
+
+  /** Get the full-text index of this collection. It must only be used while holding the lock.
+   * @return The search index. */
+  SearchIndex getSearchIndex() {
+    return _searchIndex;
+  }
+
+
+  /** Get the author index of this collection. It must only be used while holding the lock.
+   * @return The author index. */
+  AuthorIndex getAuthorIndex() {
+    return _authorIndex;
+  }
+
+
+  /** Get the facet counts of this collection. They must only be used while holding the lock.
+   * Use {@link FacetCounts#collect} for a copy.
+   * @return The facet counts. */
+  FacetCounts getFacetCounts() {
+    return _facetCounts;
+  }
+
+
+  /** Get the duplicate index of this collection. It must only be used while holding the lock.
+   * @return The duplicate index. */
+  DuplicateIndex getDuplicateIndex() {
+    return _duplicateIndex;
+  }
+
+
+  /** Get the version of this collection. It grows with every change of the collection or its entries.
+   * Versions are taken from one clock, so a collection that is reloaded from its segment file never
+   * gets a version it had before.
+   * @return The current version. */
+  @JsonIgnore
+  public long getVersion() {
+    return _version;
+  }
+
+
+  /** Take a new version from the version clock.
+   * @return A version greater than all versions handed out before. */
+  static long nextVersion() {
+    return _versionClock.incrementAndGet();
+  }
+
+
+  /** Flag this collection as changed (or as saved). If a change hits an evicted collection
+   * (still referenced by a request), it is taken back into the manager, so that it is not lost.
+   * Every change also bumps the version.
+   * @param dirty 'True' for unsaved changes, 'false' once the collection is written. */
+  void setDirty(boolean dirty) {
+    if (dirty) _version = nextVersion();
+    _dirty = dirty;
+    var manager = _manager;
+    if (dirty && _evicted && manager != null) manager.readmitCollection(this);
   }
 }
@@ -1,22 +1,70 @@
 package litmgmt.citation.collections;
 
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import litmgmt.persistency.Journal;
+import litmgmt.persistency.SegmentStore;
 import litmgmt.users.User;
 
 
-/** Manages CRUD access on collections and entries. */
+/** Manages CRUD access on collections and entries.
+ * By default, all collections are kept in memory and saved as part of the save file. In segment mode
+ * (see {@link #enableSegmentStorage}), each collection is stored in its own segment file instead
+ * and only loaded when it is accessed. The resident collections form an LRU cache that is bounded
+ * by their total number of entries. Only clean collections are evicted, changed ones stay resident
+ * until they are written back by {@link #flushSegments}.
+ *
+ * The manager is thread-safe: The collections are held in a concurrent map, each collection guards
+ * its entries with its own read/write lock (see {@link Collection}) and changes to the collection list
+ * of a user are synchronized on that user. So requests of different users never contend.
+ * Per user, an index from collection name to ID is built on first use, so that name checks
+ * do not have to touch (or, in segment mode, load) all collections of the user.
+ * Collections currently locked by a request are not evicted, and an evicted collection that is still
+ * referenced is reused (and re-admitted when changed), so there is never more than one instance.
+ * Segment files are read outside of the residency lock, so a slow load only delays the requests for
+ * that collection, which wait for the one load in progress. */
 public class CollectionManager {
 
-  private Map<Integer, Collection> _collections;  // Mapping of all collections from ID to data structure.
+  private Map<Integer, Collection> _collections;  // Mapping of all (resident) collections from ID to data structure.
+  private SegmentStore _segments;                 // Segment files. 'null', if all collections are kept in memory.
+  private Set<Integer> _storedIds;                // Segment mode: IDs of all collections, resident or not.
+  private Set<Integer> _deletedIds;               // Segment mode: Deleted collections, files removed on next flush.
+  private Map<Integer, WeakReference<Collection>> _evicted; // Segment mode: Evicted collections that may still be in use.
+  private long _maxResidentEntries;               // Segment mode: Entry budget of the resident collections.
+  private AtomicLong _accessClock;                // Segment mode: Logical clock for the LRU order.
+  private final Object _residencyLock = new Object(); // Segment mode: Serializes admission, eviction and re-admission.
+  private Map<Integer, CompletableFuture<Collection>> _loading; // Segment mode: Loads in progress, by collection ID.
+  private Map<Integer, Map<String, Integer>> _names; // Collection name index per user ID. Guarded by the user.
 
 
   /** Create a new collection manager.
    * @param userAuth User authenticator, used to validate user tokens. */
   public CollectionManager() {
-    _collections = new HashMap<Integer, Collection>();
+    _collections = new ConcurrentHashMap<Integer, Collection>();
+    _names = new ConcurrentHashMap<Integer, Map<String, Integer>>();
+  }
+
+
+  /** Switch to segment mode. Must be called before any collection is loaded.
+   * @param segments Segment store holding one file per collection.
+   * @param maxResidentEntries Number of entries up to which collections are kept in memory. */
+  public void enableSegmentStorage(SegmentStore segments, long maxResidentEntries) {
+    _segments = segments;
+    _maxResidentEntries = maxResidentEntries;
+    _storedIds = ConcurrentHashMap.newKeySet();
+    _storedIds.addAll(segments.listCollectionIds());
+    _deletedIds = ConcurrentHashMap.newKeySet();
+    _evicted = new ConcurrentHashMap<Integer, WeakReference<Collection>>();
+    _loading = new ConcurrentHashMap<Integer, CompletableFuture<Collection>>();
+    _accessClock = new AtomicLong();
   }
 
 
@@ -24,10 +72,31 @@ public class CollectionManager {
    * @param user The user that did the query.
    * @return List of collections. May be empty. */
   public List<Collection> getAllCollections(User user) {
+    var colIds = new ArrayList<Integer>(user.GetAllCollections());
+    var list = new ArrayList<Collection>();
+    for (var colId : colIds) {
+      var col = getCollection(colId);
+      if (col != null) list.add(col);
+      else System.err.println("[CollectionManager] Warning: Tried to access collection '"+colId+"', not found!");
+    }
+    return list;
+  }
+
+
+  /** Get a page of the collections of a user, ordered by ID. Only the collections of the page are loaded.
+   * @param user The user that did the query.
+   * @param afterId Cursor: Only collections with a greater ID are returned. -1 for the first page.
+   * @param limit Maximum number of collections to return.
+   * @return List of collections. Empty, if there are no more. */
+  public List<Collection> getCollectionsPage(User user, int afterId, int limit) {
     var colIds = user.GetAllCollections();
+    colIds.sort(null);
     var list = new ArrayList<Collection>();
     for (var colId : colIds) {
-      if (_collections.containsKey(colId)) list.add(_collections.get(colId));
+      if (colId <= afterId) continue;
+      if (list.size() >= limit) break;
+      var col = getCollection(colId);
+      if (col != null) list.add(col);
       else System.err.println("[CollectionManager] Warning: Tried to access collection '"+colId+"', not found!");
     }
     return list;
@@ -38,8 +107,107 @@ public class CollectionManager {
    * @param colId Identifier of the queried collection.
    * @return The collection or 'null' if it was not found. */
   public Collection getCollection(int colId) {
-    if (_collections.containsKey(colId)) return _collections.get(colId);
-    return null;
+    var col = _collections.get(colId);
+    if (_segments == null) return col;
+    if (col == null) {
+      if (!_storedIds.contains(colId)) return null;
+      col = loadCollection(colId);
+      if (col == null) return null;
+    }
+    col._lastAccess = _accessClock.incrementAndGet();
+    return col;
+  }
+
+
+  /** Make a collection that is not resident available again: An evicted instance that is still referenced
+   * is taken back in, otherwise the segment file is read. Only one thread loads a collection, others wait
+   * for it. The file is read without the residency lock, which is only held to admit the collection.
+   * @param colId Identifier of the collection.
+   * @return The resident collection or 'null', if it was deleted or its segment file failed to read. */
+  private Collection loadCollection(int colId) {
+    var loading = new CompletableFuture<Collection>();
+    var pending = _loading.putIfAbsent(colId, loading);
+    if (pending != null) return pending.join();
+    Collection col = null;
+    try {
+      synchronized (_residencyLock) {  // Also catches a load that completed since the first lookup.
+        col = _collections.get(colId);
+        if (col != null) return col;
+        var ref = _evicted.remove(colId);
+        col = (ref != null)? ref.get() : null;
+        if (col != null) {
+          admitCollection(col);
+          evictColdCollections(col);
+          return col;
+        }
+      }
+      col = _segments.load(colId);
+      if (col == null) return null;
+      col.setDirty(false);
+      synchronized (_residencyLock) {
+        if (!_storedIds.contains(colId)) {  // Deleted meanwhile.
+          col = null;
+          return null;
+        }
+        admitCollection(col);
+        evictColdCollections(col);
+      }
+      return col;
+    }
+    finally {
+      loading.complete(col);
+      _loading.remove(colId, loading);
+    }
+  }
+
+
+  /** Drop the least recently used, unchanged collections until the resident ones fit into the entry budget.
+   * Collections that are locked right now are in use and skipped. Caller must hold the residency lock.
+   * @param keep Collection that is about to be used and must not be evicted. */
+  private void evictColdCollections(Collection keep) {
+    var resident = new ArrayList<Collection>(_collections.values());
+    long entries = 0;
+    for (var col : resident) entries += col.getEntryCount();
+    if (entries <= _maxResidentEntries) return;
+    resident.sort(Comparator.comparingLong(col -> col._lastAccess));
+    for (var col : resident) {
+      if (entries <= _maxResidentEntries) break;
+      if (col == keep || col.isDirty()) continue;
+      var lock = col.getLock().writeLock();
+      if (!lock.tryLock()) continue;
+      try {
+        if (col.isDirty()) continue;
+        col._evicted = true;
+        _collections.remove(col.getId());
+        _evicted.put(col.getId(), new WeakReference<Collection>(col));
+        entries -= col.getEntryCount();
+      }
+      finally {
+        lock.unlock();
+      }
+    }
+    _evicted.values().removeIf(ref -> ref.get() == null);
+  }
+
+
+  /** Make a collection resident.
+   * @param col The collection to add to the resident ones. */
+  private void admitCollection(Collection col) {
+    col._manager = this;
+    col._evicted = false;
+    _collections.put(col.getId(), col);
+  }
+
+
+  /** Take an evicted collection back in, because it was changed by a request that still held it.
+   * Called by the collection with its write lock held.
+   * @param col The changed collection. */
+  void readmitCollection(Collection col) {
+    synchronized (_residencyLock) {
+      if (!col._evicted || !_storedIds.contains(col.getId())) return;
+      _evicted.remove(col.getId());
+      admitCollection(col);
+    }
   }
 
 
@@ -48,13 +216,32 @@ public class CollectionManager {
    * @param colName Name of the collection to create. Must be unique per user!
    * @return The freshly created collection or 'null' on failure. */
   public Collection createCollection(User user, String colName) {
-    for (var existingCol : getAllCollections(user)) {
-      if (existingCol.getName().equals(colName)) return null;
+    synchronized (user) {
+      var names = getNameIndex(user);
+      if (names.containsKey(colName)) return null;
+      var newCol = new Collection(colName);
+      user.addCollection(newCol.getId());
+      names.put(colName, newCol.getId());
+      putCollection(newCol);
+      Journal.logCreateCollection(user, newCol);
+      return newCol;
     }
-    var newCol = new Collection(colName);
-    user.addCollection(newCol.getId());
-    _collections.put(newCol.getId(), newCol);
-    return newCol;
+  }
+
+
+  /** Restore a previously created collection (used for journal replay).
+   * @param user The owner of the collection.
+   * @param colId Identifier of the collection.
+   * @param colName Name of the collection.
+   * @return The restored collection. */
+  public Collection restoreCollection(User user, int colId, String colName) {
+    var col = new Collection(colId, colName);
+    synchronized (user) {
+      user.addCollection(colId);
+      _names.remove(user.getId());
+    }
+    putCollection(col);
+    return col;
   }
 
 
@@ -63,10 +250,19 @@ public class CollectionManager {
    * @param col Reference to the collection to delete.
    * @return Success flag telling whether the deletion succeeded or not. */
   public void deleteCollection(User user, Collection col) {
-    if (_collections.containsKey(col.getId())) {
+    synchronized (user) {
       _collections.remove(col.getId());
+      if (_segments != null) {
+        synchronized (_residencyLock) {
+          _evicted.remove(col.getId());
+          if (_storedIds.remove(col.getId())) _deletedIds.add(col.getId());
+        }
+      }
+      user.removeCollection(col.getId());
+      var names = _names.get(user.getId());
+      if (names != null) names.remove(col.getName(), col.getId());
+      Journal.logDeleteCollection(user, col.getId());
     }
-    user.removeCollection(col.getId());
   }
 
 
@@ -76,11 +272,37 @@ public class CollectionManager {
    * @param newColName Desired name for the collection.
    * @return Success flag telling whether the deletion succeeded or not. */
   public boolean renameCollection(User user, Collection col, String newColName) {
-    for (var existingCol : getAllCollections(user)) {
-      if (existingCol.getName().equals(newColName)) return false;
+    synchronized (user) {
+      var names = getNameIndex(user);
+      if (names.containsKey(newColName)) return false;
+      names.remove(col.getName(), col.getId());
+      col.rename(newColName);
+      names.put(newColName, col.getId());
+      return true;
+    }
+  }
+
+
+  /** Restore the name of a collection (used for journal replay). No uniqueness check is done.
+   * @param col The collection to rename.
+   * @param name The journaled name. */
+  public void restoreCollectionName(Collection col, String name) {
+    col.rename(name);
+    _names.clear();  // The owner is not known here. Indexes are rebuilt on demand.
+  }
+
+
+  /** Get the collection name index of a user. It is built on first use. Caller must synchronize on the user.
+   * @param user The user.
+   * @return Mapping of collection names to IDs. */
+  private Map<String, Integer> getNameIndex(User user) {
+    var names = _names.get(user.getId());
+    if (names == null) {
+      names = new HashMap<String, Integer>();
+      for (var col : getAllCollections(user)) names.put(col.getName(), col.getId());
+      _names.put(user.getId(), names);
     }
-    col.rename(newColName);
-    return true;
+    return names;
   }
 
 
@@ -89,27 +311,90 @@ public class CollectionManager {
    * @param colId Collection identifier.
    * @return Set to 'true' if the collection belongs to the user, 'false' if not. */
   public boolean userOwnsCollection(User user, int colId) {
-    return user.GetAllCollections().contains(colId);
+    return user.ownsCollection(colId);
+  }
+
+
+  /** Add a new (unsaved) collection.
+   * @param col The collection to add. */
+  private void putCollection(Collection col) {
+    col.setDirty(true);
+    if (_segments == null) {
+      _collections.put(col.getId(), col);
+      return;
+    }
+    synchronized (_residencyLock) {
+      admitCollection(col);
+      _storedIds.add(col.getId());
+      _deletedIds.remove(col.getId());
+    }
   }
 
 
   // __________________________________________________________________________
   // GET and SET methods for file storage.
 
-  /** Set the collection list.
+  /** Set the collection list. In segment mode, the collections are written to their
+   * segment files right away (e.g. when migrating from a save file that contains them).
    * @param collections List of collections. */
   public void setCollectionList(List<Collection> collections) {
     _collections.clear();
+    _names.clear();
     for (var collection : collections) {
-      _collections.put(collection.getId(), collection);
+      if (_segments == null) {
+        _collections.put(collection.getId(), collection);
+        continue;
+      }
+      _storedIds.add(collection.getId());
+      collection.setDirty(!_segments.save(collection));
+      if (collection.isDirty()) admitCollection(collection);
     }
+    if (_segments != null) _segments.syncDirectory();
   }
 
 
-  /** Get the collection list.
+  /** Get the collection list. In segment mode, these are only the resident collections.
    * @return List of collections. */
   public List<Collection> getCollectionList() {
     var list = new ArrayList<Collection>(_collections.values());
     return list;
   }
+
+
+  /** Get the identifiers of all collections, including the ones not loaded in segment mode.
+   * @return List of collection identifiers. */
+  public List<Integer> getCollectionIds() {
+    if (_segments == null) return new ArrayList<Integer>(_collections.keySet());
+    return new ArrayList<Integer>(_storedIds);
+  }
+
+
+  /** Check if the collections are stored in segment files.
+   * @return 'True' in segment mode, 'false' if the collections are part of the save file. */
+  public boolean isSegmented() {
+    return _segments != null;
+  }
+
+
+  /** Write all changed collections to their segment files and delete the files of removed collections.
+   * Does nothing if segment mode is off.
+   * @return Success flag. Set to 'false' if a segment file could not be written or deleted. */
+  public boolean flushSegments() {
+    if (_segments == null) return true;
+    var success = true;
+    for (var col : getCollectionList()) {
+      if (!col.isDirty()) continue;
+      col.setDirty(false);
+      if (!_segments.save(col)) {
+        col.setDirty(true);
+        success = false;
+      }
+    }
+    for (var colId : new ArrayList<Integer>(_deletedIds)) {
+      if (_segments.delete(colId)) _deletedIds.remove(colId);
+      else success = false;
+    }
+    _segments.syncDirectory();
+    return success;
+  }
 }
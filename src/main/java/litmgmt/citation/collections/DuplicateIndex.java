@@ -0,0 +1,418 @@
+package litmgmt.citation.collections;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import com.fasterxml.jackson.core.JsonGenerator;
+import litmgmt.citation.description.FieldType;
+
+
+/** Index of near-duplicate entries of one collection, e.g. a paper imported twice under the cite keys
+ * 'Stevens_Long_2011' and 'stevens2011passionate'. Each entry is described by a set of features (word
+ * shingles): the words of its title (folded, without stop words), the last names of its authors and its
+ * year. Similar sets (by Jaccard similarity) are found with MinHash and locality-sensitive hashing: the
+ * signature of an entry holds the minimum of each of 32 hash functions over its features, and is cut into
+ * 8 bands of 4 values. Each band is hashed to a bucket, entries sharing a bucket are candidates. They are
+ * checked by comparing their signatures, which estimates their similarity. So duplicates are found
+ * without comparing all pairs of entries.
+ * Only the bucket keys are stored, signatures are recomputed for the few candidates. Most buckets hold a
+ * single entry, they are kept in one flat hash table (8 bytes per entry and band, at most 3/4 full). Only
+ * buckets shared by several entries have a member list, so a lookup only looks at these. Entries without
+ * title are not indexed. The collection keeps its index up to date on every change, so it is guarded by
+ * the collection lock like the entries themselves. */
+public class DuplicateIndex {
+
+  private long[] _slots;                    // Buckets by key: key (high half) and entry ID or SHARED (low half).
+  private int _size;                        // Number of buckets.
+  private HashMap<Integer, Members> _shared; // Member lists of the buckets with several entries, by key.
+
+  private static final int SHARED = -1;                // Slot value of buckets with a member list.
+  private static final int BANDS = 8;                  // LSH: Bands of a signature, one bucket each.
+  private static final int ROWS = 4;                   // LSH: Signature values per band.
+  private static final int MAX_BUCKET_SIZE = 64;       // Larger buckets are too unspecific to give candidates.
+  private static final double MIN_SIMILARITY = 0.5;    // Estimated similarity of candidates to be duplicates.
+  private static final long[] MULTIPLIERS = new long[BANDS * ROWS]; // MinHash: Hash functions (multiply-add).
+  private static final long[] ADDENDS = new long[BANDS * ROWS];
+
+  static {
+    var random = new SplittableRandom(0x5EEDL);  // Fixed, the bucket keys must be the same on every run.
+    for (int i = 0; i < MULTIPLIERS.length; i++) {
+      MULTIPLIERS[i] = random.nextLong() | 1;
+      ADDENDS[i] = random.nextLong();
+    }
+  }
+
+
+  /** Create an empty index (package-private, each collection creates its own). */
+  DuplicateIndex() {
+    _slots = new long[64];
+    _shared = new HashMap<Integer, Members>();
+  }
+
+
+  /** Check if the values of a field type are features of the entries.
+   * @param fieldType The field type.
+   * @return 'True' for title, author and year. */
+  public static boolean isIndexed(FieldType fieldType) {
+    return fieldType == FieldType.TITLE || fieldType == FieldType.AUTHOR || fieldType == FieldType.YEAR;
+  }
+
+
+  /** Put an entry into its buckets. The caller must hold the write lock.
+   * @param entry The entry that was added to the collection. */
+  void add(Entry entry) {
+    insert(entry.getId(), bucketKeys(entry, null, null));
+  }
+
+
+  /** Remove an entry from its buckets. The caller must hold the write lock.
+   * @param entry The entry that is removed from the collection. */
+  void remove(Entry entry) {
+    delete(entry.getId(), bucketKeys(entry, null, null));
+  }
+
+
+  /** Move an entry to other buckets after its title, authors or year were changed. The caller must hold
+   * the write lock.
+   * @param entry The changed entry.
+   * @param fieldType The changed field.
+   * @param oldValue Previous value. 'null', if the field was not set.
+   * @param newValue New value. 'null', if the field was removed. */
+  void update(Entry entry, FieldType fieldType, String oldValue, String newValue) {
+    var oldKeys = bucketKeys(entry, fieldType, oldValue);
+    var newKeys = bucketKeys(entry, fieldType, newValue);
+    if (Arrays.equals(oldKeys, newKeys)) return;
+    delete(entry.getId(), oldKeys);
+    insert(entry.getId(), newKeys);
+  }
+
+
+  /** Get the bucket keys of an entry, one per band.
+   * @param entry The entry.
+   * @param fieldType A field to take another value for (the one before or after a change). 'null' for none.
+   * @param value The value to take for this field.
+   * @return The keys (never 0) or 'null', if the entry has no title. */
+  private static int[] bucketKeys(Entry entry, FieldType fieldType, String value) {
+    var title = (fieldType == FieldType.TITLE)? value : entry.getField(FieldType.TITLE);
+    if (title == null) return null;
+    var signature = signature(title, (fieldType == FieldType.AUTHOR)? value : entry.getField(FieldType.AUTHOR),
+      (fieldType == FieldType.YEAR)? value : entry.getField(FieldType.YEAR));
+    if (signature == null) return null;
+    var keys = new int[BANDS];
+    for (int band = 0; band < BANDS; band++) {
+      long hash = band;
+      for (int row = 0; row < ROWS; row++) hash = mix(hash * 31 + signature[band * ROWS + row]);
+      keys[band] = ((int) hash != 0)? (int) hash : 1;
+    }
+    return keys;
+  }
+
+
+  /** Compute the MinHash signature of an entry. The kind of each feature is kept in bits 32 and up, so a
+   * title word never matches an author name.
+   * @param title The title.
+   * @param authors The author name list. May be 'null'.
+   * @param year The year. May be 'null'.
+   * @return The signature or 'null', if the title contains no words (besides stop words). */
+  static int[] signature(String title, String authors, String year) {
+    var words = SearchIndex.tokenize(title);
+    if (words.isEmpty()) return null;
+    var signature = new int[BANDS * ROWS];
+    Arrays.fill(signature, Integer.MAX_VALUE);
+    for (var word : words) addFeature(signature, word.hashCode() & 0xFFFFFFFFL);
+    for (var name : AuthorIndex.parseNames(authors)) {
+      addFeature(signature, 1L << 32 | (SearchIndex.fold(name[0]).hashCode() & 0xFFFFFFFFL));
+    }
+    if (year != null && !year.isBlank()) addFeature(signature, 2L << 32 | (year.trim().hashCode() & 0xFFFFFFFFL));
+    return signature;
+  }
+
+
+  /** Take a feature into a signature: each value is the minimum of one hash function over the features.
+   * @param signature The signature.
+   * @param feature The feature, as 64 bit value. */
+  private static void addFeature(int[] signature, long feature) {
+    feature = mix(feature);
+    for (int i = 0; i < signature.length; i++) {
+      var hash = (int) ((feature * MULTIPLIERS[i] + ADDENDS[i]) >>> 32);
+      if (hash < signature[i]) signature[i] = hash;
+    }
+  }
+
+
+  /** Scramble the bits of a value (the finalizer of MurmurHash3). */
+  private static long mix(long value) {
+    value = (value ^ (value >>> 33)) * 0xFF51AFD7ED558CCDL;
+    value = (value ^ (value >>> 33)) * 0xC4CEB9FE1A85EC53L;
+    return value ^ (value >>> 33);
+  }
+
+
+  /** Estimate the similarity of two entries from their signatures.
+   * @return The share of equal signature values, from 0 to 1. */
+  private static double similarity(int[] signature1, int[] signature2) {
+    var equal = 0;
+    for (int i = 0; i < signature1.length; i++) if (signature1[i] == signature2[i]) equal++;
+    return (double) equal / signature1.length;
+  }
+
+
+  // __________________________________________________________________________
+  // Hash table.
+
+  /** Add an entry to its buckets.
+   * @param id ID of the entry.
+   * @param keys The bucket keys. Nothing is done for 'null'. */
+  private void insert(int id, int[] keys) {
+    if (keys == null) return;
+    if ((_size + keys.length) * 4L > _slots.length * 3L) resize(_slots.length * 2);
+    var mask = _slots.length - 1;
+    for (var key : keys) {
+      var i = home(key);
+      while (_slots[i] != 0 && (int) (_slots[i] >>> 32) != key) i = (i + 1) & mask;
+      if (_slots[i] == 0) {  // New bucket.
+        _slots[i] = slot(key, id);
+        _size++;
+      }
+      else if ((int) _slots[i] != SHARED) {  // Second entry of the bucket.
+        var members = new Members();
+        members.add((int) _slots[i]);
+        members.add(id);
+        _shared.put(key, members);
+        _slots[i] = slot(key, SHARED);
+      }
+      else _shared.get(key).add(id);
+    }
+  }
+
+
+  /** Remove an entry from its buckets. When the last entry of a bucket is removed, the gap of its slot
+   * is closed by moving up later slots of the same run, so lookups never stop early.
+   * @param id ID of the entry.
+   * @param keys The bucket keys. Nothing is done for 'null'. */
+  private void delete(int id, int[] keys) {
+    if (keys == null) return;
+    var mask = _slots.length - 1;
+    for (var key : keys) {
+      var i = home(key);
+      while (_slots[i] != 0 && (int) (_slots[i] >>> 32) != key) i = (i + 1) & mask;
+      if (_slots[i] == 0) continue;  // Not found (not expected).
+      if ((int) _slots[i] == SHARED) {
+        var members = _shared.get(key);
+        members.remove(id);
+        if (members._size == 1) {  // Back to a single entry.
+          _shared.remove(key);
+          _slots[i] = slot(key, members._ids[0]);
+        }
+        continue;
+      }
+      if ((int) _slots[i] != id) continue;  // Not found (not expected).
+      for (int j = (i + 1) & mask; _slots[j] != 0; j = (j + 1) & mask) {
+        var k = home((int) (_slots[j] >>> 32));
+        if ((i <= j)? (i < k && k <= j) : (i < k || k <= j)) continue;  // Already between home and j.
+        _slots[i] = _slots[j];
+        i = j;
+      }
+      _slots[i] = 0;
+      _size--;
+    }
+  }
+
+
+  /** Rehash all slots into a new table.
+   * @param capacity Number of slots of the new table, a power of two. */
+  private void resize(int capacity) {
+    var old = _slots;
+    _slots = new long[capacity];
+    for (var slot : old) {
+      if (slot == 0) continue;
+      var i = home((int) (slot >>> 32));
+      while (_slots[i] != 0) i = (i + 1) & (capacity - 1);
+      _slots[i] = slot;
+    }
+  }
+
+
+  /** Get the slot a bucket key is looked up from (Fibonacci hashing).
+   * @param key The bucket key.
+   * @return Index of the first slot to probe. */
+  private int home(int key) {
+    return (key * 0x9E3779B9) >>> (32 - Integer.numberOfTrailingZeros(_slots.length));
+  }
+
+
+  /** Pack a slot.
+   * @param key The bucket key.
+   * @param id ID of the only entry of the bucket or SHARED.
+   * @return The slot value. */
+  private static long slot(int key, int id) {
+    return (long) key << 32 | (id & 0xFFFFFFFFL);
+  }
+
+
+  /** The entries of a bucket shared by several entries, unordered. */
+  private static class Members {
+    int[] _ids = new int[2];  // Entry IDs, the first '_size' are used.
+    int _size;                // Number of entries.
+
+
+    /** Add an entry.
+     * @param id ID of the entry. */
+    void add(int id) {
+      if (_size == _ids.length) _ids = Arrays.copyOf(_ids, _size * 2);
+      _ids[_size++] = id;
+    }
+
+
+    /** Remove an entry, the last one takes its place.
+     * @param id ID of the entry. */
+    void remove(int id) {
+      for (int i = 0; i < _size; i++) {
+        if (_ids[i] == id) {
+          _ids[i] = _ids[--_size];
+          return;
+        }
+      }
+    }
+  }
+
+
+  // __________________________________________________________________________
+  // Lookups.
+
+  /** Find the clusters of near-duplicate entries of a collection. Entries sharing a bucket are compared,
+   * the ones with an estimated similarity of at least 0.5 are put into the same cluster (so a cluster
+   * may also join entries that are only similar through a third one). The collection is read-locked
+   * meanwhile. Only the shared buckets are looked at, the effort does not depend on the collection size.
+   * @param collection The collection.
+   * @param limit Maximum number of clusters to return.
+   * @return The clusters, the largest first. The entries of a cluster are sorted by ID. */
+  public static List<Cluster> findDuplicates(Collection collection, int limit) {
+    var parents = new HashMap<Integer, Integer>();   // Union-find: Parent entry of each candidate.
+    var similarities = new HashMap<Integer, Double>(); // Lowest similarity of the joined pairs, by cluster root.
+    var signatures = new HashMap<Integer, int[]>();  // Recomputed signatures of the candidates.
+    var clusters = new ArrayList<Cluster>();
+    collection.getLock().readLock().lock();
+    try {
+      for (var members : collection.getDuplicateIndex()._shared.values()) {
+        if (members._size > MAX_BUCKET_SIZE) continue;
+        for (int a = 0; a < members._size; a++) {
+          for (int b = a + 1; b < members._size; b++) {
+            var rootA = find(parents, members._ids[a]);
+            var rootB = find(parents, members._ids[b]);
+            if (rootA.equals(rootB)) continue;
+            var signatureA = signature(collection, members._ids[a], signatures);
+            var signatureB = signature(collection, members._ids[b], signatures);
+            if (signatureA == null || signatureB == null) continue;
+            var similarity = similarity(signatureA, signatureB);
+            if (similarity < MIN_SIMILARITY) continue;
+            parents.put(rootB, rootA);
+            var lowest = Math.min(similarity, Math.min(similarities.getOrDefault(rootA, 1.0),
+              similarities.getOrDefault(rootB, 1.0)));
+            similarities.put(rootA, lowest);
+          }
+        }
+      }
+      var byRoot = new HashMap<Integer, Cluster>();
+      for (var id : parents.keySet()) {
+        var root = find(parents, id);
+        var entry = collection.getEntry(id);
+        if (entry == null) continue;
+        byRoot.computeIfAbsent(root, r -> new Cluster(similarities.getOrDefault(r, 1.0)))._entries.add(entry);
+      }
+      for (var cluster : byRoot.values()) {
+        if (cluster._entries.size() < 2) continue;
+        cluster._entries.sort((entry1, entry2) -> Integer.compare(entry1.getId(), entry2.getId()));
+        clusters.add(cluster);
+      }
+    }
+    finally {
+      collection.getLock().readLock().unlock();
+    }
+    clusters.sort((cluster1, cluster2) -> (cluster1._entries.size() != cluster2._entries.size())?
+      Integer.compare(cluster2._entries.size(), cluster1._entries.size()) :
+      Integer.compare(cluster1._entries.get(0).getId(), cluster2._entries.get(0).getId()));
+    return (clusters.size() > limit)? new ArrayList<Cluster>(clusters.subList(0, limit)) : clusters;
+  }
+
+
+  /** Find the root of an entry in the union-find forest. Entries not in the forest are added as roots.
+   * The path is shortened on the way. */
+  private static Integer find(Map<Integer, Integer> parents, int id) {
+    Integer node = id;
+    var parent = parents.putIfAbsent(node, node);
+    while (parent != null && !parent.equals(node)) {
+      var grandParent = parents.get(parent);
+      parents.put(node, grandParent);
+      node = parent;
+      parent = grandParent;
+    }
+    return node;
+  }
+
+
+  /** Get the signature of an entry, computed once per lookup. The caller must hold the read lock.
+   * @return The signature or 'null', if the entry does not exist or has no title. */
+  private static int[] signature(Collection collection, int id, Map<Integer, int[]> signatures) {
+    return signatures.computeIfAbsent(id, i -> {
+      var entry = collection.getEntry(i);
+      var title = (entry != null)? entry.getField(FieldType.TITLE) : null;
+      if (title == null) return null;
+      return signature(title, entry.getField(FieldType.AUTHOR), entry.getField(FieldType.YEAR));
+    });
+  }
+
+
+  /** Stream clusters as JSON array of objects with the estimated similarity and the entries.
+   * @param clusters The clusters.
+   * @param out Stream to write to. It is not closed.
+   * @throws IOException Thrown if the stream fails to write. */
+  public static void writeClustersJson(List<Cluster> clusters, OutputStream out) throws IOException {
+    try (var gen = Entry.JSON_FACTORY.createGenerator(out)) {
+      gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      gen.writeStartArray();
+      for (var cluster : clusters) {
+        gen.writeStartObject();
+        gen.writeNumberField("similarity", cluster._similarity);
+        gen.writeArrayFieldStart("entries");
+        for (var entry : cluster._entries) entry.saveEntryAsJson(gen);
+        gen.writeEndArray();
+        gen.writeEndObject();
+      }
+      gen.writeEndArray();
+    }
+  }
+
+
+  /** A cluster of near-duplicate entries. */
+  public static class Cluster {
+    private final double _similarity;                             // Lowest similarity of joined pairs.
+    private final List<Entry> _entries = new ArrayList<Entry>();  // Members, filled by the lookup.
+
+
+    /** Create an empty cluster.
+     * @param similarity Estimated similarity of the least similar pair of entries that joined it. */
+    Cluster(double similarity) {
+      _similarity = similarity;
+    }
+
+
+    /** Get the estimated similarity of the least similar pair of entries that joined the cluster.
+     * @return Share of equal signature values, from 0.5 to 1. */
+    public double getSimilarity() {
+      return _similarity;
+    }
+
+
+    /** Get the entries of the cluster.
+     * @return The entries, sorted by ID. */
+    public List<Entry> getEntries() {
+      return _entries;
+    }
+  }
+}
@@ -1,27 +1,46 @@
 package litmgmt.citation.collections;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import litmgmt.citation.description.EntryType;
 import litmgmt.citation.description.FieldType;
 import litmgmt.persistency.IdHelper;
+import litmgmt.persistency.Journal;
 
 
-/** A citation entry. It has a cite key, a type and a number of data fields. */
+/** A citation entry. It has a cite key, a type and a number of data fields.
+ * Once attached to a collection, the fields are guarded by the lock of that collection.
+ * To keep millions of entries small, the field values are stored in an array indexed by the field
+ * type's ordinal and the order of the fields as byte array of ordinals, instead of map and list nodes.
+ * The JSON serialization is cached until the entry changes, so listings only copy the cached bytes. */
 @JsonPropertyOrder({"id", "citeKey", "entryType", "fields"})
 public class Entry {
 
   private int _id;                         // Identifier of this entry.
-  private String _citeKey;                 // Cite key (unique string identifier per collection).
+  private volatile String _citeKey;        // Cite key (unique string identifier per collection).
   private EntryType _entryType;            // Predefined type of the entry.
-  private Map<FieldType, String> _fields;  // The entry's data fields.
-  private List<FieldType> _keyOrder;       // Ordering for the fields.
+  private String[] _values;                // Field values by field type ordinal. 'null' until a field is set.
+  private byte[] _keyOrder;                // Ordinals of the set fields, in order of addition.
+  private volatile byte[] _json;           // Cached JSON serialization. 'null', if not built yet or outdated.
+  private volatile long _version;          // Bumped on every change of this entry.
+  int _termCount;                          // Number of terms in the search index of the owner (BM25 length).
+  volatile Collection _owner;              // Collection this entry belongs to. 'null', if not attached.
+
+  static final JsonFactory JSON_FACTORY = new JsonFactory();  // Shared, thread-safe generator factory.
+  private static final FieldType[] FIELD_TYPES = FieldType.values();
+  private static final byte[] NO_FIELDS = new byte[0];
 
 
   /** Create a new entry.
@@ -32,16 +51,28 @@ public class Entry {
   }
 
 
-  /** Create a new entry (private constructor with ID setter).
+  /** Create a new entry (package-private constructor with ID setter).
    * @param id Identifier of this entry.
    * @param citeKey Cite key (unique string identifier per collection).
    * @param entryType Predefined type of the entry. */
-  private Entry(int id, String citeKey, EntryType entryType) {
+  Entry(int id, String citeKey, EntryType entryType) {
     _id = id;
     _citeKey = citeKey;
     _entryType = entryType;
-    _fields = new HashMap<FieldType, String>();
-    _keyOrder = new ArrayList<FieldType>();
+    _keyOrder = NO_FIELDS;
+    _version = Collection.nextVersion();
+  }
+
+
+  /** Restore a previously created entry that is not attached to a collection (used by the save file
+   * readers). Setting its fields takes no lock and updates no index, that is done once the entry is added
+   * with {@link Collection#restoreCollection(int, String, java.util.List)}.
+   * @param id Identifier of the entry.
+   * @param citeKey Cite key (unique string identifier per collection).
+   * @param entryType Predefined type of the entry.
+   * @return The restored entry. */
+  public static Entry restoreEntry(int id, String citeKey, EntryType entryType) {
+    return new Entry(id, citeKey, entryType);
   }
 
 
@@ -49,66 +80,234 @@ public class Entry {
    * @param fieldType Type of the input field.
    * @param value Input value. */
   public void setField(FieldType fieldType, String value) {
-    if (!_keyOrder.contains(fieldType)) _keyOrder.add(fieldType);
-    _fields.put(fieldType, value);
+    value = ValuePool.intern(fieldType, value);
+    var owner = lockOwner();
+    try {
+      var oldValue = putValue(fieldType, value);
+      if (owner != null) {
+        owner.updateField(this, fieldType, oldValue, value);
+        owner.setDirty(true);
+      }
+      Journal.logSetField(this, fieldType, value);
+    }
+    finally {
+      if (owner != null) owner.getLock().writeLock().unlock();
+    }
+  }
+
+
+  /** Set a field of an entry that is not attached to a collection yet. Nothing is journaled, the
+   * collection does that when the entry is added
+   * (see {@link Collection#createEntry(String, EntryType, java.util.Map)}).
+   * @param fieldType Type of the field.
+   * @param value Field value. */
+  void initField(FieldType fieldType, String value) {
+    putValue(fieldType, ValuePool.intern(fieldType, value));
+  }
+
+
+  /** Store a field value. The caller must hold the write lock, if the entry is attached.
+   * @param fieldType Type of the field.
+   * @param value Field value (already pooled).
+   * @return The previous value. 'null', if the field was not set. */
+  private String putValue(FieldType fieldType, String value) {
+    var ordinal = fieldType.ordinal();
+    if (!hasField(ordinal)) {
+      if (_values == null) _values = new String[FIELD_TYPES.length];
+      _keyOrder = Arrays.copyOf(_keyOrder, _keyOrder.length + 1);
+      _keyOrder[_keyOrder.length - 1] = (byte) ordinal;
+    }
+    var oldValue = _values[ordinal];
+    _values[ordinal] = value;
+    _json = null;
+    _version = Collection.nextVersion();
+    return oldValue;
   }
 
 
   /** Rename this entry.
    * @param newCiteKey The new cite key for this entry. */
   public void rename(String newCiteKey) {
-    _citeKey = newCiteKey;
+    var owner = lockOwner();
+    try {
+      var oldCiteKey = _citeKey;
+      _citeKey = newCiteKey;
+      _json = null;
+      _version = Collection.nextVersion();
+      if (owner != null) {
+        owner.updateCiteKey(this, oldCiteKey);
+        owner.setDirty(true);
+      }
+      Journal.logRenameEntry(this);
+    }
+    finally {
+      if (owner != null) owner.getLock().writeLock().unlock();
+    }
+  }
+
+
+  /** Check if a field is set. The caller must hold the lock.
+   * @param ordinal Ordinal of the field type.
+   * @return 'True', if the field is set (its value may still be 'null'). */
+  private boolean hasField(int ordinal) {
+    for (var key : _keyOrder) {
+      if (key == ordinal) return true;
+    }
+    return false;
+  }
+
+
+  /** Take the lock of the owning collection.
+   * @param owner The owning collection. May be 'null' for a detached entry.
+   * @param write 'True' for the write lock, 'false' for the read lock.
+   * @return The acquired lock or 'null', if there is no owner. */
+  private static Lock lock(Collection owner, boolean write) {
+    if (owner == null) return null;
+    var lock = write? owner.getLock().writeLock() : owner.getLock().readLock();
+    lock.lock();
+    return lock;
+  }
+
+
+  /** Take the write lock of the owning collection for a change. The owner is checked again once the
+   * lock is held, as the entry may have been deleted (or added) while waiting for it.
+   * @return The owning collection, write-locked. 'null', if the entry is detached (nothing is locked then). */
+  private Collection lockOwner() {
+    while (true) {
+      var owner = _owner;
+      var lock = lock(owner, true);
+      if (_owner == owner) return owner;
+      if (lock != null) lock.unlock();
+    }
   }
 
 
   /** Load an entry by restoring all its fields read from a JSON object.
-   * @param json JSON object to initialize from.
-   * @return An entry object or 'null' on parser failure. */
-  public static Entry loadEntryFromJson(JsonNode json) {
+   * @param parser JSON parser, positioned at the start of the entry object.
+   * @return An entry object or 'null' on invalid input. The parser is moved behind the object in any case.
+   * @throws IOException Thrown if the JSON itself is malformed. */
+  public static Entry loadEntryFromJson(JsonParser parser) throws IOException {
+    int id = -1;
+    String citeKey = null, entryType = null;
+    var fieldTypes = new ArrayList<String>();
+    var values = new ArrayList<String>();
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      var name = parser.getCurrentName();
+      parser.nextToken();
+      switch (name) {
+        case "id": id = parser.getIntValue(); break;
+        case "citeKey": citeKey = parser.getText(); break;
+        case "entryType": entryType = parser.getText(); break;
+        case "fields":
+          while (parser.nextToken() == JsonToken.START_OBJECT) {
+            String fieldType = null, value = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+              var key = parser.getCurrentName();
+              parser.nextToken();
+              if (key.equals("fieldType")) fieldType = parser.getText();
+              else if (key.equals("value")) value = parser.getValueAsString();  // 'null' for JSON null.
+              else parser.skipChildren();
+            }
+            fieldTypes.add(fieldType);
+            values.add(value);
+          }
+          break;
+        default: parser.skipChildren();
+      }
+    }
     try {
-      var entry = new Entry(
-        json.get("id").asInt(),
-        json.get("citeKey").asText(),
-        EntryType.valueOf(json.get("entryType").asText().toUpperCase())
-      );
-      for (JsonNode field : json.get("fields")) {
-        entry.setField(
-          FieldType.valueOf(field.get("fieldType").asText().toUpperCase()),
-          field.get("value").asText()
-        );
+      var entry = new Entry(id, citeKey, EntryType.valueOf(entryType.toUpperCase()));
+      for (int i = 0; i < fieldTypes.size(); i++) {
+        entry.setField(FieldType.valueOf(fieldTypes.get(i).toUpperCase()), values.get(i));
       }
       return entry;
     }
     catch (Exception ex) {
-      System.err.println("[Entry] Failed to initialize from JSON! Input was:\n"+json);
+      System.err.println("[Entry] Failed to initialize entry #"+id+" ('"+citeKey+"') from JSON!");
       return null;
     }
   }
 
 
   /** Output the properties of this entry as JSON object.
-   * @return JSON containing all properties of this object. */
-  public String saveEntryAsJson() {
-    var sb = new StringBuilder();
-    sb.append(
-      "      {\n"+
-      "        \"id\": "+_id+",\n"+
-      "        \"citeKey\": \""+_citeKey+"\",\n"+
-      "        \"entryType\": \""+_entryType.toString().toLowerCase()+"\",\n"+
-      "        \"fields\": [\n"
-    );
-    for (int i = 0; i < _keyOrder.size(); i++) {
-      var ft = _keyOrder.get(i);
-      sb.append(
-        "          {\"fieldType\": \""+ft.toString().toLowerCase()+"\", \"value\": \""+_fields.get(ft)+"\"}");
-      if (i < _fields.size() - 1) sb.append(",\n");
-      else sb.append("\n");
-    }
-    sb.append(
-      "        ]\n"+
-      "      }"
-    );
-    return sb.toString();
+   * @param gen JSON generator to stream the object to.
+   * @throws IOException Thrown if the generator fails to write. */
+  public void saveEntryAsJson(JsonGenerator gen) throws IOException {
+    var lock = lock(_owner, false);
+    try {
+      gen.writeStartObject();
+      gen.writeNumberField("id", _id);
+      gen.writeStringField("citeKey", _citeKey);
+      gen.writeStringField("entryType", _entryType.toString().toLowerCase());
+      gen.writeArrayFieldStart("fields");
+      for (var key : _keyOrder) {
+        gen.writeStartObject();
+        gen.writeStringField("fieldType", FIELD_TYPES[key].toString().toLowerCase());
+        gen.writeStringField("value", _values[key]);
+        gen.writeEndObject();
+      }
+      gen.writeEndArray();
+      gen.writeEndObject();
+    }
+    finally {
+      if (lock != null) lock.unlock();
+    }
+  }
+
+
+  /** Output only some properties of this entry as JSON object. The ID is always written.
+   * @param gen JSON generator to stream the object to.
+   * @param projection The properties and fields to write.
+   * @throws IOException Thrown if the generator fails to write. */
+  public void saveEntryAsJson(JsonGenerator gen, FieldProjection projection) throws IOException {
+    var lock = lock(_owner, false);
+    try {
+      gen.writeStartObject();
+      gen.writeNumberField("id", _id);
+      if (projection.includesCiteKey()) gen.writeStringField("citeKey", _citeKey);
+      if (projection.includesEntryType()) gen.writeStringField("entryType", _entryType.toString().toLowerCase());
+      if (projection.includesFields()) {
+        gen.writeArrayFieldStart("fields");
+        for (var key : _keyOrder) {
+          if (!projection.includes(FIELD_TYPES[key])) continue;
+          gen.writeStartObject();
+          gen.writeStringField("fieldType", FIELD_TYPES[key].toString().toLowerCase());
+          gen.writeStringField("value", _values[key]);
+          gen.writeEndObject();
+        }
+        gen.writeEndArray();
+      }
+      gen.writeEndObject();
+    }
+    finally {
+      if (lock != null) lock.unlock();
+    }
+  }
+
+
+  /** Get this entry as JSON object. The serialization is cached until the entry is changed.
+   * The returned array must not be modified!
+   * @return UTF-8 encoded JSON object, the same as written by {@link #saveEntryAsJson}. */
+  public byte[] toJson() {
+    var lock = lock(_owner, false);
+    try {
+      var json = _json;
+      if (json == null) {
+        var out = new ByteArrayOutputStream(64 + 32 * _keyOrder.length);
+        try (var gen = JSON_FACTORY.createGenerator(out)) {
+          saveEntryAsJson(gen);
+        }
+        catch (IOException ex) {
+          throw new IllegalStateException(ex);  // Not thrown by an in-memory stream.
+        }
+        json = out.toByteArray();
+        _json = json;  // Writers hold the write lock, so this cannot overwrite a newer invalidation.
+      }
+      return json;
+    }
+    finally {
+      if (lock != null) lock.unlock();
+    }
   }
 
 
@@ -136,16 +335,66 @@ public class Entry {
   }
 
 
+  /** Get the type of this entry.
+   * @return The entry type. */
+  @JsonIgnore
+  public EntryType getType() {
+    return _entryType;
+  }
+
+
+  /** Get the version of this entry. It grows with every change of the entry.
+   * @return The current version. */
+  @JsonIgnore
+  public long getVersion() {
+    return _version;
+  }
+
+
+  /** Get the field types that are set on this entry.
+   * @return Copy of the field types in the order they were added. */
+  @JsonIgnore
+  public List<FieldType> getFieldOrder() {
+    var lock = lock(_owner, false);
+    try {
+      var fieldTypes = new ArrayList<FieldType>(_keyOrder.length);
+      for (var key : _keyOrder) fieldTypes.add(FIELD_TYPES[key]);
+      return fieldTypes;
+    }
+    finally {
+      if (lock != null) lock.unlock();
+    }
+  }
+
+
+  /** Get the value of a single field.
+   * @param fieldType Type of the field.
+   * @return The field value or 'null', if the field is not set. */
+  public String getField(FieldType fieldType) {
+    var lock = lock(_owner, false);
+    try {
+      return (_values != null)? _values[fieldType.ordinal()] : null;
+    }
+    finally {
+      if (lock != null) lock.unlock();
+    }
+  }
+
+
   /** Get all fields of this entry.
    * @return JSON array with fields, comprising of field types and their values. */
   public ArrayNode getFields() {
-    var mapper = new ObjectMapper();
-    var arrayNode = mapper.createArrayNode();
-    for (var ft : _keyOrder) {
-      var node = mapper.createObjectNode();
-      node.put("fieldType", ft.toString().toLowerCase());
-      node.put("value", _fields.get(ft));
-      arrayNode.add(node);
+    var arrayNode = JsonNodeFactory.instance.arrayNode();
+    var lock = lock(_owner, false);
+    try {
+      for (var key : _keyOrder) {
+        var node = arrayNode.addObject();
+        node.put("fieldType", FIELD_TYPES[key].toString().toLowerCase());
+        node.put("value", _values[key]);
+      }
+    }
+    finally {
+      if (lock != null) lock.unlock();
     }
     return arrayNode;
   }
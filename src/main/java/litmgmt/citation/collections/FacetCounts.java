@@ -0,0 +1,195 @@
+package litmgmt.citation.collections;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import com.fasterxml.jackson.core.JsonGenerator;
+import litmgmt.citation.description.EntryType;
+import litmgmt.citation.description.FieldType;
+
+
+/** Entry counts of one collection per entry type, year, journal and book title (facets). The collection
+ * keeps the counts up to date on every change, so statistics are answered without looking at the
+ * entries. Like the entries, the counts are guarded by the collection lock. */
+public class FacetCounts {
+
+  private int _entryCount;                      // Number of entries.
+  private int[] _entryTypes;                    // Entries by entry type ordinal.
+  private HashMap<String, Integer> _years;      // Entries by year.
+  private HashMap<String, Integer> _journals;   // Entries by journal.
+  private HashMap<String, Integer> _booktitles; // Entries by book title (proceedings, collections).
+
+  private static final EntryType[] ENTRY_TYPES = EntryType.values();
+
+
+  /** Create empty counts (package-private, each collection creates its own). */
+  FacetCounts() {
+    _entryTypes = new int[ENTRY_TYPES.length];
+    _years = new HashMap<String, Integer>();
+    _journals = new HashMap<String, Integer>();
+    _booktitles = new HashMap<String, Integer>();
+  }
+
+
+  /** Check if the values of a field type are counted.
+   * @param fieldType The field type.
+   * @return 'True' for year, journal and book title. */
+  public static boolean isCounted(FieldType fieldType) {
+    return fieldType == FieldType.YEAR || fieldType == FieldType.JOURNAL || fieldType == FieldType.BOOKTITLE;
+  }
+
+
+  /** Count an entry. The caller must hold the write lock.
+   * @param entry The entry that was added to the collection. */
+  void add(Entry entry) {
+    _entryCount++;
+    _entryTypes[entry.getType().ordinal()]++;
+    for (var fieldType : entry.getFieldOrder()) {
+      if (isCounted(fieldType)) count(facet(fieldType), entry.getField(fieldType), 1);
+    }
+  }
+
+
+  /** Uncount an entry. The caller must hold the write lock.
+   * @param entry The entry that is removed from the collection. */
+  void remove(Entry entry) {
+    _entryCount--;
+    _entryTypes[entry.getType().ordinal()]--;
+    for (var fieldType : entry.getFieldOrder()) {
+      if (isCounted(fieldType)) count(facet(fieldType), entry.getField(fieldType), -1);
+    }
+  }
+
+
+  /** Move an entry from one value of a counted field to another. The caller must hold the write lock.
+   * @param fieldType The changed field.
+   * @param oldValue Previous value. 'null', if the field was not set.
+   * @param newValue New value. 'null', if the field was removed. */
+  void update(FieldType fieldType, String oldValue, String newValue) {
+    var facet = facet(fieldType);
+    count(facet, oldValue, -1);
+    count(facet, newValue, 1);
+  }
+
+
+  /** Get the counts of the field values of a field type.
+   * @param fieldType The field type.
+   * @return The counts or 'null', if the field is not counted. */
+  private Map<String, Integer> facet(FieldType fieldType) {
+    switch (fieldType) {
+      case YEAR: return _years;
+      case JOURNAL: return _journals;
+      case BOOKTITLE: return _booktitles;
+      default: return null;
+    }
+  }
+
+
+  /** Change the count of a value. Values with a count of zero are removed.
+   * @param facet The counts.
+   * @param value The value. Nothing is done for 'null' and blank values.
+   * @param delta Count difference. */
+  private static void count(Map<String, Integer> facet, String value, int delta) {
+    if (value == null || value.isBlank()) return;
+    facet.compute(value.trim(), (v, count) -> {
+      var sum = (count != null)? count + delta : delta;
+      return (sum != 0)? sum : null;
+    });
+  }
+
+
+  /** Sum up the counts of some collections. The collections are locked one after another, so the
+   * effort depends on the number of distinct values, not on the number of entries.
+   * @param collections The collections.
+   * @return A copy of the summed counts. */
+  public static FacetCounts collect(List<Collection> collections) {
+    var sum = new FacetCounts();
+    for (var col : collections) {
+      col.getLock().readLock().lock();
+      try {
+        var counts = col.getFacetCounts();
+        sum._entryCount += counts._entryCount;
+        for (int i = 0; i < ENTRY_TYPES.length; i++) sum._entryTypes[i] += counts._entryTypes[i];
+        counts._years.forEach((value, count) -> sum._years.merge(value, count, Integer::sum));
+        counts._journals.forEach((value, count) -> sum._journals.merge(value, count, Integer::sum));
+        counts._booktitles.forEach((value, count) -> sum._booktitles.merge(value, count, Integer::sum));
+      }
+      finally {
+        col.getLock().readLock().unlock();
+      }
+    }
+    return sum;
+  }
+
+
+  /** Stream the counts as JSON object. Entry types are listed in their predefined order (only those
+   * in use), years in ascending order, journals and book titles with the most entries first.
+   * Not locked, only use it on a copy from {@link #collect}.
+   * @param out Stream to write to. It is not closed.
+   * @throws IOException Thrown if the stream fails to write. */
+  public void writeJson(OutputStream out) throws IOException {
+    try (var gen = Entry.JSON_FACTORY.createGenerator(out)) {
+      gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      gen.writeStartObject();
+      gen.writeNumberField("entryCount", _entryCount);
+      gen.writeObjectFieldStart("entryType");
+      for (int i = 0; i < ENTRY_TYPES.length; i++) {
+        if (_entryTypes[i] > 0) gen.writeNumberField(ENTRY_TYPES[i].toString().toLowerCase(), _entryTypes[i]);
+      }
+      gen.writeEndObject();
+      writeFacet(gen, "year", _years, Map.Entry.comparingByKey());
+      var byCount = Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey());
+      writeFacet(gen, "journal", _journals, byCount);
+      writeFacet(gen, "booktitle", _booktitles, byCount);
+      gen.writeEndObject();
+    }
+  }
+
+
+  /** Write a facet as JSON object of values and their counts.
+   * @param gen JSON generator to write to.
+   * @param name Name of the facet, the field name of the object.
+   * @param facet Entry counts by field value.
+   * @param order Order of the values.
+   * @throws IOException Thrown if the generator fails to write. */
+  private static void writeFacet(JsonGenerator gen, String name, Map<String, Integer> facet,
+      Comparator<Map.Entry<String, Integer>> order) throws IOException {
+    var counts = new ArrayList<Map.Entry<String, Integer>>(facet.entrySet());
+    counts.sort(order);
+    gen.writeObjectFieldStart(name);
+    for (var count : counts) gen.writeNumberField(count.getKey(), count.getValue());
+    gen.writeEndObject();
+  }
+
+
+  // __________________________________________________________________________
+  // GET methods.
+
+  /** Get the number of entries.
+   * @return Entry count. */
+  public int getEntryCount() {
+    return _entryCount;
+  }
+
+
+  /** Get the number of entries of an entry type.
+   * @param entryType The entry type.
+   * @return Entry count. */
+  public int getCount(EntryType entryType) {
+    return _entryTypes[entryType.ordinal()];
+  }
+
+
+  /** Get the number of entries with some value of a counted field.
+   * @param fieldType Year, journal or book title.
+   * @param value The field value.
+   * @return Entry count. 0 if the field is not counted. */
+  public int getCount(FieldType fieldType, String value) {
+    var facet = facet(fieldType);
+    return (facet != null)? facet.getOrDefault(value, 0) : 0;
+  }
+}
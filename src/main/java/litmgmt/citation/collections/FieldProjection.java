@@ -0,0 +1,72 @@
+package litmgmt.citation.collections;
+
+import litmgmt.citation.description.FieldType;
+
+
+/** Selects the properties of entries to output, e.g. only the cite keys and titles for a list view.
+ * It is parsed from a comma-separated list of entry properties ('citeKey', 'entryType') and field
+ * types ('title', 'author', ...). The entry ID is always included. */
+public class FieldProjection {
+
+  private boolean _citeKey;                // Include the cite key.
+  private boolean _entryType;              // Include the entry type.
+  private boolean[] _fieldTypes;           // Included field types, by ordinal.
+  private boolean _anyField;               // At least one field type is included.
+
+
+  private FieldProjection() {
+    _fieldTypes = new boolean[FieldType.values().length];
+  }
+
+
+  /** Parse a projection.
+   * @param list Comma-separated property names and field types, e.g. 'citeKey,title'. Case-insensitive.
+   * @return The projection.
+   * @throws IllegalArgumentException Thrown if a name is neither an entry property nor a field type. */
+  public static FieldProjection parse(String list) {
+    var projection = new FieldProjection();
+    for (var name : list.split(",")) {
+      name = name.trim();
+      if (name.isEmpty() || name.equalsIgnoreCase("id")) continue;
+      if (name.equalsIgnoreCase("citeKey")) projection._citeKey = true;
+      else if (name.equalsIgnoreCase("entryType")) projection._entryType = true;
+      else {
+        projection._fieldTypes[FieldType.valueOf(name.toUpperCase()).ordinal()] = true;
+        projection._anyField = true;
+      }
+    }
+    return projection;
+  }
+
+
+  // __________________________________________________________________________
+  // GET methods.
+
+  /** Check if the cite key is included.
+   * @return 'True', if the cite key is included. */
+  public boolean includesCiteKey() {
+    return _citeKey;
+  }
+
+
+  /** Check if the entry type is included.
+   * @return 'True', if the entry type is included. */
+  public boolean includesEntryType() {
+    return _entryType;
+  }
+
+
+  /** Check if any field type is included.
+   * @return 'True', if at least one field type is included. */
+  public boolean includesFields() {
+    return _anyField;
+  }
+
+
+  /** Check if a field type is included.
+   * @param fieldType The field type.
+   * @return 'True', if fields of this type are included. */
+  public boolean includes(FieldType fieldType) {
+    return _fieldTypes[fieldType.ordinal()];
+  }
+}
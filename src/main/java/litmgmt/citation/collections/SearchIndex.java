@@ -0,0 +1,490 @@
+package litmgmt.citation.collections;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.regex.Pattern;
+import com.fasterxml.jackson.core.JsonGenerator;
+import litmgmt.citation.description.FieldType;
+
+
+/** Inverted index over the text fields of the entries of one collection, for ranked full-text search.
+ * Each term maps to a posting list of the entries containing it, sorted by entry ID, with the number of
+ * occurrences per entry. The collection keeps its index up to date on every change, so it is guarded by
+ * the collection lock like the entries themselves. Searches over several collections are ranked with BM25,
+ * using the term statistics of all searched collections, so the scores are comparable across collections.
+ * Cite keys are unique, so they are not indexed as terms (one posting list per entry), but looked up in
+ * the cite key index of the collection. */
+public class SearchIndex {
+
+  private HashMap<String, Postings> _terms; // Posting lists by term.
+  private long _totalTerms;                 // Sum of the indexed terms of all entries (for the average length).
+  private int _shrinks;                     // Number of changes that made an entry shorter (raising its scores).
+
+  private static final boolean[] INDEXED = new boolean[FieldType.values().length]; // Indexed field types, by ordinal.
+  private static final Set<String> STOP_WORDS = Set.of(
+    "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "in", "is", "of", "on", "or", "the", "to", "with"
+  );
+  private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+  private static final double K1 = 1.2;    // BM25: Saturation of the term frequency.
+  private static final double B = 0.75;    // BM25: Influence of the entry length.
+
+  static {
+    for (var fieldType : new FieldType[] {
+      FieldType.TITLE, FieldType.AUTHOR, FieldType.JOURNAL, FieldType.BOOKTITLE, FieldType.NOTE
+    }) INDEXED[fieldType.ordinal()] = true;
+  }
+
+
+  /** Create an empty index (package-private, each collection creates its own). */
+  SearchIndex() {
+    _terms = new HashMap<String, Postings>();
+  }
+
+
+  /** Check if the values of a field type are indexed.
+   * @param fieldType The field type.
+   * @return 'True', if the field is searchable. */
+  public static boolean isIndexed(FieldType fieldType) {
+    return INDEXED[fieldType.ordinal()];
+  }
+
+
+  /** Index all indexed fields of an entry. The caller must hold the write lock.
+   * @param entry The entry that was added to the collection. */
+  void add(Entry entry) {
+    for (var fieldType : entry.getFieldOrder()) {
+      if (isIndexed(fieldType)) addTerms(entry, entry.getField(fieldType));
+    }
+  }
+
+
+  /** Remove all indexed fields of an entry. The caller must hold the write lock.
+   * @param entry The entry that is removed from the collection. */
+  void remove(Entry entry) {
+    for (var fieldType : entry.getFieldOrder()) {
+      if (isIndexed(fieldType)) removeTerms(entry, entry.getField(fieldType));
+    }
+  }
+
+
+  /** Replace the terms of one field value of an entry. The caller must hold the write lock.
+   * @param entry The changed entry.
+   * @param oldText Previous value. 'null', if the field was not set.
+   * @param newText New value. 'null', if the field was removed. */
+  void update(Entry entry, String oldText, String newText) {
+    var length = entry._termCount;
+    removeTerms(entry, oldText);
+    addTerms(entry, newText);
+    if (entry._termCount < length) _shrinks++;
+  }
+
+
+  /** Add the terms of a text to the posting lists of an entry.
+   * @param entry The entry.
+   * @param text The text. May be 'null'. */
+  private void addTerms(Entry entry, String text) {
+    for (var term : tokenize(text)) {
+      _terms.computeIfAbsent(term, t -> new Postings()).add(entry);
+      entry._termCount++;
+      _totalTerms++;
+    }
+  }
+
+
+  /** Remove the terms of a text from the posting lists of an entry.
+   * @param entry The entry.
+   * @param text The text. May be 'null'. */
+  private void removeTerms(Entry entry, String text) {
+    for (var term : tokenize(text)) {
+      var postings = _terms.get(term);
+      if (postings != null && postings.remove(entry)) {
+        entry._termCount--;
+        _totalTerms--;
+        if (postings._size == 0) _terms.remove(term);
+      }
+    }
+  }
+
+
+  /** Split a text into search terms: lowercase words and numbers, with diacritics removed.
+   * Single characters and common English stop words are left out.
+   * @param text The text to split. May be 'null'.
+   * @return The terms in order of appearance. Terms occurring several times are repeated. */
+  static List<String> tokenize(String text) {
+    var terms = new ArrayList<String>();
+    if (text == null) return terms;
+    text = fold(text);
+    int start = -1;
+    for (int i = 0; i <= text.length(); i++) {
+      var inWord = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+      if (inWord && start < 0) start = i;
+      else if (!inWord && start >= 0) {
+        if (i - start > 1) {
+          var term = text.substring(start, i);
+          if (!STOP_WORDS.contains(term)) terms.add(term);
+        }
+        start = -1;
+      }
+    }
+    return terms;
+  }
+
+
+  /** Fold a text to lowercase and strip diacritics ('Müller' becomes 'muller').
+   * @param text The text.
+   * @return The folded text. */
+  static String fold(String text) {
+    text = text.toLowerCase();
+    for (int i = 0; i < text.length(); i++) {
+      if (text.charAt(i) >= 0x80) {  // Only normalize the (rare) texts that are not plain ASCII.
+        return MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+      }
+    }
+    return text;
+  }
+
+
+  /** Search the entries of some collections. Entries containing any of the query terms are found and
+   * ranked by their BM25 score. If the query is the cite key of an entry, the entry is scored as if it
+   * contained a term no other entry has, which ranks it first in most cases.
+   * The collections are locked one after another, not all at once.
+   * @param collections The collections to search.
+   * @param query The search text, e.g. 'neural networks hinton'.
+   * @param limit Maximum number of hits to return.
+   * @return The best hits, the highest score first. */
+  public static List<Hit> search(List<Collection> collections, String query, int limit) {
+    var terms = new ArrayList<String>(new LinkedHashSet<String>(tokenize(query)));
+    var citeKey = query.trim();
+    var hits = new ArrayList<Hit>();
+    if (limit <= 0) return hits;
+
+    // First pass: Gather the term statistics of all collections.
+    long entryCount = 0, totalTerms = 0;
+    var docFreqs = new long[terms.size()];
+    for (var col : collections) {
+      col.getLock().readLock().lock();
+      try {
+        entryCount += col.getEntryCount();
+        var index = col.getSearchIndex();
+        totalTerms += index._totalTerms;
+        for (int t = 0; t < terms.size(); t++) {
+          var postings = index._terms.get(terms.get(t));
+          if (postings != null) docFreqs[t] += postings._size;
+        }
+      }
+      finally {
+        col.getLock().readLock().unlock();
+      }
+    }
+    if (entryCount == 0) return hits;
+    var avgLength = Math.max(1.0, totalTerms / (double) entryCount);
+    var idfs = new double[terms.size()];
+    for (int t = 0; t < terms.size(); t++) {
+      idfs[t] = Math.log(1 + (entryCount - docFreqs[t] + 0.5) / (docFreqs[t] + 0.5));
+    }
+
+    var keyIdf = Math.log(1 + (entryCount - 0.5) / 1.5);
+
+    // Second pass: Score the entries of each collection and keep the best ones.
+    var best = new PriorityQueue<Hit>(limit + 1, (a, b) -> Double.compare(a._score, b._score));
+    for (var col : collections) {
+      col.getLock().readLock().lock();
+      try {
+        var index = col.getSearchIndex();
+        index.score(col, terms, idfs, avgLength, limit, best);
+        var keyed = col.getEntryByCiteKey(citeKey);
+        if (keyed != null) {
+          best.removeIf(hit -> hit._entry == keyed);
+          var score = index.scoreEntry(keyed, terms, idfs, avgLength);
+          score += keyIdf * (K1 + 1) / (1 + K1 * (1 - B + B * keyed._termCount / avgLength));
+          if (best.size() == limit && best.peek()._score < score) best.poll();
+          if (best.size() < limit) best.add(new Hit(col.getId(), keyed, score));
+        }
+      }
+      finally {
+        col.getLock().readLock().unlock();
+      }
+    }
+    hits.addAll(best);
+    hits.sort((a, b) -> Double.compare(b._score, a._score));
+    return hits;
+  }
+
+
+  /** Score the entries containing any of the terms. The posting lists are merged by entry ID, so each entry
+   * is scored once, without an accumulator per entry. Once there are enough hits, the lists of the terms
+   * that together cannot lift an entry above the worst hit are no longer merged, but only looked up for
+   * the entries found in the other lists (MaxScore). So frequent terms cost little next to rare ones.
+   * The caller must hold the read lock.
+   * @param col The collection this index belongs to.
+   * @param terms The distinct query terms.
+   * @param idfs Inverse document frequency of each term.
+   * @param avgLength Average number of terms per entry.
+   * @param limit Maximum number of hits to keep.
+   * @param best The best hits so far, lowest score at the head. */
+  private void score(Collection col, List<String> terms, double[] idfs, double avgLength, int limit,
+                     PriorityQueue<Hit> best) {
+
+    // Order the lists by the highest score they can contribute, sum up these bounds.
+    var found = new ArrayList<Integer>();
+    for (int t = 0; t < terms.size(); t++) {
+      if (_terms.containsKey(terms.get(t))) found.add(t);
+    }
+    var bounds = new double[terms.size()];
+    for (var t : found) {  // A single list is merged anyway, so don't compute its bound.
+      bounds[t] = (found.size() > 1)? idfs[t] * bound(_terms.get(terms.get(t)), avgLength) : Double.MAX_VALUE;
+    }
+    found.sort((a, b) -> Double.compare(bounds[a], bounds[b]));
+    var count = found.size();
+    var lists = new Postings[count];
+    var weights = new double[count];
+    var maxScores = new double[count];  // Highest score of an entry that is only in lists 0 to t.
+    for (int t = 0; t < count; t++) {
+      lists[t] = _terms.get(terms.get(found.get(t)));
+      weights[t] = idfs[found.get(t)];
+      maxScores[t] = bounds[found.get(t)] + ((t > 0)? maxScores[t - 1] : 0);
+    }
+
+    var pos = new int[count];
+    var threshold = (best.size() < limit)? -1.0 : best.peek()._score;  // Score a new hit has to exceed.
+    var first = 0;  // First list to merge, the ones before are only looked up.
+    while (first < count && maxScores[first] <= threshold) first++;
+    while (first < count) {
+      int minId = Integer.MAX_VALUE;
+      Entry entry = null;
+      for (int t = first; t < count; t++) {
+        if (pos[t] < lists[t]._size && lists[t]._ids[pos[t]] <= minId) {
+          minId = lists[t]._ids[pos[t]];
+          entry = lists[t]._entries[pos[t]];
+        }
+      }
+      if (entry == null) break;
+      var norm = K1 * (1 - B + B * entry._termCount / avgLength);
+      double score = 0;
+      for (int t = first; t < count; t++) {
+        if (pos[t] < lists[t]._size && lists[t]._ids[pos[t]] == minId) {
+          var freq = lists[t]._freqs[pos[t]++];
+          score += weights[t] * freq * (K1 + 1) / (freq + norm);
+        }
+      }
+      for (int t = first - 1; t >= 0 && score + maxScores[t] > threshold; t--) {
+        pos[t] = lists[t].find(minId, pos[t]);
+        if (pos[t] < lists[t]._size && lists[t]._ids[pos[t]] == minId) {
+          var freq = lists[t]._freqs[pos[t]];
+          score += weights[t] * freq * (K1 + 1) / (freq + norm);
+        }
+      }
+      if (score > threshold) {
+        if (best.size() == limit) best.poll();
+        best.add(new Hit(col.getId(), entry, score));
+        if (best.size() == limit) {
+          threshold = best.peek()._score;
+          while (first < count && maxScores[first] <= threshold) first++;
+        }
+      }
+    }
+  }
+
+
+  /** Compute the score of a single entry. The caller must hold the read lock.
+   * @param entry The entry.
+   * @param terms The distinct query terms.
+   * @param idfs Inverse document frequency of each term.
+   * @param avgLength Average number of terms per entry.
+   * @return The BM25 score of the entry. */
+  private double scoreEntry(Entry entry, List<String> terms, double[] idfs, double avgLength) {
+    var norm = K1 * (1 - B + B * entry._termCount / avgLength);
+    double score = 0;
+    for (int t = 0; t < terms.size(); t++) {
+      var postings = _terms.get(terms.get(t));
+      if (postings == null) continue;
+      var i = postings.find(entry.getId(), 0);
+      if (i < postings._size && postings._entries[i] == entry) {
+        var freq = postings._freqs[i];
+        score += idfs[t] * freq * (K1 + 1) / (freq + norm);
+      }
+    }
+    return score;
+  }
+
+
+  /** Get the highest factor an entry of a posting list can get for the term (the BM25 score without the
+   * inverse document frequency). It is computed from all entries of the list and cached, until the list
+   * changes, an entry gets shorter or the average entry length grows beyond a small margin.
+   * The caller must hold the (read) lock. Concurrent readers compute the same value.
+   * @param postings The posting list.
+   * @param avgLength Average number of terms per entry.
+   * @return The upper bound. */
+  private double bound(Postings postings, double avgLength) {
+    var bound = postings._bound;
+    if (bound == null || bound._modCount != postings._modCount || bound._shrinks != _shrinks ||
+        bound._avgLength < avgLength) {
+      var avg = avgLength * 1.05;  // The bound only grows with the average length, so leave some headroom.
+      double max = 0;
+      for (int i = 0; i < postings._size; i++) {
+        var freq = postings._freqs[i];
+        max = Math.max(max, freq / (freq + K1 * (1 - B + B * postings._entries[i]._termCount / avg)));
+      }
+      bound = new Bound(postings._modCount, _shrinks, avg, max * (K1 + 1));
+      postings._bound = bound;
+    }
+    return bound._value;
+  }
+
+
+  /** Output search hits as JSON array of objects with collection ID, score and entry.
+   * @param hits The hits to write.
+   * @param out Stream to write to. It is flushed, but not closed.
+   * @throws IOException Thrown if writing to the stream fails. */
+  public static void writeHitsJson(List<Hit> hits, OutputStream out) throws IOException {
+    try (var gen = Entry.JSON_FACTORY.createGenerator(out)) {
+      gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      gen.writeStartArray();
+      for (var hit : hits) {
+        gen.writeStartObject();
+        gen.writeNumberField("collectionId", hit._collectionId);
+        gen.writeNumberField("score", (float) hit._score);
+        gen.writeFieldName("entry");
+        hit._entry.saveEntryAsJson(gen);
+        gen.writeEndObject();
+      }
+      gen.writeEndArray();
+    }
+  }
+
+
+  /** The entries containing a term, sorted by entry ID, with the number of occurrences.
+   * The IDs are kept next to the entry references, so merging the lists does not touch the entries. */
+  private static class Postings {
+    int[] _ids = new int[2];
+    Entry[] _entries = new Entry[2];
+    int[] _freqs = new int[2];
+    int _size;
+    int _modCount;           // Number of changes, to validate the cached bound.
+    volatile Bound _bound;   // Cached score bound, 'null' if not computed yet.
+
+
+    /** Count one occurrence of the term in an entry. */
+    void add(Entry entry) {
+      var id = entry.getId();
+      var i = find(id, 0);
+      _modCount++;
+      if (i < _size && _ids[i] == id) {
+        _freqs[i]++;
+        return;
+      }
+      if (_size == _ids.length) {
+        var capacity = _size + (_size >> 1) + 1;
+        _ids = Arrays.copyOf(_ids, capacity);
+        _entries = Arrays.copyOf(_entries, capacity);
+        _freqs = Arrays.copyOf(_freqs, capacity);
+      }
+      System.arraycopy(_ids, i, _ids, i + 1, _size - i);
+      System.arraycopy(_entries, i, _entries, i + 1, _size - i);
+      System.arraycopy(_freqs, i, _freqs, i + 1, _size - i);
+      _ids[i] = id;
+      _entries[i] = entry;
+      _freqs[i] = 1;
+      _size++;
+    }
+
+
+    /** Remove one occurrence of the term in an entry.
+     * @return 'True', if the entry was listed. */
+    boolean remove(Entry entry) {
+      var i = find(entry.getId(), 0);
+      if (i == _size || _entries[i] != entry) return false;
+      _modCount++;
+      if (--_freqs[i] == 0) {
+        System.arraycopy(_ids, i + 1, _ids, i, _size - i - 1);
+        System.arraycopy(_entries, i + 1, _entries, i, _size - i - 1);
+        System.arraycopy(_freqs, i + 1, _freqs, i, _size - i - 1);
+        _entries[--_size] = null;
+      }
+      return true;
+    }
+
+
+    /** Find the position of the first entry with this or a greater ID, starting at some position.
+     * The range is doubled until it contains the ID, so nearby positions are found fast. */
+    int find(int id, int from) {
+      if (from == _size || _ids[_size - 1] < id) return _size;  // New entries usually go last.
+      int high = from, step = 1;
+      while (high < _size && _ids[high] < id) {
+        from = high + 1;
+        high += step;
+        step <<= 1;
+      }
+      var i = Arrays.binarySearch(_ids, from, Math.min(high + 1, _size), id);
+      return (i >= 0)? i : -1 - i;
+    }
+  }
+
+
+  /** Upper bound of the score factor of a posting list, with the state it was computed for. */
+  private static class Bound {
+    final int _modCount, _shrinks;     // Changes of the posting list and shrunk entries when computed.
+    final double _avgLength, _value;   // Average entry length the bound holds up to, the bound itself.
+
+
+    /** Create a bound.
+     * @param modCount Change count of the posting list.
+     * @param shrinks Number of entries that became shorter so far.
+     * @param avgLength Highest average entry length the bound is valid for.
+     * @param value The bound of the score factor. */
+    Bound(int modCount, int shrinks, double avgLength, double value) {
+      _modCount = modCount;
+      _shrinks = shrinks;
+      _avgLength = avgLength;
+      _value = value;
+    }
+  }
+
+
+  /** A search result: an entry and its score. */
+  public static class Hit {
+    private final int _collectionId;  // Collection of the entry.
+    private final Entry _entry;       // The found entry.
+    private final double _score;      // BM25 score, higher is better.
+
+
+    /** Create a hit.
+     * @param collectionId ID of the collection the entry belongs to.
+     * @param entry The found entry.
+     * @param score Its score. */
+    Hit(int collectionId, Entry entry, double score) {
+      _collectionId = collectionId;
+      _entry = entry;
+      _score = score;
+    }
+
+
+    /** Get the ID of the collection the entry belongs to.
+     * @return The collection ID. */
+    public int getCollectionId() {
+      return _collectionId;
+    }
+
+
+    /** Get the found entry.
+     * @return The entry. */
+    public Entry getEntry() {
+      return _entry;
+    }
+
+
+    /** Get the BM25 score of the entry.
+     * @return The score, higher is better. */
+    public double getScore() {
+      return _score;
+    }
+  }
+}
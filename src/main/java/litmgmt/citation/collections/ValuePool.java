@@ -0,0 +1,130 @@
+package litmgmt.citation.collections;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import litmgmt.citation.description.FieldType;
+
+
+/** Deduplicates field values that repeat across a library, like journal names, publishers or months.
+ * Values of the pooled field types are replaced by a shared instance when they are set on an entry,
+ * so thousands of entries with the same journal keep a single string. The pool is bounded: once full,
+ * new values are no longer admitted, but the ones already pooled are still shared. */
+public class ValuePool {
+
+  private static final int DEFAULT_MAX_SIZE = 65536; // Default maximum number of pooled values.
+
+  private static volatile EnumSet<FieldType> _fieldTypes = EnumSet.of(  // Field types whose values are pooled.
+    FieldType.JOURNAL, FieldType.PUBLISHER, FieldType.MONTH, FieldType.BOOKTITLE, FieldType.ORGANIZATION,
+    FieldType.ADDRESS, FieldType.INSTITUTION, FieldType.SCHOOL, FieldType.SERIES
+  );
+  private static volatile int _maxSize = DEFAULT_MAX_SIZE;  // Maximum number of distinct values in the pool.
+  private static final ConcurrentHashMap<String, String> _pool = new ConcurrentHashMap<String, String>();
+  private static final LongAdder _lookups = new LongAdder();    // Values of pooled field types seen.
+  private static final LongAdder _hits = new LongAdder();       // ... of which were already pooled.
+  private static final LongAdder _hitBytes = new LongAdder();   // Estimated heap of the values of the hits.
+
+
+  /** Set the field types whose values are pooled and the pool size. The values pooled so far are kept.
+   * @param fieldTypes Field types to pool. An empty set disables pooling.
+   * @param maxSize Maximum number of distinct values in the pool. */
+  public static void configure(Set<FieldType> fieldTypes, int maxSize) {
+    if (maxSize < 0) throw new IllegalArgumentException("Pool size must not be negative!");
+    _fieldTypes = fieldTypes.isEmpty()? EnumSet.noneOf(FieldType.class) : EnumSet.copyOf(fieldTypes);
+    _maxSize = maxSize;
+  }
+
+
+  /** Get the shared instance of a field value.
+   * @param fieldType Type of the field the value belongs to.
+   * @param value The field value. May be 'null'.
+   * @return The pooled instance, if the field type is pooled, otherwise the value itself. */
+  public static String intern(FieldType fieldType, String value) {
+    if (value == null || !_fieldTypes.contains(fieldType)) return value;
+    _lookups.increment();
+    var pooled = _pool.get(value);
+    if (pooled == null) {
+      if (_pool.size() >= _maxSize) return value;  // Full, don't admit (bound is approximate under races).
+      pooled = _pool.putIfAbsent(value, value);
+      if (pooled == null) return value;
+    }
+    if (pooled != value) {
+      _hits.increment();
+      _hitBytes.add(estimateSize(value));
+    }
+    return pooled;
+  }
+
+
+  /** Estimate the heap size of a string (object header and fields plus its byte array).
+   * @param value The string.
+   * @return Estimated size in bytes, assuming compressed pointers and compact strings. */
+  private static long estimateSize(String value) {
+    return 24 + ((16 + value.length() + 7) & ~7);
+  }
+
+
+  /** Drop all pooled values and reset the statistics. Shared instances already set on entries stay valid. */
+  public static void clear() {
+    _pool.clear();
+    _lookups.reset();
+    _hits.reset();
+    _hitBytes.reset();
+  }
+
+
+  // __________________________________________________________________________
+  // GET methods.
+
+  /** Get the field types whose values are pooled.
+   * @return Copy of the pooled field types. */
+  public static Set<FieldType> getFieldTypes() {
+    return EnumSet.copyOf(_fieldTypes);
+  }
+
+
+  /** Get the number of distinct values in the pool.
+   * @return Pool size. */
+  public static int getSize() {
+    return _pool.size();
+  }
+
+
+  /** Get the maximum number of distinct values in the pool.
+   * @return Maximum pool size. */
+  public static int getMaxSize() {
+    return _maxSize;
+  }
+
+
+  /** Get the number of values of pooled field types that were looked up.
+   * @return Number of lookups. */
+  public static long getLookups() {
+    return _lookups.sum();
+  }
+
+
+  /** Get the number of lookups that were replaced by an already pooled instance.
+   * @return Number of hits. */
+  public static long getHits() {
+    return _hits.sum();
+  }
+
+
+  /** Get the ratio of hits to lookups.
+   * @return Hit rate between 0 and 1. */
+  public static double getHitRate() {
+    var lookups = _lookups.sum();
+    return (lookups > 0)? _hits.sum() / (double) lookups : 0.0;
+  }
+
+
+  /** Get the estimated heap of all values that were replaced by an already pooled instance, summed up over
+   * the hits. This is a counter like {@link #getHits}, not the heap saved right now: A value set again on
+   * the same field counts again, and values overwritten or deleted since are not subtracted.
+   * @return Estimated bytes of the replaced values. */
+  public static long getHitBytes() {
+    return _hitBytes.sum();
+  }
+}
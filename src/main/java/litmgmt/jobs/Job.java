@@ -0,0 +1,217 @@
+package litmgmt.jobs;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.concurrent.CancellationException;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+
+
+/** A long-running operation on a collection, executed in the background by the {@link JobManager}.
+ * The state is only changed by the manager, the progress by the work itself. All properties may be read
+ * by any thread at any time. */
+public class Job {
+
+  /** Kinds of jobs. */
+  public enum Type {
+    EXPORT,   // Write the collection as BibTeX file (result: the file).
+    IMPORT,   // Add the records of an uploaded BibTeX file (result: the import report).
+    REINDEX,  // Rebuild the indexes of the collection (no result).
+    DEDUP     // Find clusters of near-duplicate entries (result: the clusters).
+  }
+
+
+  /** Life cycle of a job. Once finished (succeeded, failed or cancelled), a job does not change anymore. */
+  public enum State {
+    QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED;
+
+    /** Check if the job is over.
+     * @return 'True' for the final states. */
+    public boolean isFinished() {
+      return this == SUCCEEDED || this == FAILED || this == CANCELLED;
+    }
+  }
+
+
+  private final int _id;                     // Job identifier.
+  private final Type _type;                  // What the job does.
+  private final int _userId;                 // Owner of the job (the user who submitted it).
+  private final int _collectionId;           // Collection the job works on.
+  private final Instant _created;            // Time of submission.
+  private volatile State _state;             // Current state.
+  private volatile Instant _started;         // Time the job started running. 'null' while queued.
+  private volatile Instant _finished;        // Time the job finished. 'null' while queued or running.
+  private volatile long _done, _total;       // Progress: Units of work done and expected (0: unknown).
+  private volatile String _error;            // Reason why the job failed. 'null' otherwise.
+  private volatile boolean _cancelRequested; // Set to stop a running job at its next progress report.
+
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+
+  /** Create a new queued job.
+   * @param id Job identifier.
+   * @param type What the job does.
+   * @param userId Owner of the job.
+   * @param collectionId Collection the job works on. */
+  Job(int id, Type type, int userId, int collectionId) {
+    this(id, type, userId, collectionId, Instant.now(), State.QUEUED);
+  }
+
+
+  private Job(int id, Type type, int userId, int collectionId, Instant created, State state) {
+    _id = id;
+    _type = type;
+    _userId = userId;
+    _collectionId = collectionId;
+    _created = created;
+    _state = state;
+  }
+
+
+  /** Report the progress of the work. Also the point where running jobs are cancelled.
+   * @param done Units of work done so far.
+   * @param total Units of work expected in total. 0 if unknown.
+   * @throws CancellationException Thrown if the job shall be cancelled. The work must stop then. */
+  public void setProgress(long done, long total) {
+    _done = done;
+    _total = total;
+    if (_cancelRequested) throw new CancellationException("Job #"+_id+" cancelled");
+  }
+
+
+  /** Ask the job to stop. A running job stops at its next progress report. */
+  void requestCancel() {
+    _cancelRequested = true;
+  }
+
+
+  /** Change the state and record the time of the change.
+   * @param state The new state.
+   * @param error Reason of a failure, 'null' otherwise. */
+  void setState(State state, String error) {
+    if (state == State.RUNNING) _started = Instant.now();
+    if (state.isFinished()) _finished = Instant.now();
+    if (state == State.SUCCEEDED) _done = _total = Math.max(_done, _total);
+    _error = error;
+    _state = state;
+  }
+
+
+  /** Write this job as JSON object (used for responses and the job table).
+   * @param gen The generator to write to. */
+  void writeJson(JsonGenerator gen) throws IOException {
+    gen.writeStartObject();
+    gen.writeNumberField("id", _id);
+    gen.writeStringField("type", _type.toString().toLowerCase());
+    gen.writeNumberField("userId", _userId);
+    gen.writeNumberField("collectionId", _collectionId);
+    gen.writeStringField("state", _state.toString().toLowerCase());
+    gen.writeNumberField("done", _done);
+    gen.writeNumberField("total", _total);
+    gen.writeStringField("created", _created.toString());
+    if (_started != null) gen.writeStringField("started", _started.toString());
+    if (_finished != null) gen.writeStringField("finished", _finished.toString());
+    if (_error != null) gen.writeStringField("error", _error);
+    gen.writeEndObject();
+  }
+
+
+  /** Get this job as JSON object, e.g. to answer a status request.
+   * @return UTF-8 encoded JSON object, the same as written by {@link #writeJson}. */
+  public byte[] toJson() {
+    var out = new ByteArrayOutputStream(256);
+    try (var gen = JSON_FACTORY.createGenerator(out)) {
+      writeJson(gen);
+    }
+    catch (IOException ex) {
+      throw new IllegalStateException(ex);  // Not thrown by an in-memory stream.
+    }
+    return out.toByteArray();
+  }
+
+
+  /** Restore a job from the job table.
+   * @param node JSON object written by {@link #writeJson}.
+   * @return The job. Jobs that were queued or running are restored as failed, their work is lost.
+   * @throws IllegalArgumentException Thrown if the object is malformed. */
+  static Job restoreJob(JsonNode node) {
+    try {
+      var state = State.valueOf(node.get("state").asText().toUpperCase());
+      var job = new Job(node.get("id").asInt(), Type.valueOf(node.get("type").asText().toUpperCase()),
+        node.get("userId").asInt(), node.get("collectionId").asInt(), Instant.parse(node.get("created").asText()),
+        state);
+      job._done = node.path("done").asLong();
+      job._total = node.path("total").asLong();
+      if (node.has("started")) job._started = Instant.parse(node.get("started").asText());
+      if (node.has("finished")) job._finished = Instant.parse(node.get("finished").asText());
+      job._error = node.path("error").textValue();
+      if (!state.isFinished()) job.setState(State.FAILED, "Interrupted by server restart");
+      return job;
+    }
+    catch (NullPointerException | DateTimeException ex) {
+      throw new IllegalArgumentException("Malformed job: "+node, ex);
+    }
+  }
+
+
+  // __________________________________________________________________________
+  // GET methods.
+
+  /** Get the job identifier.
+   * @return The job ID. */
+  public int getId() {
+    return _id;
+  }
+
+
+  /** Get the kind of the job.
+   * @return The job type. */
+  public Type getType() {
+    return _type;
+  }
+
+
+  /** Get the owner of the job.
+   * @return ID of the user who submitted the job. */
+  public int getUserId() {
+    return _userId;
+  }
+
+
+  /** Get the collection the job works on.
+   * @return The collection ID. */
+  public int getCollectionId() {
+    return _collectionId;
+  }
+
+
+  /** Get the current state.
+   * @return The job state. */
+  public State getState() {
+    return _state;
+  }
+
+
+  /** Get the units of work done so far.
+   * @return Progress counter. */
+  public long getDone() {
+    return _done;
+  }
+
+
+  /** Get the units of work expected in total.
+   * @return Progress total. 0 if unknown. */
+  public long getTotal() {
+    return _total;
+  }
+
+
+  /** Get the reason why the job failed.
+   * @return Error message or 'null'. */
+  public String getError() {
+    return _error;
+  }
+}
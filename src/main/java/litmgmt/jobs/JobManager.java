@@ -0,0 +1,368 @@
+package litmgmt.jobs;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import litmgmt.citation.bibtex.BibTexReader;
+import litmgmt.citation.bibtex.BibTexWriter;
+import litmgmt.citation.collections.Collection;
+import litmgmt.citation.collections.CollectionManager;
+import litmgmt.citation.collections.DuplicateIndex;
+import litmgmt.users.User;
+
+
+/** Runs long operations on collections (exports, imports, reindexing, duplicate scans) in the background,
+ * so they never hold a request thread. Jobs are executed by a few low-priority worker threads with a
+ * bounded queue: heavy work never takes all cores, and submissions beyond the queue are rejected instead
+ * of piling up.
+ * The jobs are kept in a job table file, which is rewritten on every state change (not on progress).
+ * So finished jobs and their results survive a restart, jobs that were queued or running fail then. */
+public class JobManager {
+
+  private CollectionManager _colMgr;           // Collections the jobs work on.
+  private Path _dir;                           // Directory of the job table, uploads and results.
+  private ThreadPoolExecutor _workers;         // Worker threads, with the queue of waiting jobs.
+  private LinkedHashMap<Integer, Job> _jobs;   // All jobs by ID, oldest first. Guarded by 'this'.
+  private int _nextId;                         // Identifier of the next job. Guarded by 'this'.
+
+  private static final String TABLE_FILE = "jobs.json";
+  private static final int MAX_QUEUED = 64;    // Jobs waiting for a worker.
+  private static final int MAX_KEPT = 1000;    // Finished jobs kept in the table (with their results).
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+
+  /** Create a job manager and restore its job table.
+   * @param colMgr Collection manager holding the collections.
+   * @param dirPath Directory for the job table, uploads and results. It is created if missing.
+   * @param workers Number of worker threads (jobs running at the same time). */
+  public JobManager(CollectionManager colMgr, String dirPath, int workers) {
+    _colMgr = colMgr;
+    _dir = Path.of(dirPath);
+    _jobs = new LinkedHashMap<Integer, Job>();
+    try {
+      Files.createDirectories(_dir);
+    }
+    catch (IOException ex) {
+      System.err.println("[JobManager] Failed to create job directory '"+_dir+"': "+ex);
+    }
+    loadTable();
+    var threadCount = new AtomicInteger();
+    _workers = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+      new ArrayBlockingQueue<Runnable>(MAX_QUEUED), runnable -> {
+        var thread = new Thread(runnable, "job-worker-"+threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+      });
+  }
+
+
+  /** Stop the workers. Queued jobs are dropped, running ones are not interrupted (they would stop in the
+   * middle of a file write), but abandoned when the program exits. The job table still lists them as
+   * queued or running then, so they are marked as failed on the next start. */
+  public void shutdown() {
+    _workers.getQueue().clear();
+    _workers.shutdown();
+  }
+
+
+  /** Queue a new job.
+   * @param user The user who submits the job.
+   * @param type What the job shall do.
+   * @param collection The collection to work on. The caller checks that the user may access it.
+   * @param upload Input of the job (the BibTeX file of an import), copied before the job is queued.
+   *   'null' for the other job types.
+   * @return The queued job or 'null', if the queue is full.
+   * @throws IOException Thrown if the upload fails to read or to store. */
+  public Job submit(User user, Job.Type type, Collection collection, InputStream upload) throws IOException {
+    if (_workers.getQueue().remainingCapacity() == 0) return null;
+    Job job;
+    synchronized (this) {
+      job = new Job(_nextId++, type, user.getId(), collection.getId());
+    }
+    if (type == Job.Type.IMPORT) Files.copy(upload, uploadPath(job), StandardCopyOption.REPLACE_EXISTING);
+    synchronized (this) {
+      _jobs.put(job.getId(), job);
+      saveTable();
+    }
+    try {
+      _workers.execute(() -> run(job));
+    }
+    catch (RejectedExecutionException ex) {  // Filled up meanwhile.
+      synchronized (this) {
+        _jobs.remove(job.getId());
+        saveTable();
+      }
+      deleteFile(uploadPath(job));
+      return null;
+    }
+    return job;
+  }
+
+
+  /** Cancel a job. A queued job is cancelled at once, a running one at its next progress report.
+   * Imports can no longer be cancelled once their entries are being added. Finished jobs stay as they are.
+   * @param job The job. */
+  public synchronized void cancel(Job job) {
+    if (job.getState() == Job.State.QUEUED) {
+      job.setState(Job.State.CANCELLED, null);
+      deleteFile(uploadPath(job));
+      saveTable();
+    }
+    else if (job.getState() == Job.State.RUNNING) job.requestCancel();
+  }
+
+
+  /** Execute a job on a worker thread. */
+  private void run(Job job) {
+    synchronized (this) {
+      if (job.getState() != Job.State.QUEUED) return;  // Cancelled while waiting.
+      job.setState(Job.State.RUNNING, null);
+      saveTable();
+    }
+    var state = Job.State.SUCCEEDED;
+    String error = null;
+    try {
+      var collection = _colMgr.getCollection(job.getCollectionId());
+      if (collection == null) throw new IllegalStateException("Collection #"+job.getCollectionId()+" not found");
+      switch (job.getType()) {
+        case EXPORT: export(job, collection); break;
+        case IMPORT: importFile(job, collection); break;
+        case REINDEX: reindex(job, collection); break;
+        case DEDUP: dedup(job, collection); break;
+      }
+    }
+    catch (CancellationException ex) {
+      state = Job.State.CANCELLED;
+    }
+    catch (Exception ex) {
+      System.err.println("[JobManager] Job #"+job.getId()+" ("+job.getType()+") failed: "+ex);
+      state = Job.State.FAILED;
+      error = (ex.getMessage() != null)? ex.getMessage() : ex.toString();
+    }
+    deleteFile(uploadPath(job));
+    if (state != Job.State.SUCCEEDED) deleteResult(job);
+    synchronized (this) {
+      job.setState(state, error);
+      saveTable();
+    }
+  }
+
+
+  /** Export a collection as BibTeX file. The file is written under a temporary name first, so the result
+   * never shows up incomplete. */
+  private void export(Job job, Collection collection) throws IOException {
+    var total = collection.getEntryCount();
+    var temp = Path.of(getResult(job)+".tmp");
+    try (var out = new BufferedOutputStream(Files.newOutputStream(temp), 65536)) {
+      BibTexWriter.writeCollection(collection, out, count -> job.setProgress(count, total));
+    }
+    catch (IOException | RuntimeException ex) {
+      deleteFile(temp);
+      throw ex;
+    }
+    Files.move(temp, getResult(job), StandardCopyOption.REPLACE_EXISTING);
+  }
+
+
+  /** Import an uploaded BibTeX file. The progress is the number of bytes parsed. Adding the entries
+   * cannot be cancelled (it is done in one batch anyway). Parsing uses no more threads than there are
+   * workers, so that imports do not take all cores either. */
+  private void importFile(Job job, Collection collection) throws IOException {
+    var upload = uploadPath(job);
+    var size = Files.size(upload);
+    List<BibTexReader.Record> records;
+    try (var in = new ProgressStream(Files.newInputStream(upload), job, size)) {
+      records = BibTexReader.read(in, _workers.getMaximumPoolSize());
+    }
+    job.setProgress(size, size);
+    BibTexReader.importRecords(collection, records);
+    try (var out = new BufferedOutputStream(Files.newOutputStream(getResult(job)))) {
+      BibTexReader.writeReportJson(records, out);
+    }
+  }
+
+
+  /** Rebuild the indexes of a collection. The progress is the number of indexed entries. */
+  private void reindex(Job job, Collection collection) {
+    var total = collection.getEntryCount();
+    collection.rebuildIndexes(count -> job.setProgress(count, total));
+  }
+
+
+  /** Find the clusters of near-duplicate entries of a collection. There is no progress, the lookup is
+   * done in one pass under the read lock. */
+  private void dedup(Job job, Collection collection) throws IOException {
+    var clusters = DuplicateIndex.findDuplicates(collection, Integer.MAX_VALUE);
+    try (var out = new BufferedOutputStream(Files.newOutputStream(getResult(job)))) {
+      DuplicateIndex.writeClustersJson(clusters, out);
+    }
+  }
+
+
+  // __________________________________________________________________________
+  // Job table.
+
+  /** Restore the job table. Uploads and temporary files left over from the last run are deleted. */
+  private synchronized void loadTable() {
+    var table = _dir.resolve(TABLE_FILE);
+    if (Files.exists(table)) {
+      try {
+        var root = MAPPER.readTree(table.toFile());
+        _nextId = root.path("nextId").asInt();
+        for (var node : root.path("jobs")) {
+          var job = Job.restoreJob(node);
+          _jobs.put(job.getId(), job);
+          _nextId = Math.max(_nextId, job.getId() + 1);
+        }
+      }
+      catch (IOException | IllegalArgumentException ex) {
+        System.err.println("[JobManager] Failed to read job table '"+table+"': "+ex);
+      }
+    }
+    try (var files = Files.newDirectoryStream(_dir, "*.{upload,tmp}")) {
+      for (var file : files) deleteFile(file);
+    }
+    catch (IOException ex) {
+      System.err.println("[JobManager] Failed to clean up job directory '"+_dir+"': "+ex);
+    }
+    saveTable();
+  }
+
+
+  /** Write the job table. The oldest finished jobs beyond MAX_KEPT are dropped with their results.
+   * The table is written to a temporary file first, which then replaces the old one. */
+  private synchronized void saveTable() {
+    var finished = new ArrayList<Job>();
+    for (var job : _jobs.values()) if (job.getState().isFinished()) finished.add(job);
+    for (int i = 0; i < finished.size() - MAX_KEPT; i++) {
+      _jobs.remove(finished.get(i).getId());
+      deleteResult(finished.get(i));
+    }
+    var table = _dir.resolve(TABLE_FILE);
+    var temp = _dir.resolve(TABLE_FILE+".tmp");
+    try {
+      try (var channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+          StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+        var gen = MAPPER.getFactory().createGenerator(Channels.newOutputStream(channel));
+        gen.writeStartObject();
+        gen.writeNumberField("nextId", _nextId);
+        gen.writeArrayFieldStart("jobs");
+        for (var job : _jobs.values()) job.writeJson(gen);
+        gen.writeEndArray();
+        gen.writeEndObject();
+        gen.flush();
+        channel.force(true);
+      }
+      Files.move(temp, table, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+    catch (IOException ex) {
+      System.err.println("[JobManager] Failed to write job table '"+table+"': "+ex);
+    }
+  }
+
+
+  /** Get the file an upload of a job is stored in until the job is done.
+   * @param job The job.
+   * @return Path of the upload file. */
+  private Path uploadPath(Job job) {
+    return _dir.resolve(job.getId()+".upload");
+  }
+
+
+  /** Delete the result file of a job, if it has one.
+   * @param job The job. */
+  private void deleteResult(Job job) {
+    var result = getResult(job);
+    if (result != null) deleteFile(result);
+  }
+
+
+  /** Delete a file, if it exists. Failures are logged only.
+   * @param path The file. */
+  private static void deleteFile(Path path) {
+    try {
+      Files.deleteIfExists(path);
+    }
+    catch (IOException ex) {
+      System.err.println("[JobManager] Failed to delete '"+path+"': "+ex);
+    }
+  }
+
+
+  /** Input stream that reports the bytes read as progress of a job (and so stops when it is cancelled). */
+  private static class ProgressStream extends FilterInputStream {
+    private final Job _job;    // Job to report the progress to.
+    private final long _size;  // Total number of bytes of the input.
+    private long _read;        // Bytes read so far.
+
+
+    /** Create a stream reporting progress.
+     * @param in The input.
+     * @param job Job to report the progress to.
+     * @param size Total number of bytes of the input. */
+    ProgressStream(InputStream in, Job job, long size) {
+      super(in);
+      _job = job;
+      _size = size;
+    }
+
+
+    /** Read bytes and report the progress.
+     * @param buffer Buffer to read into.
+     * @param offset Start position in the buffer.
+     * @param length Maximum number of bytes to read.
+     * @return Number of bytes read, -1 at the end of the input.
+     * @throws IOException Thrown if the input fails to read.
+     * @throws CancellationException Thrown if the job was cancelled. */
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      var count = super.read(buffer, offset, length);
+      if (count > 0) _job.setProgress(_read += count, _size);
+      return count;
+    }
+  }
+
+
+  // __________________________________________________________________________
+  // GET methods.
+
+  /** Look up a job.
+   * @param id Job identifier.
+   * @return The job or 'null', if it does not exist (anymore). */
+  public synchronized Job getJob(int id) {
+    return _jobs.get(id);
+  }
+
+
+  /** Get the result file of a job: the BibTeX file of an export, the report of an import or the clusters
+   * of a duplicate scan.
+   * @param job The job.
+   * @return Path of the result file (which only exists once the job succeeded). 'null' for jobs without
+   *   result. */
+  public Path getResult(Job job) {
+    switch (job.getType()) {
+      case EXPORT: return _dir.resolve(job.getId()+".bib");
+      case IMPORT:
+      case DEDUP: return _dir.resolve(job.getId()+".json");
+      default: return null;
+    }
+  }
+}
@@ -0,0 +1,400 @@
+package litmgmt.persistency;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
+import litmgmt.citation.collections.Collection;
+import litmgmt.citation.collections.Entry;
+import litmgmt.citation.description.EntryType;
+import litmgmt.citation.description.FieldType;
+import litmgmt.users.User;
+
+
+/** Compact binary save file format. Layout (all numbers are unsigned varints):
+ * <pre>
+ *   file       := "LMGS" version userCount user* collectionCount collection* idCounters[3]
+ *   user       := id string(name) string(email) string(pwhash) colCount colId*
+ *   collection := id string(name) entryCount entry*
+ *   entry      := id string(citeKey) entryType fieldCount (fieldType value)*
+ *   value      := 0 string | tableIndex+1
+ *   string     := length utf8Byte* | -1 (for 'null', as 5-byte varint)
+ *   segment    := "LMGC" version collection
+ * </pre>
+ * Entry and field types are stored as enum ordinals. Values of fields that typically repeat
+ * (journals, publishers, months ...) go into a string table that is built while writing:
+ * The first occurrence is written out and appended to the table, later ones only refer to it.
+ * Segment files hold a single collection (see {@link SegmentStore}) and have their own string table.
+ * Reading decodes the entries of a collection sequentially (the string table forbids skipping ahead),
+ * while the collections decoded so far are built, which includes indexing their entries, in parallel on a
+ * fork-join pool with one worker per core. */
+class BinarySaveFile {
+
+  private static final byte[] MAGIC = {'L', 'M', 'G', 'S'};  // File signature.
+  private static final byte[] SEGMENT_MAGIC = {'L', 'M', 'G', 'C'}; // Segment file signature.
+  private static final int VERSION = 1;                       // Format version.
+  private static final int MAX_TABLE_SIZE = 1 << 20;          // Upper bound for string table entries.
+
+  // Field types whose values are deduplicated via the string table.
+  private static final EnumSet<FieldType> SHARED_FIELDS = EnumSet.of(
+    FieldType.ADDRESS, FieldType.BOOKTITLE, FieldType.EDITION, FieldType.HOWPUBLISHED,
+    FieldType.INSTITUTION, FieldType.JOURNAL, FieldType.MONTH, FieldType.ORGANIZATION,
+    FieldType.PUBLISHER, FieldType.SCHOOL, FieldType.SERIES, FieldType.TYPE,
+    FieldType.VOLUME, FieldType.YEAR
+  );
+
+
+  /** Write the program state in binary format.
+   * @param stream Output stream to write to. It is flushed, but not closed.
+   * @param users List of users.
+   * @param collections List of collections.
+   * @param ids The ID counters (next user, collection and entry ID). Read after the objects are written.
+   * @throws IOException Thrown if writing fails. */
+  static void write(OutputStream stream, List<User> users, List<Collection> collections, Supplier<int[]> ids)
+    throws IOException {
+    var out = new Encoder(stream);
+    out.writeBytes(MAGIC);
+    out.writeVarInt(VERSION);
+
+    out.writeVarInt(users.size());
+    for (var user : users) {
+      out.writeVarInt(user.getId());
+      out.writeString(user.getName());
+      out.writeString(user.getEmail());
+      out.writeString(user.getPasswordHash());
+      var colIds = new ArrayList<Integer>(user.GetAllCollections());
+      out.writeVarInt(colIds.size());
+      for (var colId : colIds) out.writeVarInt(colId);
+    }
+
+    var table = new HashMap<String, Integer>();
+    out.writeVarInt(collections.size());
+    for (var collection : collections) writeCollection(out, table, collection);
+    for (var id : ids.get()) out.writeVarInt(id);
+    out.flush();
+  }
+
+
+  /** Write a single collection as segment file.
+   * @param stream Output stream to write to. It is flushed, but not closed.
+   * @param collection The collection to write.
+   * @throws IOException Thrown if writing fails. */
+  static void writeSegment(OutputStream stream, Collection collection) throws IOException {
+    var out = new Encoder(stream);
+    out.writeBytes(SEGMENT_MAGIC);
+    out.writeVarInt(VERSION);
+    writeCollection(out, new HashMap<String, Integer>(), collection);
+    out.flush();
+  }
+
+
+  /** Read a program state in binary format.
+   * @param stream Input stream to read from.
+   * @param users List to add the restored users to.
+   * @param collections List to add the restored collections to.
+   * @return The ID counters (next user, collection and entry ID).
+   * @throws IOException Thrown if reading fails or the file is not a valid binary save file. */
+  static int[] read(InputStream stream, List<User> users, List<Collection> collections) throws IOException {
+    var in = new Decoder(stream);
+    for (var b : MAGIC) {
+      if (in.readByte() != b) throw new IOException("Not a binary save file!");
+    }
+    var version = in.readVarInt();
+    if (version != VERSION) throw new IOException("Unsupported binary save file version "+version+"!");
+
+    for (int userCount = in.readVarInt(); userCount > 0; userCount--) {
+      var id = in.readVarInt();
+      var name = in.readString();
+      var email = in.readString();
+      var pwHash = in.readString();
+      var colCount = in.readVarInt();
+      var colIds = new ArrayList<Integer>(colCount);
+      for (int i = 0; i < colCount; i++) colIds.add(in.readVarInt());
+      users.add(User.restoreUser(id, name, email, pwHash, colIds));
+    }
+
+    var table = new ArrayList<String>();
+    var pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    try {
+      var tasks = new ArrayList<ForkJoinTask<Collection>>();
+      for (int colCount = in.readVarInt(); colCount > 0; colCount--) {
+        var restore = readCollection(in, table);
+        tasks.add(pool.submit(() -> restore.get()));
+      }
+      var ids = new int[] {in.readVarInt(), in.readVarInt(), in.readVarInt()};
+      for (var task : tasks) collections.add(task.join());
+      return ids;
+    }
+    finally {
+      pool.shutdown();
+    }
+  }
+
+
+  /** Read a single collection from a segment file.
+   * @param stream Input stream to read from.
+   * @return The restored collection.
+   * @throws IOException Thrown if reading fails or the file is not a valid segment file. */
+  static Collection readSegment(InputStream stream) throws IOException {
+    var in = new Decoder(stream);
+    for (var b : SEGMENT_MAGIC) {
+      if (in.readByte() != b) throw new IOException("Not a collection segment file!");
+    }
+    var version = in.readVarInt();
+    if (version != VERSION) throw new IOException("Unsupported segment file version "+version+"!");
+    return readCollection(in, new ArrayList<String>()).get();
+  }
+
+
+  /** Write a collection with all its entries.
+   * @param out Encoder to write to.
+   * @param table String table, mapping values to their index.
+   * @param collection The collection to write. */
+  private static void writeCollection(Encoder out, Map<String, Integer> table, Collection collection)
+    throws IOException {
+    var lock = collection.getLock().readLock();  // Consistent state of the collection while it is written.
+    lock.lock();
+    try {
+      out.writeVarInt(collection.getId());
+      out.writeString(collection.getName());
+      var entries = collection.getEntries();
+      out.writeVarInt(entries.size());
+      for (var entry : entries) {
+        out.writeVarInt(entry.getId());
+        out.writeString(entry.getCiteKey());
+        out.writeVarInt(entry.getType().ordinal());
+        var fieldTypes = entry.getFieldOrder();
+        out.writeVarInt(fieldTypes.size());
+        for (var fieldType : fieldTypes) {
+          out.writeVarInt(fieldType.ordinal());
+          writeValue(out, table, fieldType, entry.getField(fieldType));
+        }
+      }
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+
+  /** Read a collection with all its entries. Mirrors {@link #writeCollection}. The entries are decoded
+   * detached, the collection is only built (and its entries indexed) by the returned supplier.
+   * @param in Decoder to read from.
+   * @param table String table, in order of insertion.
+   * @return Supplier building the restored collection, it can run on another thread. */
+  private static Supplier<Collection> readCollection(Decoder in, List<String> table) throws IOException {
+    var entryTypes = EntryType.values();
+    var fieldTypes = FieldType.values();
+    var id = in.readVarInt();
+    var name = in.readString();
+    var entryCount = in.readVarInt();
+    var entries = new ArrayList<Entry>(Math.min(entryCount, 65536));
+    for (; entryCount > 0; entryCount--) {
+      var entry = Entry.restoreEntry(in.readVarInt(), in.readString(), entryTypes[in.readVarInt()]);
+      for (int fieldCount = in.readVarInt(); fieldCount > 0; fieldCount--) {
+        var fieldType = fieldTypes[in.readVarInt()];
+        entry.setField(fieldType, readValue(in, table, fieldType));
+      }
+      entries.add(entry);
+    }
+    return () -> Collection.restoreCollection(id, name, entries);
+  }
+
+
+  /** Write a field value, using the string table for shared field types.
+   * @param out Encoder to write to.
+   * @param table String table, mapping values to their index.
+   * @param fieldType Type of the field.
+   * @param value The value to write. */
+  private static void writeValue(Encoder out, Map<String, Integer> table, FieldType fieldType, String value)
+    throws IOException {
+    if (value != null && SHARED_FIELDS.contains(fieldType)) {
+      var index = table.get(value);
+      if (index != null) {
+        out.writeVarInt(index + 1);
+        return;
+      }
+      if (table.size() < MAX_TABLE_SIZE) table.put(value, table.size());
+    }
+    out.writeVarInt(0);
+    out.writeString(value);
+  }
+
+
+  /** Read a field value. Mirrors the table handling of {@link #writeValue}.
+   * @param in Decoder to read from.
+   * @param table String table, in order of insertion.
+   * @param fieldType Type of the field.
+   * @return The field value. */
+  private static String readValue(Decoder in, List<String> table, FieldType fieldType) throws IOException {
+    var ref = in.readVarInt();
+    if (ref > 0) {
+      if (ref > table.size()) throw new IOException("Invalid string table reference "+ref+"!");
+      return table.get(ref - 1);
+    }
+    var value = in.readString();
+    if (value != null && SHARED_FIELDS.contains(fieldType) && table.size() < MAX_TABLE_SIZE) table.add(value);
+    return value;
+  }
+
+
+  // __________________________________________________________________________
+  // Unsynchronized, buffered encoder and decoder.
+
+  /** Buffered writer for varints and strings. */
+  private static class Encoder {
+
+    private OutputStream _out;                  // Underlying stream.
+    private byte[] _buffer = new byte[65536];   // Write buffer.
+    private int _pos;                           // Fill level of the buffer.
+
+
+    /** Create an encoder.
+     * @param out Stream to write to. It is not closed. */
+    Encoder(OutputStream out) {
+      _out = out;
+    }
+
+
+    /** Write an integer as unsigned LEB128 varint: 7 bits per byte, lowest first. Negative values take
+     * five bytes.
+     * @param value The value.
+     * @throws IOException Thrown if the stream fails to write. */
+    void writeVarInt(int value) throws IOException {
+      if (_pos + 5 > _buffer.length) flush();
+      while ((value & ~0x7f) != 0) {
+        _buffer[_pos++] = (byte) ((value & 0x7f) | 0x80);
+        value >>>= 7;
+      }
+      _buffer[_pos++] = (byte) value;
+    }
+
+
+    /** Write raw bytes. Arrays larger than the buffer are written through.
+     * @param bytes The bytes.
+     * @throws IOException Thrown if the stream fails to write. */
+    void writeBytes(byte[] bytes) throws IOException {
+      if (_pos + bytes.length > _buffer.length) flush();
+      if (bytes.length > _buffer.length) _out.write(bytes);
+      else {
+        System.arraycopy(bytes, 0, _buffer, _pos, bytes.length);
+        _pos += bytes.length;
+      }
+    }
+
+
+    /** Write a string as length and UTF-8 bytes.
+     * @param str The string. 'null' is written as length -1.
+     * @throws IOException Thrown if the stream fails to write. */
+    void writeString(String str) throws IOException {
+      if (str == null) {
+        writeVarInt(-1);
+        return;
+      }
+      var bytes = str.getBytes(StandardCharsets.UTF_8);
+      writeVarInt(bytes.length);
+      writeBytes(bytes);
+    }
+
+
+    /** Write the buffer to the stream and flush it.
+     * @throws IOException Thrown if the stream fails to write. */
+    void flush() throws IOException {
+      _out.write(_buffer, 0, _pos);
+      _pos = 0;
+      _out.flush();
+    }
+  }
+
+
+  /** Buffered reader for varints and strings. */
+  private static class Decoder {
+
+    private InputStream _in;                    // Underlying stream.
+    private byte[] _buffer = new byte[65536];   // Read buffer.
+    private int _pos, _limit;                   // Read position and fill level of the buffer.
+
+
+    /** Create a decoder.
+     * @param in Stream to read from. It is not closed. */
+    Decoder(InputStream in) {
+      _in = in;
+    }
+
+
+    /** Make sure that the given number of bytes is available in the buffer (if it fits). Fewer are only
+     * available at the end of the stream.
+     * @param count Number of bytes.
+     * @throws IOException Thrown if the stream fails to read. */
+    private void require(int count) throws IOException {
+      if (_limit - _pos >= count) return;
+      System.arraycopy(_buffer, _pos, _buffer, 0, _limit - _pos);
+      _limit -= _pos;
+      _pos = 0;
+      while (_limit < count && _limit < _buffer.length) {
+        var read = _in.read(_buffer, _limit, _buffer.length - _limit);
+        if (read < 0) break;
+        _limit += read;
+      }
+    }
+
+
+    /** Read a raw byte.
+     * @return The byte.
+     * @throws IOException Thrown if the stream fails to read or ends. */
+    byte readByte() throws IOException {
+      require(1);
+      if (_pos >= _limit) throw new IOException("Unexpected end of binary save file!");
+      return _buffer[_pos++];
+    }
+
+
+    /** Read a varint, as written by {@link Encoder#writeVarInt}.
+     * @return The value.
+     * @throws IOException Thrown if the stream fails to read, ends or the varint is malformed. */
+    int readVarInt() throws IOException {
+      require(5);
+      int value = 0;
+      for (int shift = 0; shift < 35; shift += 7) {
+        if (_pos >= _limit) throw new IOException("Unexpected end of binary save file!");
+        var b = _buffer[_pos++];
+        value |= (b & 0x7f) << shift;
+        if (b >= 0) return value;
+      }
+      throw new IOException("Malformed varint in binary save file!");
+    }
+
+
+    /** Read a string, as written by {@link Encoder#writeString}.
+     * @return The string or 'null'.
+     * @throws IOException Thrown if the stream fails to read, ends or the length is invalid. */
+    String readString() throws IOException {
+      var length = readVarInt();
+      if (length == -1) return null;
+      if (length < 0) throw new IOException("Invalid string length "+length+" in binary save file!");
+      if (length <= _buffer.length) {
+        require(length);
+        if (_limit - _pos < length) throw new IOException("Unexpected end of binary save file!");
+        var str = new String(_buffer, _pos, length, StandardCharsets.UTF_8);
+        _pos += length;
+        return str;
+      }
+      var bytes = new byte[length];
+      var buffered = _limit - _pos;
+      System.arraycopy(_buffer, _pos, bytes, 0, buffered);
+      _pos = _limit;
+      if (_in.readNBytes(bytes, buffered, length - buffered) < length - buffered) {
+        throw new IOException("Unexpected end of binary save file!");
+      }
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+  }
+}
@@ -1,35 +1,224 @@
 package litmgmt.persistency;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/** Hands out unique identifiers for users, collections and entries. The counters are lock-free
+ * and safe under contention. Threads doing bulk work (e.g. imports) can switch to block reservation,
+ * then they grab ranges of IDs at once and hand them out locally without touching the shared counter.
+ * The high-water mark of each counter is leased ahead in steps and journaled before IDs beyond it
+ * are handed out, so that no ID is given out twice, even after a crash between two snapshots. */
 public class IdHelper {
 
-  private static int _userId, _collectionId, _entryId;
+  static final byte USER = 0;        // Counter kinds, as written to the journal.
+  static final byte COLLECTION = 1;
+  static final byte ENTRY = 2;
+
+  private static final int LEASE_STEP = 1024; // Number of IDs leased ahead per journal record.
+
+  private static final Counter _users = new Counter(USER);
+  private static final Counter _collections = new Counter(COLLECTION);
+  private static final Counter _entries = new Counter(ENTRY);
 
 
   /** Initialize the ID helper with its last values. */
   public static void initialize(int userId, int collectionId, int entryId) {
-    _userId = userId;
-    _collectionId = collectionId;
-    _entryId = entryId;
+    _users.reset(userId);
+    _collections.reset(collectionId);
+    _entries.reset(entryId);
   }
 
 
   /** Get a fresh user ID.
    * @return An unused user identifier. */
   public static int GetNextUserId() {
-    return _userId++;
+    return _users.next();
   }
 
 
   /** Get a fresh collection ID.
    * @return An unused collection identifier. */
   public static int GetNextCollectionId() {
-    return _collectionId++;
+    return _collections.next();
   }
 
 
   /** Get a fresh entry ID.
    * @return An unused entry identifier. */
   public static int GetNextEntryId() {
-    return _entryId++;
+    return _entries.next();
+  }
+
+
+  /** Let the calling thread reserve IDs in blocks until {@link #endBlockReservation} is called.
+   * IDs of a block that are not used up are skipped.
+   * @param blockSize Number of IDs to reserve at once. */
+  public static void beginBlockReservation(int blockSize) {
+    if (blockSize < 1) throw new IllegalArgumentException("Block size must be positive!");
+    _users.beginBlocks(blockSize);
+    _collections.beginBlocks(blockSize);
+    _entries.beginBlocks(blockSize);
+  }
+
+
+  /** Return the calling thread to single ID allocation. The rest of its blocks is discarded. */
+  public static void endBlockReservation() {
+    _users.endBlocks();
+    _collections.endBlocks();
+    _entries.endBlocks();
+  }
+
+
+  /** Get the high-water mark of the user IDs without using any of them up. This includes leased
+   * IDs and blocks reserved by threads, so it is safe to restart the counter from it after a snapshot.
+   * @return No user identifier at or above this value has been handed out. */
+  public static int peekUserId() {
+    return _users.peek();
+  }
+
+
+  /** Get the high-water mark of the collection IDs without using any of them up. This includes leased
+   * IDs and blocks reserved by threads, so it is safe to restart the counter from it after a snapshot.
+   * @return No collection identifier at or above this value has been handed out. */
+  public static int peekCollectionId() {
+    return _collections.peek();
+  }
+
+
+  /** Get the high-water mark of the entry IDs without using any of them up. This includes leased
+   * IDs and blocks reserved by threads, so it is safe to restart the counter from it after a snapshot.
+   * @return No entry identifier at or above this value has been handed out. */
+  public static int peekEntryId() {
+    return _entries.peek();
+  }
+
+
+  /** Make sure that a restored user ID is not handed out again.
+   * @param userId A user identifier that is already in use. */
+  public static void markUserIdUsed(int userId) {
+    _users.markUsed(userId);
+  }
+
+
+  /** Make sure that a restored collection ID is not handed out again.
+   * @param collectionId A collection identifier that is already in use. */
+  public static void markCollectionIdUsed(int collectionId) {
+    _collections.markUsed(collectionId);
+  }
+
+
+  /** Make sure that a restored entry ID is not handed out again.
+   * @param entryId An entry identifier that is already in use. */
+  public static void markEntryIdUsed(int entryId) {
+    _entries.markUsed(entryId);
+  }
+
+
+  /** Restore a journaled high-water mark (used for journal replay).
+   * @param kind Counter kind (USER, COLLECTION or ENTRY).
+   * @param limit All IDs below this value may have been handed out before. */
+  static void restoreLease(byte kind, int limit) {
+    var counter = (kind == USER)? _users : (kind == COLLECTION)? _collections : _entries;
+    if (limit > 0) counter.markUsed(limit - 1);
+  }
+
+
+  /** Forget all leases, so that the next allocation journals a new one.
+   * Called when the journal is activated, as leases taken before were not journaled. */
+  static void resetLeases() {
+    _users.reset(_users.peek());
+    _collections.reset(_collections.peek());
+    _entries.reset(_entries.peek());
+  }
+
+
+  /** A single ID counter with its journaled lease and the blocks reserved by threads. */
+  private static class Counter {
+
+    private byte _kind;                           // Counter kind, as written to the journal.
+    private AtomicInteger _next;                  // Next ID to hand out (or to reserve a block from).
+    private AtomicInteger _leased;                // All IDs below are covered by a journaled lease.
+    private ThreadLocal<int[]> _block;            // Per thread: [next, end) of the reserved block and block size.
+
+
+    /** Create a counter starting at zero, without block reservation.
+     * @param kind Counter kind (USER, COLLECTION or ENTRY). */
+    Counter(byte kind) {
+      _kind = kind;
+      _next = new AtomicInteger();
+      _leased = new AtomicInteger();
+      _block = new ThreadLocal<int[]>();
+    }
+
+
+    /** Get the next ID, from the thread's block if block reservation is on.
+     * @return The new identifier. */
+    int next() {
+      var block = _block.get();
+      if (block == null) return allocate(1);
+      if (block[0] >= block[1]) {
+        block[0] = allocate(block[2]);
+        block[1] = block[0] + block[2];
+      }
+      return block[0]++;
+    }
+
+
+    /** Take a range of IDs from the shared counter and make sure it is covered by a lease.
+     * @param count Number of IDs to take.
+     * @return The first ID of the range. */
+    private int allocate(int count) {
+      var first = _next.getAndUpdate(next -> {
+        if (next > Integer.MAX_VALUE - count) throw new IllegalStateException("ID range exhausted!");
+        return next + count;
+      });
+      var end = first + count;
+      var leased = _leased.get();
+      while (end > leased) {
+        var lease = (int) Math.min((long) end + LEASE_STEP, Integer.MAX_VALUE);
+        if (_leased.compareAndSet(leased, lease)) {
+          Journal.logIdLease(_kind, lease);
+          break;
+        }
+        leased = _leased.get();
+      }
+      return first;
+    }
+
+
+    /** Turn on block reservation for the current thread.
+     * @param blockSize Number of IDs reserved at once. */
+    void beginBlocks(int blockSize) {
+      _block.set(new int[] {0, 0, blockSize});
+    }
+
+
+    /** Turn off block reservation for the current thread. The rest of its block is left unused. */
+    void endBlocks() {
+      _block.remove();
+    }
+
+
+    /** Get the high-water mark, see {@link IdHelper#peekEntryId}.
+     * @return No identifier at or above this value has been handed out. */
+    int peek() {
+      return Math.max(_next.get(), _leased.get());
+    }
+
+
+    /** Move the counter and the lease beyond an identifier that is in use.
+     * @param id The identifier. */
+    void markUsed(int id) {
+      _next.accumulateAndGet(id + 1, Math::max);
+      _leased.accumulateAndGet(id + 1, Math::max);
+    }
+
+
+    /** Restart the counter, without lease.
+     * @param next The next identifier to hand out. */
+    void reset(int next) {
+      _next.set(next);
+      _leased.set(next);
+    }
   }
 }
@@ -0,0 +1,762 @@
+package litmgmt.persistency;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import litmgmt.citation.collections.Collection;
+import litmgmt.citation.collections.CollectionManager;
+import litmgmt.citation.collections.Entry;
+import litmgmt.citation.description.EntryType;
+import litmgmt.citation.description.FieldType;
+import litmgmt.users.User;
+import litmgmt.users.UserAuthenticator;
+
+
+/** Append-only write-ahead journal for all mutations on users, collections and entries.
+ * Records are framed as [length][CRC-32][payload] and handed to a background writer thread,
+ * which writes and fsyncs everything that queued up in the meantime in one go (group commit).
+ * The journal is split into numbered segments. Taking a snapshot rotates to a new segment,
+ * and the old ones are deleted once the snapshot is safely on disk. On startup, all segments
+ * are replayed on top of the last save file. All records are idempotent, so replaying
+ * records that are already contained in the save file is harmless. Records of a batch
+ * (see {@link #beginBatch}) share one frame, so they are replayed all or not at all. */
+public class Journal {
+
+  // Record types.
+  private static final byte USER_CREATE = 1;
+  private static final byte COL_CREATE = 2;
+  private static final byte COL_RENAME = 3;
+  private static final byte COL_DELETE = 4;
+  private static final byte ENTRY_CREATE = 5;
+  private static final byte ENTRY_RENAME = 6;
+  private static final byte ENTRY_DELETE = 7;
+  private static final byte ENTRY_SET_FIELD = 8;
+  private static final byte ID_LEASE = 9;
+  private static final byte BATCH = 10;
+
+  private static final Object _lock = new Object();  // Guards the buffers, sequence counters and rotation flag.
+  private static Path _basePath;                     // Base path of the journal. Segments get a numeric suffix.
+  private static long _segment;                      // Number of the segment currently appended to.
+  private static FileChannel _channel;               // Channel to append to. 'null', if journaling is off.
+  private static Thread _writer;                     // Background thread for group commits.
+  private static ByteArrayOutputStream _pending;     // Frames waiting for the next group commit.
+  private static ByteArrayOutputStream _flushing;    // Frames currently written by the writer thread.
+  private static long _appendedSeq, _durableSeq;     // Last appended and last fsynced record number.
+  private static boolean _rotateRequested;           // Set to start a new segment after the next write.
+  private static boolean _rotateFailed;              // Set if the last requested segment could not be opened.
+  private static IOException _failure;               // First write error. No more records are written after it.
+  private static final ThreadLocal<Long> _lastSeq = ThreadLocal.withInitial(() -> 0L);
+  private static final ThreadLocal<ByteArrayOutputStream> _batch = new ThreadLocal<ByteArrayOutputStream>();
+  private static final ThreadLocal<Integer> _batchSize = ThreadLocal.withInitial(() -> 0);
+  private static final ThreadLocal<Integer> _batchDepth = ThreadLocal.withInitial(() -> 0);
+
+
+  /** Open the journal. Existing segments are kept and may be replayed before activation.
+   * @param filePath Base path of the journal. Segments are stored as '[filePath].[number]'. */
+  public static void open(String filePath) {
+    _basePath = Path.of(filePath);
+  }
+
+
+  /** Replay all journal segments on top of the current (restored) program state.
+   * A torn record at the end of a segment (e.g. from a crash during write) ends the replay of it.
+   * @param userAuth User authenticator holding the user list.
+   * @param colMgr Collection manager holding the collections. */
+  public static void replay(UserAuthenticator userAuth, CollectionManager colMgr) {
+    var segments = listSegments();
+    if (segments.isEmpty()) return;
+    var users = new HashMap<Integer, User>();
+    for (var user : userAuth.getUserList()) users.put(user.getId(), user);
+
+    // Entries are resolved via their collection, as collections may be evicted and reloaded in segment mode.
+    // There, building the index loads each collection once. After an ordered shutdown, no journal is left.
+    var entries = new HashMap<Integer, Integer>();
+    for (var colId : colMgr.getCollectionIds()) {
+      var col = colMgr.getCollection(colId);
+      if (col == null) continue;
+      for (var entry : col.getEntries()) entries.put(entry.getId(), colId);
+    }
+    int records = 0;
+    for (var segment : segments) {
+      records += replaySegment(segment, userAuth, colMgr, users, entries);
+    }
+    if (records > 0) System.out.println("[Journal] Replayed "+records+" records.");
+  }
+
+
+  /** Replay a single journal segment.
+   * @param path Path to the segment file.
+   * @param userAuth User authenticator holding the user list.
+   * @param colMgr Collection manager holding the collections.
+   * @param users Lookup map for users, kept up to date during replay.
+   * @param entries Lookup map from entry to collection ID, kept up to date during replay.
+   * @return Number of replayed records. */
+  private static int replaySegment(Path path, UserAuthenticator userAuth, CollectionManager colMgr,
+    Map<Integer, User> users, Map<Integer, Integer> entries) {
+    int records = 0;
+    long validLength = 0;
+    try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+      var crc = new CRC32();
+      while (true) {
+        int length, checksum;
+        try {
+          length = in.readInt();
+          checksum = in.readInt();
+        }
+        catch (IOException ex) { break; }
+        if (length <= 0) break;
+        var payload = new byte[length];
+        if (in.readNBytes(payload, 0, length) < length) break;
+        crc.reset();
+        crc.update(payload);
+        if ((int) crc.getValue() != checksum) break;
+        applyRecord(new DataInputStream(new ByteArrayInputStream(payload)),
+          userAuth, colMgr, users, entries);
+        validLength += 8 + length;
+        records ++;
+      }
+    }
+    catch (Exception ex) {
+      System.err.println("[Journal] Failed to replay journal '"+path+"': "+ex);
+    }
+
+    // Cut off a torn tail, so that the segment stays readable.
+    try (var channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+      if (channel.size() > validLength) {
+        System.err.println("[Journal] Discarding "+(channel.size() - validLength)+" bytes of torn journal tail.");
+        channel.truncate(validLength);
+      }
+    }
+    catch (IOException ex) {
+      System.err.println("[Journal] Failed to truncate journal '"+path+"': "+ex);
+    }
+    return records;
+  }
+
+
+  /** Start journaling. From now on, all mutations are appended to a fresh journal segment. */
+  public static void activate() {
+    if (_basePath == null) return;
+    IdHelper.resetLeases();
+    _segment = 0;
+    for (var segment : listSegments()) _segment = Math.max(_segment, segmentNumber(segment));
+    if (!openSegment(_segment + 1)) return;
+    _failure = null;
+    _rotateFailed = false;
+    _pending = new ByteArrayOutputStream(4096);
+    _flushing = new ByteArrayOutputStream(4096);
+    _writer = new Thread(Journal::runWriter, "journal-writer");
+    _writer.setDaemon(true);
+    _writer.start();
+  }
+
+
+  /** Stop journaling. Pending records are written out before the file is closed. */
+  public static void close() {
+    if (_writer == null) return;
+    var writer = _writer;
+    synchronized (_lock) {
+      _writer = null;
+      _lock.notifyAll();
+    }
+    try { writer.join(); }
+    catch (InterruptedException ex) { Thread.currentThread().interrupt(); }
+    try { _channel.close(); }
+    catch (IOException ex) { /* Nothing left to do. */ }
+    _channel = null;
+  }
+
+
+  /** Close the current segment and continue in a new one. All records appended before this
+   * call are durable in the closed segment (or an older one) when the call returns.
+   * @return Number of the last closed segment. All segments up to it may be discarded once
+   *   a snapshot taken after this call is saved. -1, if no new segment was started (the journal
+   *   failed, or the new segment could not be opened). Then, no segment may be discarded. */
+  public static long rotate() {
+    synchronized (_lock) {
+      if (_writer == null) return Long.MAX_VALUE; // Everything journaled so far is already in memory.
+      var closed = _segment;
+      _rotateRequested = true;
+      _lock.notifyAll();
+      while (_rotateRequested && _writer != null) {
+        try { _lock.wait(); }
+        catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+          return -1;
+        }
+      }
+      return (_rotateFailed || _failure != null)? -1 : closed;
+    }
+  }
+
+
+  /** Delete all segments up to the given number. Only to be called once their effects are saved.
+   * @param lastSegment Number of the last segment to delete. */
+  public static void discardSegments(long lastSegment) {
+    for (var segment : listSegments()) {
+      if (segmentNumber(segment) > lastSegment) continue;
+      try { Files.deleteIfExists(segment); }
+      catch (IOException ex) {
+        System.err.println("[Journal] Failed to delete journal '"+segment+"': "+ex);
+      }
+    }
+  }
+
+
+  /** Get the number of records appended since startup. Can be used to detect changes.
+   * @return Record counter. */
+  public static long getRecordCount() {
+    synchronized (_lock) {
+      return _appendedSeq;
+    }
+  }
+
+
+  /** Wait until all records appended by the calling thread are durable on disk.
+   * @throws UncheckedIOException Thrown if the journal failed before these records were written. */
+  public static void sync() {
+    long seq = _lastSeq.get();
+    synchronized (_lock) {
+      while (_durableSeq < seq && _failure == null && _writer != null) {
+        try { _lock.wait(); }
+        catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+      if (_durableSeq < seq && _failure != null) {
+        throw new UncheckedIOException("Journal is not writable!", _failure);
+      }
+    }
+  }
+
+
+  /** Writer thread: drain the pending frames, write them and fsync once per batch.
+   * If writing fails, the frames written partially are cut off again and the journal goes into
+   * a failed state: The sequence number stays where it is, so waiting requests fail in sync(),
+   * and all further records are dropped until the program is restarted. */
+  private static void runWriter() {
+    while (true) {
+      long seq;
+      boolean rotate;
+      IOException failure;
+      synchronized (_lock) {
+        while (_pending.size() == 0 && !_rotateRequested && _writer != null) {
+          try { _lock.wait(); }
+          catch (InterruptedException ex) { /* Re-check the loop condition. */ }
+        }
+        if (_pending.size() == 0 && !_rotateRequested) return;
+        var swap = _flushing;
+        _flushing = _pending;
+        _pending = swap;
+        seq = _appendedSeq;
+        rotate = _rotateRequested;
+        failure = _failure;
+      }
+      if (_flushing.size() > 0 && failure == null) {
+        long validLength = -1;
+        try {
+          validLength = _channel.size();
+          var buffer = ByteBuffer.wrap(_flushing.toByteArray());
+          while (buffer.hasRemaining()) _channel.write(buffer);
+          _channel.force(false);
+        }
+        catch (IOException ex) {
+          System.err.println("[Journal] Failed to write journal segment #"+_segment+", journaling stopped: "+ex);
+          failure = ex;
+          truncate(validLength);
+        }
+      }
+      _flushing.reset();
+      var rotated = rotate && failure == null && openSegment(_segment + 1);
+      synchronized (_lock) {
+        if (failure == null) _durableSeq = seq;
+        else _failure = failure;
+        if (rotate) {
+          _rotateRequested = false;
+          _rotateFailed = !rotated;
+        }
+        _lock.notifyAll();
+      }
+    }
+  }
+
+
+  /** Cut off a partially written group commit, so that the segment ends with its last complete frame.
+   * @param validLength Length of the segment before the failed write, -1 if unknown. */
+  private static void truncate(long validLength) {
+    if (validLength < 0) return;
+    try { _channel.truncate(validLength); }
+    catch (IOException ex) {
+      System.err.println("[Journal] Failed to truncate journal segment #"+_segment+": "+ex);
+    }
+  }
+
+
+  /** Close the current segment (if any) and open a new one for appending.
+   * @param segment Number of the new segment.
+   * @return Success flag. On failure, the old segment is kept. */
+  private static boolean openSegment(long segment) {
+    var path = Path.of(_basePath+"."+segment);
+    try {
+      var channel = FileChannel.open(path,
+        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+      if (_channel != null) _channel.close();
+      _channel = channel;
+      _segment = segment;
+      return true;
+    }
+    catch (IOException ex) {
+      System.err.println("[Journal] Failed to open journal '"+path+"': "+ex);
+      return false;
+    }
+  }
+
+
+  /** List all existing journal segments, ordered by their number.
+   * @return Paths to the segment files. */
+  private static List<Path> listSegments() {
+    var segments = new ArrayList<Path>();
+    if (_basePath == null) return segments;
+    var dir = _basePath.toAbsolutePath().getParent();
+    var prefix = _basePath.getFileName().toString()+".";
+    try (var stream = Files.newDirectoryStream(dir, prefix+"*")) {
+      for (var path : stream) {
+        if (segmentNumber(path) >= 0) segments.add(path);
+      }
+    }
+    catch (IOException ex) {
+      System.err.println("[Journal] Failed to list journal segments: "+ex);
+    }
+    segments.sort(Comparator.comparingLong(Journal::segmentNumber));
+    return segments;
+  }
+
+
+  /** Parse the segment number from the file name.
+   * @param path Path to a segment file.
+   * @return The segment number or -1, if the file is no journal segment. */
+  private static long segmentNumber(Path path) {
+    var name = path.getFileName().toString();
+    try { return Long.parseLong(name.substring(_basePath.getFileName().toString().length() + 1)); }
+    catch (NumberFormatException | IndexOutOfBoundsException ex) { return -1; }
+  }
+
+
+  /** Collect the records of the calling thread until {@link #endBatch} is called, and journal them
+   * as one unit then. Used for changes that must not be torn apart by a crash. A batch begun while
+   * another one is open is part of the outer one, which is journaled when it ends. */
+  public static void beginBatch() {
+    var depth = _batchDepth.get();
+    _batchDepth.set(depth + 1);
+    if (depth > 0) return;
+    _batch.set(new ByteArrayOutputStream(4096));
+    _batchSize.set(0);
+  }
+
+
+  /** Journal the records collected since {@link #beginBatch} as one record. Nothing is written for an
+   * empty batch, or if it is nested in another one. Call it in a 'finally' block, the records describe
+   * changes that were already made. */
+  public static void endBatch() {
+    var batch = _batch.get();
+    if (batch == null) return;
+    var depth = _batchDepth.get() - 1;
+    _batchDepth.set(depth);
+    if (depth > 0) return;
+    _batch.remove();
+    if (_batchSize.get() == 0 || !isActive()) return;
+    var buf = new ByteArrayOutputStream();
+    var out = new DataOutputStream(buf);
+    try {
+      out.writeByte(BATCH);
+      out.writeInt(_batchSize.get());
+      batch.writeTo(out);  // Records as [length][payload] each.
+    }
+    catch (IOException ex) { /* Cannot happen on a byte array stream. */ }
+    frame(buf);
+  }
+
+
+  /** Queue a record payload for the next group commit, or add it to the open batch of the thread.
+   * @param payload The serialized record. */
+  private static void append(ByteArrayOutputStream payload) {
+    var batch = _batch.get();
+    if (batch == null) {
+      frame(payload);
+      return;
+    }
+    try {
+      new DataOutputStream(batch).writeInt(payload.size());
+      payload.writeTo(batch);
+    }
+    catch (IOException ex) { /* Cannot happen on a byte array stream. */ }
+    _batchSize.set(_batchSize.get() + 1);
+  }
+
+
+  /** Frame a record payload and queue it for the next group commit.
+   * @param payload The serialized record. */
+  private static void frame(ByteArrayOutputStream payload) {
+    var crc = new CRC32();
+    var bytes = payload.toByteArray();
+    crc.update(bytes);
+    synchronized (_lock) {
+      if (_writer == null) return;
+      if (_failure == null) {  // Otherwise, the record is dropped and the caller fails in sync().
+        var frame = new DataOutputStream(_pending);
+        try {
+          frame.writeInt(bytes.length);
+          frame.writeInt((int) crc.getValue());
+          frame.write(bytes);
+        }
+        catch (IOException ex) { /* Cannot happen on a byte array stream. */ }
+      }
+      _appendedSeq ++;
+      _lastSeq.set(_appendedSeq);
+      _lock.notifyAll();
+    }
+  }
+
+
+  /** Check if records are currently written.
+   * @return 'True', if the journal is active. */
+  private static boolean isActive() {
+    return _writer != null;
+  }
+
+
+  // __________________________________________________________________________
+  // Record writers.
+
+  /** Journal the creation of a user.
+   * @param user The new user. */
+  public static void logCreateUser(User user) {
+    if (!isActive()) return;
+    var buf = new ByteArrayOutputStream();
+    var out = new DataOutputStream(buf);
+    try {
+      out.writeByte(USER_CREATE);
+      out.writeInt(user.getId());
+      writeString(out, user.getName());
+      writeString(out, user.getEmail());
+      writeString(out, user.getPasswordHash());
+    }
+    catch (IOException ex) { /* Cannot happen on a byte array stream. */ }
+    append(buf);
+  }
+
+
+  /** Journal the creation of a collection.
+   * @param user The owner of the collection.
+   * @param col The new collection. */
+  public static void logCreateCollection(User user, Collection col) {
+    if (!isActive()) return;
+    var buf = new ByteArrayOutputStream();
+    var out = new DataOutputStream(buf);
+    try {
+      out.writeByte(COL_CREATE);
+      out.writeInt(user.getId());
+      out.writeInt(col.getId());
+      writeString(out, col.getName());
+    }
+    catch (IOException ex) { /* Cannot happen on a byte array stream. */ }
+    append(buf);
+  }
+
+
+  /** Journal the renaming of a collection.
+   * @param col The renamed collection. */
+  public static void logRenameCollection(Collection col) {
+    if (!isActive()) return;
+    var buf = new ByteArrayOutputStream();
+    var out = new DataOutputStream(buf);
+    try {
+      out.writeByte(COL_RENAME);
+      out.writeInt(col.getId());
+      writeString(out, col.getName());
+    }
+    catch (IOException ex) { /* Cannot happen on a byte array stream. */ }
+    append(buf);
+  }
+
+
+  /** Journal the deletion of a collection.
+   * @param user The owner of the collection.
+   * @param colId Identifier of the deleted collection. */
+  public static void logDeleteCollection(User user, int colId) {
+    if (!isActive()) return;
+    var buf = new ByteArrayOutputStream();
+    var out = new DataOutputStream(buf);
+    try {
+      out.writeByte(COL_DELETE);
+      out.writeInt(user.getId());
+      out.writeInt(colId);
+    }
+    catch (IOException ex) { /* Cannot happen on a byte array stream. */ }
+    append(buf);
+  }
+
+
+  /** Journal the creation of an entry.
+   * @param col The collection the entry was added to.
+   * @param entry The new entry. */
+  public static void logCreateEntry(Collection col, Entry entry) {
+    if (!isActive()) return;
+    var buf = new ByteArrayOutputStream();
+    var out = new DataOutputStream(buf);
+    try {
+      out.writeByte(ENTRY_CREATE);
+      out.writeInt(col.getId());
+      out.writeInt(entry.getId());
+      writeString(out, entry.getCiteKey());
+      out.writeByte(entry.getType().ordinal());
+    }
+    catch (IOException ex) { /* Cannot happen on a byte array stream. */ }
+    append(buf);
+  }
+
+
+  /** Journal the renaming of an entry.
+   * @param entry The renamed entry. */
+  public static void logRenameEntry(Entry entry) {
+    if (!isActive()) return;
+    var buf = new ByteArrayOutputStream();
+    var out = new DataOutputStream(buf);
+    try {
+      out.writeByte(ENTRY_RENAME);
+      out.writeInt(entry.getId());
+      writeString(out, entry.getCiteKey());
+    }
+    catch (IOException ex) { /* Cannot happen on a byte array stream. */ }
+    append(buf);
+  }
+
+
+  /** Journal the deletion of an entry.
+   * @param col The collection the entry was removed from.
+   * @param entry The deleted entry. */
+  public static void logDeleteEntry(Collection col, Entry entry) {
+    if (!isActive()) return;
+    var buf = new ByteArrayOutputStream();
+    var out = new DataOutputStream(buf);
+    try {
+      out.writeByte(ENTRY_DELETE);
+      out.writeInt(col.getId());
+      out.writeInt(entry.getId());
+    }
+    catch (IOException ex) { /* Cannot happen on a byte array stream. */ }
+    append(buf);
+  }
+
+
+  /** Journal a field update of an entry.
+   * @param entry The updated entry.
+   * @param fieldType Type of the field.
+   * @param value The new field value. */
+  public static void logSetField(Entry entry, FieldType fieldType, String value) {
+    if (!isActive()) return;
+    var buf = new ByteArrayOutputStream();
+    var out = new DataOutputStream(buf);
+    try {
+      out.writeByte(ENTRY_SET_FIELD);
+      out.writeInt(entry.getId());
+      out.writeByte(fieldType.ordinal());
+      writeString(out, value);
+    }
+    catch (IOException ex) { /* Cannot happen on a byte array stream. */ }
+    append(buf);
+  }
+
+
+  /** Journal the high-water mark of an ID counter.
+   * @param kind Counter kind (see IdHelper).
+   * @param limit All IDs below this value may be handed out. */
+  static void logIdLease(byte kind, int limit) {
+    if (!isActive()) return;
+    var buf = new ByteArrayOutputStream();
+    var out = new DataOutputStream(buf);
+    try {
+      out.writeByte(ID_LEASE);
+      out.writeByte(kind);
+      out.writeInt(limit);
+    }
+    catch (IOException ex) { /* Cannot happen on a byte array stream. */ }
+    frame(buf);  // Never batched, other threads may use the leased IDs before the batch is written.
+  }
+
+
+  // __________________________________________________________________________
+  // Replay.
+
+  /** Apply a single journal record to the program state.
+   * @param in Input stream positioned at the record type.
+   * @param userAuth User authenticator holding the user list.
+   * @param colMgr Collection manager holding the collections.
+   * @param users Lookup map for users, kept up to date during replay.
+   * @param entries Lookup map from entry to collection ID, kept up to date during replay.
+   * @throws IOException Thrown on a malformed record. */
+  private static void applyRecord(DataInputStream in, UserAuthenticator userAuth,
+    CollectionManager colMgr, Map<Integer, User> users, Map<Integer, Integer> entries) throws IOException {
+    var type = in.readByte();
+    switch (type) {
+
+      case USER_CREATE: {
+        var id = in.readInt();
+        var name = readString(in);
+        var email = readString(in);
+        var pwHash = readString(in);
+        IdHelper.markUserIdUsed(id);
+        if (!users.containsKey(id)) {
+          var user = User.restoreUser(id, name, email, pwHash, new ArrayList<Integer>());
+          userAuth.getUserList().add(user);
+          users.put(id, user);
+        }
+        break;
+      }
+
+      case COL_CREATE: {
+        var user = users.get(in.readInt());
+        var colId = in.readInt();
+        var name = readString(in);
+        IdHelper.markCollectionIdUsed(colId);
+        if (user != null && colMgr.getCollection(colId) == null) {
+          colMgr.restoreCollection(user, colId, name);
+        }
+        break;
+      }
+
+      case COL_RENAME: {
+        var col = colMgr.getCollection(in.readInt());
+        var name = readString(in);
+        if (col != null) colMgr.restoreCollectionName(col, name);
+        break;
+      }
+
+      case COL_DELETE: {
+        var user = users.get(in.readInt());
+        var col = colMgr.getCollection(in.readInt());
+        if (user != null && col != null) {
+          for (var entry : col.getEntries()) entries.remove(entry.getId());
+          colMgr.deleteCollection(user, col);
+        }
+        break;
+      }
+
+      case ENTRY_CREATE: {
+        var col = colMgr.getCollection(in.readInt());
+        var entryId = in.readInt();
+        var citeKey = readString(in);
+        var entryType = EntryType.values()[in.readByte()];
+        IdHelper.markEntryIdUsed(entryId);
+        if (col != null && !entries.containsKey(entryId)) {
+          col.restoreEntry(entryId, citeKey, entryType);
+          entries.put(entryId, col.getId());
+        }
+        break;
+      }
+
+      case ENTRY_RENAME: {
+        var entry = findEntry(colMgr, entries, in.readInt());
+        var citeKey = readString(in);
+        if (entry != null) entry.rename(citeKey);
+        break;
+      }
+
+      case ENTRY_DELETE: {
+        var col = colMgr.getCollection(in.readInt());
+        var entryId = in.readInt();
+        entries.remove(entryId);
+        var entry = (col != null)? col.getEntry(entryId) : null;
+        if (entry != null) col.deleteEntry(entry);
+        break;
+      }
+
+      case ENTRY_SET_FIELD: {
+        var entry = findEntry(colMgr, entries, in.readInt());
+        var fieldType = FieldType.values()[in.readByte()];
+        var value = readString(in);
+        if (entry != null) entry.setField(fieldType, value);
+        break;
+      }
+
+      case ID_LEASE: {
+        var kind = in.readByte();
+        IdHelper.restoreLease(kind, in.readInt());
+        break;
+      }
+
+      case BATCH: {
+        var count = in.readInt();
+        for (int i = 0; i < count; i++) {
+          var payload = new byte[in.readInt()];
+          in.readFully(payload);
+          applyRecord(new DataInputStream(new ByteArrayInputStream(payload)), userAuth, colMgr, users, entries);
+        }
+        break;
+      }
+
+      default:
+        throw new IOException("Unknown record type "+type+"!");
+    }
+  }
+
+
+  /** Look up an entry during replay.
+   * @param colMgr Collection manager holding the collections.
+   * @param entries Lookup map from entry to collection ID.
+   * @param entryId Identifier of the entry.
+   * @return The entry or 'null' if it does not exist (anymore). */
+  private static Entry findEntry(CollectionManager colMgr, Map<Integer, Integer> entries, int entryId) {
+    var colId = entries.get(entryId);
+    if (colId == null) return null;
+    var col = colMgr.getCollection(colId);
+    return (col != null)? col.getEntry(entryId) : null;
+  }
+
+
+  // __________________________________________________________________________
+  // String encoding (not limited to 64 KB like DataOutput.writeUTF).
+
+  /** Write a length-prefixed UTF-8 string.
+   * @param out Output stream.
+   * @param str String to write. 'null' is written as length -1. */
+  private static void writeString(DataOutputStream out, String str) throws IOException {
+    if (str == null) {
+      out.writeInt(-1);
+      return;
+    }
+    var bytes = str.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+
+  /** Read a length-prefixed UTF-8 string.
+   * @param in Input stream.
+   * @return The decoded string. 'null', if it was written as 'null'. */
+  private static String readString(DataInputStream in) throws IOException {
+    var length = in.readInt();
+    if (length == -1) return null;
+    if (length < 0) throw new IOException("Invalid string length "+length+"!");
+    var bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,22 @@
+package litmgmt.persistency;
+
+import litmgmt.citation.collections.CollectionManager;
+import litmgmt.users.UserAuthenticator;
+
+
+/** Command line tool to convert save files between the JSON and the binary format.
+ * Usage: java -cp litmgmt.jar litmgmt.persistency.SaveFileConverter [input file] [output file]
+ * The format is chosen by file name: Files ending with '.json' are JSON, all others binary. */
+public class SaveFileConverter {
+
+  public static void main(final String[] args) {
+    if (args.length != 2) {
+      System.err.println("Usage: SaveFileConverter <input file> <output file>");
+      System.exit(1);
+    }
+    var userAuth = new UserAuthenticator();
+    var colMgr = new CollectionManager();
+    if (!new SaveFileReader(args[0], userAuth, colMgr).readFromFile()) System.exit(1);
+    if (!new SaveFileReader(args[1], userAuth, colMgr).saveToFile()) System.exit(1);
+  }
+}
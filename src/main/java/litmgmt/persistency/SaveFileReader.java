@@ -1,13 +1,31 @@
 package litmgmt.persistency;
 
-import java.io.File;
-import java.io.PrintWriter;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryType;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonToken;
 import litmgmt.citation.collections.Collection;
 import litmgmt.citation.collections.CollectionManager;
 import litmgmt.users.User;
@@ -17,9 +35,13 @@ import litmgmt.users.UserAuthenticator;
 /** File reader and writer to persist the user and collection data. */
 public class SaveFileReader {
 
-  private String _filePath;            // Path to the save file.
-  private UserAuthenticator _userAuth; // User authenticator for login and register endpoints.
-  private CollectionManager _colMgr;   // Collection manager for CRUD operations on collections and entries.
+  private String _filePath;                    // Path to the save file.
+  private UserAuthenticator _userAuth;         // User authenticator for login and register endpoints.
+  private CollectionManager _colMgr;           // Collection manager for CRUD operations on collections and entries.
+  private ScheduledExecutorService _scheduler; // Background thread for periodic snapshots.
+  private long _lastSnapshotRecord = -1;       // Journal record counter at the last snapshot (-1: none yet).
+
+  private static final JsonFactory _jsonFactory = new JsonFactory(); // Thread-safe parser and generator factory.
 
 
   /** Create a new save file reader.
@@ -33,72 +55,301 @@ public class SaveFileReader {
   }
 
 
-  /** Read a previous state from the savefile and apply it to the program. */
-  public void readFromFile() {
+  /** Read a previous state from the savefile and apply it to the program.
+   * Files ending with '.json' are read as JSON, all others in the binary format.
+   * @return Success flag. Set to 'true' if the file was read. */
+  public boolean readFromFile() {
+    for (var pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) pool.resetPeakUsage();
+    }
+    var startTime = System.nanoTime();
+    int[] ids;
+    var users = new ArrayList<User>();
+    var collections = new ArrayList<Collection>();
     try {
-      var jsonStr = Files.readString(Path.of(_filePath));
-      var jsonObj = new ObjectMapper().readTree(jsonStr);
-      var ids = jsonObj.get("idCounters");
-      IdHelper.initialize(ids.get(0).asInt(), ids.get(1).asInt(), ids.get(2).asInt());
-
-      // Restore users.
-      var users = new ArrayList<User>();
-      for (var userStr : jsonObj.get("users")) {
-        var user = User.loadUserFromJson(userStr);
-        if (user != null) users.add(user);
+      if (isJson()) ids = readJson(users, collections);
+      else {
+        try (var input = Files.newInputStream(Path.of(_filePath))) {
+          ids = BinarySaveFile.read(input, users, collections);
+        }
+      }
+    }
+    catch (Exception ex) {
+      System.err.println("[SaveFileReader] Failed to read file '"+_filePath+"': "+ex);
+      return false;
+    }
+    IdHelper.initialize(ids[0], ids[1], ids[2]);
+    _userAuth.setUserList(users);
+    _colMgr.setCollectionList(collections);
+
+    long entries = 0, peakHeap = 0;
+    for (var collection : collections) entries += collection.getEntryCount();
+    for (var pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) peakHeap += pool.getPeakUsage().getUsed();
+    }
+    System.out.println("[SaveFileReader] Restored "+users.size()+" users, "+collections.size()+
+      " collections and "+entries+" entries in "+(System.nanoTime() - startTime) / 1000000+" ms "+
+      "(peak heap: "+peakHeap / (1024 * 1024)+" MB, "+Runtime.getRuntime().availableProcessors()+" cores).");
+    return true;
+  }
+
+
+  /** Read a save file in JSON format.
+   * The file is memory-mapped and parsed as token stream, so no intermediate string or JSON tree is built.
+   * Users and the top-level structure are read sequentially. The collections are only delimited
+   * in that pass and then decoded chunk-wise in parallel on a fork-join pool with one worker per core.
+   * @param users List to add the restored users to.
+   * @param collections List to add the restored collections to.
+   * @return The ID counters (next user, collection and entry ID).
+   * @throws Exception Thrown if the file could not be read or parsed. */
+  private int[] readJson(List<User> users, List<Collection> collections) throws Exception {
+    var ids = new int[3];
+    var chunks = new ArrayList<long[]>();  // Byte ranges [start, end) of the collection objects.
+    ByteBuffer mapped = null;
+    try (var channel = FileChannel.open(Path.of(_filePath), StandardOpenOption.READ)) {
+
+      // Files above 2 GB cannot be mapped in one piece. Those are decoded sequentially.
+      InputStream input;
+      if (channel.size() <= Integer.MAX_VALUE) {
+        mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        input = new BufferInputStream(mapped.duplicate());
       }
-      _userAuth.setUserList(users);
+      else input = new BufferedInputStream(Channels.newInputStream(channel), 65536);
 
-      // Restore collections.
-      var collections = new ArrayList<Collection>();
-      for (var colStr : jsonObj.get("collections")) {
-        var collection = Collection.loadCollectionFromJson(colStr);
-        if (collection != null) collections.add(collection);
+      try (var parser = _jsonFactory.createParser(input)) {
+        if (parser.nextToken() != JsonToken.START_OBJECT) throw new IOException("Save file is no JSON object!");
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+          var key = parser.getCurrentName();
+          parser.nextToken();
+          switch (key) {
+            case "idCounters":
+              for (int i = 0; parser.nextToken() == JsonToken.VALUE_NUMBER_INT; i++) {
+                if (i < ids.length) ids[i] = parser.getIntValue();
+              }
+              break;
+            case "users":
+              while (parser.nextToken() == JsonToken.START_OBJECT) {
+                var user = User.loadUserFromJson(parser);
+                if (user != null) users.add(user);
+              }
+              break;
+            case "collections":
+              while (parser.nextToken() == JsonToken.START_OBJECT) {
+                if (mapped != null) {
+                  var start = parser.getTokenLocation().getByteOffset();
+                  parser.skipChildren();
+                  chunks.add(new long[] {start, parser.getCurrentLocation().getByteOffset()});
+                }
+                else {
+                  var collection = Collection.loadCollectionFromJson(parser);
+                  if (collection != null) collections.add(collection);
+                }
+              }
+              break;
+            default: parser.skipChildren();
+          }
+        }
       }
-      _colMgr.setCollectionList(collections);
+      if (mapped != null) collections.addAll(decodeCollections(mapped, chunks));
     }
-    catch (Exception ex) {
-      System.err.println("[SaveFileReader] Failed to read file '"+_filePath+"'!");
+    return ids;
+  }
+
+
+  /** Decode the delimited collection objects in parallel. Neighbouring collections are grouped
+   * into chunks of similar byte size, so that many small collections do not cause task overhead.
+   * @param mapped The memory-mapped save file.
+   * @param ranges Byte ranges [start, end) of the collection objects, in file order.
+   * @return The decoded collections, in file order.
+   * @throws Exception Thrown if a chunk could not be parsed. */
+  private List<Collection> decodeCollections(ByteBuffer mapped, List<long[]> ranges) throws Exception {
+    if (ranges.isEmpty()) return new ArrayList<Collection>();
+    var totalBytes = ranges.get(ranges.size() - 1)[1] - ranges.get(0)[0];
+    var workers = Runtime.getRuntime().availableProcessors();
+    var chunkBytes = Math.max(1, totalBytes / (workers * 4));
+    var tasks = new ArrayList<Callable<List<Collection>>>();
+    int first = 0;
+    while (first < ranges.size()) {
+      int last = first;
+      while (last + 1 < ranges.size() && ranges.get(last)[1] - ranges.get(first)[0] < chunkBytes) last ++;
+      var chunk = ranges.subList(first, last + 1);
+      tasks.add(() -> {
+        var result = new ArrayList<Collection>(chunk.size());
+        for (var range : chunk) {
+          var slice = mapped.duplicate();
+          slice.limit((int) range[1]).position((int) range[0]);
+          try (var parser = _jsonFactory.createParser(new BufferInputStream(slice))) {
+            parser.nextToken();
+            var collection = Collection.loadCollectionFromJson(parser);
+            if (collection != null) result.add(collection);
+          }
+        }
+        return result;
+      });
+      first = last + 1;
+    }
+    var pool = new ForkJoinPool(workers);
+    try {
+      var collections = new ArrayList<Collection>(ranges.size());
+      for (var future : pool.invokeAll(tasks)) collections.addAll(future.get());
+      return collections;
+    }
+    finally {
+      pool.shutdown();
     }
   }
 
 
-  /** Save the current program state to the savefile. */
-  public void saveToFile() {
-    var sb = new StringBuilder();
-    sb.append("{\n");
-    var idStr = IdHelper.GetNextUserId()+", "+IdHelper.GetNextCollectionId()+", "+IdHelper.GetNextEntryId();
-    var date = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
-    sb.append(
-      "  \"writtenOn\": \""+date+"\",\n"+
-      "  \"idCounters\": ["+idStr+"],\n"+
-      "  \"users\": [\n"
-    );
-    var users = _userAuth.getUserList();
-    for (int i = 0; i < users.size(); i++) {
-      sb.append(users.get(i).saveUserAsJson());
-      if (i < users.size() - 1) sb.append(",");
-      sb.append("\n");
+  /** Start taking snapshots in the background. A snapshot is only taken if anything changed since the last one.
+   * @param intervalSeconds Time between two snapshots. */
+  public void startPeriodicSnapshots(int intervalSeconds) {
+    _scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      var thread = new Thread(runnable, "snapshot-writer");
+      thread.setDaemon(true);
+      thread.setPriority(Thread.MIN_PRIORITY);
+      return thread;
+    });
+    _scheduler.scheduleWithFixedDelay(() -> {
+      if (Journal.getRecordCount() != _lastSnapshotRecord) takeSnapshot();
+    }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+  }
+
+
+  /** Stop taking periodic snapshots. A snapshot currently being written is finished first. */
+  public void stopPeriodicSnapshots() {
+    if (_scheduler == null) return;
+    _scheduler.shutdown();
+    try { _scheduler.awaitTermination(1, TimeUnit.MINUTES); }
+    catch (InterruptedException ex) { Thread.currentThread().interrupt(); }
+    _scheduler = null;
+  }
+
+
+  /** Take a snapshot: Rotate the journal, save the program state and discard the journal
+   * segments that are now contained in the save file. If the journal could not be rotated,
+   * the state is still saved, but all segments are kept (the current one is still appended to)
+   * and the snapshot is retried with the next interval.
+   * @return Success flag. Set to 'true' if the snapshot was written and the journal rotated. */
+  public synchronized boolean takeSnapshot() {
+    var records = Journal.getRecordCount();
+    var lastSegment = Journal.rotate();
+    if (!saveToFile()) return false;
+    if (lastSegment < 0) {
+      System.err.println("[SaveFileReader] Journal was not rotated, keeping all journal segments.");
+      return false;
     }
-    sb.append("  ],\n");
-    sb.append("  \"collections\": [\n");
-    var collections = _colMgr.getCollectionList();
-    for (int i = 0; i < collections.size(); i++) {
-      sb.append(collections.get(i).saveCollectionAsJson());
-      if (i < collections.size() - 1) sb.append(",");
-      sb.append("\n");
+    Journal.discardSegments(lastSegment);
+    _lastSnapshotRecord = records;
+    return true;
+  }
+
+
+  /** Save the current program state to the savefile. The state is streamed to a temporary file,
+   * which is fsynced and then atomically renamed over the old save file. That way, there
+   * is always a complete save file on disk, even if the program crashes during writing.
+   * Files ending with '.json' are written as JSON, all others in the binary format.
+   * In segment mode, the changed collections are written to their segment files first
+   * and the save file only holds the users and ID counters.
+   * @return Success flag. Set to 'true' if the file was written. */
+  public boolean saveToFile() {
+    var target = Path.of(_filePath).toAbsolutePath();
+    var temp = Path.of(_filePath+".tmp").toAbsolutePath();
+    var users = new ArrayList<User>(_userAuth.getUserList());
+    var collections = new ArrayList<Collection>();
+    if (!_colMgr.isSegmented()) collections.addAll(_colMgr.getCollectionList());
+    else if (!_colMgr.flushSegments()) {
+      System.err.println("[SaveFileReader] Failed to write collection segments, save file not updated.");
+      return false;
     }
-    sb.append("  ]\n");
-    sb.append("}\n");
     try {
-      var writer = new PrintWriter(new File(_filePath), "UTF-8");
-      writer.print(sb.toString());
-      writer.flush();
-      writer.close();
+      try (var channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+          StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+        var out = Channels.newOutputStream(channel);
+        if (isJson()) writeJson(out, users, collections);
+        else BinarySaveFile.write(out, users, collections, SaveFileReader::getIdCounters);
+        channel.force(true);
+      }
+      Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      try (var dir = FileChannel.open(target.getParent(), StandardOpenOption.READ)) {
+        dir.force(true);
+      }
+      catch (IOException ex) { /* Directory sync is not supported on all platforms. */ }
       System.out.println("[SaveFileReader] Saved current program state to file.");
+      return true;
     }
     catch (Exception ex) {
-      System.err.println("[SaveFileReader] Failed to write save file!");
+      System.err.println("[SaveFileReader] Failed to write save file: "+ex);
+      return false;
+    }
+  }
+
+
+  /** Write the program state in JSON format.
+   * @param stream Output stream to write to. It is flushed, but not closed.
+   * @param users List of users.
+   * @param collections List of collections.
+   * @throws IOException Thrown if writing fails. */
+  private void writeJson(OutputStream stream, List<User> users, List<Collection> collections) throws IOException {
+    var date = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+    var gen = _jsonFactory.createGenerator(new BufferedOutputStream(stream, 65536), JsonEncoding.UTF8);
+    gen.useDefaultPrettyPrinter();
+    gen.writeStartObject();
+    gen.writeStringField("writtenOn", date);
+    gen.writeArrayFieldStart("users");
+    for (var user : users) user.saveUserAsJson(gen);
+    gen.writeEndArray();
+    gen.writeArrayFieldStart("collections");
+    for (var collection : collections) collection.saveCollectionAsJson(gen);
+    gen.writeEndArray();
+
+    // Counters are written last, so that they cover all objects created during the snapshot.
+    gen.writeArrayFieldStart("idCounters");
+    for (var id : getIdCounters()) gen.writeNumber(id);
+    gen.writeEndArray();
+    gen.writeEndObject();
+    gen.flush();
+  }
+
+
+  /** Get the current ID counters.
+   * @return Next user, collection and entry ID. */
+  private static int[] getIdCounters() {
+    return new int[] {IdHelper.peekUserId(), IdHelper.peekCollectionId(), IdHelper.peekEntryId()};
+  }
+
+
+  /** Check the save file format.
+   * @return 'True' for JSON, 'false' for the binary format. */
+  private boolean isJson() {
+    return _filePath.endsWith(".json");
+  }
+
+
+  /** Input stream over a (memory-mapped) byte buffer. */
+  private static class BufferInputStream extends InputStream {
+
+    private ByteBuffer _buffer; // The buffer to read from. Its position advances while reading.
+
+
+    /** Create a new input stream.
+     * @param buffer The buffer to read from (between position and limit). */
+    BufferInputStream(ByteBuffer buffer) {
+      _buffer = buffer;
+    }
+
+
+    @Override
+    public int read() {
+      return _buffer.hasRemaining()? (_buffer.get() & 0xff) : -1;
+    }
+
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+      if (!_buffer.hasRemaining()) return -1;
+      length = Math.min(length, _buffer.remaining());
+      _buffer.get(bytes, offset, length);
+      return length;
     }
   }
 }
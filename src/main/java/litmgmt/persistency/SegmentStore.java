@@ -0,0 +1,140 @@
+package litmgmt.persistency;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import litmgmt.citation.collections.Collection;
+
+
+/** Directory of per-collection segment files. Each collection is stored as '[id].col' in the
+ * binary save file encoding, so that it can be loaded and written on its own. Segment files are
+ * replaced the same way as the save file: write a temporary file, fsync it and rename it atomically. */
+public class SegmentStore {
+
+  private static final String SUFFIX = ".col"; // File name suffix of the segment files.
+
+  private Path _dir; // Directory holding the segment files.
+
+
+  /** Create a segment store. The directory is created, if it does not exist yet.
+   * @param dirPath Path to the segment directory. */
+  public SegmentStore(String dirPath) {
+    _dir = Path.of(dirPath).toAbsolutePath();
+    try { Files.createDirectories(_dir); }
+    catch (IOException ex) {
+      System.err.println("[SegmentStore] Failed to create segment directory '"+_dir+"': "+ex);
+    }
+  }
+
+
+  /** Check if a directory holds segment files, without creating it.
+   * @param dirPath Path to the segment directory.
+   * @return 'True', if there is at least one segment file. */
+  public static boolean hasSegments(String dirPath) {
+    var dir = Path.of(dirPath);
+    if (!Files.isDirectory(dir)) return false;
+    try (var stream = Files.newDirectoryStream(dir, "*"+SUFFIX)) {
+      return stream.iterator().hasNext();
+    }
+    catch (IOException ex) {
+      System.err.println("[SegmentStore] Failed to list segment files: "+ex);
+      return true;  // Rather keep segment mode than lose the collections in it.
+    }
+  }
+
+
+  /** List the identifiers of all stored collections.
+   * @return Collection identifiers. May be empty. */
+  public List<Integer> listCollectionIds() {
+    var ids = new ArrayList<Integer>();
+    try (var stream = Files.newDirectoryStream(_dir, "*"+SUFFIX)) {
+      for (var path : stream) {
+        var name = path.getFileName().toString();
+        try { ids.add(Integer.parseInt(name.substring(0, name.length() - SUFFIX.length()))); }
+        catch (NumberFormatException ex) { /* No segment file, ignore it. */ }
+      }
+    }
+    catch (IOException ex) {
+      System.err.println("[SegmentStore] Failed to list segment files: "+ex);
+    }
+    return ids;
+  }
+
+
+  /** Load a collection from its segment file.
+   * @param colId Identifier of the collection.
+   * @return The collection or 'null' if it could not be read. */
+  public Collection load(int colId) {
+    var path = segmentPath(colId);
+    try (var input = new BufferedInputStream(Files.newInputStream(path), 65536)) {
+      var collection = BinarySaveFile.readSegment(input);
+      if (collection.getId() == colId) return collection;
+      System.err.println("[SegmentStore] Segment file '"+path+"' holds collection #"+collection.getId()+"!");
+    }
+    catch (IOException ex) {
+      System.err.println("[SegmentStore] Failed to read segment file '"+path+"': "+ex);
+    }
+    return null;
+  }
+
+
+  /** Write a collection to its segment file.
+   * @param collection The collection to save.
+   * @return Success flag. Set to 'true' if the file was written. */
+  public boolean save(Collection collection) {
+    var target = segmentPath(collection.getId());
+    var temp = Path.of(target+".tmp");
+    try {
+      try (var channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+          StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+        BinarySaveFile.writeSegment(Channels.newOutputStream(channel), collection);
+        channel.force(true);
+      }
+      Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      return true;
+    }
+    catch (IOException ex) {
+      System.err.println("[SegmentStore] Failed to write segment file '"+target+"': "+ex);
+      return false;
+    }
+  }
+
+
+  /** Delete the segment file of a collection.
+   * @param colId Identifier of the deleted collection.
+   * @return Success flag. Also 'true', if there was no such file. */
+  public boolean delete(int colId) {
+    try {
+      Files.deleteIfExists(segmentPath(colId));
+      return true;
+    }
+    catch (IOException ex) {
+      System.err.println("[SegmentStore] Failed to delete segment file of collection #"+colId+": "+ex);
+      return false;
+    }
+  }
+
+
+  /** Sync the directory, so that renamed and deleted segment files are durable. */
+  public void syncDirectory() {
+    try (var dir = FileChannel.open(_dir, StandardOpenOption.READ)) {
+      dir.force(true);
+    }
+    catch (IOException ex) { /* Directory sync is not supported on all platforms. */ }
+  }
+
+
+  /** Get the path of a segment file.
+   * @param colId Collection identifier.
+   * @return Path to the segment file. */
+  private Path segmentPath(int colId) {
+    return _dir.resolve(colId+SUFFIX);
+  }
+}
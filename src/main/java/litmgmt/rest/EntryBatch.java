@@ -0,0 +1,207 @@
+package litmgmt.rest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import com.fasterxml.jackson.core.JsonGenerator;
+import litmgmt.citation.collections.Collection;
+import litmgmt.citation.collections.Entry;
+import litmgmt.citation.description.EntryType;
+import litmgmt.citation.description.FieldType;
+import litmgmt.persistency.Journal;
+
+
+/** Applies batch requests: a list of create, update and delete operations on the entries of one collection.
+ * The operations are applied in order under a single write lock and journaled as one unit, so neither
+ * readers nor a crash ever see a part of the batch. Each operation succeeds or fails on its own (like the
+ * single requests), its result is reported with an HTTP status code. */
+class EntryBatch {
+
+  private int _failed;  // Number of failed operations.
+
+
+  /** Create a new batch. Use {@link #apply}, an instance only counts the failures of one call. */
+  private EntryBatch() {
+  }
+
+
+  /** Apply a batch to a collection.
+   * @param collection The collection.
+   * @param operations The operations, applied in this order.
+   * @return The results as UTF-8 encoded JSON array, one object per operation: 'status', and 'entryId',
+   *   'etag' and 'entry' on success or 'error' on failure. Deleted entries are not written. */
+  static byte[] apply(Collection collection, JsonCodec.BatchOperation[] operations) {
+    return new EntryBatch().applyAll(collection, operations);
+  }
+
+
+  /** Apply a batch to a collection and count the failed operations (see {@link #apply}). */
+  private byte[] applyAll(Collection collection, JsonCodec.BatchOperation[] operations) {
+    var out = new ByteArrayOutputStream(256 * operations.length);
+    collection.getLock().writeLock().lock();
+    Journal.beginBatch();
+    try (var gen = JsonCodec.MAPPER.getFactory().createGenerator(out)) {
+      gen.writeStartArray();
+      for (var operation : operations) {
+        gen.writeStartObject();
+        var error = validate(operation);
+        if (error != null) fail(gen, 400, error);
+        else {
+          switch (operation.op) {
+            case "create": create(collection, operation, gen); break;
+            case "update": update(collection, operation, gen); break;
+            case "delete": delete(collection, operation, gen); break;
+            default: fail(gen, 400, "Unknown operation '"+operation.op+"'");
+          }
+        }
+        gen.writeEndObject();
+      }
+      gen.writeEndArray();
+    }
+    catch (IOException ex) {
+      throw new IllegalStateException(ex);  // Not thrown by an in-memory stream.
+    }
+    finally {
+      Journal.endBatch();
+      collection.getLock().writeLock().unlock();
+    }
+    if (_failed > 0) {
+      System.err.println("[EntryBatch] "+_failed+" of "+operations.length+" operations on collection #"+
+        collection.getId()+" failed.");
+    }
+    return out.toByteArray();
+  }
+
+
+  /** Check that an operation is complete enough to be dispatched. JSON allows 'null' in every place.
+   * @param operation The operation. 'null' for a 'null' element of the request array.
+   * @return The error message or 'null', if the operation is well-formed. */
+  private static String validate(JsonCodec.BatchOperation operation) {
+    if (operation == null) return "Operation is 'null'";
+    if (operation.op == null) return "Missing 'op'";
+    if (operation.fields != null) {
+      for (var field : operation.fields) {
+        if (field == null || field.fieldType == null) return "Field without 'fieldType'";
+      }
+    }
+    return null;
+  }
+
+
+  /** Create an entry with its fields. */
+  private void create(Collection collection, JsonCodec.BatchOperation operation, JsonGenerator gen)
+      throws IOException {
+    if (operation.citeKey == null || operation.entryType == null) {
+      fail(gen, 400, "Missing 'citeKey' or 'entryType'");
+      return;
+    }
+    EntryType entryType;
+    Map<FieldType, String> fields;
+    try {
+      entryType = EntryType.valueOf(operation.entryType.toUpperCase());
+      fields = parseFields(operation);
+    }
+    catch (IllegalArgumentException ex) {
+      fail(gen, 400, "Unknown entry or field type");
+      return;
+    }
+    var entry = collection.createEntry(operation.citeKey, entryType, fields);
+    if (entry == null) fail(gen, 409, "Entry with cite key '"+operation.citeKey+"' already exists");
+    else succeed(gen, 201, entry);
+  }
+
+
+  /** Rename an entry and set its fields. Nothing is changed, if the operation is invalid. */
+  private void update(Collection collection, JsonCodec.BatchOperation operation, JsonGenerator gen)
+      throws IOException {
+    var entry = findEntry(collection, operation, gen);
+    if (entry == null) return;
+    if (operation.entryType != null && !operation.entryType.equals(entry.getEntryType())) {
+      fail(gen, 405, "Entry type cannot be changed");
+      return;
+    }
+    Map<FieldType, String> fields;
+    try {
+      fields = parseFields(operation);
+    }
+    catch (IllegalArgumentException ex) {
+      fail(gen, 400, "Unknown field type");
+      return;
+    }
+    if (operation.citeKey != null && !operation.citeKey.equals(entry.getCiteKey())) {
+      if (!collection.renameEntry(entry, operation.citeKey)) {
+        fail(gen, 409, "Entry with cite key '"+operation.citeKey+"' already exists");
+        return;
+      }
+    }
+    for (var field : fields.entrySet()) entry.setField(field.getKey(), field.getValue());
+    succeed(gen, 200, entry);
+  }
+
+
+  /** Delete an entry. */
+  private void delete(Collection collection, JsonCodec.BatchOperation operation, JsonGenerator gen)
+      throws IOException {
+    var entry = findEntry(collection, operation, gen);
+    if (entry == null) return;
+    collection.deleteEntry(entry);
+    gen.writeNumberField("status", 200);
+    gen.writeNumberField("entryId", entry.getId());
+  }
+
+
+  /** Look up the entry of an update or delete and check its ETag.
+   * @return The entry or 'null', if the operation failed (the error is written then). */
+  private Entry findEntry(Collection collection, JsonCodec.BatchOperation operation, JsonGenerator gen)
+      throws IOException {
+    if (operation.entryId == null) {
+      fail(gen, 400, "Missing 'entryId'");
+      return null;
+    }
+    var entry = collection.getEntry(operation.entryId);
+    if (entry == null) {
+      gen.writeNumberField("entryId", operation.entryId);
+      fail(gen, 404, "Entry #"+operation.entryId+" not found");
+      return null;
+    }
+    var etag = JavalinServer.etag(entry.getVersion());
+    if (operation.ifMatch != null && !JavalinServer.etagMatches(operation.ifMatch, etag, false)) {
+      gen.writeNumberField("entryId", entry.getId());
+      gen.writeStringField("etag", etag);
+      fail(gen, 412, "Entry was changed meanwhile");
+      return null;
+    }
+    return entry;
+  }
+
+
+  /** Get the fields of a create or update operation.
+   * @return Field values by type, in request order.
+   * @throws IllegalArgumentException Thrown on an unknown field type. */
+  private static Map<FieldType, String> parseFields(JsonCodec.BatchOperation operation) {
+    var fields = new LinkedHashMap<FieldType, String>();
+    if (operation.fields != null) {
+      for (var field : operation.fields) fields.put(FieldType.valueOf(field.fieldType.toUpperCase()), field.value);
+    }
+    return fields;
+  }
+
+
+  /** Write the result of a successful operation: its status, the entry and its new ETag. */
+  private static void succeed(JsonGenerator gen, int status, Entry entry) throws IOException {
+    gen.writeNumberField("status", status);
+    gen.writeNumberField("entryId", entry.getId());
+    gen.writeStringField("etag", JavalinServer.etag(entry.getVersion()));
+    gen.writeFieldName("entry");
+    entry.saveEntryAsJson(gen);
+  }
+
+
+  /** Write the result of a failed operation: its status and the error message. */
+  private void fail(JsonGenerator gen, int status, String error) throws IOException {
+    gen.writeNumberField("status", status);
+    gen.writeStringField("error", error);
+    _failed++;
+  }
+}
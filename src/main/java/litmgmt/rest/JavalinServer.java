@@ -1,19 +1,35 @@
 package litmgmt.rest;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
 import java.nio.file.Paths;
-import com.fasterxml.jackson.core.JsonParseException;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import io.javalin.Javalin;
 import io.javalin.http.Context;
 import io.javalin.http.staticfiles.Location;
+import io.javalin.plugin.json.JavalinJackson;
+import litmgmt.citation.bibtex.BibTexReader;
+import litmgmt.citation.bibtex.BibTexWriter;
+import litmgmt.citation.collections.AuthorIndex;
 import litmgmt.citation.collections.Collection;
 import litmgmt.citation.collections.CollectionManager;
+import litmgmt.citation.collections.DuplicateIndex;
 import litmgmt.citation.collections.Entry;
-import litmgmt.citation.description.DescriptionList;
+import litmgmt.citation.collections.FacetCounts;
+import litmgmt.citation.collections.FieldProjection;
+import litmgmt.citation.collections.SearchIndex;
+import litmgmt.citation.collections.ValuePool;
 import litmgmt.citation.description.EntryType;
 import litmgmt.citation.description.FieldType;
+import litmgmt.jobs.Job;
+import litmgmt.jobs.JobManager;
+import litmgmt.persistency.Journal;
 import litmgmt.users.User;
 import litmgmt.users.UserAuthenticator;
 import litmgmt.users.UserEmailFormatException;
@@ -25,19 +41,31 @@ public class JavalinServer {
 
   private UserAuthenticator _userAuth; // User authenticator for login and register endpoints.
   private CollectionManager _colMgr;   // Collection manager for CRUD operations on collections and entries.
+  private JobManager _jobMgr;          // Runs long operations (export, import, reindex, dedup) in the background.
   private Javalin _server;             // Javalin web server process.
   private int _port;                   // Web server port.
 
+  private static final int STREAM_BUFFER_SIZE = 16384; // Buffer for streamed responses (bytes).
+  private static final int MAX_PAGE_SIZE = 1000;       // Page size limit (and default, if only a cursor is given).
+  private static final int NO_LIMIT = Integer.MAX_VALUE;
+  private static final int DEFAULT_SEARCH_LIMIT = 20; // Number of search hits, if no limit is given.
+  private static final int MAX_BATCH_SIZE = 1000;      // Operations per batch request.
+  private static final String ETAG_EPOCH = Long.toString(System.currentTimeMillis(), 36); // Server start, for ETags.
+
 
   /** Create a new web server.
    * @param userAuth User authenticator for login and register endpoints.
    * @param colMgr Collection manager for CRUD operations on collections and entries.
+   * @param jobMgr Job manager for the background operations.
    * @param port Web server port.
    * @param htmlDir HTML directory for static content delivery. May be set to 'null' to disable it! */
-  public JavalinServer(UserAuthenticator userAuth, CollectionManager colMgr, int port, String htmlDir) {
+  public JavalinServer(UserAuthenticator userAuth, CollectionManager colMgr, JobManager jobMgr, int port,
+                       String htmlDir) {
     _userAuth = userAuth;
     _colMgr = colMgr;
+    _jobMgr = jobMgr;
     _port = port;
+    JavalinJackson.configure(JsonCodec.MAPPER);
     _server = Javalin.create(
       config -> {
         config.enableWebjars();
@@ -68,15 +96,23 @@ public class JavalinServer {
   /** Define backend routes (REST endpoints). */
   private void defineRoutes() {
 
+    // Let browser clients read the headers used for caching and paging.
+    _server.before(ctx ->
+      ctx.header("Access-Control-Expose-Headers", "ETag, X-Next-Cursor, Content-Disposition, Location"));
+
+    // Acknowledge mutations only after they are durable in the journal. If the journal failed, sync()
+    // throws and the request is answered with status 500.
+    _server.after(ctx -> Journal.sync());
+
     // Register a new user.
     // | curl -X POST -H "Content-Type: application/json" -d '{"name":"john",
     // |   "password":"wayne", "email":"john.wayne@web.de"}' http://localhost/api/register
     _server.post("/api/register", ctx -> {
       try {
-        var jsonNode = new ObjectMapper().readTree(ctx.body());
-        var userName = jsonNode.get("name").asText();
+        JsonCodec.Registration registration = JsonCodec.REGISTRATION_READER.readValue(ctx.body());
+        var userName = registration.name;
         var registrationSuccessful = _userAuth.createNewUser(
-          userName, jsonNode.get("email").asText(), jsonNode.get("password").asText()
+          userName, registration.email, registration.password
         );
         if (registrationSuccessful) {
           System.out.println("User '"+userName+"' successfully created.");
@@ -84,7 +120,7 @@ public class JavalinServer {
         }
         else ctx.res.setStatus(500);
       }
-      catch (NullPointerException | JsonParseException ex) {
+      catch (JsonProcessingException ex) {
         System.err.println("[JavalinServer] Register User: Failed to parse JSON '"+ctx.body()+"'!");
         ctx.res.sendError(400, "JSON parser failure. Check input!");
       }
@@ -102,9 +138,9 @@ public class JavalinServer {
     // |   "password":"wayne"}' http://localhost/api/login
     _server.post("/api/login", ctx -> {
       try {
-        var jsonNode = new ObjectMapper().readTree(ctx.body());
-        var userName = jsonNode.get("name").asText();
-        var token = _userAuth.logIn(userName, jsonNode.get("password").asText());
+        JsonCodec.Credentials credentials = JsonCodec.CREDENTIALS_READER.readValue(ctx.body());
+        var userName = credentials.name;
+        var token = _userAuth.logIn(userName, credentials.password);
         if (token != null) {
           System.out.println("[JavalinServer] User '"+userName+"' logged in. Token: '"+token+"'");
           ctx.result(token);
@@ -114,7 +150,7 @@ public class JavalinServer {
           ctx.res.sendError(403);
         }
       }
-      catch (JsonParseException ex) {
+      catch (JsonProcessingException ex) {
         System.err.println("[JavalinServer] Login User: Failed to parse JSON '"+ctx.body()+"'!");
         ctx.res.sendError(400, "JSON parser failure. Check input!");
       }
@@ -124,16 +160,51 @@ public class JavalinServer {
     // Fetch a list with static entry type descriptions.
     // | curl http://localhost/api/entrydescriptions
     _server.get("/api/entrydescriptions", ctx -> {
-      ctx.json(DescriptionList.getEntryDescriptions());
+      sendJson(ctx, JsonCodec.entryDescriptions());
     });
 
 
-    // Fetch all collections for a user.
+    // Fetch all collections for a user. Optionally paged by 'limit' and 'cursor' (ordered by ID,
+    // the next cursor is returned in the 'X-Next-Cursor' header) and without entries ('fields=name').
     // | curl -H "Accept: application/json" -H "Authorization: Bearer <token>"
-    // |   http://localhost/api/collections
+    // |   http://localhost/api/collections?limit=20&fields=name
     _server.get("/api/collections", ctx -> {
       var user = checkLogin(ctx);
-      if (user != null) ctx.json(_colMgr.getAllCollections(user));
+      if (user != null) {
+        var page = parsePage(ctx, "Get collections");
+        if (page == null) return;
+        var withEntries = true;
+        var fields = ctx.queryParam("fields");
+        if (fields != null) {
+          withEntries = false;
+          for (var name : fields.split(",")) {
+            var property = name.trim();
+            if (property.equals("entries")) withEntries = true;
+            else if (!property.isEmpty() && !property.equals("id") && !property.equals("name")) {
+              var msg = "400 Bad Request - Unknown collection property '"+property+"'!";
+              System.err.println("[JavalinServer] Get collections: "+msg);
+              ctx.res.sendError(400, msg);
+              return;
+            }
+          }
+        }
+        var collections = (page[1] == NO_LIMIT)? _colMgr.getAllCollections(user) :
+          _colMgr.getCollectionsPage(user, page[0], page[1] + 1);
+        if (collections.size() > page[1]) {
+          collections = collections.subList(0, page[1]);
+          setNextCursor(ctx, collections.get(page[1] - 1).getId());
+        }
+        var list = collections;
+        var entries = withEntries;
+        streamJson(ctx, out -> {
+          out.write('[');
+          for (int i = 0; i < list.size(); i++) {
+            if (i > 0) out.write(',');
+            list.get(i).writeJson(out, entries);
+          }
+          out.write(']');
+        });
+      }
     });
 
 
@@ -144,12 +215,13 @@ public class JavalinServer {
       var user = checkLogin(ctx);
       if (user != null) {
         try {
-          var jsonNode = new ObjectMapper().readTree(ctx.body());
-          var colName = jsonNode.get("name").asText();
+          JsonCodec.NameRequest request = JsonCodec.NAME_READER.readValue(ctx.body());
+          var colName = request.name;
           var newCol = _colMgr.createCollection(user, colName);
           if (newCol != null) {
             ctx.status(201);
-            ctx.json(newCol);
+            ctx.header("ETag", etag(newCol.getVersion()));
+            sendJson(ctx, newCol.toJson());
           }
           else {
             var msg = "409 Conflict - Collection with name '"+colName+"' already exists!";
@@ -157,7 +229,7 @@ public class JavalinServer {
             System.err.println("[JavalinServer] Create collection: "+msg);
           }
         }
-        catch (NullPointerException | JsonParseException ex) {
+        catch (JsonProcessingException ex) {
           System.err.println("[JavalinServer] Create collection: Failed to parse JSON '"+ctx.body()+"'!");
           ctx.res.sendError(400, "JSON parser failure. Check input!");
         }
@@ -165,30 +237,42 @@ public class JavalinServer {
     });
 
 
-    // Fetch a single collection for a user.
+    // Fetch a single collection for a user. Answers '304 Not Modified', if the ETag given in
+    // 'If-None-Match' is still current.
     // | curl -H "Accept: application/json" -H "Authorization: Bearer <token>"
     // |   http://localhost/api/collections/0
     _server.get("/api/collections/:col-id", ctx -> {
       var user = checkLogin(ctx);
       var collection = fetchCollectionFromQuery(ctx, user, "Get collection");
-      if (collection != null) ctx.json(collection);
+      if (collection != null && !notModified(ctx, etag(collection.getVersion()))) {
+        streamJson(ctx, collection::writeJson);
+      }
     });
 
 
-    // Delete a collection.
+    // Delete a collection. With 'If-Match', only if the collection was not changed meanwhile.
     // | curl -X DELETE -H "Accept: application/json" -H "Authorization: Bearer <token>"
     // |   http://localhost/api/collections/0
     _server.delete("/api/collections/:col-id", ctx -> {
       var user = checkLogin(ctx);
       var collection = fetchCollectionFromQuery(ctx, user, "Delete collection");
       if (collection != null) {
-        _colMgr.deleteCollection(user, collection);
+        synchronized (user) {  // Lock order: user before collection, as in the collection manager.
+          collection.getLock().writeLock().lock();
+          try {
+            if (preconditionFailed(ctx, etag(collection.getVersion()), "Delete collection")) return;
+            _colMgr.deleteCollection(user, collection);
+          }
+          finally {
+            collection.getLock().writeLock().unlock();
+          }
+        }
         ctx.res.setStatus(200);
       }
     });
 
 
-    // Rename a collection.
+    // Rename a collection. With 'If-Match', only if the collection was not changed meanwhile.
     // | curl -X PUT -H "Accept: application/json" -H "Authorization: Bearer <token>"
     // |   -d '{"name":"New collection name"}' http://localhost/api/collections/0
     _server.put("/api/collections/:col-id", ctx -> {
@@ -196,17 +280,30 @@ public class JavalinServer {
       var collection = fetchCollectionFromQuery(ctx, user, "Rename collection");
       if (collection != null) {
         try {
-          var jsonNode = new ObjectMapper().readTree(ctx.body());
-          var newColName = jsonNode.get("name").asText();
-          var success = _colMgr.renameCollection(user, collection, newColName);
-          if (success) ctx.json(collection);
+          JsonCodec.NameRequest request = JsonCodec.NAME_READER.readValue(ctx.body());
+          var newColName = request.name;
+          boolean success;
+          synchronized (user) {  // Lock order: user before collection, as in the collection manager.
+            collection.getLock().writeLock().lock();
+            try {
+              if (preconditionFailed(ctx, etag(collection.getVersion()), "Rename collection")) return;
+              success = _colMgr.renameCollection(user, collection, newColName);
+            }
+            finally {
+              collection.getLock().writeLock().unlock();
+            }
+          }
+          if (success) {
+            ctx.header("ETag", etag(collection.getVersion()));
+            sendJson(ctx, collection.toJson());
+          }
           else {
             var msg = "409 Conflict - Collection with name '"+newColName+"' already exists!";
             System.err.println("[JavalinServer] Rename collection: "+msg);
             ctx.res.sendError(409, msg);
           }
         }
-        catch (NullPointerException | JsonParseException ex) {
+        catch (JsonProcessingException ex) {
           System.err.println("[JavalinServer] Rename collection: Failed to parse JSON '"+ctx.body()+"'!");
           ctx.res.sendError(400, "JSON parser failure. Check input!");
         }
@@ -214,13 +311,118 @@ public class JavalinServer {
     });
 
 
-    // Get all entries of a collection.
+    // Get the entry counts of a collection per entry type, year, journal and book title. They are kept
+    // up to date on every change, so the entries are not scanned. The ETag is the one of the collection.
     // | curl -H "Accept: application/json" -H "Authorization: Bearer <token>"
-    // |   http://localhost/api/collections/0/entries
+    // |   http://localhost/api/collections/0/stats
+    _server.get("/api/collections/:col-id/stats", ctx -> {
+      var user = checkLogin(ctx);
+      var collection = fetchCollectionFromQuery(ctx, user, "Get collection stats");
+      if (collection != null && !notModified(ctx, etag(collection.getVersion()))) {
+        var stats = FacetCounts.collect(List.of(collection));
+        streamJson(ctx, stats::writeJson);
+      }
+    });
+
+
+    // Find clusters of near-duplicate entries of a collection (similar title, authors and year), e.g. the
+    // same paper imported under two cite keys. The largest clusters come first, 'limit' defaults to (and
+    // is capped at) 1000 clusters. A 'dedup' job does the same in the background.
+    // | curl -H "Accept: application/json" -H "Authorization: Bearer <token>"
+    // |   "http://localhost/api/collections/0/duplicates?limit=10"
+    _server.get("/api/collections/:col-id/duplicates", ctx -> {
+      var user = checkLogin(ctx);
+      var collection = fetchCollectionFromQuery(ctx, user, "Find duplicates");
+      if (collection != null) {
+        var limit = MAX_PAGE_SIZE;
+        try {
+          if (ctx.queryParam("limit") != null) limit = Integer.parseInt(ctx.queryParam("limit"));
+        }
+        catch (NumberFormatException ex) {
+          limit = 0;
+        }
+        if (limit <= 0) {
+          var msg = "400 Bad Request - Invalid 'limit'!";
+          System.err.println("[JavalinServer] Find duplicates: "+msg);
+          ctx.res.sendError(400, msg);
+          return;
+        }
+        if (notModified(ctx, etag(collection.getVersion()))) return;
+        var clusters = DuplicateIndex.findDuplicates(collection, Math.min(limit, MAX_PAGE_SIZE));
+        streamJson(ctx, out -> DuplicateIndex.writeClustersJson(clusters, out));
+      }
+    });
+
+
+    // Export a collection as BibTeX file (UTF-8). The entries are streamed in pages, so the memory used
+    // does not depend on the size of the collection. The ETag is the one of the collection.
+    // | curl -H "Authorization: Bearer <token>" -o collection.bib
+    // |   http://localhost/api/collections/0/export.bib
+    _server.get("/api/collections/:col-id/export.bib", ctx -> {
+      var user = checkLogin(ctx);
+      var collection = fetchCollectionFromQuery(ctx, user, "Export collection");
+      if (collection != null && !notModified(ctx, etag(collection.getVersion()))) {
+        var fileName = collection.getName().replaceAll("[^\\w.-]+", "_");
+        ctx.header("Content-Disposition", "attachment; filename=\""+fileName+".bib\"");
+        stream(ctx, "application/x-bibtex; charset=utf-8", out -> BibTexWriter.writeCollection(collection, out));
+      }
+    });
+
+
+    // Import a BibTeX file (UTF-8) into a collection. The records are parsed in parallel and added in one
+    // batch. Records with errors or duplicate cite keys are skipped, the report lists them with their line.
+    // | curl -X POST -H "Content-Type: application/x-bibtex" -H "Authorization: Bearer <token>"
+    // |   --data-binary @library.bib http://localhost/api/collections/0/import.bib
+    _server.post("/api/collections/:col-id/import.bib", ctx -> {
+      var user = checkLogin(ctx);
+      var collection = fetchCollectionFromQuery(ctx, user, "Import BibTeX");
+      if (collection != null) {
+        var records = BibTexReader.read(ctx.req.getInputStream());
+        BibTexReader.importRecords(collection, records);
+        Journal.sync();  // The report is streamed, so the status is sent before the 'after' handler runs.
+        streamJson(ctx, out -> BibTexReader.writeReportJson(records, out));
+      }
+    });
+
+
+    // Get all entries of a collection. Optionally paged by 'limit' and 'cursor' (ordered by ID, the next
+    // cursor is returned in the 'X-Next-Cursor' header) and projected to some properties ('fields').
+    // The ETag is the one of the collection, so polling with 'If-None-Match' is answered by '304'.
+    // | curl -H "Accept: application/json" -H "Authorization: Bearer <token>"
+    // |   http://localhost/api/collections/0/entries?limit=50&fields=citeKey,title
     _server.get("/api/collections/:col-id/entries", ctx -> {
       var user = checkLogin(ctx);
       var collection = fetchCollectionFromQuery(ctx, user, "Get all entries");
-      if (collection != null) ctx.json(collection.getEntries());
+      if (collection != null) {
+        var page = parsePage(ctx, "Get all entries");
+        if (page == null) return;
+        FieldProjection projection = null;
+        if (ctx.queryParam("fields") != null) {
+          try {
+            projection = FieldProjection.parse(ctx.queryParam("fields"));
+          }
+          catch (IllegalArgumentException ex) {
+            var msg = "400 Bad Request - Unknown entry property in '"+ctx.queryParam("fields")+"'!";
+            System.err.println("[JavalinServer] Get all entries: "+msg);
+            ctx.res.sendError(400, msg);
+            return;
+          }
+        }
+        if (notModified(ctx, etag(collection.getVersion()))) return;
+        if (page[1] == NO_LIMIT && projection == null) {
+          streamJson(ctx, collection::writeEntriesJson);
+          return;
+        }
+        var entries = (page[1] == NO_LIMIT)? collection.getEntries() :
+          collection.getEntriesPage(page[0], page[1] + 1);
+        if (entries.size() > page[1]) {
+          entries = entries.subList(0, page[1]);
+          setNextCursor(ctx, entries.get(page[1] - 1).getId());
+        }
+        var list = entries;
+        var fields = projection;
+        streamJson(ctx, out -> Collection.writeEntriesJson(list, fields, out));
+      }
     });
 
 
@@ -234,21 +436,19 @@ public class JavalinServer {
       var collection = fetchCollectionFromQuery(ctx, user, "Create entry");
       if (collection != null) {
         try {
-          var jsonNode = new ObjectMapper().readTree(ctx.body());
-          var citeKey = jsonNode.get("citeKey").asText();
-          var entryType = EntryType.valueOf(jsonNode.get("entryType").asText().toUpperCase());
-          var entry = collection.createEntry(citeKey, entryType);
+          // Parse everything first, the entry and its fields are then created (and journaled) as one unit.
+          JsonCodec.EntryRequest request = JsonCodec.ENTRY_READER.readValue(ctx.body());
+          var citeKey = Objects.requireNonNull(request.citeKey);
+          var entryType = EntryType.valueOf(request.entryType.toUpperCase());
+          var fields = new LinkedHashMap<FieldType, String>();
+          if (request.fields != null) {
+            for (var field : request.fields) fields.put(FieldType.valueOf(field.fieldType.toUpperCase()), field.value);
+          }
+          var entry = collection.createEntry(citeKey, entryType, fields);
           if (entry != null) {
-            if (jsonNode.get("fields") != null) {
-              for (JsonNode field : jsonNode.get("fields")) {
-                entry.setField(
-                  FieldType.valueOf(field.get("fieldType").asText().toUpperCase()),
-                  field.get("value").asText()
-                );
-              }
-            }
             ctx.status(201);
-            ctx.json(entry);
+            ctx.header("ETag", etag(entry.getVersion()));
+            sendJson(ctx, entry.toJson());
           }
           else {
             var msg = "409 Conflict - Entry with cite key '"+citeKey+"' already exists!";
@@ -264,17 +464,18 @@ public class JavalinServer {
     });
 
 
-    // Get a single entry on a collection.
+    // Get a single entry on a collection. Answers '304 Not Modified', if the ETag given in
+    // 'If-None-Match' is still current.
     // | curl -H "Accept: application/json" -H "Authorization: Bearer <token>"
     // |   http://localhost/api/collections/0/entries/2
     _server.get("/api/collections/:col-id/entries/:entry-id", ctx -> {
       var user = checkLogin(ctx);
       var entry = fetchEntryFromQuery(ctx, user, "Get entry");
-      if (entry != null) ctx.json(entry);
+      if (entry != null && !notModified(ctx, etag(entry.getVersion()))) sendJson(ctx, entry.toJson());
     });
 
 
-    // Delete an entry from a collection.
+    // Delete an entry from a collection. With 'If-Match', only if the entry was not changed meanwhile.
     // | curl -X DELETE -H "Accept: application/json" -H "Authorization: Bearer <token>"
     // |   http://localhost/api/collections/0/entries/2
     _server.delete("/api/collections/:col-id/entries/:entry-id", ctx -> {
@@ -282,13 +483,21 @@ public class JavalinServer {
       var collection = fetchCollectionFromQuery(ctx, user, "Delete entry");
       if (collection != null) {
         var entry = fetchEntryFromQuery(ctx, user, "Delete entry");
-        collection.deleteEntry(entry);
+        collection.getLock().writeLock().lock();
+        try {
+          if (preconditionFailed(ctx, currentEtag(collection, entry), "Delete entry")) return;
+          if (entry != null && entryGone(ctx, collection, entry, "Delete entry")) return;
+          collection.deleteEntry(entry);
+        }
+        finally {
+          collection.getLock().writeLock().unlock();
+        }
         ctx.res.setStatus(200);
       }
     });
 
 
-    // Update an entry in a collection.
+    // Update an entry in a collection. With 'If-Match', only if the entry was not changed meanwhile.
     // | curl -X PUT -H "Accept: application/json" -H "Authorization: Bearer <token>"
     // |   -d '{"citeKey":"myCiteRef2018", "entryType":"article", "fields":[
     // |     {"fieldType": "author", "value":"Tychus Findlay"}, {"fieldType":"address", "value":"Tarsonis"}]}'
@@ -299,51 +508,298 @@ public class JavalinServer {
       if (collection != null) {
         var entry = fetchEntryFromQuery(ctx, user, "Update entry");
         if (entry != null) {
+          // The whole request is validated before anything is changed. The changes are then applied under one
+          // lock and journaled as one batch, so they are seen and persisted as one unit.
+          collection.getLock().writeLock().lock();
           try {
-            var jsonNode = new ObjectMapper().readTree(ctx.body());
-
-            // Check for renaming.
-            if (jsonNode.get("citeKey") != null) {
-              var citeKey = jsonNode.get("citeKey").asText();
-              if (!citeKey.equals(entry.getCiteKey())) {
-                var success = collection.renameEntry(entry, citeKey);
-                if (!success) {
-                  var msg = "409 Conflict - Entry with name '"+citeKey+"' already exists in collection #"+
-                    collection.getId()+"!";
-                  System.err.println("[JavalinServer] Rename entry: "+msg);
-                  ctx.res.sendError(409, msg);
-                  return;
-                }
-              }
+            if (preconditionFailed(ctx, currentEtag(collection, entry), "Update entry")) return;
+            if (entryGone(ctx, collection, entry, "Update entry")) return;
+            JsonCodec.EntryRequest request = JsonCodec.ENTRY_READER.readValue(ctx.body());
+            var fields = (request.fields != null)? request.fields : List.<JsonCodec.FieldValue>of();
+            var fieldTypes = new FieldType[fields.size()];
+            for (int i = 0; i < fieldTypes.length; i++) {
+              fieldTypes[i] = FieldType.valueOf(fields.get(i).fieldType.toUpperCase());
             }
 
             // Check for entry type change --> not allowed!
-            if (jsonNode.get("entryType") != null) {
-              var entryType = jsonNode.get("entryType").asText();
-              if (!entryType.equals(entry.getEntryType())) {
-                var msg = "405 Not Allowed - Entry type cannot be changed!";
+            if (request.entryType != null && !request.entryType.equals(entry.getEntryType())) {
+              var msg = "405 Not Allowed - Entry type cannot be changed!";
               System.err.println("[JavalinServer] Change entry type: "+msg);
               ctx.res.sendError(405, msg);
               return;
-              }
             }
 
-            // If fields are set, iterate and update them.
-            if (jsonNode.get("fields") != null) {
-              for (JsonNode field : jsonNode.get("fields")) {
-                entry.setField(
-                  FieldType.valueOf(field.get("fieldType").asText().toUpperCase()),
-                  field.get("value").asText()
-                );
-              }
+            // Check for renaming. A conflict is the last possible failure, so nothing was changed yet then.
+            var citeKey = request.citeKey;
+            var rename = citeKey != null && !citeKey.equals(entry.getCiteKey());
+            if (rename && collection.getEntryByCiteKey(citeKey) != null) {
+              var msg = "409 Conflict - Entry with name '"+citeKey+"' already exists in collection #"+
+                collection.getId()+"!";
+              System.err.println("[JavalinServer] Rename entry: "+msg);
+              ctx.res.sendError(409, msg);
+              return;
+            }
+
+            Journal.beginBatch();
+            try {
+              if (rename) collection.renameEntry(entry, citeKey);
+              for (int i = 0; i < fieldTypes.length; i++) entry.setField(fieldTypes[i], fields.get(i).value);
+            }
+            finally {
+              Journal.endBatch();
             }
-            ctx.json(entry);
+            ctx.header("ETag", etag(entry.getVersion()));
+            sendJson(ctx, entry.toJson());
           }
           catch (Exception ex) {
             System.err.println("[JavalinServer] Update entry: Failed to parse JSON '"+ctx.body()+"'!");
             ctx.res.sendError(400, "JSON parser failure. Check input!");
           }
+          finally {
+            collection.getLock().writeLock().unlock();
+          }
+        }
+      }
+    });
+
+
+    // Apply a list of create, update and delete operations to the entries of a collection, in order and
+    // as one unit (single lock, single journal record). Each operation has its own result and status code,
+    // failed ones do not stop the others. Updates and deletes may carry the ETag in 'ifMatch'.
+    // | curl -X POST -H "Accept: application/json" -H "Authorization: Bearer <token>"
+    // |   -d '[{"op":"create", "citeKey":"raynor2500", "entryType":"misc", "fields":[
+    // |     {"fieldType":"note", "value":"Marshal"}]}, {"op":"update", "entryId":2, "fields":[
+    // |     {"fieldType":"journal", "value":"Korhal Gazette"}]}, {"op":"delete", "entryId":3}]'
+    // |   http://localhost/api/collections/0/entries:batch
+    _server.post("/api/collections/:col-id/entries:batch", ctx -> {
+      var user = checkLogin(ctx);
+      var collection = fetchCollectionFromQuery(ctx, user, "Batch");
+      if (collection != null) {
+        JsonCodec.BatchOperation[] operations;
+        try {
+          operations = JsonCodec.BATCH_READER.readValue(ctx.body());
+        }
+        catch (Exception ex) {
+          System.err.println("[JavalinServer] Batch: Failed to parse JSON '"+ctx.body()+"'!");
+          ctx.res.sendError(400, "JSON parser failure. Check input!");
+          return;
+        }
+        if (operations == null || operations.length > MAX_BATCH_SIZE) {
+          var msg = "400 Bad Request - Expected an array of at most "+MAX_BATCH_SIZE+" operations!";
+          System.err.println("[JavalinServer] Batch: "+msg);
+          ctx.res.sendError(400, msg);
+          return;
+        }
+        sendJson(ctx, EntryBatch.apply(collection, operations));
+      }
+    });
+
+
+    // Full-text search over the entries of all collections of a user, best matches first (BM25 ranking).
+    // Cite keys, titles, authors, journals, book titles and notes are searched. 'limit' defaults to 20.
+    // | curl -H "Accept: application/json" -H "Authorization: Bearer <token>"
+    // |   "http://localhost/api/search?q=neural+networks&limit=10"
+    _server.get("/api/search", ctx -> {
+      var user = checkLogin(ctx);
+      if (user != null) {
+        var query = ctx.queryParam("q");
+        var limit = DEFAULT_SEARCH_LIMIT;
+        try {
+          if (ctx.queryParam("limit") != null) limit = Integer.parseInt(ctx.queryParam("limit"));
+        }
+        catch (NumberFormatException ex) {
+          limit = 0;
+        }
+        if (query == null || limit <= 0) {
+          var msg = "400 Bad Request - Missing query 'q' or invalid 'limit'!";
+          System.err.println("[JavalinServer] Search: "+msg);
+          ctx.res.sendError(400, msg);
+          return;
         }
+        var hits = SearchIndex.search(_colMgr.getAllCollections(user), query, Math.min(limit, MAX_PAGE_SIZE));
+        streamJson(ctx, out -> SearchIndex.writeHitsJson(hits, out));
+      }
+    });
+
+
+    // List the authors and editors of all collections of a user, with the number of their entries.
+    // Names are normalized to 'Last, First', sorted by last name. 'prefix' filters them (e.g. 'knu' or
+    // 'Knuth, D'), 'limit' defaults to (and is capped at) 1000.
+    // | curl -H "Accept: application/json" -H "Authorization: Bearer <token>"
+    // |   "http://localhost/api/authors?prefix=knu&limit=10"
+    _server.get("/api/authors", ctx -> {
+      var user = checkLogin(ctx);
+      if (user != null) {
+        var prefix = Objects.requireNonNullElse(ctx.queryParam("prefix"), "");
+        var limit = MAX_PAGE_SIZE;
+        try {
+          if (ctx.queryParam("limit") != null) limit = Integer.parseInt(ctx.queryParam("limit"));
+        }
+        catch (NumberFormatException ex) {
+          limit = 0;
+        }
+        if (limit <= 0) {
+          var msg = "400 Bad Request - Invalid 'limit'!";
+          System.err.println("[JavalinServer] List authors: "+msg);
+          ctx.res.sendError(400, msg);
+          return;
+        }
+        var authors = AuthorIndex.listAuthors(_colMgr.getAllCollections(user), prefix, Math.min(limit, MAX_PAGE_SIZE));
+        streamJson(ctx, out -> AuthorIndex.writeAuthorsJson(authors, out));
+      }
+    });
+
+
+    // Fetch the entries of an author or editor in all collections of a user. A last name alone finds
+    // the entries of all authors with this last name. 'limit' defaults to (and is capped at) 1000.
+    // | curl -H "Accept: application/json" -H "Authorization: Bearer <token>"
+    // |   "http://localhost/api/authors/entries?name=Knuth,+Donald+E."
+    _server.get("/api/authors/entries", ctx -> {
+      var user = checkLogin(ctx);
+      if (user != null) {
+        var name = ctx.queryParam("name");
+        var limit = MAX_PAGE_SIZE;
+        try {
+          if (ctx.queryParam("limit") != null) limit = Integer.parseInt(ctx.queryParam("limit"));
+        }
+        catch (NumberFormatException ex) {
+          limit = 0;
+        }
+        if (name == null || name.isBlank() || limit <= 0) {
+          var msg = "400 Bad Request - Missing 'name' or invalid 'limit'!";
+          System.err.println("[JavalinServer] Find author entries: "+msg);
+          ctx.res.sendError(400, msg);
+          return;
+        }
+        var matches = AuthorIndex.findEntries(_colMgr.getAllCollections(user), name, Math.min(limit, MAX_PAGE_SIZE));
+        streamJson(ctx, out -> AuthorIndex.writeMatchesJson(matches, out));
+      }
+    });
+
+
+    // Get the entry counts of all collections of a user per entry type, year, journal and book title.
+    // | curl -H "Accept: application/json" -H "Authorization: Bearer <token>"
+    // |   http://localhost/api/stats
+    _server.get("/api/stats", ctx -> {
+      var user = checkLogin(ctx);
+      if (user != null) {
+        var stats = FacetCounts.collect(_colMgr.getAllCollections(user));
+        streamJson(ctx, stats::writeJson);
+      }
+    });
+
+
+    // Start a background job on a collection: 'export' (BibTeX), 'import' (BibTeX file as request body),
+    // 'reindex' or 'dedup' (duplicate clusters). Answers '202 Accepted' with the job and its URL in
+    // 'Location', '404' or '403' for a missing or foreign collection, or '503', if too many jobs are
+    // waiting. The job state and progress are polled via GET /api/jobs/:job-id.
+    // | curl -X POST -H "Content-Type: application/x-bibtex" -H "Authorization: Bearer <token>"
+    // |   --data-binary @library.bib "http://localhost/api/jobs?type=import&collection=0"
+    _server.post("/api/jobs", ctx -> {
+      var user = checkLogin(ctx);
+      if (user != null) {
+        Job.Type type;
+        int colId;
+        try {
+          type = Job.Type.valueOf(Objects.requireNonNull(ctx.queryParam("type")).toUpperCase());
+          colId = Integer.parseInt(Objects.requireNonNull(ctx.queryParam("collection")));
+        }
+        catch (NullPointerException | IllegalArgumentException ex) {  // Also NumberFormatException.
+          var msg = "400 Bad Request - Missing or invalid 'type' or 'collection'!";
+          System.err.println("[JavalinServer] Submit job: "+msg);
+          ctx.res.sendError(400, msg);
+          return;
+        }
+        var collection = _colMgr.getCollection(colId);
+        if (collection == null) {
+          var msg = "404 - Collection #"+colId+" not found!";
+          System.err.println("[JavalinServer] Submit job: "+msg);
+          ctx.res.sendError(404, msg);
+          return;
+        }
+        if (!_colMgr.userOwnsCollection(user, colId)) {
+          var msg = "403 Forbidden - User '"+user.getName()+"' does not own collection #"+colId+"!";
+          System.err.println("[JavalinServer] Submit job: "+msg);
+          ctx.res.sendError(403, msg);
+          return;
+        }
+        var job = _jobMgr.submit(user, type, collection, ctx.req.getInputStream());
+        if (job == null) {
+          var msg = "503 Service Unavailable - Too many jobs waiting, try again later!";
+          System.err.println("[JavalinServer] Submit job: "+msg);
+          ctx.header("Retry-After", "60");
+          ctx.res.sendError(503, msg);
+          return;
+        }
+        ctx.status(202);
+        ctx.header("Location", "/api/jobs/"+job.getId());
+        sendJson(ctx, job.toJson());
+      }
+    });
+
+
+    // Get the state and progress ('done' of 'total' units, 0 if unknown) of a job.
+    // | curl -H "Accept: application/json" -H "Authorization: Bearer <token>"
+    // |   http://localhost/api/jobs/0
+    _server.get("/api/jobs/:job-id", ctx -> {
+      var user = checkLogin(ctx);
+      var job = fetchJobFromQuery(ctx, user, "Get job");
+      if (job != null) sendJson(ctx, job.toJson());
+    });
+
+
+    // Cancel a job. Queued jobs are cancelled at once, running ones shortly after (the answer shows
+    // them as still running). Finished jobs are not changed.
+    // | curl -X DELETE -H "Accept: application/json" -H "Authorization: Bearer <token>"
+    // |   http://localhost/api/jobs/0
+    _server.delete("/api/jobs/:job-id", ctx -> {
+      var user = checkLogin(ctx);
+      var job = fetchJobFromQuery(ctx, user, "Cancel job");
+      if (job != null) {
+        _jobMgr.cancel(job);
+        sendJson(ctx, job.toJson());
+      }
+    });
+
+
+    // Download the result of a succeeded job: the BibTeX file of an export, the report of an import or the
+    // clusters of a duplicate scan.
+    // | curl -H "Authorization: Bearer <token>" http://localhost/api/jobs/0/result
+    _server.get("/api/jobs/:job-id/result", ctx -> {
+      var user = checkLogin(ctx);
+      var job = fetchJobFromQuery(ctx, user, "Get job result");
+      if (job != null) {
+        var result = _jobMgr.getResult(job);
+        if (job.getState() != Job.State.SUCCEEDED || result == null || !Files.exists(result)) {
+          var msg = "404 - Job #"+job.getId()+" has no result (yet)!";
+          System.err.println("[JavalinServer] Get job result: "+msg);
+          ctx.res.sendError(404, msg);
+          return;
+        }
+        var export = job.getType() == Job.Type.EXPORT;
+        if (export) ctx.header("Content-Disposition", "attachment; filename=\"export-"+job.getId()+".bib\"");
+        stream(ctx, export? "application/x-bibtex; charset=utf-8" : "application/json", out -> Files.copy(result, out));
+      }
+    });
+
+
+    // Fetch runtime metrics, e.g. the hit rate of the field value pool.
+    // | curl -H "Accept: application/json" -H "Authorization: Bearer <token>"
+    // |   http://localhost/api/metrics
+    _server.get("/api/metrics", ctx -> {
+      var user = checkLogin(ctx);
+      if (user != null) {
+        var metrics = JsonCodec.MAPPER.createObjectNode();
+        var pool = metrics.putObject("valuePool");
+        var fieldTypes = pool.putArray("fieldTypes");
+        for (var fieldType : ValuePool.getFieldTypes()) fieldTypes.add(fieldType.toString().toLowerCase());
+        pool.put("size", ValuePool.getSize());
+        pool.put("maxSize", ValuePool.getMaxSize());
+        pool.put("lookups", ValuePool.getLookups());
+        pool.put("hits", ValuePool.getHits());
+        pool.put("hitRate", ValuePool.getHitRate());
+        pool.put("hitBytes", ValuePool.getHitBytes());
+        ctx.json(metrics);
       }
     });
 
@@ -362,6 +818,171 @@ public class JavalinServer {
   // ----------------------------------------------------------------------------------------------
 
 
+  /** Helper function to send an already serialized JSON response.
+   * @param ctx The web server context.
+   * @param json UTF-8 encoded JSON. */
+  private static void sendJson(Context ctx, byte[] json) {
+    ctx.contentType("application/json");
+    ctx.result(new ByteArrayInputStream(json));
+  }
+
+
+  /** Helper function to parse the pagination parameters 'limit' and 'cursor'. Paging is enabled, if any
+   * of them is given. The cursor is the ID of the last item of the previous page, as returned in the
+   * 'X-Next-Cursor' header. The limit defaults to (and is capped at) MAX_PAGE_SIZE.
+   * @param ctx The web server context.
+   * @param endpointDesc Description of endpoint for console error message.
+   * @return [cursor, limit] with cursor -1 for the first page and limit NO_LIMIT if paging is not
+   *   requested. 'null', if the parameters are malformed (an error was sent then). */
+  private static int[] parsePage(Context ctx, String endpointDesc) throws IOException {
+    var limit = ctx.queryParam("limit");
+    var cursor = ctx.queryParam("cursor");
+    if (limit == null && cursor == null) return new int[] {-1, NO_LIMIT};
+    try {
+      var page = new int[] {
+        (cursor != null)? Integer.parseInt(cursor) : -1,
+        (limit != null)? Math.min(Integer.parseInt(limit), MAX_PAGE_SIZE) : MAX_PAGE_SIZE
+      };
+      if (page[0] >= -1 && page[1] > 0) return page;
+    }
+    catch (NumberFormatException ex) {
+      // Answered below.
+    }
+    var msg = "400 Bad Request - Invalid 'limit' or 'cursor'!";
+    System.err.println("[JavalinServer] "+endpointDesc+": "+msg);
+    ctx.res.sendError(400, msg);
+    return null;
+  }
+
+
+  /** Helper function to tell the client where the next page starts.
+   * @param ctx The web server context.
+   * @param lastId ID of the last item on the current page. */
+  private static void setNextCursor(Context ctx, int lastId) {
+    ctx.header("X-Next-Cursor", Integer.toString(lastId));
+  }
+
+
+  /** Helper function to build a strong ETag from the version of a collection or entry.
+   * Versions restart with the server, so the ETag also contains the server start time.
+   * @param version The version.
+   * @return Quoted ETag. */
+  static String etag(long version) {
+    return "\""+ETAG_EPOCH+"-"+Long.toString(version, 36)+"\"";
+  }
+
+
+  /** Helper function for conditional GET requests. Sets the ETag of the response and answers
+   * '304 Not Modified', if the client already has the current version ('If-None-Match').
+   * @param ctx The web server context.
+   * @param etag The current ETag of the requested resource.
+   * @return 'True', if the response is complete (304), 'false' if the content has to be sent. */
+  private static boolean notModified(Context ctx, String etag) {
+    ctx.header("ETag", etag);
+    var ifNoneMatch = ctx.header("If-None-Match");
+    if (ifNoneMatch != null && etagMatches(ifNoneMatch, etag, true)) {
+      ctx.status(304);
+      return true;
+    }
+    return false;
+  }
+
+
+  /** Helper function to check that an entry fetched before taking the write lock of its collection is
+   * still in there. Otherwise, it was deleted meanwhile and '404 Not Found' is sent.
+   * @param ctx The web server context.
+   * @param collection The collection of the entry, write-locked by the caller.
+   * @param entry The entry fetched before locking.
+   * @param endpointDesc Description of endpoint for console error message.
+   * @return 'True', if the entry is gone (an error was sent then). */
+  private static boolean entryGone(Context ctx, Collection collection, Entry entry, String endpointDesc)
+    throws IOException {
+    if (collection.getEntry(entry.getId()) == entry) return false;
+    var msg = "404 - Entry #"+entry.getId()+" was deleted meanwhile!";
+    System.err.println("[JavalinServer] "+endpointDesc+": "+msg);
+    ctx.res.sendError(404, msg);
+    return true;
+  }
+
+
+  /** Helper function to get the current ETag of an entry fetched before taking the write lock of its collection.
+   * @param collection The collection of the entry, write-locked by the caller.
+   * @param entry The entry fetched before locking. May be 'null'.
+   * @return The ETag or 'null', if the entry does not exist (anymore). */
+  private static String currentEtag(Collection collection, Entry entry) {
+    if (entry == null || collection.getEntry(entry.getId()) != entry) return null;
+    return etag(entry.getVersion());
+  }
+
+
+  /** Helper function for optimistic concurrency control. Answers '412 Precondition Failed', if the
+   * client sent 'If-Match' with an ETag that is no longer current. Call it while holding the write lock,
+   * with the ETag of the resource as it is under that lock.
+   * @param ctx The web server context.
+   * @param etag The current ETag of the resource to change. 'null', if it does not exist (anymore), so that
+   *   any 'If-Match' fails.
+   * @param endpointDesc Description of endpoint for console error message.
+   * @return 'True', if the request must not be applied (an error was sent then). */
+  private static boolean preconditionFailed(Context ctx, String etag, String endpointDesc) throws IOException {
+    var ifMatch = ctx.header("If-Match");
+    if (ifMatch == null || (etag != null && etagMatches(ifMatch, etag, false))) return false;
+    var msg = (etag != null)? "412 Precondition Failed - Resource was changed meanwhile, current ETag is "+etag+"!"
+      : "412 Precondition Failed - Resource does not exist (anymore)!";
+    System.err.println("[JavalinServer] "+endpointDesc+": "+msg);
+    if (etag != null) ctx.header("ETag", etag);
+    ctx.res.sendError(412, msg);
+    return true;
+  }
+
+
+  /** Check if an ETag is listed in an 'If-Match' or 'If-None-Match' header.
+   * @param header Header value: '*' or a comma-separated list of ETags.
+   * @param etag The current (strong) ETag.
+   * @param weak 'True' for the weak comparison of 'If-None-Match', which ignores the 'W/' prefix.
+   * @return 'True', if the ETag matches. */
+  static boolean etagMatches(String header, String etag, boolean weak) {
+    for (var tag : header.split(",")) {
+      tag = tag.trim();
+      if (weak && tag.startsWith("W/")) tag = tag.substring(2);
+      if (tag.equals("*") || tag.equals(etag)) return true;
+    }
+    return false;
+  }
+
+
+  /** Helper function to stream a JSON response straight to the client, without building it in memory.
+   * No content length is set, so the servlet container switches to chunked transfer encoding once the
+   * response outgrows its buffer, and the first bytes are sent while the rest is still being written.
+   * @param ctx The web server context.
+   * @param writer Writes the JSON to the given stream. */
+  private static void streamJson(Context ctx, ResponseWriter writer) {
+    stream(ctx, "application/json", writer);
+  }
+
+
+  /** Helper function to stream a response of any type, like {@link #streamJson}.
+   * @param ctx The web server context.
+   * @param contentType Content type of the response.
+   * @param writer Writes the response to the given stream. */
+  private static void stream(Context ctx, String contentType, ResponseWriter writer) {
+    ctx.contentType(contentType);
+    try {
+      var out = new BufferedOutputStream(ctx.res.getOutputStream(), STREAM_BUFFER_SIZE);
+      writer.write(out);
+      out.flush();
+    }
+    catch (IOException ex) {
+      System.err.println("[JavalinServer] stream() IOException: "+ex);  // Most likely the client went away.
+    }
+  }
+
+
+  /** Writes a response to a stream. */
+  private interface ResponseWriter {
+    void write(OutputStream out) throws IOException;
+  }
+
+
   /** Helper function to perform a header check for the user bearer token.
    * @param ctx The web server context.
    * @return The user for the token or 'null' if the request was invalid. */
@@ -427,6 +1048,35 @@ public class JavalinServer {
   }
 
 
+  /** Try to parse a job from the URL and retrieve it. Users only see their own jobs.
+   * @param ctx The web server context.
+   * @param user The user that did the query.
+   * @param endpointDesc Description of endpoint for console error message.
+   * @return The job or 'null', if access failed (unauthorized or not found). */
+  private Job fetchJobFromQuery(Context ctx, User user, String endpointDesc) {
+    if (user == null) return null;
+    try {
+      try {
+        var jobId = Integer.parseInt(ctx.pathParam("job-id"));
+        var job = _jobMgr.getJob(jobId);
+        if (job != null && job.getUserId() == user.getId()) return job;
+        var msg = "404 - Job #"+jobId+" not found!";
+        System.err.println("[JavalinServer] "+endpointDesc+": "+msg);
+        ctx.res.sendError(404, msg);
+      }
+      catch (NumberFormatException ex) {
+        var msg = "400 Bad Request - Failed to parse job identifier!";
+        System.err.println("[JavalinServer] "+endpointDesc+": "+msg);
+        ctx.res.sendError(400, msg);
+      }
+    }
+    catch (IOException ex) {
+      System.err.println("[JavalinServer] fetchJobFromQuery() IOException: "+ex);
+    }
+    return null;
+  }
+
+
   /** Try to parse an entry from URL paramters and retrieve it.
    * This function also chains the user access validation to the underlying collection!
    * @param ctx The web server context.
@@ -439,9 +1089,8 @@ public class JavalinServer {
       try {
         try {
           var entryId = Integer.parseInt(ctx.pathParam("entry-id"));
-          for (var entry : collection.getEntries()) {
-            if (entry.getId() == entryId) return entry;
-          }
+          var entry = collection.getEntry(entryId);
+          if (entry != null) return entry;
         }
         catch (NumberFormatException ex) {
           var msg = "400 Bad Request - Failed to parse entry identifier!";
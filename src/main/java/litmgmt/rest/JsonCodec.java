@@ -0,0 +1,139 @@
+package litmgmt.rest;
+
+import java.util.List;
+import java.util.Objects;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import litmgmt.citation.description.DescriptionList;
+import litmgmt.citation.description.EntryDescription;
+
+
+/** Shared JSON infrastructure of the REST layer. Once configured, the object mapper and the readers and
+ * writers derived from it are thread-safe, so they are built once here instead of in every request.
+ * Request bodies are bound directly to the small request classes below, without building a JSON tree. */
+class JsonCodec {
+
+  /** Object mapper for the REST layer, also used by Javalin for 'ctx.json()'. Unknown properties are
+   * ignored, missing or 'null' required properties fail like malformed JSON (JsonProcessingException). */
+  static final ObjectMapper MAPPER = new ObjectMapper()
+    .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+  static final ObjectReader REGISTRATION_READER = MAPPER.readerFor(Registration.class);
+  static final ObjectReader CREDENTIALS_READER = MAPPER.readerFor(Credentials.class);
+  static final ObjectReader NAME_READER = MAPPER.readerFor(NameRequest.class);
+  static final ObjectReader ENTRY_READER = MAPPER.readerFor(EntryRequest.class);
+  static final ObjectReader BATCH_READER = MAPPER.readerFor(BatchOperation[].class);
+  static final ObjectWriter DESCRIPTIONS_WRITER = MAPPER.writerFor(EntryDescription[].class);
+
+  private static volatile byte[] _entryDescriptions; // The static entry descriptions, serialized on first use.
+
+
+  /** Get the entry type descriptions as JSON. They never change, so they are serialized only once.
+   * @return UTF-8 encoded JSON array.
+   * @throws JsonProcessingException Thrown if the descriptions cannot be serialized. */
+  static byte[] entryDescriptions() throws JsonProcessingException {
+    var json = _entryDescriptions;
+    if (json == null) {
+      json = DESCRIPTIONS_WRITER.writeValueAsBytes(DescriptionList.getEntryDescriptions());
+      _entryDescriptions = json;
+    }
+    return json;
+  }
+
+
+  // __________________________________________________________________________
+  // Request bodies.
+
+  /** Body of the register request. */
+  static class Registration {
+    final String name, email, password;
+
+    @JsonCreator
+    Registration(@JsonProperty(value = "name", required = true) String name,
+                 @JsonProperty(value = "email", required = true) String email,
+                 @JsonProperty(value = "password", required = true) String password) {
+      this.name = Objects.requireNonNull(name);
+      this.email = Objects.requireNonNull(email);
+      this.password = Objects.requireNonNull(password);
+    }
+  }
+
+
+  /** Body of the login request. */
+  static class Credentials {
+    final String name, password;
+
+    @JsonCreator
+    Credentials(@JsonProperty(value = "name", required = true) String name,
+                @JsonProperty(value = "password", required = true) String password) {
+      this.name = Objects.requireNonNull(name);
+      this.password = Objects.requireNonNull(password);
+    }
+  }
+
+
+  /** Body of the requests to create or rename a collection. */
+  static class NameRequest {
+    final String name;
+
+    @JsonCreator
+    NameRequest(@JsonProperty(value = "name", required = true) String name) {
+      this.name = Objects.requireNonNull(name);
+    }
+  }
+
+
+  /** Body of the requests to create or update an entry. All properties are optional for updates. */
+  static class EntryRequest {
+    final String citeKey, entryType;
+    final List<FieldValue> fields;
+
+    @JsonCreator
+    EntryRequest(@JsonProperty("citeKey") String citeKey,
+                 @JsonProperty("entryType") String entryType,
+                 @JsonProperty("fields") List<FieldValue> fields) {
+      this.citeKey = citeKey;
+      this.entryType = entryType;
+      this.fields = fields;
+    }
+  }
+
+
+  /** An operation of a batch request: 'create' (like the create request), 'update' or 'delete' an entry.
+   * Updates and deletes name the entry by 'entryId', optionally with the ETag it must still have. */
+  static class BatchOperation extends EntryRequest {
+    final String op, ifMatch;
+    final Integer entryId;
+
+    @JsonCreator
+    BatchOperation(@JsonProperty(value = "op", required = true) String op,
+                   @JsonProperty("entryId") Integer entryId,
+                   @JsonProperty("ifMatch") String ifMatch,
+                   @JsonProperty("citeKey") String citeKey,
+                   @JsonProperty("entryType") String entryType,
+                   @JsonProperty("fields") List<FieldValue> fields) {
+      super(citeKey, entryType, fields);
+      this.op = Objects.requireNonNull(op);
+      this.entryId = entryId;
+      this.ifMatch = ifMatch;
+    }
+  }
+
+
+  /** A single field of an entry request. */
+  static class FieldValue {
+    final String fieldType, value;
+
+    @JsonCreator
+    FieldValue(@JsonProperty(value = "fieldType", required = true) String fieldType,
+               @JsonProperty(value = "value", required = true) String value) {
+      this.fieldType = Objects.requireNonNull(fieldType);
+      this.value = value;  // May be explicitly 'null'.
+    }
+  }
+}
@@ -1,9 +1,14 @@
 package litmgmt.users;
 
+import java.io.IOException;
 import java.security.MessageDigest;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
-import com.fasterxml.jackson.databind.JsonNode;
+import java.util.Set;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import litmgmt.persistency.IdHelper;
 
 
@@ -15,7 +20,7 @@ public class User {
   private String _name;               // User name.
   private String _email;              // E-mail of the user.
   private String _passwordHash;       // SHA-1 password hash.
-  private List<Integer> _collections; // List of collections this user has.
+  private Set<Integer> _collections;  // Collections this user has, in order of creation. Guarded by 'this'.
   private MessageDigest _md5;         // Hashing instance.
 
 
@@ -26,7 +31,7 @@ public class User {
   public User(String name, String email, String password) {
     this(name, email);
     _id = IdHelper.GetNextUserId();
-    _collections = new ArrayList<Integer>();
+    _collections = new LinkedHashSet<Integer>();
     _passwordHash = getHashForString(password);
   }
 
@@ -68,61 +73,98 @@ public class User {
 
   /** Add a collection to this user's repository.
    * @param colId Identifier of the collection to add. */
-  public void addCollection(int colId) {
+  public synchronized void addCollection(int colId) {
     _collections.add(colId);
   }
 
 
   /** Remove a collection from this user's repository.
    * @param colId Identifier of the collection to remove. */
-  public void removeCollection(int colId) {
-    _collections.remove(Integer.valueOf(colId));
+  public synchronized void removeCollection(int colId) {
+    _collections.remove(colId);
+  }
+
+
+  /** Check if a collection belongs to this user.
+   * @param colId Collection identifier.
+   * @return 'True', if the collection is in this user's repository. */
+  public synchronized boolean ownsCollection(int colId) {
+    return _collections.contains(colId);
+  }
+
+
+  /** Restore a user with previously persisted properties.
+   * @param id User identifier.
+   * @param name Name of the user.
+   * @param email E-mail address of that user.
+   * @param passwordHash SHA-1 password hash.
+   * @param collections List of collections this user has.
+   * @return The restored user. */
+  public static User restoreUser(int id, String name, String email, String passwordHash, List<Integer> collections) {
+    var user = new User(name, email);
+    user._id = id;
+    user._passwordHash = passwordHash;
+    user._collections = new LinkedHashSet<Integer>(collections);
+    return user;
   }
 
 
   /** Load a user by restoring all its fields read from a JSON object.
-   * @param json JSON object to initialize from.
-   * @return An user object or 'null' on parser failure. */
-  public static User loadUserFromJson(JsonNode json) {
-    try {
-      var user = new User(json.get("name").asText(), json.get("email").asText());
-      user._id = json.get("id").asInt();
-      user._passwordHash = json.get("pwhash").asText();
-      user._collections = new ArrayList<Integer>();
-      for (var colId : json.get("collections")) {
-        user._collections.add(colId.asInt());
+   * @param parser JSON parser, positioned at the start of the user object.
+   * @return An user object or 'null' on invalid input. The parser is moved behind the object in any case.
+   * @throws IOException Thrown if the JSON itself is malformed. */
+  public static User loadUserFromJson(JsonParser parser) throws IOException {
+    int id = -1;
+    String name = null, email = null, pwHash = null;
+    var collections = new ArrayList<Integer>();
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      var key = parser.getCurrentName();
+      parser.nextToken();
+      switch (key) {
+        case "id": id = parser.getIntValue(); break;
+        case "name": name = parser.getText(); break;
+        case "email": email = parser.getText(); break;
+        case "pwhash": pwHash = parser.getText(); break;
+        case "collections":
+          while (parser.nextToken() == JsonToken.VALUE_NUMBER_INT) collections.add(parser.getIntValue());
+          break;
+        default: parser.skipChildren();
       }
-      return user;
     }
-    catch (Exception ex) {
-      System.err.println("[User] Failed to initialize from JSON! Input was:\n"+json);
+    if (id < 0 || name == null || email == null || pwHash == null) {
+      System.err.println("[User] Failed to initialize user #"+id+" ('"+name+"') from JSON!");
       return null;
     }
+    return restoreUser(id, name, email, pwHash, collections);
   }
 
 
   /** Output this user's properties as JSON object.
-   * @return JSON containing all properties of this object. */
-  public String saveUserAsJson() {
-    String cols = "";
-    for (int i = 0; i < _collections.size(); i++) {
-      cols += _collections.get(i);
-      if (i < _collections.size() - 1) cols += ", ";
-    }
-    return
-      "    {\n"+
-      "      \"id\": "+_id+",\n"+
-      "      \"name\": \""+_name+"\",\n"+
-      "      \"email\": \""+_email+"\",\n"+
-      "      \"pwhash\": \""+_passwordHash+"\",\n"+
-      "      \"collections\": ["+cols+"]\n"+
-      "    }";
+   * @param gen JSON generator to stream the object to.
+   * @throws IOException Thrown if the generator fails to write. */
+  public void saveUserAsJson(JsonGenerator gen) throws IOException {
+    gen.writeStartObject();
+    gen.writeNumberField("id", _id);
+    gen.writeStringField("name", _name);
+    gen.writeStringField("email", _email);
+    gen.writeStringField("pwhash", _passwordHash);
+    gen.writeArrayFieldStart("collections");
+    for (var colId : GetAllCollections()) gen.writeNumber(colId);
+    gen.writeEndArray();
+    gen.writeEndObject();
   }
 
 
   // __________________________________________________________________________
   // GET methods.
 
+  /** Get the user identifier.
+   * @return The user ID. */
+  public int getId() {
+    return _id;
+  }
+
+
   /** Get name of user.
    * @return User name. */
   public String getName() {
@@ -137,9 +179,16 @@ public class User {
   }
 
 
+  /** Get the SHA-1 hash of the user's password.
+   * @return Password hash. */
+  public String getPasswordHash() {
+    return _passwordHash;
+  }
+
+
   /** Retrieve all collections of a user.
-   * @return List with all collections. If none exists, the list will be empty! */
-  public List<Integer> GetAllCollections() {
-    return _collections;
+   * @return Copy of the collection list. If none exists, the list will be empty! */
+  public synchronized List<Integer> GetAllCollections() {
+    return new ArrayList<Integer>(_collections);
   }
 }
@@ -5,6 +5,7 @@ import java.util.Map;
 import java.util.regex.Pattern;
 import java.util.ArrayList;
 import java.util.HashMap;
+import litmgmt.persistency.Journal;
 
 
 /** This class performs user authentication, log in, log out and registration actions. */
@@ -41,6 +42,7 @@ public class UserAuthenticator {
     if (!isValidMail(eMail)) throw new UserEmailFormatException(eMail);
     var newUser = new User(userName, eMail, password);
     _users.add(newUser);
+    Journal.logCreateUser(newUser);
     return true;
   }
 
@@ -0,0 +1,50 @@
+package litmgmt.citation.bibtex;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import litmgmt.citation.collections.Collection;
+import litmgmt.citation.description.EntryType;
+import litmgmt.citation.description.FieldType;
+
+
+/** Measures the throughput of the BibTeX import in records per second: parsing a file of exported
+ * entries with six fields each, and inserting them into an empty collection.
+ * Not a unit test, run it with 'mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=litmgmt.citation.bibtex.BibTexImportBenchmark'.
+ * Optional argument: number of records. */
+public class BibTexImportBenchmark {
+
+  private static final int ROUNDS = 10;
+
+
+  public static void main(final String[] args) throws Exception {
+    var size = (args.length > 0)? Integer.parseInt(args[0]) : 100000;
+    var source = Collection.restoreCollection(0, "source");
+    for (int i = 0; i < size; i++) {
+      var entry = source.restoreEntry(i, "key"+i, EntryType.ARTICLE);
+      entry.setField(FieldType.AUTHOR, "Author "+i+" and M{\\\"u}ller, J{\\\"u}rgen");
+      entry.setField(FieldType.TITLE, "A rather long title of entry number "+i+" about {DNA}");
+      entry.setField(FieldType.JOURNAL, "Journal of Benchmarks & Measurements");
+      entry.setField(FieldType.YEAR, Integer.toString(1950 + i % 70));
+      entry.setField(FieldType.PAGES, "1--10");
+      entry.setField(FieldType.NOTE, (i % 10 == 0)? "Speedup of 50% on } unbalanced input" : "Cited often");
+    }
+    var file = new ByteArrayOutputStream();
+    BibTexWriter.writeCollection(source, file);
+    var bytes = file.toByteArray();
+    System.out.printf("%d records, %.1f MB, %d processors%n", size, bytes.length / 1e6,
+      Runtime.getRuntime().availableProcessors());
+    System.out.printf("%10s %12s %12s %14s%n", "round", "parse [ms]", "insert [ms]", "records/s");
+    for (int round = 1; round <= ROUNDS; round++) {  // The first rounds warm up the JIT.
+      var start = System.nanoTime();
+      var records = BibTexReader.read(new ByteArrayInputStream(bytes));
+      var parsed = System.nanoTime();
+      var target = Collection.restoreCollection(round, "target");
+      var count = BibTexReader.importRecords(target, records);
+      var end = System.nanoTime();
+      if (count != size) throw new IllegalStateException("Imported "+count+" of "+size+" records");
+      System.out.printf("%10d %12.1f %12.1f %14.0f%n", round, (parsed - start) / 1e6, (end - parsed) / 1e6,
+        count / ((end - start) / 1e9));
+    }
+  }
+}
@@ -0,0 +1,100 @@
+package litmgmt.citation.bibtex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import litmgmt.citation.collections.Collection;
+import litmgmt.citation.description.EntryType;
+import litmgmt.citation.description.FieldType;
+import org.junit.Test;
+
+
+/** Tests for the BibTeX import. */
+public class BibTexReaderTest {
+
+  /** Values in all BibTeX forms must be read, broken records must be reported with their line. */
+  @Test
+  public void parsesRecords() throws Exception {
+    var records = read(
+      "% A comment\n"
+      +"@string{acm = \"ACM\"}\n"
+      +"@comment{ignored = {x}}\n"
+      +"@Article{knuth74,\n"
+      +"  author  = {Donald E.\n   Knuth},\n"
+      +"  title   = \"Structured {P}rogramming with {\\tt go to} Statements\",\n"
+      +"  journal = acm # \" Computing Surveys\",\n"
+      +"  year    = 1974, month = dec,\n"
+      +"  doi     = {10.1145/356635.356640},\n"
+      +"}\n"
+      +"@book(dup, title = {Twice}, author = {A}, publisher = {P}, year = 2000)\n"
+      +"@unknown{u, title = {?}}\n"
+      +"@misc{bad, title = {open}\n"
+    );
+    assertEquals(4, records.size());
+    var article = records.get(0);
+    assertEquals(4, article.getLine());
+    assertEquals("knuth74", article.getCiteKey());
+    assertNull(article.getError());
+    assertEquals("Donald E. Knuth", article.getFields().get(FieldType.AUTHOR));
+    assertEquals("Structured {P}rogramming with {\\tt go to} Statements", article.getFields().get(FieldType.TITLE));
+    assertEquals("ACM Computing Surveys", article.getFields().get(FieldType.JOURNAL));
+    assertEquals("1974", article.getFields().get(FieldType.YEAR));
+    assertEquals("December", article.getFields().get(FieldType.MONTH));
+    assertEquals(List.of("Unknown field 'doi' skipped"), article.getWarnings());
+    assertEquals(List.of(), records.get(1).getWarnings());
+    assertEquals("Unknown entry type '@unknown'", records.get(2).getError());
+    assertEquals(14, records.get(3).getLine());
+    assertEquals("Record '@misc' is not closed", records.get(3).getError());
+  }
+
+
+  /** Imported entries must get their fields, duplicate cite keys must be rejected per record. */
+  @Test
+  public void importsRecords() throws Exception {
+    var collection = Collection.restoreCollection(0, "col");
+    collection.restoreEntry(1, "old", EntryType.MISC);
+    var records = read("@misc{a, note = {1}}\n@misc{old, note = {2}}\n@misc{a, note = {3}}\n@misc{b}\n");
+    assertEquals(2, BibTexReader.importRecords(collection, records));
+    assertEquals("1", collection.getEntryByCiteKey("a").getField(FieldType.NOTE));
+    assertEquals("Duplicate cite key 'old'", records.get(1).getError());
+    assertEquals("Duplicate cite key 'a'", records.get(2).getError());
+
+    var out = new ByteArrayOutputStream();
+    BibTexReader.writeReportJson(records, out);
+    assertEquals("{\"imported\":2,\"rejected\":2,\"records\":[{\"line\":2,\"citeKey\":\"old\",\"error\":"
+      +"\"Duplicate cite key 'old'\"},{\"line\":3,\"citeKey\":\"a\",\"error\":\"Duplicate cite key 'a'\"}]}",
+      new String(out.toByteArray(), StandardCharsets.UTF_8));
+  }
+
+
+  /** An exported collection must be imported with the same entries. */
+  @Test
+  public void readsExport() throws Exception {
+    var source = Collection.restoreCollection(0, "source");
+    var entry = source.restoreEntry(1, "key", EntryType.INPROCEEDINGS);
+    entry.setField(FieldType.TITLE, "50% of {DNA} } unbalanced");
+    entry.setField(FieldType.AUTHOR, "M{\\\"u}ller, J{\\\"u}rgen and Jane Doe");
+    entry.setField(FieldType.BOOKTITLE, "Proc. of Tests & Benchmarks");
+    var out = new ByteArrayOutputStream();
+    BibTexWriter.writeCollection(source, out);
+
+    var records = BibTexReader.read(new ByteArrayInputStream(out.toByteArray()));
+    var target = Collection.restoreCollection(1, "target");
+    assertEquals(1, BibTexReader.importRecords(target, records));
+    var copy = target.getEntryByCiteKey("key");
+    assertEquals(EntryType.INPROCEEDINGS, copy.getType());
+    assertEquals(entry.getFieldOrder(), copy.getFieldOrder());
+    assertEquals("50\\% of {DNA} \\textbraceright{} unbalanced", copy.getField(FieldType.TITLE));
+    assertEquals(entry.getField(FieldType.AUTHOR), copy.getField(FieldType.AUTHOR));
+    assertEquals("Proc. of Tests \\& Benchmarks", copy.getField(FieldType.BOOKTITLE));
+  }
+
+
+  private static List<BibTexReader.Record> read(String bibtex) throws Exception {
+    return BibTexReader.read(new ByteArrayInputStream(bibtex.getBytes(StandardCharsets.UTF_8)));
+  }
+}
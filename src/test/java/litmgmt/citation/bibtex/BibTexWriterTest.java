@@ -0,0 +1,52 @@
+package litmgmt.citation.bibtex;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import litmgmt.citation.collections.Collection;
+import litmgmt.citation.description.EntryType;
+import litmgmt.citation.description.FieldType;
+import org.junit.Test;
+
+
+/** Tests for the BibTeX export. */
+public class BibTexWriterTest {
+
+  /** Entries must be written in ID order with their fields in the order they were set. */
+  @Test
+  public void writesCollection() throws Exception {
+    var collection = Collection.restoreCollection(0, "col");
+    var book = collection.restoreEntry(2, "knuth1968", EntryType.BOOK);
+    book.setField(FieldType.TITLE, "The Art of Computer Programming");
+    book.setField(FieldType.AUTHOR, "Donald E. Knuth");
+    var article = collection.restoreEntry(1, "müller 2020", EntryType.ARTICLE);
+    article.setField(FieldType.YEAR, "2020");
+    collection.deleteEntry(collection.restoreEntry(3, "gone", EntryType.MISC));
+
+    var out = new ByteArrayOutputStream();
+    assertEquals(2, BibTexWriter.writeCollection(collection, out));
+    assertEquals("@article{müller_2020,\n  year = {2020}\n}\n\n"
+      +"@book{knuth1968,\n  title = {The Art of Computer Programming},\n  author = {Donald E. Knuth}\n}\n\n",
+      new String(out.toByteArray(), StandardCharsets.UTF_8));
+  }
+
+
+  /** Values must keep LaTeX markup, but never break the record or the LaTeX document. */
+  @Test
+  public void escapesValues() {
+    assertEquals("Plain text", escape("Plain text"));
+    assertEquals("{M\\\"u}ller and {DNA}", escape("{M\\\"u}ller and {DNA}"));
+    assertEquals("50\\% \\& more \\#1, already \\& escaped", escape("50% & more #1, already \\& escaped"));
+    assertEquals("\\textbraceright{}{a}\\textbraceleft{} x", escape("}{a}{ x"));
+    assertEquals("\\textbraceleft{}{b}", escape("{{b}"));
+    assertEquals("two lines", escape("two\nlines"));
+  }
+
+
+  private static String escape(String value) {
+    var text = new StringBuilder();
+    BibTexWriter.appendValue(value, text);
+    return text.toString();
+  }
+}
@@ -0,0 +1,75 @@
+package litmgmt.citation.collections;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import litmgmt.citation.description.EntryType;
+import litmgmt.citation.description.FieldType;
+import org.junit.Test;
+
+
+/** Tests for the author index of the collections. */
+public class AuthorIndexTest {
+
+  /** Name lists in both BibTeX forms must be split and normalized. */
+  @Test
+  public void parsesNameLists() {
+    var names = AuthorIndex.parseNames(
+      "Donald E. Knuth and van der Aalst, Wil and Ford, Jr., Henry and {Barnes and Noble} and others"
+    );
+    assertEquals(4, names.size());
+    assertEquals(List.of("Knuth", "Donald E.", ""), List.of(names.get(0)));
+    assertEquals(List.of("van der Aalst", "Wil", ""), List.of(names.get(1)));
+    assertEquals(List.of("Ford", "Henry", "Jr."), List.of(names.get(2)));
+    assertEquals(List.of("Barnes and Noble", "", ""), List.of(names.get(3)));
+    assertEquals(AuthorIndex.key("Tolkien", "J. R. R."), AuthorIndex.key("TOLKIEN", "J.R.R."));
+    assertEquals(AuthorIndex.key("Müller", "Jürgen"), AuthorIndex.key("Muller", "jurgen"));
+  }
+
+
+  /** Authors must be merged across name forms, fields and collections, and follow changes. */
+  @Test
+  public void indexesAuthorsAndEditors() {
+    var col1 = new Collection(0, "col1");
+    var col2 = new Collection(1, "col2");
+    var e1 = col1.restoreEntry(1, "a", EntryType.ARTICLE);
+    e1.setField(FieldType.AUTHOR, "Judith Stevens-Long and Jürgen Müller");
+    var e2 = col1.restoreEntry(2, "b", EntryType.BOOK);
+    e2.setField(FieldType.EDITOR, "Stevens-Long, Judith");
+    e2.setField(FieldType.AUTHOR, "Stevens-Long, Judith");
+    col2.restoreEntry(3, "c", EntryType.ARTICLE).setField(FieldType.AUTHOR, "Stevens-Long, Michael and Muller, J.");
+    var cols = List.of(col1, col2);
+
+    assertEquals(List.of("Muller, J.:1", "Müller, Jürgen:1", "Stevens-Long, Judith:2", "Stevens-Long, Michael:1"),
+      authors(AuthorIndex.listAuthors(cols, "", 10)));
+    assertEquals(List.of("Stevens-Long, Judith:2"), authors(AuthorIndex.listAuthors(cols, "stevens-long, j", 10)));
+    assertEquals(List.of("Muller, J.:1"), authors(AuthorIndex.listAuthors(cols, "", 1)));
+    assertEquals(List.of(1, 2, 3), ids(AuthorIndex.findEntries(cols, "Stevens-Long", 10)));
+    assertEquals(List.of(1, 2), ids(AuthorIndex.findEntries(cols, "judith stevens-long", 10)));
+    assertEquals(List.of(1), ids(AuthorIndex.findEntries(cols, "MULLER, Jurgen", 10)));
+
+    e2.setField(FieldType.AUTHOR, null);  // Still the editor.
+    assertEquals(List.of(1, 2), ids(AuthorIndex.findEntries(cols, "Stevens-Long, Judith", 10)));
+    e2.setField(FieldType.EDITOR, "Jane Doe");
+    e1.setField(FieldType.AUTHOR, "Müller, Jürgen");
+    assertEquals(List.of(), ids(AuthorIndex.findEntries(cols, "Stevens-Long, Judith", 10)));
+    assertEquals(List.of(2), ids(AuthorIndex.findEntries(cols, "Doe", 10)));
+    col1.deleteEntry(e1);
+    assertEquals(List.of("Doe, Jane:1"), authors(AuthorIndex.listAuthors(List.of(col1), "", 10)));
+  }
+
+
+  private static List<String> authors(List<AuthorIndex.AuthorCount> authors) {
+    var names = new ArrayList<String>();
+    for (var author : authors) names.add(author.getName()+":"+author.getCount());
+    return names;
+  }
+
+
+  private static List<Integer> ids(List<AuthorIndex.AuthorMatch> matches) {
+    var ids = new ArrayList<Integer>();
+    for (var match : matches) ids.add(match.getEntry().getId());
+    return ids;
+  }
+}
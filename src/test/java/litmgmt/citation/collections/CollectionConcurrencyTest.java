@@ -0,0 +1,237 @@
+package litmgmt.citation.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import com.fasterxml.jackson.core.JsonFactory;
+import litmgmt.citation.description.EntryType;
+import litmgmt.citation.description.FieldType;
+import litmgmt.persistency.SegmentStore;
+import litmgmt.users.User;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+
+/** Multi-threaded stress tests for the collections layer. Every test lets several threads
+ * hammer the same objects at once and then checks that no update got lost. */
+public class CollectionConcurrencyTest {
+
+  private static final int THREADS = 8;
+
+  @Rule
+  public TemporaryFolder _folder = new TemporaryFolder();
+
+
+  /** Entries created concurrently in one collection must all be there. */
+  @Test
+  public void concurrentEntryCreationLosesNoEntry() throws Exception {
+    var collection = new Collection(0, "stress");
+    var perThread = 2000;
+    runConcurrently(thread -> {
+      for (int i = 0; i < perThread; i++) {
+        assertNotNull(collection.createEntry("key-"+thread+"-"+i, EntryType.ARTICLE));
+      }
+    });
+    var keys = new HashSet<String>();
+    for (var entry : collection.getEntries()) keys.add(entry.getCiteKey());
+    assertEquals(THREADS * perThread, collection.getEntryCount());
+    assertEquals(THREADS * perThread, keys.size());
+  }
+
+
+  /** Of several threads creating the same cite key, exactly one must succeed. */
+  @Test
+  public void concurrentDuplicateCiteKeysAreRejected() throws Exception {
+    var collection = new Collection(0, "stress");
+    var keyCount = 1000;
+    var created = new AtomicInteger();
+    runConcurrently(thread -> {
+      for (int i = 0; i < keyCount; i++) {
+        if (collection.createEntry("key-"+i, EntryType.BOOK) != null) created.incrementAndGet();
+      }
+    });
+    assertEquals(keyCount, created.get());
+    assertEquals(keyCount, collection.getEntryCount());
+  }
+
+
+  /** Fields set concurrently on the same entries must all be kept, including their order. */
+  @Test
+  public void concurrentFieldUpdatesLoseNoField() throws Exception {
+    var collection = new Collection(0, "stress");
+    var entries = new ArrayList<Entry>();
+    for (int i = 0; i < 500; i++) entries.add(collection.createEntry("key-"+i, EntryType.MISC));
+    var fieldTypes = FieldType.values();
+    runConcurrently(thread -> {
+      for (var entry : entries) {
+        for (int f = thread; f < fieldTypes.length; f += THREADS) {
+          entry.setField(fieldTypes[f], entry.getCiteKey()+"/"+f);
+        }
+      }
+    });
+    for (var entry : entries) {
+      assertEquals(fieldTypes.length, entry.getFieldOrder().size());
+      for (int f = 0; f < fieldTypes.length; f++) {
+        assertEquals(entry.getCiteKey()+"/"+f, entry.getField(fieldTypes[f]));
+      }
+    }
+  }
+
+
+  /** Readers serializing a collection must not fail while it is changed. */
+  @Test
+  public void readersDoNotFailDuringWrites() throws Exception {
+    var collection = new Collection(0, "stress");
+    var jsonFactory = new JsonFactory();
+    runConcurrently(thread -> {
+      for (int i = 0; i < 500; i++) {
+        if (thread % 2 == 0) {
+          var entry = collection.createEntry("key-"+thread+"-"+i, EntryType.ARTICLE);
+          entry.setField(FieldType.TITLE, "Title "+i);
+          if (i % 3 == 0) collection.deleteEntry(entry);
+        }
+        else {
+          try (var gen = jsonFactory.createGenerator(new StringWriter())) {
+            collection.saveCollectionAsJson(gen);
+          }
+          for (var entry : collection.getEntries()) entry.getFields();
+        }
+      }
+    });
+    assertEquals((THREADS / 2) * (500 - 167), collection.getEntryCount());
+  }
+
+
+  /** A field update waiting for the lock while its entry is deleted must not be counted in the collection. */
+  @Test
+  public void updateOfDeletedEntryIsNotIndexed() throws Exception {
+    var collection = new Collection(0, "stress");
+    var entry = collection.createEntry("key", EntryType.ARTICLE);
+    collection.getLock().writeLock().lock();
+    var writer = new Thread(() -> entry.setField(FieldType.YEAR, "1999"));
+    writer.start();
+    while (!collection.getLock().hasQueuedThread(writer)) Thread.yield();
+    collection.deleteEntry(entry);
+    collection.getLock().writeLock().unlock();
+    writer.join();
+    assertEquals("1999", entry.getField(FieldType.YEAR));
+    assertEquals(0, FacetCounts.collect(List.of(collection)).getCount(FieldType.YEAR, "1999"));
+  }
+
+
+  /** Each user creating the same collection names concurrently must end up with exactly one of each. */
+  @Test
+  public void concurrentCollectionCreationKeepsNamesUnique() throws Exception {
+    var colMgr = new CollectionManager();
+    var users = new ArrayList<User>();
+    for (int i = 0; i < 4; i++) users.add(new User("user"+i, "user"+i+"@example.com", "secret"));
+    runConcurrently(thread -> {
+      for (var user : users) {
+        for (int i = 0; i < 50; i++) colMgr.createCollection(user, "col-"+i);
+      }
+    });
+    for (var user : users) {
+      var names = new HashSet<String>();
+      for (var col : colMgr.getAllCollections(user)) names.add(col.getName());
+      assertEquals(50, user.GetAllCollections().size());
+      assertEquals(50, names.size());
+    }
+    assertEquals(users.size() * 50, colMgr.getCollectionList().size());
+  }
+
+
+  /** In segment mode, a slow load must only delay the requests for that collection. They must all get
+   * the one loaded instance. */
+  @Test
+  public void coldLoadBlocksOnlyItsCollection() throws Exception {
+    var loading = new CountDownLatch(1);
+    var release = new CountDownLatch(1);
+    var loads = new AtomicInteger();
+    var store = new SegmentStore(_folder.getRoot().getPath()) {
+      @Override
+      public Collection load(int colId) {
+        if (colId == 0) {
+          loads.incrementAndGet();
+          loading.countDown();
+          try {
+            release.await();
+          }
+          catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+          }
+        }
+        return super.load(colId);
+      }
+    };
+    for (int id = 0; id < 2; id++) {
+      var col = new Collection(id, "col"+id);
+      col.restoreEntry(id, "key"+id, EntryType.MISC);
+      assertTrue(store.save(col));
+    }
+    var colMgr = new CollectionManager();
+    colMgr.enableSegmentStorage(store, Long.MAX_VALUE);
+
+    var pool = Executors.newFixedThreadPool(THREADS + 1);
+    try {
+      var cold = new ArrayList<Future<Collection>>();
+      for (int t = 0; t < THREADS; t++) cold.add(pool.submit(() -> colMgr.getCollection(0)));
+      assertTrue(loading.await(10, TimeUnit.SECONDS));
+      assertEquals("col1", pool.submit(() -> colMgr.getCollection(1)).get(10, TimeUnit.SECONDS).getName());
+      release.countDown();
+      for (var future : cold) assertSame(cold.get(0).get(), future.get());
+      assertEquals("col0", cold.get(0).get().getName());
+      assertEquals(1, loads.get());
+    }
+    finally {
+      release.countDown();
+      pool.shutdownNow();
+    }
+  }
+
+
+  // __________________________________________________________________________
+
+  /** Work of one test thread. */
+  private interface Task {
+    void run(int thread) throws Exception;
+  }
+
+
+  /** Run a task on all test threads at once and rethrow the first failure.
+   * @param task The task to run. It gets the thread number as argument. */
+  private static void runConcurrently(Task task) throws Exception {
+    var pool = Executors.newFixedThreadPool(THREADS);
+    var start = new CountDownLatch(1);
+    try {
+      var calls = new ArrayList<Callable<Void>>();
+      for (int t = 0; t < THREADS; t++) {
+        var thread = t;
+        calls.add(() -> {
+          start.await();
+          task.run(thread);
+          return null;
+        });
+      }
+      var futures = new ArrayList<Future<Void>>();
+      for (var call : calls) futures.add(pool.submit(call));
+      start.countDown();
+      for (var future : futures) future.get();
+    }
+    finally {
+      pool.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,52 @@
+package litmgmt.citation.collections;
+
+import java.util.Random;
+import litmgmt.citation.description.EntryType;
+
+
+/** Micro benchmark for the entry lookups of a collection. Shows that lookups by ID and cite key
+ * as well as the cite key conflict check stay flat as the collection grows.
+ * Not a unit test, run it with 'mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=litmgmt.citation.collections.CollectionLookupBenchmark'. */
+public class CollectionLookupBenchmark {
+
+  private static final int[] SIZES = {1000, 10000, 50000, 200000};
+  private static final int LOOKUPS = 1000000;
+
+
+  public static void main(final String[] args) {
+    System.out.printf("%10s %16s %16s %16s%n", "entries", "by ID [ns]", "by key [ns]", "conflict [ns]");
+    for (int round = 0; round < 2; round++) {  // First round warms up the JIT.
+      for (var size : SIZES) {
+        var collection = new Collection(0, "benchmark");
+        var ids = new int[size];
+        for (int i = 0; i < size; i++) {
+          ids[i] = collection.restoreEntry(i, "key"+i, EntryType.ARTICLE).getId();
+        }
+        var random = new Random(42);
+        long hits = 0;
+
+        var start = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++) {
+          if (collection.getEntry(ids[random.nextInt(size)]) != null) hits++;
+        }
+        var byId = (System.nanoTime() - start) / (double) LOOKUPS;
+
+        start = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++) {
+          if (collection.getEntryByCiteKey("key"+random.nextInt(size)) != null) hits++;
+        }
+        var byKey = (System.nanoTime() - start) / (double) LOOKUPS;
+
+        start = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++) {
+          if (collection.createEntry("key"+random.nextInt(size), EntryType.ARTICLE) == null) hits++;
+        }
+        var conflict = (System.nanoTime() - start) / (double) LOOKUPS;
+
+        if (hits != 3L * LOOKUPS) throw new IllegalStateException("Lookup missed!");
+        if (round > 0) System.out.printf("%10d %16.1f %16.1f %16.1f%n", size, byId, byKey, conflict);
+      }
+    }
+  }
+}
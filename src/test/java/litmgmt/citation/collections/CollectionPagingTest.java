@@ -0,0 +1,55 @@
+package litmgmt.citation.collections;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import litmgmt.citation.description.EntryType;
+import litmgmt.citation.description.FieldType;
+import org.junit.Test;
+
+
+/** Tests for the cursor pagination and field projection of entry listings. */
+public class CollectionPagingTest {
+
+  /** Paging must return every entry exactly once in ID order, even if entries change between pages. */
+  @Test
+  public void pagesFollowIdOrder() {
+    var collection = new Collection(0, "col");
+    for (var id : new int[] {5, 1, 9, 3, 7}) collection.restoreEntry(id, "key"+id, EntryType.MISC);
+
+    var ids = new ArrayList<Integer>();
+    var page = collection.getEntriesPage(-1, 2);
+    addIds(ids, page);
+    collection.deleteEntry(collection.getEntry(5));  // Next on the following page.
+    collection.restoreEntry(2, "key2", EntryType.MISC);  // Before the cursor, must not show up.
+    collection.restoreEntry(8, "key8", EntryType.MISC);
+    while (!page.isEmpty()) {
+      page = collection.getEntriesPage(page.get(page.size() - 1).getId(), 2);
+      addIds(ids, page);
+    }
+    assertEquals(List.of(1, 3, 7, 8, 9), ids);
+    assertEquals(0, collection.getEntriesPage(9, 10).size());
+  }
+
+
+  /** A projection must only output the ID and the requested properties and fields. */
+  @Test
+  public void projectionSelectsProperties() throws Exception {
+    var collection = new Collection(0, "col");
+    var entry = collection.restoreEntry(4, "key4", EntryType.ARTICLE);
+    entry.setField(FieldType.AUTHOR, "Jim Raynor");
+    entry.setField(FieldType.TITLE, "Heaven's Devils");
+    var out = new ByteArrayOutputStream();
+    Collection.writeEntriesJson(collection.getEntries(), FieldProjection.parse("citeKey, title"), out);
+    assertEquals("[{\"id\":4,\"citeKey\":\"key4\",\"fields\":[{\"fieldType\":\"title\",\"value\":\"Heaven's Devils\"}]}]",
+      new String(out.toByteArray(), StandardCharsets.UTF_8));
+  }
+
+
+  private static void addIds(List<Integer> ids, List<Entry> entries) {
+    for (var entry : entries) ids.add(entry.getId());
+  }
+}
@@ -0,0 +1,85 @@
+package litmgmt.citation.collections;
+
+import java.util.Arrays;
+import java.util.Random;
+import litmgmt.citation.description.EntryType;
+import litmgmt.citation.description.FieldType;
+
+
+/** Measures the lookup of near-duplicate clusters in one collection of a million entries with random
+ * titles, of which one in a thousand is entered a second time with another cite key and a differently
+ * spelled title (case, punctuation, a missing letter).
+ * Prints the time to fill (and index) the collection, the heap used, the latency percentiles of the
+ * lookup and how many of the planted duplicates were found.
+ * Not a unit test, run it with 'mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=litmgmt.citation.collections.DuplicateBenchmark' (needs about 2 GB of heap).
+ * Optional arguments: number of entries and number of lookups. */
+public class DuplicateBenchmark {
+
+  private static final int VOCABULARY = 20000;
+  private static final int DUPLICATE_EVERY = 1000;
+
+
+  public static void main(final String[] args) {
+    var entries = (args.length > 0)? Integer.parseInt(args[0]) : 1000000;
+    var lookups = (args.length > 1)? Integer.parseInt(args[1]) : 20;
+    var random = new Random(42);
+    var words = new String[VOCABULARY];
+    for (int i = 0; i < VOCABULARY; i++) words[i] = "w"+Integer.toString(i, 36);
+
+    var start = System.nanoTime();
+    var collection = new Collection(0, "col");
+    var planted = 0;
+    for (int i = 0; i < entries; i++) {
+      var title = new StringBuilder();
+      for (int w = 8; w > 0; w--) title.append(words[random.nextInt(VOCABULARY)]).append(' ');
+      var author = "Author"+random.nextInt(50000)+", A. and Author"+random.nextInt(50000)+", B.";
+      var year = Integer.toString(1950 + random.nextInt(70));
+      add(collection, i, "key"+i, title.toString(), author, year);
+      if (i % DUPLICATE_EVERY == 0 && i + 1 < entries) {
+        title.deleteCharAt(random.nextInt(title.length()));
+        add(collection, ++i, "dup"+i, title.toString().toUpperCase()+".", author, year);
+        planted++;
+      }
+    }
+    var fillTime = (System.nanoTime() - start) / 1e9;
+    System.gc();
+    var heap = (Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory()) >> 20;
+    System.out.printf("Filled %d entries in %.1f s, %d MB heap used%n", entries, fillTime, heap);
+
+    var latencies = new long[lookups];
+    var found = 0;
+    var clusterCount = 0;
+    for (int round = 0; round < 2; round++) {  // The first round warms up the JIT.
+      for (int l = 0; l < lookups; l++) {
+        var t = System.nanoTime();
+        var clusters = DuplicateIndex.findDuplicates(collection, Integer.MAX_VALUE);
+        latencies[l] = System.nanoTime() - t;
+        clusterCount = clusters.size();
+        found = 0;
+        for (var cluster : clusters) {
+          var members = cluster.getEntries();
+          if (members.size() == 2 && members.get(1).getCiteKey().equals("dup"+members.get(1).getId())) found++;
+        }
+      }
+    }
+    Arrays.sort(latencies);
+    System.out.printf("%d lookups, %d clusters: p50 %.1f ms, p90 %.1f ms, max %.1f ms; %d of %d duplicates found%n",
+      lookups, clusterCount, percentile(latencies, 0.5), percentile(latencies, 0.9), latencies[lookups - 1] / 1e6,
+      found, planted);
+  }
+
+
+  private static void add(Collection collection, int id, String citeKey, String title, String author,
+      String year) {
+    var entry = collection.restoreEntry(id, citeKey, EntryType.ARTICLE);
+    entry.setField(FieldType.TITLE, title);
+    entry.setField(FieldType.AUTHOR, author);
+    entry.setField(FieldType.YEAR, year);
+  }
+
+
+  private static double percentile(long[] sorted, double p) {
+    return sorted[(int) Math.min(sorted.length - 1, p * sorted.length)] / 1e6;
+  }
+}
@@ -0,0 +1,95 @@
+package litmgmt.citation.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import litmgmt.citation.description.EntryType;
+import litmgmt.citation.description.FieldType;
+import org.junit.Test;
+
+
+/** Tests for the near-duplicate index of the collections. */
+public class DuplicateIndexTest {
+
+  /** Entries differing in cite key, spelling of the title and form of the names must form a cluster,
+   * which follows changes and deletions. */
+  @Test
+  public void findsNearDuplicates() {
+    var col = new Collection(0, "col");
+    var e1 = addEntry(col, 1, "Stevens_Long_2011", "Passionate Leadership: A Study of Adult Learners",
+      "Stevens-Long, Judith and Schapiro, Steven", "2011");
+    var e2 = addEntry(col, 2, "stevens2011passionate", "{P}assionate leadership - a study of adult learners.",
+      "Judith Stevens-Long and Steven Schapiro", "2011");
+    addEntry(col, 3, "knuth1984", "Literate Programming", "Knuth, Donald E.", "1984");
+    addEntry(col, 4, "other", "Passionate Gardening", "Stevens-Long, Judith", "2011");
+    col.restoreEntry(5, "notitle", EntryType.MISC);
+
+    assertEquals(List.of(List.of(1, 2)), ids(DuplicateIndex.findDuplicates(col, 10)));
+    assertTrue(DuplicateIndex.findDuplicates(col, 10).get(0).getSimilarity() >= 0.5);
+
+    var e3 = addEntry(col, 6, "typo", "Pasionate Leadership: A Study of Adult Learners",
+      "Stevens-Long, J. and Schapiro, S.", "2011");
+    assertEquals(List.of(List.of(1, 2, 6)), ids(DuplicateIndex.findDuplicates(col, 10)));
+
+    e2.setField(FieldType.TITLE, "Literate Programming");
+    e2.setField(FieldType.AUTHOR, "Donald E. Knuth");
+    e2.setField(FieldType.YEAR, "1984");
+    assertEquals(List.of(List.of(1, 6), List.of(2, 3)), ids(DuplicateIndex.findDuplicates(col, 10)));
+    assertEquals(List.of(List.of(1, 6)), ids(DuplicateIndex.findDuplicates(col, 1)));
+
+    col.deleteEntry(e3);
+    col.rebuildIndexes(count -> {});
+    col.deleteEntry(e1);
+    assertEquals(List.of(List.of(2, 3)), ids(DuplicateIndex.findDuplicates(col, 10)));
+  }
+
+
+  /** In a larger collection with random titles, exactly the planted duplicates must be found, also after
+   * many entries were removed again (which moves slots of the hash table). */
+  @Test
+  public void findsPlantedDuplicates() {
+    var random = new Random(7);
+    var words = new String[5000];
+    for (int i = 0; i < words.length; i++) words[i] = "w"+Integer.toString(random.nextInt(1 << 24), 36);
+    var col = new Collection(0, "col");
+    var entries = new ArrayList<Entry>();
+    for (int i = 0; i < 4000; i++) {
+      var title = new StringBuilder();
+      for (int w = 0; w < 6; w++) title.append(words[random.nextInt(words.length)]).append(' ');
+      var author = "Author"+random.nextInt(1000)+", A.";
+      var year = Integer.toString(1980 + random.nextInt(40));
+      entries.add(addEntry(col, 2 * i, "key"+i, title.toString(), author, year));
+      if (i % 100 == 0) addEntry(col, 2 * i + 1, "dup"+i, title.toString().toUpperCase()+".", author, year);
+    }
+    for (int i = 0; i < 4000; i++) {
+      if (i % 100 != 0 && i % 3 != 0) col.deleteEntry(entries.get(i));
+    }
+    var expected = new ArrayList<List<Integer>>();
+    for (int i = 0; i < 4000; i += 100) expected.add(List.of(2 * i, 2 * i + 1));
+    assertEquals(expected, ids(DuplicateIndex.findDuplicates(col, 1000)));
+  }
+
+
+  private static Entry addEntry(Collection col, int id, String citeKey, String title, String author,
+      String year) {
+    var entry = col.restoreEntry(id, citeKey, EntryType.ARTICLE);
+    entry.setField(FieldType.TITLE, title);
+    entry.setField(FieldType.AUTHOR, author);
+    entry.setField(FieldType.YEAR, year);
+    return entry;
+  }
+
+
+  private static List<List<Integer>> ids(List<DuplicateIndex.Cluster> clusters) {
+    var ids = new ArrayList<List<Integer>>();
+    for (var cluster : clusters) {
+      var clusterIds = new ArrayList<Integer>();
+      for (var entry : cluster.getEntries()) clusterIds.add(entry.getId());
+      ids.add(clusterIds);
+    }
+    return ids;
+  }
+}
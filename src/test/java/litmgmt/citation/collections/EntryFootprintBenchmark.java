@@ -0,0 +1,55 @@
+package litmgmt.citation.collections;
+
+import java.lang.management.ManagementFactory;
+import litmgmt.citation.description.EntryType;
+import litmgmt.citation.description.FieldType;
+
+
+/** Measures the heap footprint per entry by comparing the used heap (after full GCs) before and after
+ * creating many entries with a typical set of fields. The field values are shared between all entries,
+ * so only the entry structure itself is measured. Not a unit test, run it with 'mvn test-compile
+ * exec:java -Dexec.classpathScope=test -Dexec.mainClass=litmgmt.citation.collections.EntryFootprintBenchmark'.
+ * For a per-class breakdown, take a histogram while it waits: 'jmap -histo:live [pid]'. */
+public class EntryFootprintBenchmark {
+
+  private static final int ENTRIES = 1000000;
+  private static final FieldType[] FIELDS = {
+    FieldType.AUTHOR, FieldType.TITLE, FieldType.JOURNAL, FieldType.YEAR,
+    FieldType.VOLUME, FieldType.NUMBER, FieldType.PAGES, FieldType.PUBLISHER
+  };
+
+
+  public static void main(final String[] args) throws Exception {
+    var values = new String[FIELDS.length];
+    for (int f = 0; f < FIELDS.length; f++) values[f] = "value of "+FIELDS[f];
+    var citeKeys = new String[ENTRIES];
+    for (int i = 0; i < ENTRIES; i++) citeKeys[i] = "key"+i;
+
+    var before = usedHeap();
+    var entries = new Entry[ENTRIES];
+    for (int i = 0; i < ENTRIES; i++) {
+      entries[i] = new Entry(i, citeKeys[i], EntryType.ARTICLE);
+      for (int f = 0; f < FIELDS.length; f++) entries[i].setField(FIELDS[f], values[f]);
+    }
+    var after = usedHeap();
+    var perEntry = (after - before - 16L - 4L * ENTRIES) / (double) ENTRIES;  // Without the array itself.
+    System.out.printf("%d entries with %d fields: %.1f bytes per entry%n", ENTRIES, FIELDS.length, perEntry);
+    if (args.length > 0 && args[0].equals("wait")) {
+      System.out.println("PID "+ProcessHandle.current().pid()+", press enter to exit.");
+      System.in.read();
+    }
+    if (entries[ENTRIES - 1].getField(FieldType.TITLE) == null) throw new IllegalStateException();
+  }
+
+
+  /** Get the used heap after garbage collection.
+   * @return Used heap in bytes. */
+  private static long usedHeap() throws InterruptedException {
+    var memory = ManagementFactory.getMemoryMXBean();
+    for (int i = 0; i < 4; i++) {
+      System.gc();
+      Thread.sleep(100);
+    }
+    return memory.getHeapMemoryUsage().getUsed();
+  }
+}
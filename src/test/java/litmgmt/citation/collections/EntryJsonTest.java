@@ -0,0 +1,75 @@
+package litmgmt.citation.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import litmgmt.citation.description.EntryType;
+import litmgmt.citation.description.FieldType;
+import org.junit.Test;
+
+
+/** Tests for the cached JSON serialization of entries and collections. */
+public class EntryJsonTest {
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+
+  /** The cached and streamed JSON must be the same as the one Jackson produces from the getters. */
+  @Test
+  public void cachedJsonMatchesJackson() throws Exception {
+    var collection = new Collection(7, "Name with \"quotes\"");
+    var entry = collection.restoreEntry(1, "key1", EntryType.ARTICLE);
+    entry.setField(FieldType.AUTHOR, "Jim Raynor");
+    entry.setField(FieldType.NOTE, null);
+    collection.restoreEntry(2, "key2", EntryType.BOOK);
+    assertEquals(MAPPER.writeValueAsString(entry), json(entry.toJson()));
+    assertEquals(MAPPER.writeValueAsString(collection), json(collection.toJson()));
+
+    var out = new ByteArrayOutputStream();
+    collection.writeJson(out);
+    assertEquals(MAPPER.writeValueAsString(collection), json(out.toByteArray()));
+    out.reset();
+    collection.writeEntriesJson(out);
+    assertEquals(MAPPER.writeValueAsString(collection.getEntries()), json(out.toByteArray()));
+  }
+
+
+  /** Changing an entry must invalidate its cached JSON. */
+  @Test
+  public void changesInvalidateCachedJson() throws Exception {
+    var collection = new Collection(8, "col");
+    var entry = collection.restoreEntry(1, "key1", EntryType.ARTICLE);
+    entry.setField(FieldType.TITLE, "Old");
+    entry.toJson();
+    entry.setField(FieldType.TITLE, "New");
+    assertEquals(MAPPER.writeValueAsString(entry), json(entry.toJson()));
+    collection.renameEntry(entry, "key2");
+    assertEquals(MAPPER.writeValueAsString(collection), json(collection.toJson()));
+  }
+
+
+  /** Every change of an entry must give it and its collection a new version (used as ETag). */
+  @Test
+  public void changesBumpVersions() throws Exception {
+    var collection = new Collection(9, "col");
+    var entry = collection.restoreEntry(1, "key1", EntryType.ARTICLE);
+    var entryVersion = entry.getVersion();
+    var colVersion = collection.getVersion();
+    entry.toJson();
+    assertEquals(entryVersion, entry.getVersion());
+    entry.setField(FieldType.TITLE, "Title");
+    assertTrue(entry.getVersion() > entryVersion);
+    assertTrue(collection.getVersion() > colVersion);
+    colVersion = collection.getVersion();
+    collection.renameEntry(entry, "key2");
+    assertTrue(collection.getVersion() > colVersion);
+  }
+
+
+  private static String json(byte[] bytes) {
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
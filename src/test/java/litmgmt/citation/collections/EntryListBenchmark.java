@@ -0,0 +1,74 @@
+package litmgmt.citation.collections;
+
+import java.io.BufferedOutputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import litmgmt.citation.description.EntryType;
+import litmgmt.citation.description.FieldType;
+
+
+/** Compares the warm latency of listing all entries of a collection as JSON: reflective serialization
+ * with Jackson (as done by 'ctx.json'), the concatenation of the cached entry JSON into one buffer (as done
+ * for the collection in the create and rename responses) and streaming the cached entry JSON (as done by
+ * the listing endpoints). Also shows the bytes allocated
+ * per listing, which only grow with the entry references when streaming.
+ * Not a unit test, run it with 'mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=litmgmt.citation.collections.EntryListBenchmark'. */
+public class EntryListBenchmark {
+
+  private static final int[] SIZES = {1000, 10000, 100000};
+  private static final int ROUNDS = 20;
+
+
+  public static void main(final String[] args) throws Exception {
+    var mapper = new ObjectMapper();
+    var sink = new BufferedOutputStream(OutputStream.nullOutputStream(), 16384);
+    System.out.printf("%10s %14s %14s %14s %16s %16s%n", "entries", "jackson [ms]", "joined [ms]",
+      "streamed [ms]", "joined [KB]", "streamed [KB]");
+    for (var size : SIZES) {
+      var collection = new Collection(0, "benchmark");
+      for (int i = 0; i < size; i++) {
+        var entry = collection.restoreEntry(i, "key"+i, EntryType.ARTICLE);
+        entry.setField(FieldType.AUTHOR, "Author "+i);
+        entry.setField(FieldType.TITLE, "A rather long title of entry number "+i);
+        entry.setField(FieldType.JOURNAL, "Journal of Benchmarks");
+        entry.setField(FieldType.YEAR, Integer.toString(1950 + i % 70));
+        entry.setField(FieldType.PAGES, "1--10");
+      }
+      long bytes = 0;
+      for (int i = 0; i < ROUNDS; i++) {  // Warm up the JIT and fill the cache.
+        bytes += mapper.writeValueAsBytes(collection.getEntries()).length;
+        bytes += collection.toJson().length;
+        collection.writeEntriesJson(sink);
+      }
+
+      var start = System.nanoTime();
+      for (int i = 0; i < ROUNDS; i++) bytes += mapper.writeValueAsBytes(collection.getEntries()).length;
+      var jackson = (System.nanoTime() - start) / 1e6 / ROUNDS;
+
+      var allocStart = allocatedBytes();
+      start = System.nanoTime();
+      for (int i = 0; i < ROUNDS; i++) bytes += collection.toJson().length;
+      var joined = (System.nanoTime() - start) / 1e6 / ROUNDS;
+      var joinedAlloc = (allocatedBytes() - allocStart) / 1024 / ROUNDS;
+
+      allocStart = allocatedBytes();
+      start = System.nanoTime();
+      for (int i = 0; i < ROUNDS; i++) collection.writeEntriesJson(sink);
+      var streamed = (System.nanoTime() - start) / 1e6 / ROUNDS;
+      var streamedAlloc = (allocatedBytes() - allocStart) / 1024 / ROUNDS;
+
+      if (bytes == 0) throw new IllegalStateException();
+      System.out.printf("%10d %14.2f %14.2f %14.2f %16d %16d%n",
+        size, jackson, joined, streamed, joinedAlloc, streamedAlloc);
+    }
+  }
+
+
+  /** Get the bytes allocated by the current thread so far. */
+  private static long allocatedBytes() {
+    var threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    return threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+}
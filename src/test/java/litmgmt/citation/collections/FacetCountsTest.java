@@ -0,0 +1,52 @@
+package litmgmt.citation.collections;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import litmgmt.citation.description.EntryType;
+import litmgmt.citation.description.FieldType;
+import org.junit.Test;
+
+
+/** Tests for the facet counts of the collections. */
+public class FacetCountsTest {
+
+  /** The counts must follow new, changed and deleted entries, and be summed over collections. */
+  @Test
+  public void followsChanges() throws Exception {
+    var col1 = new Collection(0, "col1");
+    var col2 = new Collection(1, "col2");
+    var e1 = col1.restoreEntry(1, "a", EntryType.ARTICLE);
+    e1.setField(FieldType.YEAR, "2020");
+    e1.setField(FieldType.JOURNAL, "Nature");
+    var e2 = col1.restoreEntry(2, "b", EntryType.INPROCEEDINGS);
+    e2.setField(FieldType.YEAR, "2021");
+    e2.setField(FieldType.BOOKTITLE, "SIGIR");
+    var e3 = col2.restoreEntry(3, "c", EntryType.ARTICLE);
+    e3.setField(FieldType.YEAR, "2020");
+    e3.setField(FieldType.JOURNAL, "Science");
+
+    var stats = FacetCounts.collect(List.of(col1, col2));
+    assertEquals(3, stats.getEntryCount());
+    assertEquals(2, stats.getCount(EntryType.ARTICLE));
+    assertEquals(2, stats.getCount(FieldType.YEAR, "2020"));
+    assertEquals(1, stats.getCount(FieldType.BOOKTITLE, "SIGIR"));
+
+    e3.setField(FieldType.JOURNAL, "Nature");
+    e1.setField(FieldType.YEAR, null);
+    col1.deleteEntry(e2);
+    stats = FacetCounts.collect(List.of(col1, col2));
+    assertEquals(2, stats.getEntryCount());
+    assertEquals(0, stats.getCount(EntryType.INPROCEEDINGS));
+    assertEquals(1, stats.getCount(FieldType.YEAR, "2020"));
+    assertEquals(2, stats.getCount(FieldType.JOURNAL, "Nature"));
+    assertEquals(0, stats.getCount(FieldType.JOURNAL, "Science"));
+
+    var out = new ByteArrayOutputStream();
+    stats.writeJson(out);
+    assertEquals("{\"entryCount\":2,\"entryType\":{\"article\":2},\"year\":{\"2020\":1},"
+      +"\"journal\":{\"Nature\":2},\"booktitle\":{}}", new String(out.toByteArray(), StandardCharsets.UTF_8));
+  }
+}
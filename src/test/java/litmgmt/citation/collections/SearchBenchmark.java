@@ -0,0 +1,84 @@
+package litmgmt.citation.collections;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import litmgmt.citation.description.EntryType;
+import litmgmt.citation.description.FieldType;
+
+
+/** Measures the latency of ranked full-text searches over a million entries in ten collections, with
+ * titles drawn from a Zipf-like vocabulary. The most frequent ranks of such a distribution are stop words
+ * in real titles, which are not indexed, so they are left out: the most frequent terms remain in about
+ * 7 % of the entries (like 'learning' or 'networks' in computer science titles).
+ * Prints the time to fill (and index) the collections, the heap used and the latency percentiles of
+ * random queries of one to three terms.
+ * Not a unit test, run it with 'mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=litmgmt.citation.collections.SearchBenchmark' (needs about 2 GB of heap).
+ * Optional arguments: number of entries and number of queries. */
+public class SearchBenchmark {
+
+  private static final int COLLECTIONS = 10;
+  private static final int VOCABULARY = 20000;
+  private static final int STOP_RANKS = 10;
+  private static final int LIMIT = 20;
+
+
+  public static void main(final String[] args) {
+    var entries = (args.length > 0)? Integer.parseInt(args[0]) : 1000000;
+    var queries = (args.length > 1)? Integer.parseInt(args[1]) : 2000;
+    var random = new Random(42);
+    var words = new String[VOCABULARY];
+    for (int i = 0; i < VOCABULARY; i++) words[i] = "w"+Integer.toString(i, 36);
+    var journals = new String[200];
+    for (int i = 0; i < journals.length; i++) journals[i] = "Journal of "+words[i]+" "+words[i + 1];
+
+    var start = System.nanoTime();
+    var collections = new ArrayList<Collection>();
+    for (int c = 0; c < COLLECTIONS; c++) collections.add(new Collection(c, "col"+c));
+    for (int i = 0; i < entries; i++) {
+      var entry = collections.get(i % COLLECTIONS).restoreEntry(i, "key"+i, EntryType.ARTICLE);
+      var title = new StringBuilder();
+      for (int w = 8; w > 0; w--) title.append(words[skewed(random)]).append(' ');
+      entry.setField(FieldType.TITLE, title.toString());
+      entry.setField(FieldType.AUTHOR, "Author"+random.nextInt(50000)+" and Author"+random.nextInt(50000));
+      entry.setField(FieldType.JOURNAL, journals[random.nextInt(journals.length)]);
+      entry.setField(FieldType.YEAR, Integer.toString(1950 + random.nextInt(70)));
+    }
+    var fillTime = (System.nanoTime() - start) / 1e9;
+    System.gc();
+    var heap = (Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory()) >> 20;
+    System.out.printf("Filled %d entries in %.1f s, %d MB heap used%n", entries, fillTime, heap);
+
+    var latencies = new long[queries];
+    long hits = 0;
+    for (int round = 0; round < 2; round++) {  // The first round warms up the JIT.
+      for (int q = 0; q < queries; q++) {
+        var query = new StringBuilder();
+        for (int w = 1 + random.nextInt(3); w > 0; w--) query.append(words[skewed(random)]).append(' ');
+        var t = System.nanoTime();
+        hits += SearchIndex.search(collections, query.toString(), LIMIT).size();
+        latencies[q] = System.nanoTime() - t;
+      }
+    }
+    Arrays.sort(latencies);
+    System.out.printf("%d queries, %.1f hits each: p50 %.2f ms, p90 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+      queries, hits / (2.0 * queries), percentile(latencies, 0.5), percentile(latencies, 0.9),
+      percentile(latencies, 0.99), latencies[queries - 1] / 1e6);
+  }
+
+
+  /** Draw a word index, with low indexes much more likely (roughly Zipf distributed), except for stop words. */
+  private static int skewed(Random random) {
+    while (true) {
+      var rank = (int) Math.min(VOCABULARY - 1, Math.exp(random.nextDouble() * Math.log(VOCABULARY)) - 1);
+      if (rank >= STOP_RANKS) return rank;
+    }
+  }
+
+
+  private static double percentile(long[] sorted, double p) {
+    return sorted[(int) Math.min(sorted.length - 1, p * sorted.length)] / 1e6;
+  }
+}
@@ -0,0 +1,94 @@
+package litmgmt.citation.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import litmgmt.citation.description.EntryType;
+import litmgmt.citation.description.FieldType;
+import org.junit.Test;
+
+
+/** Tests for the full-text search index of the collections. */
+public class SearchIndexTest {
+
+  /** Entries with more (and rarer) matching terms must rank first, across collections. */
+  @Test
+  public void ranksByRelevance() {
+    var col1 = new Collection(0, "col1");
+    var col2 = new Collection(1, "col2");
+    col1.restoreEntry(1, "a", EntryType.ARTICLE).setField(FieldType.TITLE, "Deep learning for graphs");
+    col1.restoreEntry(2, "b", EntryType.ARTICLE).setField(FieldType.TITLE, "Learning to rank");
+    col2.restoreEntry(3, "c", EntryType.ARTICLE).setField(FieldType.TITLE, "Graphs and learning on graphs");
+    col2.restoreEntry(4, "d", EntryType.BOOK).setField(FieldType.NOTE, "Unrelated");
+
+    assertEquals(List.of(1, 2, 3), ids(SearchIndex.search(List.of(col1, col2), "deep learning", 10)));
+    assertEquals(List.of(3, 1), ids(SearchIndex.search(List.of(col1, col2), "graphs", 10)));
+    assertEquals(1, SearchIndex.search(List.of(col1, col2), "learning", 1).size());
+    assertEquals(0, SearchIndex.search(List.of(col1, col2), "the of", 10).size());
+  }
+
+
+  /** Changes of fields, cite keys and entries must be reflected right away. */
+  @Test
+  public void followsChanges() {
+    var col = new Collection(2, "col");
+    var entry = col.restoreEntry(5, "smith2020", EntryType.ARTICLE);
+    entry.setField(FieldType.AUTHOR, "Jürgen Müller");
+    entry.setField(FieldType.YEAR, "2020");
+    assertEquals(List.of(5), ids(SearchIndex.search(List.of(col), "MULLER", 10)));
+    assertEquals(List.of(), ids(SearchIndex.search(List.of(col), "2020", 10)));  // Year is not indexed.
+
+    entry.setField(FieldType.AUTHOR, "Jane Doe");
+    assertEquals(List.of(), ids(SearchIndex.search(List.of(col), "muller", 10)));
+    assertEquals(List.of(5), ids(SearchIndex.search(List.of(col), "doe", 10)));
+
+    col.renameEntry(entry, "doe2020");
+    assertEquals(List.of(), ids(SearchIndex.search(List.of(col), "smith2020", 10)));
+    assertEquals(List.of(5), ids(SearchIndex.search(List.of(col), "doe2020", 10)));
+
+    col.deleteEntry(entry);
+    assertEquals(List.of(), ids(SearchIndex.search(List.of(col), "doe", 10)));
+    assertEquals(0, entry._termCount);
+  }
+
+
+  /** A reindex cancelled partway must keep the old indexes and term counts, so scores stay the same. */
+  @Test
+  public void keepsScoresOnCancelledReindex() {
+    var col = new Collection(3, "col");
+    for (int i = 0; i < 2500; i++) {
+      col.restoreEntry(i, "key"+i, EntryType.ARTICLE).setField(FieldType.TITLE, "learning"+" words".repeat(i % 7));
+    }
+    var before = scores(SearchIndex.search(List.of(col), "learning", 3000));
+    try {
+      col.rebuildIndexes(count -> {
+        if (count == 2000) throw new CancellationException();
+      });
+      fail("Reindex not cancelled");
+    }
+    catch (CancellationException ex) {
+      // Expected.
+    }
+    assertEquals(2500, before.size());
+    assertEquals(before, scores(SearchIndex.search(List.of(col), "learning", 3000)));
+  }
+
+
+  private static List<Integer> ids(List<SearchIndex.Hit> hits) {
+    var ids = new ArrayList<Integer>();
+    for (var hit : hits) ids.add(hit.getEntry().getId());
+    return ids;
+  }
+
+
+  private static Map<Integer, Double> scores(List<SearchIndex.Hit> hits) {
+    var scores = new HashMap<Integer, Double>();
+    for (var hit : hits) scores.put(hit.getEntry().getId(), hit.getScore());
+    return scores;
+  }
+}
@@ -0,0 +1,47 @@
+package litmgmt.citation.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.EnumSet;
+import litmgmt.citation.description.EntryType;
+import litmgmt.citation.description.FieldType;
+import org.junit.Test;
+
+
+/** Tests for the deduplication of field values. */
+public class ValuePoolTest {
+
+  /** Equal values of pooled field types must share one instance, others must be left alone. */
+  @Test
+  public void pooledFieldsShareValues() {
+    ValuePool.configure(EnumSet.of(FieldType.JOURNAL), 100);
+    ValuePool.clear();
+    var first = new Entry(1, "a", EntryType.ARTICLE);
+    var second = new Entry(2, "b", EntryType.ARTICLE);
+    first.setField(FieldType.JOURNAL, new String("Nature"));
+    second.setField(FieldType.JOURNAL, new String("Nature"));
+    first.setField(FieldType.TITLE, new String("Title"));
+    second.setField(FieldType.TITLE, new String("Title"));
+    assertSame(first.getField(FieldType.JOURNAL), second.getField(FieldType.JOURNAL));
+    assertNotSame(first.getField(FieldType.TITLE), second.getField(FieldType.TITLE));
+    assertEquals(2, ValuePool.getLookups());
+    assertEquals(1, ValuePool.getHits());
+    assertEquals(0.5, ValuePool.getHitRate(), 1e-9);
+  }
+
+
+  /** A full pool must not admit new values, but still share the ones it has. */
+  @Test
+  public void fullPoolAdmitsNoNewValues() {
+    ValuePool.configure(EnumSet.of(FieldType.PUBLISHER), 1);
+    ValuePool.clear();
+    var pooled = ValuePool.intern(FieldType.PUBLISHER, new String("ACM"));
+    assertSame(pooled, ValuePool.intern(FieldType.PUBLISHER, new String("ACM")));
+    var other = new String("IEEE");
+    assertSame(other, ValuePool.intern(FieldType.PUBLISHER, other));
+    assertNotSame(other, ValuePool.intern(FieldType.PUBLISHER, new String("IEEE")));
+    assertEquals(1, ValuePool.getSize());
+  }
+}
@@ -0,0 +1,75 @@
+package litmgmt.jobs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import litmgmt.citation.collections.CollectionManager;
+import litmgmt.citation.description.EntryType;
+import litmgmt.citation.description.FieldType;
+import litmgmt.users.User;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+
+/** Tests for the background jobs. */
+public class JobManagerTest {
+
+  @Rule
+  public TemporaryFolder _folder = new TemporaryFolder();
+
+
+  /** Jobs must run in the background, be cancellable while queued and survive a restart. */
+  @Test
+  public void runsJobs() throws Exception {
+    var dir = _folder.getRoot().toPath().resolve("jobs");
+    var colMgr = new CollectionManager();
+    var user = User.restoreUser(0, "user", "user@example.com", "", new ArrayList<Integer>());
+    var collection = colMgr.restoreCollection(user, 0, "col");
+    collection.createEntry("knuth74", EntryType.ARTICLE).setField(FieldType.TITLE, "Structured Programming");
+    var jobMgr = new JobManager(colMgr, dir.toString(), 1);
+
+    Job export, cancelled;
+    collection.getLock().writeLock().lock();  // Keeps the export running, the next job waits.
+    try {
+      export = jobMgr.submit(user, Job.Type.EXPORT, collection, null);
+      cancelled = jobMgr.submit(user, Job.Type.REINDEX, collection, null);
+      jobMgr.cancel(cancelled);
+      assertEquals(Job.State.CANCELLED, cancelled.getState());
+    }
+    finally {
+      collection.getLock().writeLock().unlock();
+    }
+    var bibtex = "@article{dijkstra68, title = {Go To Statement Considered Harmful}}\n@article{knuth74}";
+    var upload = new ByteArrayInputStream(bibtex.getBytes(StandardCharsets.UTF_8));
+    var importing = jobMgr.submit(user, Job.Type.IMPORT, collection, upload);
+    waitFor(importing);
+    assertEquals(Job.State.SUCCEEDED, export.getState());
+    assertTrue(Files.readString(jobMgr.getResult(export)).startsWith("@article{knuth74,"));
+    assertEquals(Job.State.SUCCEEDED, importing.getState());
+    assertEquals(bibtex.length(), importing.getDone());
+    assertNotNull(collection.getEntryByCiteKey("dijkstra68"));
+    assertTrue(Files.readString(jobMgr.getResult(importing)).startsWith("{\"imported\":1,\"rejected\":1,"));
+    jobMgr.shutdown();
+
+    var restarted = new JobManager(colMgr, dir.toString(), 1);
+    assertEquals(Job.State.SUCCEEDED, restarted.getJob(export.getId()).getState());
+    assertEquals(Job.State.CANCELLED, restarted.getJob(cancelled.getId()).getState());
+    var reindex = restarted.submit(user, Job.Type.REINDEX, collection, null);
+    assertEquals(importing.getId() + 1, reindex.getId());
+    waitFor(reindex);
+    assertEquals(Job.State.SUCCEEDED, reindex.getState());
+    assertEquals(2, reindex.getTotal());
+    restarted.shutdown();
+  }
+
+
+  private static void waitFor(Job job) throws InterruptedException {
+    for (int i = 0; i < 500 && !job.getState().isFinished(); i++) Thread.sleep(10);
+  }
+}
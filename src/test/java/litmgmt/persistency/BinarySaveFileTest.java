@@ -0,0 +1,125 @@
+package litmgmt.persistency;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import litmgmt.citation.collections.Collection;
+import litmgmt.citation.collections.CollectionManager;
+import litmgmt.citation.description.EntryType;
+import litmgmt.citation.description.FieldType;
+import litmgmt.users.User;
+import litmgmt.users.UserAuthenticator;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+
+/** Round trips through the binary save file, the segment files and the save file converter. */
+public class BinarySaveFileTest {
+
+  @Rule
+  public TemporaryFolder _folder = new TemporaryFolder();
+
+
+  /** Converting JSON to binary and back must keep users, collections, entries and ID counters. */
+  @Test
+  public void convertsWithoutLoss() throws Exception {
+    var json = path("savefile.json");
+    var bin = path("savefile.bin");
+    var back = path("back.json");
+    var userAuth = new UserAuthenticator();
+    var colMgr = new CollectionManager();
+    fill(userAuth, colMgr);
+    IdHelper.initialize(3, 7, 500);
+    assertTrue(new SaveFileReader(json, userAuth, colMgr).saveToFile());
+    var expected = dump(userAuth.getUserList(), colMgr.getCollectionList());
+
+    SaveFileConverter.main(new String[] {json, bin});
+    SaveFileConverter.main(new String[] {bin, back});
+    for (var file : List.of(bin, back)) {
+      IdHelper.initialize(0, 0, 0);
+      var restoredAuth = new UserAuthenticator();
+      var restoredMgr = new CollectionManager();
+      assertTrue(new SaveFileReader(file, restoredAuth, restoredMgr).readFromFile());
+      assertEquals(expected, dump(restoredAuth.getUserList(), restoredMgr.getCollectionList()));
+      assertEquals(7, IdHelper.peekCollectionId());
+      assertEquals(500, IdHelper.peekEntryId());
+      var entry = restoredMgr.getCollection(0).getEntryByCiteKey("nulls");
+      assertNull(entry.getField(FieldType.NOTE));
+      assertNull(entry.getField(FieldType.JOURNAL));
+      assertEquals("", entry.getField(FieldType.YEAR));
+    }
+  }
+
+
+  /** A collection must survive a round trip through its segment file. */
+  @Test
+  public void storesSegments() throws Exception {
+    var userAuth = new UserAuthenticator();
+    var colMgr = new CollectionManager();
+    fill(userAuth, colMgr);
+    var store = new SegmentStore(path("collections"));
+    for (var collection : colMgr.getCollectionList()) assertTrue(store.save(collection));
+    assertTrue(SegmentStore.hasSegments(path("collections")));
+
+    var loaded = new ArrayList<Collection>();
+    for (var colId : store.listCollectionIds()) loaded.add(store.load(colId));
+    loaded.sort((a, b) -> Integer.compare(a.getId(), b.getId()));
+    assertEquals(dump(List.of(), colMgr.getCollectionList()), dump(List.of(), loaded));
+    assertTrue(store.delete(loaded.get(0).getId()));
+    assertNull(store.load(loaded.get(0).getId()));
+    assertNotNull(store.load(loaded.get(1).getId()));
+  }
+
+
+  // __________________________________________________________________________
+
+  /** Create two users and two collections with entries: shared and repeated field values (string table),
+   * non-ASCII text, a value longer than the decoder buffer, empty and 'null' values. */
+  private static void fill(UserAuthenticator userAuth, CollectionManager colMgr) {
+    var users = new ArrayList<User>();
+    users.add(User.restoreUser(0, "user", "user@example.com", "hash0", new ArrayList<Integer>()));
+    users.add(User.restoreUser(1, "ünïcødé", "u@example.com", "hash1", new ArrayList<Integer>()));
+    userAuth.setUserList(users);
+    var papers = colMgr.restoreCollection(users.get(0), 0, "papers");
+    for (int i = 0; i < 50; i++) {
+      var entry = papers.restoreEntry(i, "key"+i, EntryType.ARTICLE);
+      entry.setField(FieldType.TITLE, "Title "+i+" – 中文");
+      entry.setField(FieldType.JOURNAL, "Journal "+(i % 3));
+      entry.setField(FieldType.YEAR, Integer.toString(1990 + i % 5));
+    }
+    var nulls = papers.restoreEntry(50, "nulls", EntryType.MISC);
+    nulls.setField(FieldType.NOTE, null);
+    nulls.setField(FieldType.JOURNAL, null);
+    nulls.setField(FieldType.YEAR, "");
+    var books = colMgr.restoreCollection(users.get(1), 5, "books");
+    books.restoreEntry(100, "long", EntryType.BOOK).setField(FieldType.ANNOTE, "x".repeat(100000));
+  }
+
+
+  /** Describe users and collections as text, to compare them. */
+  private static String dump(List<User> users, List<Collection> collections) {
+    var dump = new StringBuilder();
+    for (var user : users) {
+      dump.append(user.getId()+" "+user.getName()+" "+user.getEmail()+" "+user.getPasswordHash()+" "+
+        user.GetAllCollections()+"\n");
+    }
+    for (var collection : collections) {
+      dump.append(collection.getId()+" "+collection.getName()+"\n");
+      for (var entry : collection.getEntries()) {
+        dump.append(new String(entry.toJson(), StandardCharsets.UTF_8)).append('\n');
+      }
+    }
+    return dump.toString();
+  }
+
+
+  private String path(String name) {
+    return _folder.getRoot().toPath().resolve(name).toString();
+  }
+}
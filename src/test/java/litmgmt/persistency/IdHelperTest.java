@@ -0,0 +1,88 @@
+package litmgmt.persistency;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Test;
+
+
+/** Tests for the ID allocation under contention. */
+public class IdHelperTest {
+
+  private static final int THREADS = 8;
+  private static final int IDS_PER_THREAD = 20000;
+
+
+  /** Concurrently allocated IDs must be unique. */
+  @Test
+  public void concurrentAllocationHandsOutUniqueIds() throws Exception {
+    IdHelper.initialize(0, 0, 0);
+    var ids = allocateConcurrently(0);
+    assertEquals(THREADS * IDS_PER_THREAD, ids.size());
+    assertTrue(IdHelper.peekEntryId() >= THREADS * IDS_PER_THREAD);
+  }
+
+
+  /** IDs from reserved blocks must be unique, too, and stay below the high-water mark. */
+  @Test
+  public void blockReservationHandsOutUniqueIds() throws Exception {
+    IdHelper.initialize(0, 0, 0);
+    var ids = allocateConcurrently(100);
+    assertEquals(THREADS * IDS_PER_THREAD, ids.size());
+    for (var id : ids) assertTrue(id < IdHelper.peekEntryId());
+  }
+
+
+  /** Restored IDs and leases must never be handed out again. */
+  @Test
+  public void restoredIdsAreNotReused() {
+    IdHelper.initialize(0, 0, 0);
+    IdHelper.markEntryIdUsed(41);
+    assertEquals(42, IdHelper.GetNextEntryId());
+    IdHelper.restoreLease(IdHelper.ENTRY, 5000);
+    assertEquals(5000, IdHelper.GetNextEntryId());
+    IdHelper.markEntryIdUsed(10);
+    assertEquals(5001, IdHelper.GetNextEntryId());
+  }
+
+
+  /** Let all threads allocate entry IDs at once.
+   * @param blockSize Block size for block reservation, 0 to allocate one by one.
+   * @return Set of all allocated IDs. */
+  private static Set<Integer> allocateConcurrently(int blockSize) throws Exception {
+    var ids = ConcurrentHashMap.<Integer>newKeySet();
+    var pool = Executors.newFixedThreadPool(THREADS);
+    var start = new CountDownLatch(1);
+    try {
+      var futures = new ArrayList<Future<?>>();
+      for (int t = 0; t < THREADS; t++) {
+        futures.add(pool.submit(() -> {
+          start.await();
+          if (blockSize > 0) IdHelper.beginBlockReservation(blockSize);
+          try {
+            List<Integer> local = new ArrayList<Integer>(IDS_PER_THREAD);
+            for (int i = 0; i < IDS_PER_THREAD; i++) local.add(IdHelper.GetNextEntryId());
+            ids.addAll(local);
+          }
+          finally {
+            IdHelper.endBlockReservation();
+          }
+          return null;
+        }));
+      }
+      start.countDown();
+      for (var future : futures) future.get();
+    }
+    finally {
+      pool.shutdownNow();
+    }
+    return ids;
+  }
+}
@@ -0,0 +1,260 @@
+package litmgmt.persistency;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import litmgmt.citation.collections.CollectionManager;
+import litmgmt.citation.description.EntryType;
+import litmgmt.citation.description.FieldType;
+import litmgmt.users.UserAuthenticator;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+
+/** Tests for the write-ahead journal, on real files: records are written, the journal is closed
+ * and its segments are replayed into a fresh program state. */
+public class JournalTest {
+
+  @Rule
+  public TemporaryFolder _folder = new TemporaryFolder();
+
+
+  /** All kinds of records must be replayed to the state they were journaled from. */
+  @Test
+  public void replaysJournal() throws Exception {
+    var state = new State();
+    activate();
+    try {
+      fill(state);
+    }
+    finally {
+      Journal.close();
+    }
+    var replayed = replay();
+    assertEquals(state.dump(), replayed.dump());
+    var collection = replayed.colMgr.getCollectionList().get(0);
+    assertEquals("renamed", collection.getName());
+    assertNull(collection.getEntryByCiteKey("knuth84").getField(FieldType.NOTE));
+    assertNull(collection.getEntryByCiteKey("gone"));
+    assertTrue(IdHelper.peekEntryId() > collection.getEntryByCiteKey("knuth84").getId());
+  }
+
+
+  /** A torn frame at the end of a segment ends the replay of it and is cut off. */
+  @Test
+  public void cutsTornTail() throws Exception {
+    var state = new State();
+    activate();
+    try {
+      fill(state);
+    }
+    finally {
+      Journal.close();
+    }
+    var segment = segments().get(0);
+    var length = Files.size(segment);
+    Files.write(segment, new byte[] {0, 0, 0, 50, 1, 2, 3, 4, 5, 6}, StandardOpenOption.APPEND);
+    assertEquals(state.dump(), replay().dump());
+    assertEquals(length, Files.size(segment));
+
+    // A frame cut in the middle loses its record (the last rename of the collection), but no other.
+    try (var channel = Files.newByteChannel(segment, StandardOpenOption.WRITE)) {
+      channel.truncate(length - 3);
+    }
+    var replayed = replay();
+    assertEquals("col", replayed.colMgr.getCollectionList().get(0).getName());
+    assertNotNull(replayed.colMgr.getCollectionList().get(0).getEntryByCiteKey("knuth84"));
+  }
+
+
+  /** The records of a batch must be replayed all or not at all. */
+  @Test
+  public void replaysBatchesAsOneUnit() throws Exception {
+    var state = new State();
+    activate();
+    try {
+      state.userAuth.createNewUser("user", "user@example.com", "secret");
+      var collection = state.colMgr.createCollection(state.userAuth.getUserList().get(0), "col");
+      Journal.beginBatch();
+      try {
+        var entry = collection.createEntry("a", EntryType.BOOK, fields(FieldType.TITLE, "A"));
+        entry.setField(FieldType.YEAR, "2001");
+        collection.createEntry("b", EntryType.BOOK);
+      }
+      finally {
+        Journal.endBatch();
+      }
+      Journal.sync();
+    }
+    finally {
+      Journal.close();
+    }
+    var segment = segments().get(0);
+    assertEquals(state.dump(), replay().dump());
+
+    try (var channel = Files.newByteChannel(segment, StandardOpenOption.WRITE)) {
+      channel.truncate(Files.size(segment) - 1);
+    }
+    var replayed = replay();
+    assertEquals(1, replayed.colMgr.getCollectionList().size());
+    assertEquals(0, replayed.colMgr.getCollectionList().get(0).getEntryCount());
+  }
+
+
+  /** Rotating starts a new segment, discarding removes the closed ones only. */
+  @Test
+  public void rotatesAndDiscardsSegments() throws Exception {
+    var state = new State();
+    activate();
+    try {
+      state.userAuth.createNewUser("user", "user@example.com", "secret");
+      var lastSegment = Journal.rotate();
+      state.userAuth.createNewUser("other", "other@example.com", "secret");
+      Journal.sync();
+      assertEquals(2, segments().size());
+      Journal.discardSegments(lastSegment);
+    }
+    finally {
+      Journal.close();
+    }
+    assertEquals(1, segments().size());
+    var replayed = replay();
+    assertEquals(1, replayed.userAuth.getUserList().size());
+    assertEquals("other", replayed.userAuth.getUserList().get(0).getName());
+  }
+
+
+  /** Restoring a snapshot and replaying the journal on top must give the same state, also if the journal
+   * still holds records that are already in the save file. */
+  @Test
+  public void replaysOnTopOfSnapshot() throws Exception {
+    var saveFile = _folder.getRoot().toPath().resolve("savefile.bin").toString();
+    var state = new State();
+    activate();
+    try {
+      state.userAuth.createNewUser("user", "user@example.com", "secret");
+      var collection = state.colMgr.createCollection(state.userAuth.getUserList().get(0), "col");
+      collection.createEntry("a", EntryType.MISC).setField(FieldType.NOTE, "before");
+      assertTrue(new SaveFileReader(saveFile, state.userAuth, state.colMgr).takeSnapshot());
+      assertEquals(1, segments().size());
+      collection.getEntryByCiteKey("a").setField(FieldType.NOTE, "after");
+      collection.createEntry("b", EntryType.MISC);
+      Journal.sync();
+
+      // A save file without rotation contains everything the journal holds.
+      Files.copy(Path.of(saveFile), Path.of(saveFile+".old"));
+      assertTrue(new SaveFileReader(saveFile, state.userAuth, state.colMgr).saveToFile());
+    }
+    finally {
+      Journal.close();
+    }
+    assertEquals(state.dump(), restore(saveFile+".old").dump());
+    assertEquals(state.dump(), restore(saveFile).dump());
+  }
+
+
+  // __________________________________________________________________________
+
+  /** Program state to journal from or replay into. */
+  private static class State {
+    final UserAuthenticator userAuth = new UserAuthenticator();
+    final CollectionManager colMgr = new CollectionManager();
+
+
+    /** Describe users, collections and entries as text, to compare two states. */
+    String dump() {
+      var dump = new StringBuilder();
+      for (var user : userAuth.getUserList()) {
+        dump.append(user.getId()+" "+user.getName()+" "+user.getEmail()+" "+user.GetAllCollections()+"\n");
+      }
+      var colIds = new ArrayList<Integer>(colMgr.getCollectionIds());
+      Collections.sort(colIds);
+      for (var colId : colIds) {
+        var collection = colMgr.getCollection(colId);
+        dump.append(colId+" "+collection.getName()+"\n");
+        for (var entry : collection.getEntries()) {
+          dump.append(new String(entry.toJson(), StandardCharsets.UTF_8)).append('\n');
+        }
+      }
+      return dump.toString();
+    }
+  }
+
+
+  /** Make changes of all record types. The last change is the rename of the collection. */
+  private static void fill(State state) throws Exception {
+    state.userAuth.createNewUser("user", "user@example.com", "secret");
+    var user = state.userAuth.getUserList().get(0);
+    var collection = state.colMgr.createCollection(user, "col");
+    var dropped = state.colMgr.createCollection(user, "dropped");
+    dropped.createEntry("x", EntryType.MISC);
+    state.colMgr.deleteCollection(user, dropped);
+    var entry = collection.createEntry("knuth", EntryType.ARTICLE, fields(FieldType.TITLE, "Literate Programming"));
+    entry.setField(FieldType.NOTE, "to be cleared");
+    entry.setField(FieldType.NOTE, null);
+    entry.setField(FieldType.AUTHOR, "Knuth, Donald E. à 中");
+    collection.renameEntry(entry, "knuth84");
+    collection.deleteEntry(collection.createEntry("gone", EntryType.BOOK));
+    state.colMgr.renameCollection(user, collection, "renamed");
+    Journal.sync();
+  }
+
+
+  /** Start journaling into the temporary folder, with fresh ID counters. */
+  private void activate() {
+    IdHelper.initialize(0, 0, 0);
+    Journal.open(_folder.getRoot().toPath().resolve("savefile.journal").toString());
+    Journal.activate();
+  }
+
+
+  /** Replay the journal into a fresh state. */
+  private State replay() {
+    IdHelper.initialize(0, 0, 0);
+    var state = new State();
+    Journal.open(_folder.getRoot().toPath().resolve("savefile.journal").toString());
+    Journal.replay(state.userAuth, state.colMgr);
+    return state;
+  }
+
+
+  /** Read a save file and replay the journal on top. */
+  private State restore(String saveFile) {
+    var state = new State();
+    assertTrue(new SaveFileReader(saveFile, state.userAuth, state.colMgr).readFromFile());
+    Journal.open(_folder.getRoot().toPath().resolve("savefile.journal").toString());
+    Journal.replay(state.userAuth, state.colMgr);
+    return state;
+  }
+
+
+  /** List the journal segments in the temporary folder, oldest first. */
+  private List<Path> segments() throws IOException {
+    var segments = new ArrayList<Path>();
+    try (var stream = Files.newDirectoryStream(_folder.getRoot().toPath(), "savefile.journal.*")) {
+      for (var path : stream) segments.add(path);
+    }
+    Collections.sort(segments);
+    return segments;
+  }
+
+
+  private static Map<FieldType, String> fields(FieldType fieldType, String value) {
+    var fields = new LinkedHashMap<FieldType, String>();
+    fields.put(fieldType, value);
+    return fields;
+  }
+}
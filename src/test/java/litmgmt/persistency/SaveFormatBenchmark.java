@@ -0,0 +1,60 @@
+package litmgmt.persistency;
+
+import java.nio.file.Files;
+import litmgmt.citation.collections.CollectionManager;
+import litmgmt.users.UserAuthenticator;
+
+
+/** Compares the JSON and the binary save file on the same synthetic program state (see StartupBenchmark):
+ * the file sizes and, per round, the load times of both, and the ratios of JSON to binary.
+ * Not a unit test, run it with 'mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=litmgmt.persistency.SaveFormatBenchmark' (needs about 3 GB of heap).
+ * Optional arguments: number of entries and number of rounds. */
+public class SaveFormatBenchmark {
+
+  public static void main(final String[] args) throws Exception {
+    var entries = (args.length > 0)? Integer.parseInt(args[0]) : 1000000;
+    var rounds = (args.length > 1)? Integer.parseInt(args[1]) : 3;
+    var dir = Files.createTempDirectory("formats");
+    var json = dir.resolve("savefile.json");
+    var bin = dir.resolve("savefile.bin");
+    try {
+      var userAuth = new UserAuthenticator();
+      var colMgr = new CollectionManager();
+      StartupBenchmark.fill(userAuth, colMgr, entries);
+      var start = System.nanoTime();
+      if (!new SaveFileReader(json.toString(), userAuth, colMgr).saveToFile()) throw new IllegalStateException();
+      var jsonWrite = System.nanoTime() - start;
+      start = System.nanoTime();
+      if (!new SaveFileReader(bin.toString(), userAuth, colMgr).saveToFile()) throw new IllegalStateException();
+      var binWrite = System.nanoTime() - start;
+      userAuth = null;
+      colMgr = null;
+      System.out.printf("%d entries: JSON %.1f MB in %.1f s, binary %.1f MB in %.1f s, size ratio %.2f%n", entries,
+        Files.size(json) / 1e6, jsonWrite / 1e9, Files.size(bin) / 1e6, binWrite / 1e9,
+        (double) Files.size(json) / Files.size(bin));
+
+      System.out.printf("%10s %14s %14s %14s%n", "round", "JSON [ms]", "binary [ms]", "ratio");
+      for (int round = 1; round <= rounds; round++) {  // The first round warms up the JIT.
+        System.gc();
+        start = System.nanoTime();
+        var jsonCount = StartupBenchmark.load(json.toString());
+        var jsonLoad = System.nanoTime() - start;
+        System.gc();
+        start = System.nanoTime();
+        var binCount = StartupBenchmark.load(bin.toString());
+        var binLoad = System.nanoTime() - start;
+        if (jsonCount != entries || binCount != entries) {
+          throw new IllegalStateException("Restored "+jsonCount+" and "+binCount+" of "+entries+" entries");
+        }
+        System.out.printf("%10d %14.0f %14.0f %14.2f%n", round, jsonLoad / 1e6, binLoad / 1e6,
+          (double) jsonLoad / binLoad);
+      }
+    }
+    finally {
+      Files.deleteIfExists(json);
+      Files.deleteIfExists(bin);
+      Files.deleteIfExists(dir);
+    }
+  }
+}
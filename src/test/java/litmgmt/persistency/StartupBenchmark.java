@@ -0,0 +1,142 @@
+package litmgmt.persistency;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Random;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonToken;
+import litmgmt.citation.collections.Collection;
+import litmgmt.citation.collections.CollectionManager;
+import litmgmt.citation.description.EntryType;
+import litmgmt.citation.description.FieldType;
+import litmgmt.users.User;
+import litmgmt.users.UserAuthenticator;
+
+
+/** Measures the cold start restore of a synthetic JSON save file with a million entries in a thousand
+ * collections of a hundred users: the chunked parallel decoding of SaveFileReader against decoding the
+ * collections one after the other from a single parser (as before).
+ * Prints the file size and, per round, both load times and the entries restored per second.
+ * The parallel loader uses one worker per core, compare core counts with '-XX:ActiveProcessorCount=[n]'.
+ * Not a unit test, run it with 'mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=litmgmt.persistency.StartupBenchmark' (needs about 3 GB of heap).
+ * Optional arguments: number of entries and number of rounds. */
+public class StartupBenchmark {
+
+  private static final int USERS = 100;
+  private static final int COLLECTIONS = 1000;
+
+
+  public static void main(final String[] args) throws Exception {
+    var entries = (args.length > 0)? Integer.parseInt(args[0]) : 1000000;
+    var rounds = (args.length > 1)? Integer.parseInt(args[1]) : 3;
+    var dir = Files.createTempDirectory("startup");
+    var file = dir.resolve("savefile.json");
+    try {
+      var start = System.nanoTime();
+      write(file.toString(), entries);
+      System.out.printf("Wrote %d entries in %.1f s: %.1f MB, %d processors%n", entries,
+        (System.nanoTime() - start) / 1e9, Files.size(file) / 1e6, Runtime.getRuntime().availableProcessors());
+
+      System.out.printf("%10s %14s %14s %14s%n", "round", "serial [ms]", "parallel [ms]", "entries/s");
+      for (int round = 1; round <= rounds; round++) {  // The first round warms up the JIT.
+        System.gc();
+        start = System.nanoTime();
+        var serialCount = loadSerially(file);
+        var serial = System.nanoTime() - start;
+        System.gc();
+        start = System.nanoTime();
+        var parallelCount = load(file.toString());
+        var parallel = System.nanoTime() - start;
+        if (serialCount != entries || parallelCount != entries) {
+          throw new IllegalStateException("Restored "+serialCount+" and "+parallelCount+" of "+entries+" entries");
+        }
+        System.out.printf("%10d %14.0f %14.0f %14.0f%n", round, serial / 1e6, parallel / 1e6,
+          entries / (parallel / 1e9));
+      }
+    }
+    finally {
+      Files.deleteIfExists(file);
+      Files.deleteIfExists(dir);
+    }
+  }
+
+
+  /** Build the synthetic program state: users own ten collections each, the entries are spread evenly
+   * over the collections and have six fields, of which journal and year repeat a lot.
+   * @param userAuth User authenticator to add the users to.
+   * @param colMgr Collection manager to add the collections to.
+   * @param entries Number of entries. */
+  static void fill(UserAuthenticator userAuth, CollectionManager colMgr, int entries) {
+    var random = new Random(42);
+    var users = new ArrayList<User>();
+    for (int u = 0; u < USERS; u++) {
+      users.add(User.restoreUser(u, "user"+u, "user"+u+"@example.com", "hash"+u, new ArrayList<Integer>()));
+    }
+    userAuth.setUserList(users);
+    var collections = new ArrayList<Collection>();
+    for (int c = 0; c < COLLECTIONS; c++) collections.add(colMgr.restoreCollection(users.get(c % USERS), c, "col"+c));
+    for (int i = 0; i < entries; i++) {
+      var entry = collections.get(i % COLLECTIONS).restoreEntry(i, "key"+i, EntryType.ARTICLE);
+      entry.setField(FieldType.AUTHOR, "Author"+random.nextInt(50000)+", A. and Author"+random.nextInt(50000)+", B.");
+      entry.setField(FieldType.TITLE, "On the synthetic benchmark entry number "+i);
+      entry.setField(FieldType.JOURNAL, "Journal of Benchmarks "+random.nextInt(200));
+      entry.setField(FieldType.YEAR, Integer.toString(1950 + random.nextInt(70)));
+      entry.setField(FieldType.VOLUME, Integer.toString(1 + random.nextInt(60)));
+      entry.setField(FieldType.PAGES, (1 + random.nextInt(500))+"--"+(501 + random.nextInt(500)));
+    }
+    IdHelper.initialize(USERS, COLLECTIONS, entries);
+  }
+
+
+  /** Write the synthetic program state to a save file (JSON or binary, by file name).
+   * @param file Path to the save file.
+   * @param entries Number of entries. */
+  static void write(String file, int entries) {
+    var userAuth = new UserAuthenticator();
+    var colMgr = new CollectionManager();
+    fill(userAuth, colMgr, entries);
+    if (!new SaveFileReader(file, userAuth, colMgr).saveToFile()) throw new IllegalStateException("Not saved");
+  }
+
+
+  /** Restore a save file with the SaveFileReader.
+   * @param file Path to the save file.
+   * @return Number of restored entries. */
+  static long load(String file) {
+    var colMgr = new CollectionManager();
+    if (!new SaveFileReader(file, new UserAuthenticator(), colMgr).readFromFile()) {
+      throw new IllegalStateException("Not restored");
+    }
+    long count = 0;
+    for (var collection : colMgr.getCollectionList()) count += collection.getEntryCount();
+    return count;
+  }
+
+
+  /** Decode the collections of a JSON save file one after the other, from a single parser. They are
+   * kept until all are decoded, like by the SaveFileReader, so that both put the same load on the heap.
+   * @param file Path to the save file.
+   * @return Number of restored entries. */
+  private static long loadSerially(Path file) throws IOException {
+    var collections = new ArrayList<Collection>();
+    try (var parser = new JsonFactory().createParser(new BufferedInputStream(Files.newInputStream(file), 65536))) {
+      parser.nextToken();
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        var key = parser.getCurrentName();
+        parser.nextToken();
+        if (!key.equals("collections")) {
+          parser.skipChildren();
+          continue;
+        }
+        while (parser.nextToken() == JsonToken.START_OBJECT) collections.add(Collection.loadCollectionFromJson(parser));
+      }
+    }
+    long count = 0;
+    for (var collection : collections) count += collection.getEntryCount();
+    return count;
+  }
+}
@@ -0,0 +1,74 @@
+package litmgmt.rest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import litmgmt.citation.collections.Collection;
+import litmgmt.citation.description.EntryType;
+import litmgmt.citation.description.FieldType;
+import org.junit.Test;
+
+
+/** Tests for the batch requests on entries. */
+public class EntryBatchTest {
+
+  /** Each operation must be applied or rejected on its own, with its status in the result. */
+  @Test
+  public void appliesOperations() throws Exception {
+    var collection = Collection.restoreCollection(0, "col");
+    var kept = collection.restoreEntry(1, "kept", EntryType.ARTICLE);
+    var removed = collection.restoreEntry(2, "removed", EntryType.BOOK);
+    var keptTag = JavalinServer.etag(kept.getVersion());
+    var removedTag = JavalinServer.etag(removed.getVersion());
+    var results = apply(collection, "["
+      +"{'op':'create', 'citeKey':'new', 'entryType':'misc', 'fields':[{'fieldType':'note', 'value':'n'}]},"
+      +"{'op':'create', 'citeKey':'kept', 'entryType':'misc'},"
+      +"{'op':'update', 'entryId':1, 'ifMatch':'"+keptTag+"', 'citeKey':'renamed',"
+      +"  'fields':[{'fieldType':'journal', 'value':'J'}]},"
+      +"{'op':'update', 'entryId':1, 'ifMatch':'"+keptTag+"'},"
+      +"{'op':'update', 'entryId':1, 'entryType':'book', 'fields':[{'fieldType':'year', 'value':'1'}]},"
+      +"{'op':'update', 'entryId':1, 'fields':[{'fieldType':'year', 'value':'1'}, {'fieldType':'x', 'value':'y'}]},"
+      +"{'op':'delete', 'entryId':2, 'ifMatch':'"+removedTag+"'},"
+      +"{'op':'delete', 'entryId':2},"
+      +"{'op':'merge'}]"
+    );
+    assertEquals(9, results.size());
+    int[] statuses = {201, 409, 200, 412, 405, 400, 200, 404, 400};
+    for (int i = 0; i < statuses.length; i++) assertEquals(statuses[i], results.get(i).get("status").asInt());
+
+    var created = collection.getEntryByCiteKey("new");
+    assertEquals(created.getId(), results.get(0).get("entryId").asInt());
+    assertEquals("n", results.get(0).get("entry").get("fields").get(0).get("value").asText());
+    assertEquals("renamed", kept.getCiteKey());
+    assertEquals("J", kept.getField(FieldType.JOURNAL));
+    assertNull(kept.getField(FieldType.YEAR));
+    assertEquals(JavalinServer.etag(kept.getVersion()), results.get(3).get("etag").asText());
+    assertNull(collection.getEntry(2));
+    assertEquals(2, collection.getEntries().size());
+  }
+
+
+  /** Malformed operations must be rejected on their own, without failing the whole batch. */
+  @Test
+  public void rejectsMalformedOperations() throws Exception {
+    var collection = Collection.restoreCollection(0, "col");
+    var results = apply(collection, "["
+      +"null,"
+      +"{'op':'create', 'citeKey':'a', 'entryType':'misc', 'fields':[null]},"
+      +"{'op':'create', 'citeKey':'b', 'entryType':'misc'}]"
+    );
+    assertEquals(3, results.size());
+    int[] statuses = {400, 400, 201};
+    for (int i = 0; i < statuses.length; i++) assertEquals(statuses[i], results.get(i).get("status").asInt());
+    assertNull(collection.getEntryByCiteKey("a"));
+    assertEquals(1, collection.getEntries().size());
+  }
+
+
+  /** Apply a batch, given as JSON with single quotes (ETags contain double quotes, they are escaped). */
+  private static JsonNode apply(Collection collection, String json) throws Exception {
+    json = json.replace("\"", "\\\"").replace('\'', '"');
+    return JsonCodec.MAPPER.readTree(EntryBatch.apply(collection, JsonCodec.BATCH_READER.readValue(json)));
+  }
+}
@@ -0,0 +1,75 @@
+package litmgmt.rest;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+
+/** Compares the allocation rate of parsing request bodies under load: a new object mapper and JSON
+ * tree per request (as the handlers did before) against the shared, pre-built readers of {@link JsonCodec}.
+ * Not a unit test, run it with 'mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=litmgmt.rest.JsonCodecBenchmark'. */
+public class JsonCodecBenchmark {
+
+  private static final int THREADS = 8;
+  private static final int REQUESTS = 20000;  // Per thread and round.
+  private static final String BODY = "{\"citeKey\":\"myCiteRef2018\", \"entryType\":\"article\", \"fields\":["+
+    "{\"fieldType\":\"author\", \"value\":\"Jim Raynor\"}, {\"fieldType\":\"address\", \"value\":\"Tarsonis\"},"+
+    "{\"fieldType\":\"title\", \"value\":\"Heaven's Devils\"}, {\"fieldType\":\"year\", \"value\":\"2010\"}]}";
+
+
+  public static void main(final String[] args) throws Exception {
+    Callable<Integer> perRequestMapper = () -> {
+      var jsonNode = new ObjectMapper().readTree(BODY);
+      var length = jsonNode.get("citeKey").asText().length() + jsonNode.get("entryType").asText().length();
+      for (var field : jsonNode.get("fields")) length += field.get("value").asText().length();
+      return length;
+    };
+    Callable<Integer> sharedReader = () -> {
+      JsonCodec.EntryRequest request = JsonCodec.ENTRY_READER.readValue(BODY);
+      var length = request.citeKey.length() + request.entryType.length();
+      for (var field : request.fields) length += field.value.length();
+      return length;
+    };
+    System.out.printf("%-20s %14s %14s %16s%n", "", "requests/s", "bytes/request", "alloc rate [MB/s]");
+    for (int round = 0; round < 2; round++) {  // First round warms up the JIT.
+      var results = new String[] {measure("per-request mapper", perRequestMapper),
+        measure("shared reader", sharedReader)};
+      if (round > 0) for (var result : results) System.out.println(result);
+    }
+  }
+
+
+  /** Parse the request body concurrently and measure throughput and allocations of all threads.
+   * @param name Name of the variant.
+   * @param parse Parses the body once.
+   * @return Formatted result line. */
+  private static String measure(String name, Callable<Integer> parse) throws Exception {
+    var threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    var pool = Executors.newFixedThreadPool(THREADS);
+    try {
+      var tasks = new ArrayList<Callable<Long>>();
+      for (int t = 0; t < THREADS; t++) {
+        tasks.add(() -> {
+          var before = threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+          long check = 0;
+          for (int i = 0; i < REQUESTS; i++) check += parse.call();
+          if (check == 0) throw new IllegalStateException();
+          return threadBean.getThreadAllocatedBytes(Thread.currentThread().getId()) - before;
+        });
+      }
+      var start = System.nanoTime();
+      long allocated = 0;
+      for (var future : pool.invokeAll(tasks)) allocated += future.get();
+      var seconds = (System.nanoTime() - start) / 1e9;
+      var requests = (long) THREADS * REQUESTS;
+      return String.format("%-20s %14.0f %14d %16.1f",
+        name, requests / seconds, allocated / requests, allocated / seconds / 1e6);
+    }
+    finally {
+      pool.shutdownNow();
+    }
+  }
+}
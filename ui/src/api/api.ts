@@ -19,6 +19,135 @@ import globalAxios, { AxiosPromise, AxiosInstance } from 'axios';
 // @ts-ignore
 import { BASE_PATH, COLLECTION_FORMATS, RequestArgs, BaseAPI, RequiredError } from './base';
 
+/**
+ * 
+ * @export
+ * @interface AuthorCount
+ */
+export interface AuthorCount {
+    /**
+     * 
+     * @type {string}
+     * @memberof AuthorCount
+     */
+    name: string;
+    /**
+     * 
+     * @type {number}
+     * @memberof AuthorCount
+     */
+    count: number;
+}
+/**
+ * 
+ * @export
+ * @interface AuthorEntry
+ */
+export interface AuthorEntry {
+    /**
+     * 
+     * @type {number}
+     * @memberof AuthorEntry
+     */
+    collectionId: number;
+    /**
+     * 
+     * @type {Entry}
+     * @memberof AuthorEntry
+     */
+    entry: Entry;
+}
+/**
+ * 
+ * @export
+ * @interface BatchOperation
+ */
+export interface BatchOperation {
+    /**
+     * 
+     * @type {BatchOperationOpEnum}
+     * @memberof BatchOperation
+     */
+    op: BatchOperationOpEnum;
+    /**
+     * 
+     * @type {number}
+     * @memberof BatchOperation
+     */
+    entryId?: number;
+    /**
+     * 
+     * @type {string}
+     * @memberof BatchOperation
+     */
+    ifMatch?: string;
+    /**
+     * 
+     * @type {string}
+     * @memberof BatchOperation
+     */
+    citeKey?: string;
+    /**
+     * 
+     * @type {EntryType}
+     * @memberof BatchOperation
+     */
+    entryType?: EntryType;
+    /**
+     * 
+     * @type {Array<Field>}
+     * @memberof BatchOperation
+     */
+    fields?: Array<Field>;
+}
+
+/**
+    * @export
+    * @enum {string}
+    */
+export enum BatchOperationOpEnum {
+    Create = 'create',
+    Update = 'update',
+    Delete = 'delete'
+}
+
+/**
+ * 
+ * @export
+ * @interface BatchResult
+ */
+export interface BatchResult {
+    /**
+     * 
+     * @type {number}
+     * @memberof BatchResult
+     */
+    status: number;
+    /**
+     * 
+     * @type {number}
+     * @memberof BatchResult
+     */
+    entryId?: number;
+    /**
+     * 
+     * @type {string}
+     * @memberof BatchResult
+     */
+    etag?: string;
+    /**
+     * 
+     * @type {Entry}
+     * @memberof BatchResult
+     */
+    entry?: Entry;
+    /**
+     * 
+     * @type {string}
+     * @memberof BatchResult
+     */
+    error?: string;
+}
 /**
  * 
  * @export
@@ -63,6 +192,25 @@ export interface Credentials {
      */
     password: string;
 }
+/**
+ * 
+ * @export
+ * @interface DuplicateCluster
+ */
+export interface DuplicateCluster {
+    /**
+     * 
+     * @type {number}
+     * @memberof DuplicateCluster
+     */
+    similarity: number;
+    /**
+     * 
+     * @type {Array<Entry>}
+     * @memberof DuplicateCluster
+     */
+    entries: Array<Entry>;
+}
 /**
  * 
  * @export
@@ -210,6 +358,226 @@ export enum FieldType {
     Year = 'year'
 }
 
+/**
+ * 
+ * @export
+ * @interface ImportReport
+ */
+export interface ImportReport {
+    /**
+     * 
+     * @type {number}
+     * @memberof ImportReport
+     */
+    imported: number;
+    /**
+     * 
+     * @type {number}
+     * @memberof ImportReport
+     */
+    rejected: number;
+    /**
+     * 
+     * @type {Array<ImportRecord>}
+     * @memberof ImportReport
+     */
+    records: Array<ImportRecord>;
+}
+/**
+ * 
+ * @export
+ * @interface ImportRecord
+ */
+export interface ImportRecord {
+    /**
+     * 
+     * @type {number}
+     * @memberof ImportRecord
+     */
+    line: number;
+    /**
+     * 
+     * @type {string}
+     * @memberof ImportRecord
+     */
+    citeKey?: string;
+    /**
+     * 
+     * @type {number}
+     * @memberof ImportRecord
+     */
+    entryId?: number;
+    /**
+     * 
+     * @type {string}
+     * @memberof ImportRecord
+     */
+    error?: string;
+    /**
+     * 
+     * @type {Array<string>}
+     * @memberof ImportRecord
+     */
+    warnings?: Array<string>;
+}
+/**
+ * 
+ * @export
+ * @interface Job
+ */
+export interface Job {
+    /**
+     * 
+     * @type {number}
+     * @memberof Job
+     */
+    id: number;
+    /**
+     * 
+     * @type {JobTypeEnum}
+     * @memberof Job
+     */
+    type: JobTypeEnum;
+    /**
+     * 
+     * @type {number}
+     * @memberof Job
+     */
+    userId: number;
+    /**
+     * 
+     * @type {number}
+     * @memberof Job
+     */
+    collectionId: number;
+    /**
+     * 
+     * @type {JobStateEnum}
+     * @memberof Job
+     */
+    state: JobStateEnum;
+    /**
+     * 
+     * @type {number}
+     * @memberof Job
+     */
+    done: number;
+    /**
+     * 
+     * @type {number}
+     * @memberof Job
+     */
+    total: number;
+    /**
+     * 
+     * @type {string}
+     * @memberof Job
+     */
+    created: string;
+    /**
+     * 
+     * @type {string}
+     * @memberof Job
+     */
+    started?: string;
+    /**
+     * 
+     * @type {string}
+     * @memberof Job
+     */
+    finished?: string;
+    /**
+     * 
+     * @type {string}
+     * @memberof Job
+     */
+    error?: string;
+}
+
+/**
+    * @export
+    * @enum {string}
+    */
+export enum JobTypeEnum {
+    Export = 'export',
+    Import = 'import',
+    Reindex = 'reindex',
+    Dedup = 'dedup'
+}
+/**
+    * @export
+    * @enum {string}
+    */
+export enum JobStateEnum {
+    Queued = 'queued',
+    Running = 'running',
+    Succeeded = 'succeeded',
+    Failed = 'failed',
+    Cancelled = 'cancelled'
+}
+
+/**
+ * 
+ * @export
+ * @interface SearchHit
+ */
+export interface SearchHit {
+    /**
+     * 
+     * @type {number}
+     * @memberof SearchHit
+     */
+    collectionId: number;
+    /**
+     * 
+     * @type {number}
+     * @memberof SearchHit
+     */
+    score: number;
+    /**
+     * 
+     * @type {Entry}
+     * @memberof SearchHit
+     */
+    entry: Entry;
+}
+/**
+ * 
+ * @export
+ * @interface Stats
+ */
+export interface Stats {
+    /**
+     * 
+     * @type {number}
+     * @memberof Stats
+     */
+    entryCount: number;
+    /**
+     * 
+     * @type {{ [key: string]: number; }}
+     * @memberof Stats
+     */
+    entryType: { [key: string]: number; };
+    /**
+     * 
+     * @type {{ [key: string]: number; }}
+     * @memberof Stats
+     */
+    year: { [key: string]: number; };
+    /**
+     * 
+     * @type {{ [key: string]: number; }}
+     * @memberof Stats
+     */
+    journal: { [key: string]: number; };
+    /**
+     * 
+     * @type {{ [key: string]: number; }}
+     * @memberof Stats
+     */
+    booktitle: { [key: string]: number; };
+}
 /**
  * 
  * @export
@@ -366,24 +734,29 @@ export const DefaultApiAxiosParamCreator = function (configuration?: Configurati
             };
         },
         /**
-         * deletes a collection by id
-         * @param {number} id ID of collection to delete
+         * applies a list of create, update and delete operations to the entries of a collection
+         * @param {number} collectionId ID 
+         * @param {Array<BatchOperation>} batchOperation operations, at most 1000 
          * @param {*} [options] Override http request option.
          * @throws {RequiredError}
          */
-        deleteCollection(id: number, options: any = {}): RequestArgs {
-            // verify required parameter 'id' is not null or undefined
-            if (id === null || id === undefined) {
-                throw new RequiredError('id','Required parameter id was null or undefined when calling deleteCollection.');
+        batchEntries(collectionId: number, batchOperation: Array<BatchOperation>, options: any = {}): RequestArgs {
+            // verify required parameter 'collectionId' is not null or undefined
+            if (collectionId === null || collectionId === undefined) {
+                throw new RequiredError('collectionId','Required parameter collectionId was null or undefined when calling batchEntries.');
             }
-            const localVarPath = `/collections/{id}`
-                .replace(`{${"id"}}`, encodeURIComponent(String(id)));
+            // verify required parameter 'batchOperation' is not null or undefined
+            if (batchOperation === null || batchOperation === undefined) {
+                throw new RequiredError('batchOperation','Required parameter batchOperation was null or undefined when calling batchEntries.');
+            }
+            const localVarPath = `/collections/{collectionId}/entries:batch`
+                .replace(`{${"collectionId"}}`, encodeURIComponent(String(collectionId)));
             const localVarUrlObj = globalImportUrl.parse(localVarPath, true);
             let baseOptions;
             if (configuration) {
                 baseOptions = configuration.baseOptions;
             }
-            const localVarRequestOptions = { method: 'DELETE', ...baseOptions, ...options};
+            const localVarRequestOptions = { method: 'POST', ...baseOptions, ...options};
             const localVarHeaderParameter = {} as any;
             const localVarQueryParameter = {} as any;
 
@@ -398,10 +771,14 @@ export const DefaultApiAxiosParamCreator = function (configuration?: Configurati
 
 
     
+            localVarHeaderParameter['Content-Type'] = 'application/json';
+
             localVarUrlObj.query = {...localVarUrlObj.query, ...localVarQueryParameter, ...options.query};
             // fix override query string Detail: https://stackoverflow.com/a/7517673/1077943
             delete localVarUrlObj.search;
             localVarRequestOptions.headers = {...localVarHeaderParameter, ...options.headers};
+            const needsSerialization = (typeof batchOperation !== "string") || localVarRequestOptions.headers['Content-Type'] === 'application/json';
+            localVarRequestOptions.data =  needsSerialization ? JSON.stringify(batchOperation !== undefined ? batchOperation : {}) : (batchOperation || "");
 
             return {
                 url: globalImportUrl.format(localVarUrlObj),
@@ -409,20 +786,106 @@ export const DefaultApiAxiosParamCreator = function (configuration?: Configurati
             };
         },
         /**
-         * deletes a collection by id
-         * @param {number} collectionId ID
-         * @param {number} entryId ID
+         * cancels a job. Queued jobs are cancelled at once, running ones shortly after. Finished jobs are not changed. 
+         * @param {number} id ID of job 
          * @param {*} [options] Override http request option.
          * @throws {RequiredError}
          */
-        deleteEntry(collectionId: number, entryId: number, options: any = {}): RequestArgs {
-            // verify required parameter 'collectionId' is not null or undefined
-            if (collectionId === null || collectionId === undefined) {
-                throw new RequiredError('collectionId','Required parameter collectionId was null or undefined when calling deleteEntry.');
-            }
-            // verify required parameter 'entryId' is not null or undefined
-            if (entryId === null || entryId === undefined) {
-                throw new RequiredError('entryId','Required parameter entryId was null or undefined when calling deleteEntry.');
+        cancelJob(id: number, options: any = {}): RequestArgs {
+            // verify required parameter 'id' is not null or undefined
+            if (id === null || id === undefined) {
+                throw new RequiredError('id','Required parameter id was null or undefined when calling cancelJob.');
+            }
+            const localVarPath = `/jobs/{id}`
+                .replace(`{${"id"}}`, encodeURIComponent(String(id)));
+            const localVarUrlObj = globalImportUrl.parse(localVarPath, true);
+            let baseOptions;
+            if (configuration) {
+                baseOptions = configuration.baseOptions;
+            }
+            const localVarRequestOptions = { method: 'DELETE', ...baseOptions, ...options};
+            const localVarHeaderParameter = {} as any;
+            const localVarQueryParameter = {} as any;
+
+            // authentication bearerAuth required
+            // http bearer authentication required
+            if (configuration && configuration.accessToken) {
+                const accessToken = typeof configuration.accessToken === 'function'
+                    ? configuration.accessToken()
+                    : configuration.accessToken;
+                localVarHeaderParameter["Authorization"] = "Bearer " + accessToken;
+            }
+
+
+    
+            localVarUrlObj.query = {...localVarUrlObj.query, ...localVarQueryParameter, ...options.query};
+            // fix override query string Detail: https://stackoverflow.com/a/7517673/1077943
+            delete localVarUrlObj.search;
+            localVarRequestOptions.headers = {...localVarHeaderParameter, ...options.headers};
+
+            return {
+                url: globalImportUrl.format(localVarUrlObj),
+                options: localVarRequestOptions,
+            };
+        },
+        /**
+         * deletes a collection by id
+         * @param {number} id ID of collection to delete
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        deleteCollection(id: number, options: any = {}): RequestArgs {
+            // verify required parameter 'id' is not null or undefined
+            if (id === null || id === undefined) {
+                throw new RequiredError('id','Required parameter id was null or undefined when calling deleteCollection.');
+            }
+            const localVarPath = `/collections/{id}`
+                .replace(`{${"id"}}`, encodeURIComponent(String(id)));
+            const localVarUrlObj = globalImportUrl.parse(localVarPath, true);
+            let baseOptions;
+            if (configuration) {
+                baseOptions = configuration.baseOptions;
+            }
+            const localVarRequestOptions = { method: 'DELETE', ...baseOptions, ...options};
+            const localVarHeaderParameter = {} as any;
+            const localVarQueryParameter = {} as any;
+
+            // authentication bearerAuth required
+            // http bearer authentication required
+            if (configuration && configuration.accessToken) {
+                const accessToken = typeof configuration.accessToken === 'function'
+                    ? configuration.accessToken()
+                    : configuration.accessToken;
+                localVarHeaderParameter["Authorization"] = "Bearer " + accessToken;
+            }
+
+
+    
+            localVarUrlObj.query = {...localVarUrlObj.query, ...localVarQueryParameter, ...options.query};
+            // fix override query string Detail: https://stackoverflow.com/a/7517673/1077943
+            delete localVarUrlObj.search;
+            localVarRequestOptions.headers = {...localVarHeaderParameter, ...options.headers};
+
+            return {
+                url: globalImportUrl.format(localVarUrlObj),
+                options: localVarRequestOptions,
+            };
+        },
+        /**
+         * deletes a collection by id
+         * @param {number} collectionId ID
+         * @param {number} entryId ID
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        deleteEntry(collectionId: number, entryId: number, options: any = {}): RequestArgs {
+            // verify required parameter 'collectionId' is not null or undefined
+            if (collectionId === null || collectionId === undefined) {
+                throw new RequiredError('collectionId','Required parameter collectionId was null or undefined when calling deleteEntry.');
+            }
+            // verify required parameter 'entryId' is not null or undefined
+            if (entryId === null || entryId === undefined) {
+                throw new RequiredError('entryId','Required parameter entryId was null or undefined when calling deleteEntry.');
             }
             const localVarPath = `/collections/{collectionId}/entries/{entryId}`
                 .replace(`{${"collectionId"}}`, encodeURIComponent(String(collectionId)))
@@ -567,6 +1030,100 @@ export const DefaultApiAxiosParamCreator = function (configuration?: Configurati
                 options: localVarRequestOptions,
             };
         },
+        /**
+         * exports a collection as BibTeX file
+         * @param {number} id ID of collection 
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        exportCollection(id: number, options: any = {}): RequestArgs {
+            // verify required parameter 'id' is not null or undefined
+            if (id === null || id === undefined) {
+                throw new RequiredError('id','Required parameter id was null or undefined when calling exportCollection.');
+            }
+            const localVarPath = `/collections/{id}/export.bib`
+                .replace(`{${"id"}}`, encodeURIComponent(String(id)));
+            const localVarUrlObj = globalImportUrl.parse(localVarPath, true);
+            let baseOptions;
+            if (configuration) {
+                baseOptions = configuration.baseOptions;
+            }
+            const localVarRequestOptions = { method: 'GET', ...baseOptions, ...options};
+            const localVarHeaderParameter = {} as any;
+            const localVarQueryParameter = {} as any;
+
+            // authentication bearerAuth required
+            // http bearer authentication required
+            if (configuration && configuration.accessToken) {
+                const accessToken = typeof configuration.accessToken === 'function'
+                    ? configuration.accessToken()
+                    : configuration.accessToken;
+                localVarHeaderParameter["Authorization"] = "Bearer " + accessToken;
+            }
+
+
+    
+            localVarUrlObj.query = {...localVarUrlObj.query, ...localVarQueryParameter, ...options.query};
+            // fix override query string Detail: https://stackoverflow.com/a/7517673/1077943
+            delete localVarUrlObj.search;
+            localVarRequestOptions.headers = {...localVarHeaderParameter, ...options.headers};
+
+            return {
+                url: globalImportUrl.format(localVarUrlObj),
+                options: localVarRequestOptions,
+            };
+        },
+        /**
+         * entries of an author or editor in all collections of the user
+         * @param {string} name Name of the author, e.g. 'Knuth, Donald E.'. A last name alone finds all authors with it. 
+         * @param {number} [limit] Maximum number of entries (default and at most 1000). 
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        findAuthorEntries(name: string, limit?: number, options: any = {}): RequestArgs {
+            // verify required parameter 'name' is not null or undefined
+            if (name === null || name === undefined) {
+                throw new RequiredError('name','Required parameter name was null or undefined when calling findAuthorEntries.');
+            }
+            const localVarPath = `/authors/entries`;
+            const localVarUrlObj = globalImportUrl.parse(localVarPath, true);
+            let baseOptions;
+            if (configuration) {
+                baseOptions = configuration.baseOptions;
+            }
+            const localVarRequestOptions = { method: 'GET', ...baseOptions, ...options};
+            const localVarHeaderParameter = {} as any;
+            const localVarQueryParameter = {} as any;
+
+            // authentication bearerAuth required
+            // http bearer authentication required
+            if (configuration && configuration.accessToken) {
+                const accessToken = typeof configuration.accessToken === 'function'
+                    ? configuration.accessToken()
+                    : configuration.accessToken;
+                localVarHeaderParameter["Authorization"] = "Bearer " + accessToken;
+            }
+
+            if (name !== undefined) {
+                localVarQueryParameter['name'] = name;
+            }
+
+            if (limit !== undefined) {
+                localVarQueryParameter['limit'] = limit;
+            }
+
+
+    
+            localVarUrlObj.query = {...localVarUrlObj.query, ...localVarQueryParameter, ...options.query};
+            // fix override query string Detail: https://stackoverflow.com/a/7517673/1077943
+            delete localVarUrlObj.search;
+            localVarRequestOptions.headers = {...localVarHeaderParameter, ...options.headers};
+
+            return {
+                url: globalImportUrl.format(localVarUrlObj),
+                options: localVarRequestOptions,
+            };
+        },
         /**
          * returns a single collection
          * @param {number} id ID
@@ -612,10 +1169,13 @@ export const DefaultApiAxiosParamCreator = function (configuration?: Configurati
         },
         /**
          * Latex literature management
+         * @param {number} [limit] Page size (at most 1000). Enables paging ordered by id. Without \'limit\' and \'cursor\', everything is returned at once. 
+         * @param {string} [cursor] Opaque cursor from the \'X-Next-Cursor\' header of the previous page. Items added or removed meanwhile do not shift the following pages. 
+         * @param {string} [fields] Comma-separated collection properties to return (id, name, entries). The id is always returned. Use \'name\' to list the collections without their entries. 
          * @param {*} [options] Override http request option.
          * @throws {RequiredError}
          */
-        findCollections(options: any = {}): RequestArgs {
+        findCollections(limit?: number, cursor?: string, fields?: string, options: any = {}): RequestArgs {
             const localVarPath = `/collections`;
             const localVarUrlObj = globalImportUrl.parse(localVarPath, true);
             let baseOptions;
@@ -635,6 +1195,18 @@ export const DefaultApiAxiosParamCreator = function (configuration?: Configurati
                 localVarHeaderParameter["Authorization"] = "Bearer " + accessToken;
             }
 
+            if (limit !== undefined) {
+                localVarQueryParameter['limit'] = limit;
+            }
+
+            if (cursor !== undefined) {
+                localVarQueryParameter['cursor'] = cursor;
+            }
+
+            if (fields !== undefined) {
+                localVarQueryParameter['fields'] = fields;
+            }
+
 
     
             localVarUrlObj.query = {...localVarUrlObj.query, ...localVarQueryParameter, ...options.query};
@@ -648,24 +1220,19 @@ export const DefaultApiAxiosParamCreator = function (configuration?: Configurati
             };
         },
         /**
-         * returns a single entry
-         * @param {number} collectionId ID
-         * @param {number} entryId ID
+         * clusters of near-duplicate entries of a collection (similar title, authors and year), e.g. the same paper imported under two cite keys. The largest clusters come first. 
+         * @param {number} id ID of collection 
+         * @param {number} [limit] Maximum number of clusters (default and at most 1000). 
          * @param {*} [options] Override http request option.
          * @throws {RequiredError}
          */
-        findEntry(collectionId: number, entryId: number, options: any = {}): RequestArgs {
-            // verify required parameter 'collectionId' is not null or undefined
-            if (collectionId === null || collectionId === undefined) {
-                throw new RequiredError('collectionId','Required parameter collectionId was null or undefined when calling findEntry.');
-            }
-            // verify required parameter 'entryId' is not null or undefined
-            if (entryId === null || entryId === undefined) {
-                throw new RequiredError('entryId','Required parameter entryId was null or undefined when calling findEntry.');
+        findDuplicates(id: number, limit?: number, options: any = {}): RequestArgs {
+            // verify required parameter 'id' is not null or undefined
+            if (id === null || id === undefined) {
+                throw new RequiredError('id','Required parameter id was null or undefined when calling findDuplicates.');
             }
-            const localVarPath = `/collections/{collectionId}/entries/{entryId}`
-                .replace(`{${"collectionId"}}`, encodeURIComponent(String(collectionId)))
-                .replace(`{${"entryId"}}`, encodeURIComponent(String(entryId)));
+            const localVarPath = `/collections/{id}/duplicates`
+                .replace(`{${"id"}}`, encodeURIComponent(String(id)));
             const localVarUrlObj = globalImportUrl.parse(localVarPath, true);
             let baseOptions;
             if (configuration) {
@@ -684,6 +1251,10 @@ export const DefaultApiAxiosParamCreator = function (configuration?: Configurati
                 localVarHeaderParameter["Authorization"] = "Bearer " + accessToken;
             }
 
+            if (limit !== undefined) {
+                localVarQueryParameter['limit'] = limit;
+            }
+
 
     
             localVarUrlObj.query = {...localVarUrlObj.query, ...localVarQueryParameter, ...options.query};
@@ -697,12 +1268,21 @@ export const DefaultApiAxiosParamCreator = function (configuration?: Configurati
             };
         },
         /**
-         * Get description for all entry types
+         * returns the entries of a collection, optionally paged and projected
+         * @param {number} collectionId ID
+         * @param {number} [limit] Page size (at most 1000). Enables paging ordered by id. Without \'limit\' and \'cursor\', everything is returned at once. 
+         * @param {string} [cursor] Opaque cursor from the \'X-Next-Cursor\' header of the previous page. Items added or removed meanwhile do not shift the following pages. 
+         * @param {string} [fields] Comma-separated entry properties (citeKey, entryType) and field types (title, author, ...) to return, e.g. \'citeKey,title\'. The id is always returned, the fields array only holds the requested field types and is left out if none are requested. 
          * @param {*} [options] Override http request option.
          * @throws {RequiredError}
          */
-        getEntryDescriptions(options: any = {}): RequestArgs {
-            const localVarPath = `/entrydescriptions`;
+        findEntries(collectionId: number, limit?: number, cursor?: string, fields?: string, options: any = {}): RequestArgs {
+            // verify required parameter 'collectionId' is not null or undefined
+            if (collectionId === null || collectionId === undefined) {
+                throw new RequiredError('collectionId','Required parameter collectionId was null or undefined when calling findEntries.');
+            }
+            const localVarPath = `/collections/{collectionId}/entries`
+                .replace(`{${"collectionId"}}`, encodeURIComponent(String(collectionId)));
             const localVarUrlObj = globalImportUrl.parse(localVarPath, true);
             let baseOptions;
             if (configuration) {
@@ -712,6 +1292,27 @@ export const DefaultApiAxiosParamCreator = function (configuration?: Configurati
             const localVarHeaderParameter = {} as any;
             const localVarQueryParameter = {} as any;
 
+            // authentication bearerAuth required
+            // http bearer authentication required
+            if (configuration && configuration.accessToken) {
+                const accessToken = typeof configuration.accessToken === 'function'
+                    ? configuration.accessToken()
+                    : configuration.accessToken;
+                localVarHeaderParameter["Authorization"] = "Bearer " + accessToken;
+            }
+
+            if (limit !== undefined) {
+                localVarQueryParameter['limit'] = limit;
+            }
+
+            if (cursor !== undefined) {
+                localVarQueryParameter['cursor'] = cursor;
+            }
+
+            if (fields !== undefined) {
+                localVarQueryParameter['fields'] = fields;
+            }
+
 
     
             localVarUrlObj.query = {...localVarUrlObj.query, ...localVarQueryParameter, ...options.query};
@@ -725,191 +1326,807 @@ export const DefaultApiAxiosParamCreator = function (configuration?: Configurati
             };
         },
         /**
-         * Returns a new user session
-         * @param {Credentials} credentials User Credentials
+         * returns a single entry
+         * @param {number} collectionId ID
+         * @param {number} entryId ID
          * @param {*} [options] Override http request option.
          * @throws {RequiredError}
          */
-        loginUser(credentials: Credentials, options: any = {}): RequestArgs {
-            // verify required parameter 'credentials' is not null or undefined
-            if (credentials === null || credentials === undefined) {
-                throw new RequiredError('credentials','Required parameter credentials was null or undefined when calling loginUser.');
+        findEntry(collectionId: number, entryId: number, options: any = {}): RequestArgs {
+            // verify required parameter 'collectionId' is not null or undefined
+            if (collectionId === null || collectionId === undefined) {
+                throw new RequiredError('collectionId','Required parameter collectionId was null or undefined when calling findEntry.');
             }
-            const localVarPath = `/login`;
+            // verify required parameter 'entryId' is not null or undefined
+            if (entryId === null || entryId === undefined) {
+                throw new RequiredError('entryId','Required parameter entryId was null or undefined when calling findEntry.');
+            }
+            const localVarPath = `/collections/{collectionId}/entries/{entryId}`
+                .replace(`{${"collectionId"}}`, encodeURIComponent(String(collectionId)))
+                .replace(`{${"entryId"}}`, encodeURIComponent(String(entryId)));
             const localVarUrlObj = globalImportUrl.parse(localVarPath, true);
             let baseOptions;
             if (configuration) {
                 baseOptions = configuration.baseOptions;
             }
-            const localVarRequestOptions = { method: 'POST', ...baseOptions, ...options};
+            const localVarRequestOptions = { method: 'GET', ...baseOptions, ...options};
             const localVarHeaderParameter = {} as any;
             const localVarQueryParameter = {} as any;
 
+            // authentication bearerAuth required
+            // http bearer authentication required
+            if (configuration && configuration.accessToken) {
+                const accessToken = typeof configuration.accessToken === 'function'
+                    ? configuration.accessToken()
+                    : configuration.accessToken;
+                localVarHeaderParameter["Authorization"] = "Bearer " + accessToken;
+            }
+
 
     
-            localVarHeaderParameter['Content-Type'] = 'application/json';
-
             localVarUrlObj.query = {...localVarUrlObj.query, ...localVarQueryParameter, ...options.query};
             // fix override query string Detail: https://stackoverflow.com/a/7517673/1077943
             delete localVarUrlObj.search;
             localVarRequestOptions.headers = {...localVarHeaderParameter, ...options.headers};
-            const needsSerialization = (typeof credentials !== "string") || localVarRequestOptions.headers['Content-Type'] === 'application/json';
-            localVarRequestOptions.data =  needsSerialization ? JSON.stringify(credentials !== undefined ? credentials : {}) : (credentials || "");
 
             return {
                 url: globalImportUrl.format(localVarUrlObj),
                 options: localVarRequestOptions,
             };
         },
-    }
-};
-
-/**
+        /**
+         * entry counts of a collection per entry type, year, journal and book title
+         * @param {number} id ID of collection 
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        getCollectionStats(id: number, options: any = {}): RequestArgs {
+            // verify required parameter 'id' is not null or undefined
+            if (id === null || id === undefined) {
+                throw new RequiredError('id','Required parameter id was null or undefined when calling getCollectionStats.');
+            }
+            const localVarPath = `/collections/{id}/stats`
+                .replace(`{${"id"}}`, encodeURIComponent(String(id)));
+            const localVarUrlObj = globalImportUrl.parse(localVarPath, true);
+            let baseOptions;
+            if (configuration) {
+                baseOptions = configuration.baseOptions;
+            }
+            const localVarRequestOptions = { method: 'GET', ...baseOptions, ...options};
+            const localVarHeaderParameter = {} as any;
+            const localVarQueryParameter = {} as any;
+
+            // authentication bearerAuth required
+            // http bearer authentication required
+            if (configuration && configuration.accessToken) {
+                const accessToken = typeof configuration.accessToken === 'function'
+                    ? configuration.accessToken()
+                    : configuration.accessToken;
+                localVarHeaderParameter["Authorization"] = "Bearer " + accessToken;
+            }
+
+
+    
+            localVarUrlObj.query = {...localVarUrlObj.query, ...localVarQueryParameter, ...options.query};
+            // fix override query string Detail: https://stackoverflow.com/a/7517673/1077943
+            delete localVarUrlObj.search;
+            localVarRequestOptions.headers = {...localVarHeaderParameter, ...options.headers};
+
+            return {
+                url: globalImportUrl.format(localVarUrlObj),
+                options: localVarRequestOptions,
+            };
+        },
+        /**
+         * Get description for all entry types
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        getEntryDescriptions(options: any = {}): RequestArgs {
+            const localVarPath = `/entrydescriptions`;
+            const localVarUrlObj = globalImportUrl.parse(localVarPath, true);
+            let baseOptions;
+            if (configuration) {
+                baseOptions = configuration.baseOptions;
+            }
+            const localVarRequestOptions = { method: 'GET', ...baseOptions, ...options};
+            const localVarHeaderParameter = {} as any;
+            const localVarQueryParameter = {} as any;
+
+
+    
+            localVarUrlObj.query = {...localVarUrlObj.query, ...localVarQueryParameter, ...options.query};
+            // fix override query string Detail: https://stackoverflow.com/a/7517673/1077943
+            delete localVarUrlObj.search;
+            localVarRequestOptions.headers = {...localVarHeaderParameter, ...options.headers};
+
+            return {
+                url: globalImportUrl.format(localVarUrlObj),
+                options: localVarRequestOptions,
+            };
+        },
+        /**
+         * state and progress of a job
+         * @param {number} id ID of job 
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        getJob(id: number, options: any = {}): RequestArgs {
+            // verify required parameter 'id' is not null or undefined
+            if (id === null || id === undefined) {
+                throw new RequiredError('id','Required parameter id was null or undefined when calling getJob.');
+            }
+            const localVarPath = `/jobs/{id}`
+                .replace(`{${"id"}}`, encodeURIComponent(String(id)));
+            const localVarUrlObj = globalImportUrl.parse(localVarPath, true);
+            let baseOptions;
+            if (configuration) {
+                baseOptions = configuration.baseOptions;
+            }
+            const localVarRequestOptions = { method: 'GET', ...baseOptions, ...options};
+            const localVarHeaderParameter = {} as any;
+            const localVarQueryParameter = {} as any;
+
+            // authentication bearerAuth required
+            // http bearer authentication required
+            if (configuration && configuration.accessToken) {
+                const accessToken = typeof configuration.accessToken === 'function'
+                    ? configuration.accessToken()
+                    : configuration.accessToken;
+                localVarHeaderParameter["Authorization"] = "Bearer " + accessToken;
+            }
+
+
+    
+            localVarUrlObj.query = {...localVarUrlObj.query, ...localVarQueryParameter, ...options.query};
+            // fix override query string Detail: https://stackoverflow.com/a/7517673/1077943
+            delete localVarUrlObj.search;
+            localVarRequestOptions.headers = {...localVarHeaderParameter, ...options.headers};
+
+            return {
+                url: globalImportUrl.format(localVarUrlObj),
+                options: localVarRequestOptions,
+            };
+        },
+        /**
+         * result of a succeeded job, the BibTeX file of an export, the report of an import or the clusters of a duplicate scan 
+         * @param {number} id ID of job 
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        getJobResult(id: number, options: any = {}): RequestArgs {
+            // verify required parameter 'id' is not null or undefined
+            if (id === null || id === undefined) {
+                throw new RequiredError('id','Required parameter id was null or undefined when calling getJobResult.');
+            }
+            const localVarPath = `/jobs/{id}/result`
+                .replace(`{${"id"}}`, encodeURIComponent(String(id)));
+            const localVarUrlObj = globalImportUrl.parse(localVarPath, true);
+            let baseOptions;
+            if (configuration) {
+                baseOptions = configuration.baseOptions;
+            }
+            const localVarRequestOptions = { method: 'GET', ...baseOptions, ...options};
+            const localVarHeaderParameter = {} as any;
+            const localVarQueryParameter = {} as any;
+
+            // authentication bearerAuth required
+            // http bearer authentication required
+            if (configuration && configuration.accessToken) {
+                const accessToken = typeof configuration.accessToken === 'function'
+                    ? configuration.accessToken()
+                    : configuration.accessToken;
+                localVarHeaderParameter["Authorization"] = "Bearer " + accessToken;
+            }
+
+
+    
+            localVarUrlObj.query = {...localVarUrlObj.query, ...localVarQueryParameter, ...options.query};
+            // fix override query string Detail: https://stackoverflow.com/a/7517673/1077943
+            delete localVarUrlObj.search;
+            localVarRequestOptions.headers = {...localVarHeaderParameter, ...options.headers};
+
+            return {
+                url: globalImportUrl.format(localVarUrlObj),
+                options: localVarRequestOptions,
+            };
+        },
+        /**
+         * entry counts of all collections of the user per entry type, year, journal and book title
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        getStats(options: any = {}): RequestArgs {
+            const localVarPath = `/stats`;
+            const localVarUrlObj = globalImportUrl.parse(localVarPath, true);
+            let baseOptions;
+            if (configuration) {
+                baseOptions = configuration.baseOptions;
+            }
+            const localVarRequestOptions = { method: 'GET', ...baseOptions, ...options};
+            const localVarHeaderParameter = {} as any;
+            const localVarQueryParameter = {} as any;
+
+            // authentication bearerAuth required
+            // http bearer authentication required
+            if (configuration && configuration.accessToken) {
+                const accessToken = typeof configuration.accessToken === 'function'
+                    ? configuration.accessToken()
+                    : configuration.accessToken;
+                localVarHeaderParameter["Authorization"] = "Bearer " + accessToken;
+            }
+
+
+    
+            localVarUrlObj.query = {...localVarUrlObj.query, ...localVarQueryParameter, ...options.query};
+            // fix override query string Detail: https://stackoverflow.com/a/7517673/1077943
+            delete localVarUrlObj.search;
+            localVarRequestOptions.headers = {...localVarHeaderParameter, ...options.headers};
+
+            return {
+                url: globalImportUrl.format(localVarUrlObj),
+                options: localVarRequestOptions,
+            };
+        },
+        /**
+         * imports a BibTeX file into a collection
+         * @param {number} id ID of collection 
+         * @param {string} body BibTeX file (UTF-8) 
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        importBibTex(id: number, body: string, options: any = {}): RequestArgs {
+            // verify required parameter 'id' is not null or undefined
+            if (id === null || id === undefined) {
+                throw new RequiredError('id','Required parameter id was null or undefined when calling importBibTex.');
+            }
+            // verify required parameter 'body' is not null or undefined
+            if (body === null || body === undefined) {
+                throw new RequiredError('body','Required parameter body was null or undefined when calling importBibTex.');
+            }
+            const localVarPath = `/collections/{id}/import.bib`
+                .replace(`{${"id"}}`, encodeURIComponent(String(id)));
+            const localVarUrlObj = globalImportUrl.parse(localVarPath, true);
+            let baseOptions;
+            if (configuration) {
+                baseOptions = configuration.baseOptions;
+            }
+            const localVarRequestOptions = { method: 'POST', ...baseOptions, ...options};
+            const localVarHeaderParameter = {} as any;
+            const localVarQueryParameter = {} as any;
+
+            // authentication bearerAuth required
+            // http bearer authentication required
+            if (configuration && configuration.accessToken) {
+                const accessToken = typeof configuration.accessToken === 'function'
+                    ? configuration.accessToken()
+                    : configuration.accessToken;
+                localVarHeaderParameter["Authorization"] = "Bearer " + accessToken;
+            }
+
+
+    
+            localVarHeaderParameter['Content-Type'] = 'application/x-bibtex';
+
+            localVarUrlObj.query = {...localVarUrlObj.query, ...localVarQueryParameter, ...options.query};
+            // fix override query string Detail: https://stackoverflow.com/a/7517673/1077943
+            delete localVarUrlObj.search;
+            localVarRequestOptions.headers = {...localVarHeaderParameter, ...options.headers};
+            const needsSerialization = (typeof body !== "string") || localVarRequestOptions.headers['Content-Type'] === 'application/json';
+            localVarRequestOptions.data =  needsSerialization ? JSON.stringify(body !== undefined ? body : {}) : (body || "");
+
+            return {
+                url: globalImportUrl.format(localVarUrlObj),
+                options: localVarRequestOptions,
+            };
+        },
+        /**
+         * list the authors and editors of all collections of the user, with their entry counts
+         * @param {string} [prefix] Start of the names, e.g. 'knu' or 'Knuth, D'. 
+         * @param {number} [limit] Maximum number of authors (default and at most 1000). 
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        listAuthors(prefix?: string, limit?: number, options: any = {}): RequestArgs {
+            const localVarPath = `/authors`;
+            const localVarUrlObj = globalImportUrl.parse(localVarPath, true);
+            let baseOptions;
+            if (configuration) {
+                baseOptions = configuration.baseOptions;
+            }
+            const localVarRequestOptions = { method: 'GET', ...baseOptions, ...options};
+            const localVarHeaderParameter = {} as any;
+            const localVarQueryParameter = {} as any;
+
+            // authentication bearerAuth required
+            // http bearer authentication required
+            if (configuration && configuration.accessToken) {
+                const accessToken = typeof configuration.accessToken === 'function'
+                    ? configuration.accessToken()
+                    : configuration.accessToken;
+                localVarHeaderParameter["Authorization"] = "Bearer " + accessToken;
+            }
+
+            if (prefix !== undefined) {
+                localVarQueryParameter['prefix'] = prefix;
+            }
+
+            if (limit !== undefined) {
+                localVarQueryParameter['limit'] = limit;
+            }
+
+
+    
+            localVarUrlObj.query = {...localVarUrlObj.query, ...localVarQueryParameter, ...options.query};
+            // fix override query string Detail: https://stackoverflow.com/a/7517673/1077943
+            delete localVarUrlObj.search;
+            localVarRequestOptions.headers = {...localVarHeaderParameter, ...options.headers};
+
+            return {
+                url: globalImportUrl.format(localVarUrlObj),
+                options: localVarRequestOptions,
+            };
+        },
+        /**
+         * Returns a new user session
+         * @param {Credentials} credentials User Credentials
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        loginUser(credentials: Credentials, options: any = {}): RequestArgs {
+            // verify required parameter 'credentials' is not null or undefined
+            if (credentials === null || credentials === undefined) {
+                throw new RequiredError('credentials','Required parameter credentials was null or undefined when calling loginUser.');
+            }
+            const localVarPath = `/login`;
+            const localVarUrlObj = globalImportUrl.parse(localVarPath, true);
+            let baseOptions;
+            if (configuration) {
+                baseOptions = configuration.baseOptions;
+            }
+            const localVarRequestOptions = { method: 'POST', ...baseOptions, ...options};
+            const localVarHeaderParameter = {} as any;
+            const localVarQueryParameter = {} as any;
+
+
+    
+            localVarHeaderParameter['Content-Type'] = 'application/json';
+
+            localVarUrlObj.query = {...localVarUrlObj.query, ...localVarQueryParameter, ...options.query};
+            // fix override query string Detail: https://stackoverflow.com/a/7517673/1077943
+            delete localVarUrlObj.search;
+            localVarRequestOptions.headers = {...localVarHeaderParameter, ...options.headers};
+            const needsSerialization = (typeof credentials !== "string") || localVarRequestOptions.headers['Content-Type'] === 'application/json';
+            localVarRequestOptions.data =  needsSerialization ? JSON.stringify(credentials !== undefined ? credentials : {}) : (credentials || "");
+
+            return {
+                url: globalImportUrl.format(localVarUrlObj),
+                options: localVarRequestOptions,
+            };
+        },
+        /**
+         * full-text search over the entries of all collections of the user, ranked by relevance (BM25)
+         * @param {string} q Search text. Entries containing any of its words are returned, best matches first. 
+         * @param {number} [limit] Maximum number of hits (default 20, at most 1000). 
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        searchEntries(q: string, limit?: number, options: any = {}): RequestArgs {
+            // verify required parameter 'q' is not null or undefined
+            if (q === null || q === undefined) {
+                throw new RequiredError('q','Required parameter q was null or undefined when calling searchEntries.');
+            }
+            const localVarPath = `/search`;
+            const localVarUrlObj = globalImportUrl.parse(localVarPath, true);
+            let baseOptions;
+            if (configuration) {
+                baseOptions = configuration.baseOptions;
+            }
+            const localVarRequestOptions = { method: 'GET', ...baseOptions, ...options};
+            const localVarHeaderParameter = {} as any;
+            const localVarQueryParameter = {} as any;
+
+            // authentication bearerAuth required
+            // http bearer authentication required
+            if (configuration && configuration.accessToken) {
+                const accessToken = typeof configuration.accessToken === 'function'
+                    ? configuration.accessToken()
+                    : configuration.accessToken;
+                localVarHeaderParameter["Authorization"] = "Bearer " + accessToken;
+            }
+
+            if (q !== undefined) {
+                localVarQueryParameter['q'] = q;
+            }
+
+            if (limit !== undefined) {
+                localVarQueryParameter['limit'] = limit;
+            }
+
+
+    
+            localVarUrlObj.query = {...localVarUrlObj.query, ...localVarQueryParameter, ...options.query};
+            // fix override query string Detail: https://stackoverflow.com/a/7517673/1077943
+            delete localVarUrlObj.search;
+            localVarRequestOptions.headers = {...localVarHeaderParameter, ...options.headers};
+
+            return {
+                url: globalImportUrl.format(localVarUrlObj),
+                options: localVarRequestOptions,
+            };
+        },
+        /**
+         * submits a background job on a collection: an export as BibTeX file, an import of a BibTeX file, a rebuild of the indexes or a scan for near-duplicate entries. The job is queued and run by a few low-priority workers, its state is polled via the Location header. 
+         * @param {'export' | 'import' | 'reindex' | 'dedup'} type what the job shall do 
+         * @param {number} collection ID of collection 
+         * @param {string} [body] BibTeX file (UTF-8) to import, only for imports 
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        submitJob(type: 'export' | 'import' | 'reindex' | 'dedup', collection: number, body?: string, options: any = {}): RequestArgs {
+            // verify required parameter 'type' is not null or undefined
+            if (type === null || type === undefined) {
+                throw new RequiredError('type','Required parameter type was null or undefined when calling submitJob.');
+            }
+            // verify required parameter 'collection' is not null or undefined
+            if (collection === null || collection === undefined) {
+                throw new RequiredError('collection','Required parameter collection was null or undefined when calling submitJob.');
+            }
+            const localVarPath = `/jobs`;
+            const localVarUrlObj = globalImportUrl.parse(localVarPath, true);
+            let baseOptions;
+            if (configuration) {
+                baseOptions = configuration.baseOptions;
+            }
+            const localVarRequestOptions = { method: 'POST', ...baseOptions, ...options};
+            const localVarHeaderParameter = {} as any;
+            const localVarQueryParameter = {} as any;
+
+            // authentication bearerAuth required
+            // http bearer authentication required
+            if (configuration && configuration.accessToken) {
+                const accessToken = typeof configuration.accessToken === 'function'
+                    ? configuration.accessToken()
+                    : configuration.accessToken;
+                localVarHeaderParameter["Authorization"] = "Bearer " + accessToken;
+            }
+
+            if (type !== undefined) {
+                localVarQueryParameter['type'] = type;
+            }
+
+            if (collection !== undefined) {
+                localVarQueryParameter['collection'] = collection;
+            }
+
+
+    
+            localVarHeaderParameter['Content-Type'] = 'application/x-bibtex';
+
+            localVarUrlObj.query = {...localVarUrlObj.query, ...localVarQueryParameter, ...options.query};
+            // fix override query string Detail: https://stackoverflow.com/a/7517673/1077943
+            delete localVarUrlObj.search;
+            localVarRequestOptions.headers = {...localVarHeaderParameter, ...options.headers};
+            const needsSerialization = (typeof body !== "string") || localVarRequestOptions.headers['Content-Type'] === 'application/json';
+            localVarRequestOptions.data =  needsSerialization ? JSON.stringify(body !== undefined ? body : {}) : (body || "");
+
+            return {
+                url: globalImportUrl.format(localVarUrlObj),
+                options: localVarRequestOptions,
+            };
+        },
+    }
+};
+
+/**
  * DefaultApi - functional programming interface
  * @export
  */
 export const DefaultApiFp = function(configuration?: Configuration) {
     return {
         /**
-         * Creates a new collection
-         * @param {Collection} collection Collection to add to the library
+         * Creates a new collection
+         * @param {Collection} collection Collection to add to the library
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        addCollection(collection: Collection, options?: any): (axios?: AxiosInstance, basePath?: string) => AxiosPromise<Collection> {
+            const localVarAxiosArgs = DefaultApiAxiosParamCreator(configuration).addCollection(collection, options);
+            return (axios: AxiosInstance = globalAxios, basePath: string = BASE_PATH) => {
+                const axiosRequestArgs = {...localVarAxiosArgs.options, url: basePath + localVarAxiosArgs.url};
+                return axios.request(axiosRequestArgs);
+            };
+        },
+        /**
+         * Creates a new entry
+         * @param {number} collectionId ID
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        addEntry(collectionId: number, options?: any): (axios?: AxiosInstance, basePath?: string) => AxiosPromise<Collection> {
+            const localVarAxiosArgs = DefaultApiAxiosParamCreator(configuration).addEntry(collectionId, options);
+            return (axios: AxiosInstance = globalAxios, basePath: string = BASE_PATH) => {
+                const axiosRequestArgs = {...localVarAxiosArgs.options, url: basePath + localVarAxiosArgs.url};
+                return axios.request(axiosRequestArgs);
+            };
+        },
+        /**
+         * Creates a new user
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        addUser(options?: any): (axios?: AxiosInstance, basePath?: string) => AxiosPromise<void> {
+            const localVarAxiosArgs = DefaultApiAxiosParamCreator(configuration).addUser(options);
+            return (axios: AxiosInstance = globalAxios, basePath: string = BASE_PATH) => {
+                const axiosRequestArgs = {...localVarAxiosArgs.options, url: basePath + localVarAxiosArgs.url};
+                return axios.request(axiosRequestArgs);
+            };
+        },
+        /**
+         * applies a list of create, update and delete operations to the entries of a collection
+         * @param {number} collectionId ID 
+         * @param {Array<BatchOperation>} batchOperation operations, at most 1000 
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        batchEntries(collectionId: number, batchOperation: Array<BatchOperation>, options?: any): (axios?: AxiosInstance, basePath?: string) => AxiosPromise<Array<BatchResult>> {
+            const localVarAxiosArgs = DefaultApiAxiosParamCreator(configuration).batchEntries(collectionId, batchOperation, options);
+            return (axios: AxiosInstance = globalAxios, basePath: string = BASE_PATH) => {
+                const axiosRequestArgs = {...localVarAxiosArgs.options, url: basePath + localVarAxiosArgs.url};
+                return axios.request(axiosRequestArgs);
+            };
+        },
+        /**
+         * cancels a job. Queued jobs are cancelled at once, running ones shortly after. Finished jobs are not changed. 
+         * @param {number} id ID of job 
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        cancelJob(id: number, options?: any): (axios?: AxiosInstance, basePath?: string) => AxiosPromise<Job> {
+            const localVarAxiosArgs = DefaultApiAxiosParamCreator(configuration).cancelJob(id, options);
+            return (axios: AxiosInstance = globalAxios, basePath: string = BASE_PATH) => {
+                const axiosRequestArgs = {...localVarAxiosArgs.options, url: basePath + localVarAxiosArgs.url};
+                return axios.request(axiosRequestArgs);
+            };
+        },
+        /**
+         * deletes a collection by id
+         * @param {number} id ID of collection to delete
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        deleteCollection(id: number, options?: any): (axios?: AxiosInstance, basePath?: string) => AxiosPromise<void> {
+            const localVarAxiosArgs = DefaultApiAxiosParamCreator(configuration).deleteCollection(id, options);
+            return (axios: AxiosInstance = globalAxios, basePath: string = BASE_PATH) => {
+                const axiosRequestArgs = {...localVarAxiosArgs.options, url: basePath + localVarAxiosArgs.url};
+                return axios.request(axiosRequestArgs);
+            };
+        },
+        /**
+         * deletes a collection by id
+         * @param {number} collectionId ID
+         * @param {number} entryId ID
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        deleteEntry(collectionId: number, entryId: number, options?: any): (axios?: AxiosInstance, basePath?: string) => AxiosPromise<void> {
+            const localVarAxiosArgs = DefaultApiAxiosParamCreator(configuration).deleteEntry(collectionId, entryId, options);
+            return (axios: AxiosInstance = globalAxios, basePath: string = BASE_PATH) => {
+                const axiosRequestArgs = {...localVarAxiosArgs.options, url: basePath + localVarAxiosArgs.url};
+                return axios.request(axiosRequestArgs);
+            };
+        },
+        /**
+         * edits a collection by id
+         * @param {number} id ID of collection to delete
+         * @param {Collection} collection collection to edit
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        editCollection(id: number, collection: Collection, options?: any): (axios?: AxiosInstance, basePath?: string) => AxiosPromise<void> {
+            const localVarAxiosArgs = DefaultApiAxiosParamCreator(configuration).editCollection(id, collection, options);
+            return (axios: AxiosInstance = globalAxios, basePath: string = BASE_PATH) => {
+                const axiosRequestArgs = {...localVarAxiosArgs.options, url: basePath + localVarAxiosArgs.url};
+                return axios.request(axiosRequestArgs);
+            };
+        },
+        /**
+         * edits an entry by id
+         * @param {number} collectionId ID
+         * @param {number} entryId ID
+         * @param {Collection} collection entry to edit
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        editEntry(collectionId: number, entryId: number, collection: Collection, options?: any): (axios?: AxiosInstance, basePath?: string) => AxiosPromise<void> {
+            const localVarAxiosArgs = DefaultApiAxiosParamCreator(configuration).editEntry(collectionId, entryId, collection, options);
+            return (axios: AxiosInstance = globalAxios, basePath: string = BASE_PATH) => {
+                const axiosRequestArgs = {...localVarAxiosArgs.options, url: basePath + localVarAxiosArgs.url};
+                return axios.request(axiosRequestArgs);
+            };
+        },
+        /**
+         * exports a collection as BibTeX file
+         * @param {number} id ID of collection 
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        exportCollection(id: number, options?: any): (axios?: AxiosInstance, basePath?: string) => AxiosPromise<string> {
+            const localVarAxiosArgs = DefaultApiAxiosParamCreator(configuration).exportCollection(id, options);
+            return (axios: AxiosInstance = globalAxios, basePath: string = BASE_PATH) => {
+                const axiosRequestArgs = {...localVarAxiosArgs.options, url: basePath + localVarAxiosArgs.url};
+                return axios.request(axiosRequestArgs);
+            };
+        },
+        /**
+         * entries of an author or editor in all collections of the user
+         * @param {string} name Name of the author, e.g. 'Knuth, Donald E.'. A last name alone finds all authors with it. 
+         * @param {number} [limit] Maximum number of entries (default and at most 1000). 
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        findAuthorEntries(name: string, limit?: number, options?: any): (axios?: AxiosInstance, basePath?: string) => AxiosPromise<Array<AuthorEntry>> {
+            const localVarAxiosArgs = DefaultApiAxiosParamCreator(configuration).findAuthorEntries(name, limit, options);
+            return (axios: AxiosInstance = globalAxios, basePath: string = BASE_PATH) => {
+                const axiosRequestArgs = {...localVarAxiosArgs.options, url: basePath + localVarAxiosArgs.url};
+                return axios.request(axiosRequestArgs);
+            };
+        },
+        /**
+         * returns a single collection
+         * @param {number} id ID
          * @param {*} [options] Override http request option.
          * @throws {RequiredError}
          */
-        addCollection(collection: Collection, options?: any): (axios?: AxiosInstance, basePath?: string) => AxiosPromise<Collection> {
-            const localVarAxiosArgs = DefaultApiAxiosParamCreator(configuration).addCollection(collection, options);
+        findCollection(id: number, options?: any): (axios?: AxiosInstance, basePath?: string) => AxiosPromise<Collection> {
+            const localVarAxiosArgs = DefaultApiAxiosParamCreator(configuration).findCollection(id, options);
             return (axios: AxiosInstance = globalAxios, basePath: string = BASE_PATH) => {
                 const axiosRequestArgs = {...localVarAxiosArgs.options, url: basePath + localVarAxiosArgs.url};
                 return axios.request(axiosRequestArgs);
             };
         },
         /**
-         * Creates a new entry
-         * @param {number} collectionId ID
+         * Latex literature management
          * @param {*} [options] Override http request option.
          * @throws {RequiredError}
          */
-        addEntry(collectionId: number, options?: any): (axios?: AxiosInstance, basePath?: string) => AxiosPromise<Collection> {
-            const localVarAxiosArgs = DefaultApiAxiosParamCreator(configuration).addEntry(collectionId, options);
+        findCollections(limit?: number, cursor?: string, fields?: string, options?: any): (axios?: AxiosInstance, basePath?: string) => AxiosPromise<Array<Collection>> {
+            const localVarAxiosArgs = DefaultApiAxiosParamCreator(configuration).findCollections(limit, cursor, fields, options);
             return (axios: AxiosInstance = globalAxios, basePath: string = BASE_PATH) => {
                 const axiosRequestArgs = {...localVarAxiosArgs.options, url: basePath + localVarAxiosArgs.url};
                 return axios.request(axiosRequestArgs);
             };
         },
         /**
-         * Creates a new user
+         * clusters of near-duplicate entries of a collection (similar title, authors and year), e.g. the same paper imported under two cite keys. The largest clusters come first. 
+         * @param {number} id ID of collection 
+         * @param {number} [limit] Maximum number of clusters (default and at most 1000). 
          * @param {*} [options] Override http request option.
          * @throws {RequiredError}
          */
-        addUser(options?: any): (axios?: AxiosInstance, basePath?: string) => AxiosPromise<void> {
-            const localVarAxiosArgs = DefaultApiAxiosParamCreator(configuration).addUser(options);
+        findDuplicates(id: number, limit?: number, options?: any): (axios?: AxiosInstance, basePath?: string) => AxiosPromise<Array<DuplicateCluster>> {
+            const localVarAxiosArgs = DefaultApiAxiosParamCreator(configuration).findDuplicates(id, limit, options);
             return (axios: AxiosInstance = globalAxios, basePath: string = BASE_PATH) => {
                 const axiosRequestArgs = {...localVarAxiosArgs.options, url: basePath + localVarAxiosArgs.url};
                 return axios.request(axiosRequestArgs);
             };
         },
         /**
-         * deletes a collection by id
-         * @param {number} id ID of collection to delete
+         * returns the entries of a collection, optionally paged and projected
+         * @param {number} collectionId ID
+         * @param {number} [limit] Page size (at most 1000). Enables paging ordered by id. Without \'limit\' and \'cursor\', everything is returned at once. 
+         * @param {string} [cursor] Opaque cursor from the \'X-Next-Cursor\' header of the previous page. Items added or removed meanwhile do not shift the following pages. 
+         * @param {string} [fields] Comma-separated entry properties (citeKey, entryType) and field types (title, author, ...) to return, e.g. \'citeKey,title\'. The id is always returned, the fields array only holds the requested field types and is left out if none are requested. 
          * @param {*} [options] Override http request option.
          * @throws {RequiredError}
          */
-        deleteCollection(id: number, options?: any): (axios?: AxiosInstance, basePath?: string) => AxiosPromise<void> {
-            const localVarAxiosArgs = DefaultApiAxiosParamCreator(configuration).deleteCollection(id, options);
+        findEntries(collectionId: number, limit?: number, cursor?: string, fields?: string, options?: any): (axios?: AxiosInstance, basePath?: string) => AxiosPromise<Array<Entry>> {
+            const localVarAxiosArgs = DefaultApiAxiosParamCreator(configuration).findEntries(collectionId, limit, cursor, fields, options);
             return (axios: AxiosInstance = globalAxios, basePath: string = BASE_PATH) => {
                 const axiosRequestArgs = {...localVarAxiosArgs.options, url: basePath + localVarAxiosArgs.url};
                 return axios.request(axiosRequestArgs);
             };
         },
         /**
-         * deletes a collection by id
+         * returns a single entry
          * @param {number} collectionId ID
          * @param {number} entryId ID
          * @param {*} [options] Override http request option.
          * @throws {RequiredError}
          */
-        deleteEntry(collectionId: number, entryId: number, options?: any): (axios?: AxiosInstance, basePath?: string) => AxiosPromise<void> {
-            const localVarAxiosArgs = DefaultApiAxiosParamCreator(configuration).deleteEntry(collectionId, entryId, options);
+        findEntry(collectionId: number, entryId: number, options?: any): (axios?: AxiosInstance, basePath?: string) => AxiosPromise<Entry> {
+            const localVarAxiosArgs = DefaultApiAxiosParamCreator(configuration).findEntry(collectionId, entryId, options);
             return (axios: AxiosInstance = globalAxios, basePath: string = BASE_PATH) => {
                 const axiosRequestArgs = {...localVarAxiosArgs.options, url: basePath + localVarAxiosArgs.url};
                 return axios.request(axiosRequestArgs);
             };
         },
         /**
-         * edits a collection by id
-         * @param {number} id ID of collection to delete
-         * @param {Collection} collection collection to edit
+         * entry counts of a collection per entry type, year, journal and book title
+         * @param {number} id ID of collection 
          * @param {*} [options] Override http request option.
          * @throws {RequiredError}
          */
-        editCollection(id: number, collection: Collection, options?: any): (axios?: AxiosInstance, basePath?: string) => AxiosPromise<void> {
-            const localVarAxiosArgs = DefaultApiAxiosParamCreator(configuration).editCollection(id, collection, options);
+        getCollectionStats(id: number, options?: any): (axios?: AxiosInstance, basePath?: string) => AxiosPromise<Stats> {
+            const localVarAxiosArgs = DefaultApiAxiosParamCreator(configuration).getCollectionStats(id, options);
             return (axios: AxiosInstance = globalAxios, basePath: string = BASE_PATH) => {
                 const axiosRequestArgs = {...localVarAxiosArgs.options, url: basePath + localVarAxiosArgs.url};
                 return axios.request(axiosRequestArgs);
             };
         },
         /**
-         * edits an entry by id
-         * @param {number} collectionId ID
-         * @param {number} entryId ID
-         * @param {Collection} collection entry to edit
+         * Get description for all entry types
          * @param {*} [options] Override http request option.
          * @throws {RequiredError}
          */
-        editEntry(collectionId: number, entryId: number, collection: Collection, options?: any): (axios?: AxiosInstance, basePath?: string) => AxiosPromise<void> {
-            const localVarAxiosArgs = DefaultApiAxiosParamCreator(configuration).editEntry(collectionId, entryId, collection, options);
+        getEntryDescriptions(options?: any): (axios?: AxiosInstance, basePath?: string) => AxiosPromise<Array<EntryDescription>> {
+            const localVarAxiosArgs = DefaultApiAxiosParamCreator(configuration).getEntryDescriptions(options);
             return (axios: AxiosInstance = globalAxios, basePath: string = BASE_PATH) => {
                 const axiosRequestArgs = {...localVarAxiosArgs.options, url: basePath + localVarAxiosArgs.url};
                 return axios.request(axiosRequestArgs);
             };
         },
         /**
-         * returns a single collection
-         * @param {number} id ID
+         * state and progress of a job
+         * @param {number} id ID of job 
          * @param {*} [options] Override http request option.
          * @throws {RequiredError}
          */
-        findCollection(id: number, options?: any): (axios?: AxiosInstance, basePath?: string) => AxiosPromise<Collection> {
-            const localVarAxiosArgs = DefaultApiAxiosParamCreator(configuration).findCollection(id, options);
+        getJob(id: number, options?: any): (axios?: AxiosInstance, basePath?: string) => AxiosPromise<Job> {
+            const localVarAxiosArgs = DefaultApiAxiosParamCreator(configuration).getJob(id, options);
             return (axios: AxiosInstance = globalAxios, basePath: string = BASE_PATH) => {
                 const axiosRequestArgs = {...localVarAxiosArgs.options, url: basePath + localVarAxiosArgs.url};
                 return axios.request(axiosRequestArgs);
             };
         },
         /**
-         * Latex literature management
+         * result of a succeeded job, the BibTeX file of an export, the report of an import or the clusters of a duplicate scan 
+         * @param {number} id ID of job 
          * @param {*} [options] Override http request option.
          * @throws {RequiredError}
          */
-        findCollections(options?: any): (axios?: AxiosInstance, basePath?: string) => AxiosPromise<Array<Collection>> {
-            const localVarAxiosArgs = DefaultApiAxiosParamCreator(configuration).findCollections(options);
+        getJobResult(id: number, options?: any): (axios?: AxiosInstance, basePath?: string) => AxiosPromise<string> {
+            const localVarAxiosArgs = DefaultApiAxiosParamCreator(configuration).getJobResult(id, options);
             return (axios: AxiosInstance = globalAxios, basePath: string = BASE_PATH) => {
                 const axiosRequestArgs = {...localVarAxiosArgs.options, url: basePath + localVarAxiosArgs.url};
                 return axios.request(axiosRequestArgs);
             };
         },
         /**
-         * returns a single entry
-         * @param {number} collectionId ID
-         * @param {number} entryId ID
+         * entry counts of all collections of the user per entry type, year, journal and book title
          * @param {*} [options] Override http request option.
          * @throws {RequiredError}
          */
-        findEntry(collectionId: number, entryId: number, options?: any): (axios?: AxiosInstance, basePath?: string) => AxiosPromise<Entry> {
-            const localVarAxiosArgs = DefaultApiAxiosParamCreator(configuration).findEntry(collectionId, entryId, options);
+        getStats(options?: any): (axios?: AxiosInstance, basePath?: string) => AxiosPromise<Stats> {
+            const localVarAxiosArgs = DefaultApiAxiosParamCreator(configuration).getStats(options);
             return (axios: AxiosInstance = globalAxios, basePath: string = BASE_PATH) => {
                 const axiosRequestArgs = {...localVarAxiosArgs.options, url: basePath + localVarAxiosArgs.url};
                 return axios.request(axiosRequestArgs);
             };
         },
         /**
-         * Get description for all entry types
+         * imports a BibTeX file into a collection
+         * @param {number} id ID of collection 
+         * @param {string} body BibTeX file (UTF-8) 
          * @param {*} [options] Override http request option.
          * @throws {RequiredError}
          */
-        getEntryDescriptions(options?: any): (axios?: AxiosInstance, basePath?: string) => AxiosPromise<Array<EntryDescription>> {
-            const localVarAxiosArgs = DefaultApiAxiosParamCreator(configuration).getEntryDescriptions(options);
+        importBibTex(id: number, body: string, options?: any): (axios?: AxiosInstance, basePath?: string) => AxiosPromise<ImportReport> {
+            const localVarAxiosArgs = DefaultApiAxiosParamCreator(configuration).importBibTex(id, body, options);
+            return (axios: AxiosInstance = globalAxios, basePath: string = BASE_PATH) => {
+                const axiosRequestArgs = {...localVarAxiosArgs.options, url: basePath + localVarAxiosArgs.url};
+                return axios.request(axiosRequestArgs);
+            };
+        },
+        /**
+         * list the authors and editors of all collections of the user, with their entry counts
+         * @param {string} [prefix] Start of the names, e.g. 'knu' or 'Knuth, D'. 
+         * @param {number} [limit] Maximum number of authors (default and at most 1000). 
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        listAuthors(prefix?: string, limit?: number, options?: any): (axios?: AxiosInstance, basePath?: string) => AxiosPromise<Array<AuthorCount>> {
+            const localVarAxiosArgs = DefaultApiAxiosParamCreator(configuration).listAuthors(prefix, limit, options);
             return (axios: AxiosInstance = globalAxios, basePath: string = BASE_PATH) => {
                 const axiosRequestArgs = {...localVarAxiosArgs.options, url: basePath + localVarAxiosArgs.url};
                 return axios.request(axiosRequestArgs);
@@ -928,6 +2145,35 @@ export const DefaultApiFp = function(configuration?: Configuration) {
                 return axios.request(axiosRequestArgs);
             };
         },
+        /**
+         * full-text search over the entries of all collections of the user, ranked by relevance (BM25)
+         * @param {string} q Search text. Entries containing any of its words are returned, best matches first. 
+         * @param {number} [limit] Maximum number of hits (default 20, at most 1000). 
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        searchEntries(q: string, limit?: number, options?: any): (axios?: AxiosInstance, basePath?: string) => AxiosPromise<Array<SearchHit>> {
+            const localVarAxiosArgs = DefaultApiAxiosParamCreator(configuration).searchEntries(q, limit, options);
+            return (axios: AxiosInstance = globalAxios, basePath: string = BASE_PATH) => {
+                const axiosRequestArgs = {...localVarAxiosArgs.options, url: basePath + localVarAxiosArgs.url};
+                return axios.request(axiosRequestArgs);
+            };
+        },
+        /**
+         * submits a background job on a collection: an export as BibTeX file, an import of a BibTeX file, a rebuild of the indexes or a scan for near-duplicate entries. The job is queued and run by a few low-priority workers, its state is polled via the Location header. 
+         * @param {'export' | 'import' | 'reindex' | 'dedup'} type what the job shall do 
+         * @param {number} collection ID of collection 
+         * @param {string} [body] BibTeX file (UTF-8) to import, only for imports 
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        submitJob(type: 'export' | 'import' | 'reindex' | 'dedup', collection: number, body?: string, options?: any): (axios?: AxiosInstance, basePath?: string) => AxiosPromise<Job> {
+            const localVarAxiosArgs = DefaultApiAxiosParamCreator(configuration).submitJob(type, collection, body, options);
+            return (axios: AxiosInstance = globalAxios, basePath: string = BASE_PATH) => {
+                const axiosRequestArgs = {...localVarAxiosArgs.options, url: basePath + localVarAxiosArgs.url};
+                return axios.request(axiosRequestArgs);
+            };
+        },
     }
 };
 
@@ -963,6 +2209,25 @@ export const DefaultApiFactory = function (configuration?: Configuration, basePa
         addUser(options?: any): AxiosPromise<void> {
             return DefaultApiFp(configuration).addUser(options)(axios, basePath);
         },
+        /**
+         * applies a list of create, update and delete operations to the entries of a collection
+         * @param {number} collectionId ID 
+         * @param {Array<BatchOperation>} batchOperation operations, at most 1000 
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        batchEntries(collectionId: number, batchOperation: Array<BatchOperation>, options?: any): AxiosPromise<Array<BatchResult>> {
+            return DefaultApiFp(configuration).batchEntries(collectionId, batchOperation, options)(axios, basePath);
+        },
+        /**
+         * cancels a job. Queued jobs are cancelled at once, running ones shortly after. Finished jobs are not changed. 
+         * @param {number} id ID of job 
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        cancelJob(id: number, options?: any): AxiosPromise<Job> {
+            return DefaultApiFp(configuration).cancelJob(id, options)(axios, basePath);
+        },
         /**
          * deletes a collection by id
          * @param {number} id ID of collection to delete
@@ -1003,6 +2268,25 @@ export const DefaultApiFactory = function (configuration?: Configuration, basePa
         editEntry(collectionId: number, entryId: number, collection: Collection, options?: any): AxiosPromise<void> {
             return DefaultApiFp(configuration).editEntry(collectionId, entryId, collection, options)(axios, basePath);
         },
+        /**
+         * exports a collection as BibTeX file
+         * @param {number} id ID of collection 
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        exportCollection(id: number, options?: any): AxiosPromise<string> {
+            return DefaultApiFp(configuration).exportCollection(id, options)(axios, basePath);
+        },
+        /**
+         * entries of an author or editor in all collections of the user
+         * @param {string} name Name of the author, e.g. 'Knuth, Donald E.'. A last name alone finds all authors with it. 
+         * @param {number} [limit] Maximum number of entries (default and at most 1000). 
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        findAuthorEntries(name: string, limit?: number, options?: any): AxiosPromise<Array<AuthorEntry>> {
+            return DefaultApiFp(configuration).findAuthorEntries(name, limit, options)(axios, basePath);
+        },
         /**
          * returns a single collection
          * @param {number} id ID
@@ -1017,8 +2301,30 @@ export const DefaultApiFactory = function (configuration?: Configuration, basePa
          * @param {*} [options] Override http request option.
          * @throws {RequiredError}
          */
-        findCollections(options?: any): AxiosPromise<Array<Collection>> {
-            return DefaultApiFp(configuration).findCollections(options)(axios, basePath);
+        findCollections(limit?: number, cursor?: string, fields?: string, options?: any): AxiosPromise<Array<Collection>> {
+            return DefaultApiFp(configuration).findCollections(limit, cursor, fields, options)(axios, basePath);
+        },
+        /**
+         * clusters of near-duplicate entries of a collection (similar title, authors and year), e.g. the same paper imported under two cite keys. The largest clusters come first. 
+         * @param {number} id ID of collection 
+         * @param {number} [limit] Maximum number of clusters (default and at most 1000). 
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        findDuplicates(id: number, limit?: number, options?: any): AxiosPromise<Array<DuplicateCluster>> {
+            return DefaultApiFp(configuration).findDuplicates(id, limit, options)(axios, basePath);
+        },
+        /**
+         * returns the entries of a collection, optionally paged and projected
+         * @param {number} collectionId ID
+         * @param {number} [limit] Page size (at most 1000). Enables paging ordered by id. Without \'limit\' and \'cursor\', everything is returned at once. 
+         * @param {string} [cursor] Opaque cursor from the \'X-Next-Cursor\' header of the previous page. Items added or removed meanwhile do not shift the following pages. 
+         * @param {string} [fields] Comma-separated entry properties (citeKey, entryType) and field types (title, author, ...) to return, e.g. \'citeKey,title\'. The id is always returned, the fields array only holds the requested field types and is left out if none are requested. 
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        findEntries(collectionId: number, limit?: number, cursor?: string, fields?: string, options?: any): AxiosPromise<Array<Entry>> {
+            return DefaultApiFp(configuration).findEntries(collectionId, limit, cursor, fields, options)(axios, basePath);
         },
         /**
          * returns a single entry
@@ -1030,6 +2336,15 @@ export const DefaultApiFactory = function (configuration?: Configuration, basePa
         findEntry(collectionId: number, entryId: number, options?: any): AxiosPromise<Entry> {
             return DefaultApiFp(configuration).findEntry(collectionId, entryId, options)(axios, basePath);
         },
+        /**
+         * entry counts of a collection per entry type, year, journal and book title
+         * @param {number} id ID of collection 
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        getCollectionStats(id: number, options?: any): AxiosPromise<Stats> {
+            return DefaultApiFp(configuration).getCollectionStats(id, options)(axios, basePath);
+        },
         /**
          * Get description for all entry types
          * @param {*} [options] Override http request option.
@@ -1038,6 +2353,52 @@ export const DefaultApiFactory = function (configuration?: Configuration, basePa
         getEntryDescriptions(options?: any): AxiosPromise<Array<EntryDescription>> {
             return DefaultApiFp(configuration).getEntryDescriptions(options)(axios, basePath);
         },
+        /**
+         * state and progress of a job
+         * @param {number} id ID of job 
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        getJob(id: number, options?: any): AxiosPromise<Job> {
+            return DefaultApiFp(configuration).getJob(id, options)(axios, basePath);
+        },
+        /**
+         * result of a succeeded job, the BibTeX file of an export, the report of an import or the clusters of a duplicate scan 
+         * @param {number} id ID of job 
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        getJobResult(id: number, options?: any): AxiosPromise<string> {
+            return DefaultApiFp(configuration).getJobResult(id, options)(axios, basePath);
+        },
+        /**
+         * entry counts of all collections of the user per entry type, year, journal and book title
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        getStats(options?: any): AxiosPromise<Stats> {
+            return DefaultApiFp(configuration).getStats(options)(axios, basePath);
+        },
+        /**
+         * imports a BibTeX file into a collection
+         * @param {number} id ID of collection 
+         * @param {string} body BibTeX file (UTF-8) 
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        importBibTex(id: number, body: string, options?: any): AxiosPromise<ImportReport> {
+            return DefaultApiFp(configuration).importBibTex(id, body, options)(axios, basePath);
+        },
+        /**
+         * list the authors and editors of all collections of the user, with their entry counts
+         * @param {string} [prefix] Start of the names, e.g. 'knu' or 'Knuth, D'. 
+         * @param {number} [limit] Maximum number of authors (default and at most 1000). 
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        listAuthors(prefix?: string, limit?: number, options?: any): AxiosPromise<Array<AuthorCount>> {
+            return DefaultApiFp(configuration).listAuthors(prefix, limit, options)(axios, basePath);
+        },
         /**
          * Returns a new user session
          * @param {Credentials} credentials User Credentials
@@ -1047,6 +2408,27 @@ export const DefaultApiFactory = function (configuration?: Configuration, basePa
         loginUser(credentials: Credentials, options?: any): AxiosPromise<string> {
             return DefaultApiFp(configuration).loginUser(credentials, options)(axios, basePath);
         },
+        /**
+         * full-text search over the entries of all collections of the user, ranked by relevance (BM25)
+         * @param {string} q Search text. Entries containing any of its words are returned, best matches first. 
+         * @param {number} [limit] Maximum number of hits (default 20, at most 1000). 
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        searchEntries(q: string, limit?: number, options?: any): AxiosPromise<Array<SearchHit>> {
+            return DefaultApiFp(configuration).searchEntries(q, limit, options)(axios, basePath);
+        },
+        /**
+         * submits a background job on a collection: an export as BibTeX file, an import of a BibTeX file, a rebuild of the indexes or a scan for near-duplicate entries. The job is queued and run by a few low-priority workers, its state is polled via the Location header. 
+         * @param {'export' | 'import' | 'reindex' | 'dedup'} type what the job shall do 
+         * @param {number} collection ID of collection 
+         * @param {string} [body] BibTeX file (UTF-8) to import, only for imports 
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        submitJob(type: 'export' | 'import' | 'reindex' | 'dedup', collection: number, body?: string, options?: any): AxiosPromise<Job> {
+            return DefaultApiFp(configuration).submitJob(type, collection, body, options)(axios, basePath);
+        },
     };
 };
 
@@ -1089,6 +2471,29 @@ export class DefaultApi extends BaseAPI {
         return DefaultApiFp(this.configuration).addUser(options)(this.axios, this.basePath);
     }
 
+    /**
+     * applies a list of create, update and delete operations to the entries of a collection
+     * @param {number} collectionId ID 
+     * @param {Array<BatchOperation>} batchOperation operations, at most 1000 
+     * @param {*} [options] Override http request option.
+     * @throws {RequiredError}
+     * @memberof DefaultApi
+     */
+    public batchEntries(collectionId: number, batchOperation: Array<BatchOperation>, options?: any) {
+        return DefaultApiFp(this.configuration).batchEntries(collectionId, batchOperation, options)(this.axios, this.basePath);
+    }
+
+    /**
+     * cancels a job. Queued jobs are cancelled at once, running ones shortly after. Finished jobs are not changed. 
+     * @param {number} id ID of job 
+     * @param {*} [options] Override http request option.
+     * @throws {RequiredError}
+     * @memberof DefaultApi
+     */
+    public cancelJob(id: number, options?: any) {
+        return DefaultApiFp(this.configuration).cancelJob(id, options)(this.axios, this.basePath);
+    }
+
     /**
      * deletes a collection by id
      * @param {number} id ID of collection to delete
@@ -1137,6 +2542,29 @@ export class DefaultApi extends BaseAPI {
         return DefaultApiFp(this.configuration).editEntry(collectionId, entryId, collection, options)(this.axios, this.basePath);
     }
 
+    /**
+     * exports a collection as BibTeX file
+     * @param {number} id ID of collection 
+     * @param {*} [options] Override http request option.
+     * @throws {RequiredError}
+     * @memberof DefaultApi
+     */
+    public exportCollection(id: number, options?: any) {
+        return DefaultApiFp(this.configuration).exportCollection(id, options)(this.axios, this.basePath);
+    }
+
+    /**
+     * entries of an author or editor in all collections of the user
+     * @param {string} name Name of the author, e.g. 'Knuth, Donald E.'. A last name alone finds all authors with it. 
+     * @param {number} [limit] Maximum number of entries (default and at most 1000). 
+     * @param {*} [options] Override http request option.
+     * @throws {RequiredError}
+     * @memberof DefaultApi
+     */
+    public findAuthorEntries(name: string, limit?: number, options?: any) {
+        return DefaultApiFp(this.configuration).findAuthorEntries(name, limit, options)(this.axios, this.basePath);
+    }
+
     /**
      * returns a single collection
      * @param {number} id ID
@@ -1154,8 +2582,34 @@ export class DefaultApi extends BaseAPI {
      * @throws {RequiredError}
      * @memberof DefaultApi
      */
-    public findCollections(options?: any) {
-        return DefaultApiFp(this.configuration).findCollections(options)(this.axios, this.basePath);
+    public findCollections(limit?: number, cursor?: string, fields?: string, options?: any) {
+        return DefaultApiFp(this.configuration).findCollections(limit, cursor, fields, options)(this.axios, this.basePath);
+    }
+
+    /**
+     * clusters of near-duplicate entries of a collection (similar title, authors and year), e.g. the same paper imported under two cite keys. The largest clusters come first. 
+     * @param {number} id ID of collection 
+     * @param {number} [limit] Maximum number of clusters (default and at most 1000). 
+     * @param {*} [options] Override http request option.
+     * @throws {RequiredError}
+     * @memberof DefaultApi
+     */
+    public findDuplicates(id: number, limit?: number, options?: any) {
+        return DefaultApiFp(this.configuration).findDuplicates(id, limit, options)(this.axios, this.basePath);
+    }
+
+    /**
+     * returns the entries of a collection, optionally paged and projected
+     * @param {number} collectionId ID
+     * @param {number} [limit] Page size (at most 1000). Enables paging ordered by id. Without \'limit\' and \'cursor\', everything is returned at once. 
+     * @param {string} [cursor] Opaque cursor from the \'X-Next-Cursor\' header of the previous page. Items added or removed meanwhile do not shift the following pages. 
+     * @param {string} [fields] Comma-separated entry properties (citeKey, entryType) and field types (title, author, ...) to return, e.g. \'citeKey,title\'. The id is always returned, the fields array only holds the requested field types and is left out if none are requested. 
+     * @param {*} [options] Override http request option.
+     * @throws {RequiredError}
+     * @memberof DefaultApi
+     */
+    public findEntries(collectionId: number, limit?: number, cursor?: string, fields?: string, options?: any) {
+        return DefaultApiFp(this.configuration).findEntries(collectionId, limit, cursor, fields, options)(this.axios, this.basePath);
     }
 
     /**
@@ -1170,6 +2624,17 @@ export class DefaultApi extends BaseAPI {
         return DefaultApiFp(this.configuration).findEntry(collectionId, entryId, options)(this.axios, this.basePath);
     }
 
+    /**
+     * entry counts of a collection per entry type, year, journal and book title
+     * @param {number} id ID of collection 
+     * @param {*} [options] Override http request option.
+     * @throws {RequiredError}
+     * @memberof DefaultApi
+     */
+    public getCollectionStats(id: number, options?: any) {
+        return DefaultApiFp(this.configuration).getCollectionStats(id, options)(this.axios, this.basePath);
+    }
+
     /**
      * Get description for all entry types
      * @param {*} [options] Override http request option.
@@ -1180,6 +2645,62 @@ export class DefaultApi extends BaseAPI {
         return DefaultApiFp(this.configuration).getEntryDescriptions(options)(this.axios, this.basePath);
     }
 
+    /**
+     * state and progress of a job
+     * @param {number} id ID of job 
+     * @param {*} [options] Override http request option.
+     * @throws {RequiredError}
+     * @memberof DefaultApi
+     */
+    public getJob(id: number, options?: any) {
+        return DefaultApiFp(this.configuration).getJob(id, options)(this.axios, this.basePath);
+    }
+
+    /**
+     * result of a succeeded job, the BibTeX file of an export, the report of an import or the clusters of a duplicate scan 
+     * @param {number} id ID of job 
+     * @param {*} [options] Override http request option.
+     * @throws {RequiredError}
+     * @memberof DefaultApi
+     */
+    public getJobResult(id: number, options?: any) {
+        return DefaultApiFp(this.configuration).getJobResult(id, options)(this.axios, this.basePath);
+    }
+
+    /**
+     * entry counts of all collections of the user per entry type, year, journal and book title
+     * @param {*} [options] Override http request option.
+     * @throws {RequiredError}
+     * @memberof DefaultApi
+     */
+    public getStats(options?: any) {
+        return DefaultApiFp(this.configuration).getStats(options)(this.axios, this.basePath);
+    }
+
+    /**
+     * imports a BibTeX file into a collection
+     * @param {number} id ID of collection 
+     * @param {string} body BibTeX file (UTF-8) 
+     * @param {*} [options] Override http request option.
+     * @throws {RequiredError}
+     * @memberof DefaultApi
+     */
+    public importBibTex(id: number, body: string, options?: any) {
+        return DefaultApiFp(this.configuration).importBibTex(id, body, options)(this.axios, this.basePath);
+    }
+
+    /**
+     * list the authors and editors of all collections of the user, with their entry counts
+     * @param {string} [prefix] Start of the names, e.g. 'knu' or 'Knuth, D'. 
+     * @param {number} [limit] Maximum number of authors (default and at most 1000). 
+     * @param {*} [options] Override http request option.
+     * @throws {RequiredError}
+     * @memberof DefaultApi
+     */
+    public listAuthors(prefix?: string, limit?: number, options?: any) {
+        return DefaultApiFp(this.configuration).listAuthors(prefix, limit, options)(this.axios, this.basePath);
+    }
+
     /**
      * Returns a new user session
      * @param {Credentials} credentials User Credentials
@@ -1191,6 +2712,31 @@ export class DefaultApi extends BaseAPI {
         return DefaultApiFp(this.configuration).loginUser(credentials, options)(this.axios, this.basePath);
     }
 
+    /**
+     * full-text search over the entries of all collections of the user, ranked by relevance (BM25)
+     * @param {string} q Search text. Entries containing any of its words are returned, best matches first. 
+     * @param {number} [limit] Maximum number of hits (default 20, at most 1000). 
+     * @param {*} [options] Override http request option.
+     * @throws {RequiredError}
+     * @memberof DefaultApi
+     */
+    public searchEntries(q: string, limit?: number, options?: any) {
+        return DefaultApiFp(this.configuration).searchEntries(q, limit, options)(this.axios, this.basePath);
+    }
+
+    /**
+     * submits a background job on a collection: an export as BibTeX file, an import of a BibTeX file, a rebuild of the indexes or a scan for near-duplicate entries. The job is queued and run by a few low-priority workers, its state is polled via the Location header. 
+     * @param {'export' | 'import' | 'reindex' | 'dedup'} type what the job shall do 
+     * @param {number} collection ID of collection 
+     * @param {string} [body] BibTeX file (UTF-8) to import, only for imports 
+     * @param {*} [options] Override http request option.
+     * @throws {RequiredError}
+     * @memberof DefaultApi
+     */
+    public submitJob(type: 'export' | 'import' | 'reindex' | 'dedup', collection: number, body?: string, options?: any) {
+        return DefaultApiFp(this.configuration).submitJob(type, collection, body, options)(this.axios, this.basePath);
+    }
+
 }
 
 